@@ -163,21 +163,26 @@ public class CliApplication implements CommandLineRunner, Runnable {
                 return;
             }
 
-            // 如果有命令，直接执行
-            if (command != null && !command.isEmpty()) {
-                System.out.println("\n[INFO] Executing command: " + command);
-                jimiEngine.run(command).block();
-                System.out.println("\n✓ Command completed");
-                return;
-            }
+            try {
+                // 如果有命令，直接执行
+                if (command != null && !command.isEmpty()) {
+                    System.out.println("\n[INFO] Executing command: " + command);
+                    jimiEngine.run(command).block();
+                    System.out.println("\n✓ Command completed");
+                    return;
+                }
 
-            // 初始化阶段：创建WireEngineClient（内部完成所有配置缓存）
-            EngineClient engineClient = new WireEngineClient(jimiEngine, sessionManager);
+                // 初始化阶段：创建WireEngineClient（内部完成所有配置缓存）
+                EngineClient engineClient = new WireEngineClient(jimiEngine, sessionManager);
 
-            // 初始化阶段：创建ShellUI（注入EngineClient）
-            try (ShellUI shellUI = new ShellUI(engineClient, applicationContext)) {
-                // 运行阶段：启动主循环
-                shellUI.run().block();
+                // 初始化阶段：创建ShellUI（注入EngineClient）
+                try (ShellUI shellUI = new ShellUI(engineClient, applicationContext)) {
+                    // 运行阶段：启动主循环
+                    shellUI.run().block();
+                }
+            } finally {
+                // 排空会话历史的写队列
+                jimiEngine.getContext().close();
             }
 
         } catch (Exception e) {
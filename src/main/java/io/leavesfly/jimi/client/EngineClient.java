@@ -166,4 +166,11 @@ public interface EngineClient {
      */
     Flux<WireMessage> subscribe();
 
+    /**
+     * 向引擎事件流发布消息（如本地命令的进度事件），所有订阅方都会收到
+     *
+     * @param message 消息
+     */
+    void publish(WireMessage message);
+
 }
@@ -225,4 +225,9 @@ public class WireEngineClient implements EngineClient {
         return wire.asFlux();
     }
 
+    @Override
+    public void publish(WireMessage message) {
+        wire.send(message);
+    }
+
 }
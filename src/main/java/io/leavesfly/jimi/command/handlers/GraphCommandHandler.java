@@ -8,6 +8,7 @@ import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
 import io.leavesfly.jimi.knowledge.graph.model.EntityType;
 import io.leavesfly.jimi.knowledge.graph.model.RelationType;
 import io.leavesfly.jimi.knowledge.graph.navigator.GraphNavigator;
+import io.leavesfly.jimi.knowledge.graph.navigator.TraversalCache;
 import io.leavesfly.jimi.ui.shell.output.OutputFormatter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -278,6 +279,12 @@ public class GraphCommandHandler implements CommandHandler {
             if (stats.getProjectRoot() != null) {
                 out.println("  项目路径: " + stats.getProjectRoot());
             }
+            TraversalCache.Stats cache = stats.getTraversalCache();
+            if (cache != null && cache.isEnabled()) {
+                out.println(String.format("  遍历缓存: 命中率 %.1f%% (%d/%d), %d 条, 约 %d KB",
+                        cache.getHitRate() * 100, cache.getHits(), cache.getHits() + cache.getMisses(),
+                        cache.getEntries(), cache.getEstimatedBytes() / 1024));
+            }
             out.println();
             
         } catch (Exception e) {
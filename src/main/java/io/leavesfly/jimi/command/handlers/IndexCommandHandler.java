@@ -20,6 +20,7 @@ import java.util.Date;
  * <p>
  * 支持的命令：
  * - /index build [path]    : 构建索引
+ * - /index update [path]   : 增量更新索引（跳过未变化文件）
  * - /index query <text>    : 查询索引
  * - /index stats           : 查看索引统计
  * - /index clear           : 清空索引
@@ -43,7 +44,7 @@ public class IndexCommandHandler implements CommandHandler {
 
     @Override
     public String getDescription() {
-        return "向量索引管理 - 支持: build/query/stats/clear";
+        return "向量索引管理 - 支持: build/update/query/stats/clear";
     }
 
     @Override
@@ -69,7 +70,10 @@ public class IndexCommandHandler implements CommandHandler {
 
         switch (subCommand) {
             case "build":
-                handleBuild(context, args);
+                handleBuild(context, args, false);
+                break;
+            case "update":
+                handleBuild(context, args, true);
                 break;
             case "query":
                 handleQuery(context, args);
@@ -90,11 +94,11 @@ public class IndexCommandHandler implements CommandHandler {
         }
     }
 
-    private void handleBuild(CommandContext context, String[] args) {
+    private void handleBuild(CommandContext context, String[] args, boolean incremental) {
         // 解析参数
         String targetPath = args.length > 1 ? args[1] : context.getEngineClient().getWorkDir().toString();
     
-        context.getOutputFormatter().printInfo("🔨 开始构建索引...");
+        context.getOutputFormatter().printInfo(incremental ? "🔨 开始增量更新索引..." : "🔨 开始构建索引...");
         context.getOutputFormatter().printInfo("   目标路径: " + targetPath);
     
         try {
@@ -104,8 +108,9 @@ public class IndexCommandHandler implements CommandHandler {
                 return;
             }
     
-            // 通过 RagManager 构建索引
-            RetrievalResult result = ragManager.buildIndex(basePath).block();
+            // 通过 RagManager 构建索引，进度经 Wire 推送给 UI
+            RetrievalResult result = ragManager.buildIndex(basePath, incremental,
+                    context.getEngineClient()::publish).block();
             
             if (result == null || !result.isSuccess()) {
                 context.getOutputFormatter().printError("构建失败: " + 
@@ -119,10 +124,20 @@ public class IndexCommandHandler implements CommandHandler {
                 context.getOutputFormatter().printSuccess("✅ 索引已保存");
             }
     
-            int totalChunks = result.getIndexStats() != null ? 
-                    result.getIndexStats().getTotalChunks() : 0;
+            RetrievalResult.IndexStats buildStats = result.getIndexStats();
+            int totalChunks = buildStats != null ? buildStats.getTotalChunks() : 0;
             context.getOutputFormatter().printSuccess("✅ 构建完成: " + totalChunks + " 个片段, 耗时: " + 
                     result.getElapsedMs() + "ms");
+            if (buildStats != null) {
+                context.getOutputFormatter().printInfo(String.format(
+                        "   嵌入: %d, 去重复用: %d, 失败: %d, 吞吐: %.1f chunks/s",
+                        buildStats.getEmbeddedChunks(), buildStats.getDedupedChunks(),
+                        buildStats.getFailedChunks(), buildStats.getChunksPerSecond()));
+                context.getOutputFormatter().printInfo(String.format(
+                        "   文件: 新增 %d, 更新 %d, 移除 %d, 跳过 %d",
+                        buildStats.getAddedFiles(), buildStats.getUpdatedFiles(),
+                        buildStats.getRemovedFiles(), buildStats.getSkippedFiles()));
+            }
     
         } catch (Exception e) {
             log.error("构建索引失败", e);
@@ -199,6 +214,20 @@ public class IndexCommandHandler implements CommandHandler {
             context.getOutputFormatter().printInfo("  片段总数: " + stats.getTotalChunks());
             context.getOutputFormatter().printInfo("  文件总数: " + stats.getTotalFiles());
             context.getOutputFormatter().printInfo("  索引大小: " + formatBytes(stats.getIndexSizeBytes()));
+            if (stats.getStorageType() != null) {
+                context.getOutputFormatter().printInfo("  存储类型: " + stats.getStorageType());
+            }
+            if (stats.getCompressionRatio() > 0) {
+                context.getOutputFormatter().printInfo(String.format("  向量压缩比: %.2fx", stats.getCompressionRatio()));
+            }
+            if (stats.getRecallLoss() != null) {
+                context.getOutputFormatter().printInfo(String.format("  量化召回损失: %.1f%% (recall@10)",
+                        stats.getRecallLoss() * 100));
+            }
+            context.getOutputFormatter().printInfo("  查询向量缓存: " +
+                    formatCacheStats(stats.getQueryCacheHits(), stats.getQueryCacheMisses()));
+            context.getOutputFormatter().printInfo("  检索结果缓存: " +
+                    formatCacheStats(stats.getResultCacheHits(), stats.getResultCacheMisses()));
             if (stats.getLastUpdated() > 0) {
                 context.getOutputFormatter().printInfo("  最后更新: " + 
                     new Date(stats.getLastUpdated()));
@@ -241,6 +270,8 @@ public class IndexCommandHandler implements CommandHandler {
         context.getOutputFormatter().printInfo("\n📚 索引管理命令用法:");
         context.getOutputFormatter().printInfo("  /index build [path]");
         context.getOutputFormatter().printInfo("      构建索引（path默认为当前工作目录）");
+        context.getOutputFormatter().printInfo("  /index update [path]");
+        context.getOutputFormatter().printInfo("      增量更新索引：只重建内容变化的文件，移除已删除文件");
         context.getOutputFormatter().printInfo("  /index query <查询文本>");
         context.getOutputFormatter().printInfo("      查询索引并预览结果");
         context.getOutputFormatter().printInfo("  /index stats");
@@ -255,4 +286,12 @@ public class IndexCommandHandler implements CommandHandler {
         if (bytes < 1024 * 1024 * 1024) return String.format("%.2f MB", bytes / (1024.0 * 1024));
         return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
     }
+
+    private String formatCacheStats(long hits, long misses) {
+        long total = hits + misses;
+        if (total == 0) {
+            return "命中 0 / 未命中 0";
+        }
+        return String.format("命中 %d / 未命中 %d (命中率 %.1f%%)", hits, misses, hits * 100.0 / total);
+    }
 }
@@ -12,6 +12,7 @@ import io.leavesfly.jimi.core.compaction.SimpleCompaction;
 import io.leavesfly.jimi.core.sandbox.SandboxValidator;
 import io.leavesfly.jimi.exception.ConfigException;
 import io.leavesfly.jimi.knowledge.graph.GraphManager;
+import io.leavesfly.jimi.knowledge.graph.parser.CompilationUnitCache;
 import io.leavesfly.jimi.knowledge.graph.parser.LanguageParserRegistry;
 import io.leavesfly.jimi.memory.MemoryConsolidator;
 import io.leavesfly.jimi.memory.MemoryManager;
@@ -177,8 +178,10 @@ public class JimiConfiguration {
                 }
                 return new QwenEmbeddingProvider(embeddingModel, dimension, qwenConfig, objectMapper);
 
-            case "mock":
             case "local":
+                return new LocalEmbeddingProvider(dimension);
+
+            case "mock":
                 return new MockEmbeddingProvider(dimension, providerType);
 
             default:
@@ -208,7 +211,10 @@ public class JimiConfiguration {
 
         VectorStore store;
 
-        // 目前只支持内存存储，后续可扩展
+        if (!"none".equalsIgnoreCase(config.getVectorQuantization()) && !"mmap".equalsIgnoreCase(storageType)) {
+            log.warn("vector_quantization={} requires storage_type=mmap, ignored", config.getVectorQuantization());
+        }
+
         switch (storageType.toLowerCase()) {
             case "memory":
             case "file":
@@ -217,6 +223,18 @@ public class JimiConfiguration {
                 inMemoryStore.setConfiguredIndexPath(indexPath);
                 store = inMemoryStore;
                 break;
+            case "mmap":
+                MappedVectorStore mappedStore = new MappedVectorStore(objectMapper,
+                        "int8".equalsIgnoreCase(config.getVectorQuantization()));
+                mappedStore.setConfiguredIndexPath(indexPath);
+                store = mappedStore;
+                break;
+            case "hnsw":
+                HnswVectorStore hnswStore = new HnswVectorStore(objectMapper,
+                        config.getHnswM(), config.getHnswEfConstruction(), config.getHnswEfSearch());
+                hnswStore.setConfiguredIndexPath(indexPath);
+                store = hnswStore;
+                break;
             default:
                 log.warn("Unknown storage type: {}, falling back to in-memory", storageType);
                 InMemoryVectorStore fallbackStore = new InMemoryVectorStore(objectMapper);
@@ -224,6 +242,9 @@ public class JimiConfiguration {
                 store = fallbackStore;
         }
 
+        // 记录向量格式，避免加载其他嵌入提供者构建的索引
+        store.setEmbeddingFormat(embeddingProvider.getFormatId());
+
         // 注意: 自动加载需要在工作目录设置后进行
         // 将在 CodeToolProvider 或 IndexCommandHandler 中设置 workDir 后触发
         log.debug("VectorStore created, auto-load will be triggered after workDir is set");
@@ -233,19 +254,22 @@ public class JimiConfiguration {
 
     /**
      * 创建分块器
-     * 根据 JimiConfig 中的 vector_index.enabled 配置条件性创建
+     * 根据 JimiConfig 中的 vector_index.enabled 配置条件性创建；
+     * chunk_strategy=ast 时 Java 文件按语法结构分块，并与代码图共享解析结果
      */
     @Bean
-    public Chunker chunker(JimiConfig jimiConfig) {
+    public Chunker chunker(JimiConfig jimiConfig, CompilationUnitCache compilationUnitCache) {
         VectorIndexConfig config = jimiConfig.getVectorIndex();
+        boolean astChunking = "ast".equalsIgnoreCase(config.getChunkStrategy());
 
         if (!config.isEnabled()) {
             log.debug("Vector index is disabled, chunker will not be used");
         } else {
-            log.info("Creating Chunker: SimpleChunker");
+            log.info("Creating Chunker: {}", astChunking ? "JavaAstChunker" : "SimpleChunker");
         }
 
-        return new SimpleChunker();
+        SimpleChunker simpleChunker = new SimpleChunker();
+        return astChunking ? new JavaAstChunker(compilationUnitCache, simpleChunker) : simpleChunker;
     }
 
 
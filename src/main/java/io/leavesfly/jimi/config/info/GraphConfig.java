@@ -55,6 +55,26 @@ public class GraphConfig {
     @JsonProperty("storage_path")
     @Builder.Default
     private String storagePath = ".jimi/code_graph";
+
+    /**
+     * 图存储实现
+     * csr：实体 id 驻留为整数、邻接为压缩稀疏行数组，适合大图
+     * memory：对象邻接表（InMemoryCodeGraphStore）
+     * 默认：csr
+     */
+    @JsonProperty("store_type")
+    @Builder.Default
+    private String storeType = "csr";
+
+    /**
+     * csr 存储的快照格式
+     * binary：二进制快照 graph.bin，邻接与文件索引随快照保存，加载无需重建索引
+     * jsonl：entities.jsonl / relations.jsonl，与 memory 存储通用
+     * 默认：binary
+     */
+    @JsonProperty("snapshot_format")
+    @Builder.Default
+    private String snapshotFormat = "binary";
     
     /**
      * 启动时是否自动加载已保存的图
@@ -63,6 +83,15 @@ public class GraphConfig {
     @JsonProperty("auto_load")
     @Builder.Default
     private Boolean autoLoad = true;
+
+    /**
+     * 加载已保存的图后，是否按文件清单增量刷新变化的文件
+     * 关闭时加载的图可能与工作区不一致，需手动重建
+     * 默认：true
+     */
+    @JsonProperty("refresh_on_load")
+    @Builder.Default
+    private Boolean refreshOnLoad = true;
     
     /**
      * 构建后是否自动保存
@@ -71,7 +100,26 @@ public class GraphConfig {
     @JsonProperty("auto_save")
     @Builder.Default
     private Boolean autoSave = true;
-    
+
+    /**
+     * 构建并行度（同时解析的文件数）
+     * 0 表示使用全部 CPU 核数，1 表示单线程构建
+     * 默认：0
+     */
+    @JsonProperty("build_parallelism")
+    @Min(0)
+    @Builder.Default
+    private Integer buildParallelism = 0;
+
+    /**
+     * 构建时每批写入图存储的文件数
+     * 默认：64
+     */
+    @JsonProperty("build_batch_size")
+    @Min(1)
+    @Builder.Default
+    private Integer buildBatchSize = 64;
+
     /**
      * 包含文件模式
      * 默认：仅 Java 文件
@@ -96,7 +144,7 @@ public class GraphConfig {
     ));
     
     /**
-     * 缓存配置
+     * 缓存配置（影响分析、调用者/被调用者遍历结果缓存）
      */
     @JsonProperty("cache")
     @NotNull
@@ -71,9 +71,16 @@ public class LLMProviderConfig {
 
         /**
          * 超过限流时的等待时间（毫秒）
+         * 已不再使用：限流器按令牌桶精确计算等待时间，保留该字段以兼容旧配置
          */
         @JsonProperty("sleep_ms")
         private long sleepMs;
+
+        /**
+         * 每分钟最大 token 数（0 表示不限制）
+         */
+        @JsonProperty("tokens_per_minute")
+        private long tokensPerMinute;
     }
 
     /**
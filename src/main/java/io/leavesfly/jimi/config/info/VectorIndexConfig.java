@@ -43,6 +43,13 @@ public class VectorIndexConfig {
     @Builder.Default
     private int chunkOverlap = 5;
 
+    /**
+     * 分块策略（ast：Java 文件按方法/构造器/字段组/类头分块，其他文件按行窗口；line：全部按行窗口）
+     */
+    @JsonProperty("chunk_strategy")
+    @Builder.Default
+    private String chunkStrategy = "ast";
+
     /**
      * TopK 检索数量
      */
@@ -72,12 +79,96 @@ public class VectorIndexConfig {
     private int embeddingDimension = 1024;
 
     /**
-     * 存储类型（memory, file等）
+     * 嵌入批大小（每次 embedBatch 调用的最大片段数）
+     */
+    @JsonProperty("embedding_batch_size")
+    @Builder.Default
+    private int embeddingBatchSize = 25;
+
+    /**
+     * 并发在途的嵌入批次数
+     */
+    @JsonProperty("embedding_concurrency")
+    @Builder.Default
+    private int embeddingConcurrency = 4;
+
+    /**
+     * 嵌入批次失败后的最大重试次数
+     */
+    @JsonProperty("embedding_max_retries")
+    @Builder.Default
+    private int embeddingMaxRetries = 3;
+
+    /**
+     * 构建索引时每处理多少个文件保存一次检查点（0 表示只在构建结束后保存）
+     */
+    @JsonProperty("build_checkpoint_files")
+    @Builder.Default
+    private int buildCheckpointFiles = 500;
+
+    /**
+     * 查询向量缓存的最大条目数（0 表示关闭）
+     */
+    @JsonProperty("query_cache_size")
+    @Builder.Default
+    private int queryCacheSize = 1000;
+
+    /**
+     * 查询向量缓存的过期时间（秒，写入后计时）
+     */
+    @JsonProperty("query_cache_ttl_seconds")
+    @Builder.Default
+    private long queryCacheTtlSeconds = 3600;
+
+    /**
+     * 检索结果缓存的最大条目数（0 表示关闭）
+     */
+    @JsonProperty("result_cache_size")
+    @Builder.Default
+    private int resultCacheSize = 256;
+
+    /**
+     * 检索结果缓存的过期时间（秒，写入后计时）
+     */
+    @JsonProperty("result_cache_ttl_seconds")
+    @Builder.Default
+    private long resultCacheTtlSeconds = 600;
+
+    /**
+     * 存储类型（memory, file, mmap, hnsw）
      */
     @JsonProperty("storage_type")
     @Builder.Default
     private String storageType = "file";
 
+    /**
+     * 向量量化方式（none, int8），仅 storage_type=mmap 时生效
+     */
+    @JsonProperty("vector_quantization")
+    @Builder.Default
+    private String vectorQuantization = "none";
+
+    /**
+     * HNSW 每个节点的最大连接数（storage_type=hnsw 时生效，第 0 层为 2M）
+     */
+    @JsonProperty("hnsw_m")
+    @Builder.Default
+    private int hnswM = 16;
+
+    /**
+     * HNSW 构建时的候选宽度（越大图质量越高、构建越慢）
+     */
+    @JsonProperty("hnsw_ef_construction")
+    @Builder.Default
+    private int hnswEfConstruction = 200;
+
+    /**
+     * HNSW 查询时的候选宽度（越大召回越高、查询越慢）
+     */
+    @JsonProperty("hnsw_ef_search")
+    @Builder.Default
+    private int hnswEfSearch = 64;
+
     /**
      * 是否在启动时自动加载索引
      */
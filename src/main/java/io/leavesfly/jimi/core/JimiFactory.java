@@ -235,8 +235,8 @@ public class JimiFactory {
                 }
 
                 // 6. 创建 Context 并恢复历史
-                // 注意：可以通过 new Context(file, mapper, true) 启用异步批量Repository以提升性能
-                Context context = new Context(session.getHistoryFile(), objectMapper);
+                // 主会话使用异步批量Repository（group commit），退出时由 CliApplication 关闭以排空写队列
+                Context context = new Context(session.getHistoryFile(), objectMapper, true);
 
                 // 7. 加载项目级插件（提前到 ToolRegistry 创建之前，
                 //     确保插件贡献的 MCP 配置文件可被合并到 ToolRegistry）
@@ -1,6 +1,7 @@
 package io.leavesfly.jimi.core.engine;
 
 import io.leavesfly.jimi.core.engine.context.Context;
+import io.leavesfly.jimi.core.engine.toolcall.SpeculativeToolCalls;
 import io.leavesfly.jimi.core.engine.toolcall.ToolDispatcher;
 import io.leavesfly.jimi.core.session.Session;
 import io.leavesfly.jimi.exception.MaxStepsReachedException;
@@ -115,18 +116,27 @@ public class ReactLoop {
      * @return true 表示循环结束，false 表示需要继续
      */
     private Mono<Boolean> llmCallAndProcess(Context context, String systemPrompt, List<Object> toolSchemas) {
-        return llm.getChatProvider()
-                .generateStream(systemPrompt, context.getHistory(), toolSchemas)
-                // 累积流式响应，同时触发内容回调
-                .reduce(new StreamAccumulator(), (acc, chunk) -> {
-                    if (onContentChunk != null && isContentChunk(chunk)) {
-                        onContentChunk.accept(chunk);
-                    }
-                    return acc.accumulate(chunk);
-                })
-                // 构建消息并处理
-                .flatMap(acc -> processAccumulator(acc, context))
-                .onErrorResume(this::handleLLMError);
+        return Mono.defer(() -> {
+            // 流式阶段确定的并发安全工具调用立即开始执行
+            SpeculativeToolCalls speculation = toolDispatcher.startSpeculation();
+            StreamAccumulator accumulator = new StreamAccumulator().onToolCallFinalized(speculation::submit);
+
+            return llm.getChatProvider()
+                    .generateStream(systemPrompt, context.getHistory(), toolSchemas)
+                    // 累积流式响应，同时触发内容回调
+                    .reduce(accumulator, (acc, chunk) -> {
+                        if (onContentChunk != null && isContentChunk(chunk)) {
+                            onContentChunk.accept(chunk);
+                        }
+                        return acc.accumulate(chunk);
+                    })
+                    // 构建消息并处理
+                    .flatMap(acc -> processAccumulator(acc, context, speculation))
+                    // 流出错或被取消时放弃推测执行的调用
+                    .doOnError(e -> speculation.cancelAll())
+                    .doOnCancel(speculation::cancelAll)
+                    .onErrorResume(this::handleLLMError);
+        });
     }
 
     private boolean isContentChunk(ChatCompletionChunk chunk) {
@@ -137,7 +147,7 @@ public class ReactLoop {
     /**
      * 处理累加器：构建消息、保存、执行工具
      */
-    private Mono<Boolean> processAccumulator(StreamAccumulator acc, Context context) {
+    private Mono<Boolean> processAccumulator(StreamAccumulator acc, Context context, SpeculativeToolCalls speculation) {
         Message assistantMessage = acc.toAssistantMessage();
 
         // 触发回调
@@ -147,7 +157,7 @@ public class ReactLoop {
 
         // 保存消息到上下文
         return context.appendMessage(assistantMessage)
-                .then(processToolCalls(assistantMessage, context));
+                .then(processToolCalls(assistantMessage, context, speculation));
     }
 
     /**
@@ -155,7 +165,7 @@ public class ReactLoop {
      *
      * @return true 表示循环结束，false 表示需要继续
      */
-    private Mono<Boolean> processToolCalls(Message assistantMessage, Context context) {
+    private Mono<Boolean> processToolCalls(Message assistantMessage, Context context, SpeculativeToolCalls speculation) {
         List<?> toolCalls = assistantMessage.getToolCalls();
 
         // 没有工具调用，循环结束
@@ -167,7 +177,7 @@ public class ReactLoop {
         log.info("Executing {} tool calls", toolCalls.size());
 
         // 执行工具调用
-        return toolDispatcher.executeToolCalls(assistantMessage.getToolCalls(), context)
+        return toolDispatcher.executeToolCalls(assistantMessage.getToolCalls(), context, speculation)
                 .then(Mono.defer(() -> {
                     // 检查是否需要终止（连续重复错误）
                     if (toolDispatcher.shouldTerminateLoop()) {
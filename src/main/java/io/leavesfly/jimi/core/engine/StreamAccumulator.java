@@ -10,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 流式响应累加器
@@ -20,6 +21,9 @@ import java.util.List;
  * 1. temp_id 替换：某些 LLM 先发临时 ID，后发真实 ID
  * 2. 乱序发送：先发 arguments，后发 id 和 name
  * 3. 函数名延迟：函数名在后续 chunk 中才出现
+ * <p>
+ * 工具调用只在下一个调用开始（或流结束）时才被确定，此时其 id、名称、参数不会再变化，
+ * 可通过 onToolCallFinalized 回调提前处理
  */
 @Slf4j
 @Getter
@@ -34,6 +38,21 @@ public class StreamAccumulator {
     private String currentFunctionName;
     private StringBuilder currentArguments = new StringBuilder();
 
+    // 工具调用完整确定（id、名称、参数均不再变化）时的回调，用于推测执行
+    private Consumer<ToolCall> toolCallListener;
+
+    /**
+     * 设置工具调用确定回调
+     * 当下一个工具调用开始时，上一个调用即被确定并通知；最后一个调用在流结束构建消息时确定
+     *
+     * @param listener 回调
+     * @return this（支持链式调用）
+     */
+    public StreamAccumulator onToolCallFinalized(Consumer<ToolCall> listener) {
+        this.toolCallListener = listener;
+        return this;
+    }
+
     /**
      * 累积流式数据块
      *
@@ -160,7 +179,11 @@ public class StreamAccumulator {
      */
     private void finalizeCurrentToolCall() {
         if (currentToolCallId != null && !currentToolCallId.isEmpty()) {
-            toolCalls.add(buildToolCall());
+            ToolCall toolCall = buildToolCall();
+            toolCalls.add(toolCall);
+            if (toolCallListener != null) {
+                toolCallListener.accept(toolCall);
+            }
             currentToolCallId = null;
             currentFunctionName = null;
             currentArguments = new StringBuilder();
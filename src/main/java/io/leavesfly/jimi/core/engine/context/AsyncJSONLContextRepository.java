@@ -0,0 +1,507 @@
+package io.leavesfly.jimi.core.engine.context;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.leavesfly.jimi.llm.message.Message;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步批量（group commit）的 JSONL Context 持久化实现
+ * <p>
+ * 存储格式与 {@link JSONLContextRepository} 完全一致，两者可以互相读取同一文件。
+ * <p>
+ * 特性：
+ * - 长期持有一个 APPEND 模式的 FileChannel，不再每个事件打开/关闭文件
+ * - 调用方只负责序列化并入队，追加类操作入队即完成，不等待磁盘
+ * - 后台写线程一次取走队列中积压的所有行，合并为一次 write（group commit）
+ * - fsync 策略可选：NONE / INTERVAL / EVERY_COMMIT
+ * - flush() 作为屏障：之前入队的写入全部落盘后才完成
+ * - 回退、恢复前自动执行屏障；close() 及 JVM 退出时排空队列
+ * - 写线程按提交时的文件偏移维护 {@link CheckpointIndex}，回退与同步实现一样走前缀复制
+ * <p>
+ * 写入失败会记录下来，并通过下一次 flush() / 回退 / 追加以错误形式返回给调用方。
+ */
+@Slf4j
+public class AsyncJSONLContextRepository implements ContextRepository {
+
+    /**
+     * fsync 策略
+     */
+    public enum FsyncPolicy {
+        /** 只写入操作系统页缓存，由操作系统决定何时落盘 */
+        NONE,
+        /** 距上次 fsync 超过间隔时才 fsync（空闲时也会补一次） */
+        INTERVAL,
+        /** 每次 group commit 后都 fsync */
+        EVERY_COMMIT
+    }
+
+    /** 默认 fsync 间隔 */
+    public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofSeconds(1);
+
+    /** 单次 group commit 最多合并的请求数 */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /** close() 等待写线程排空队列的最长时间 */
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final Path fileBackend;
+    private final ObjectMapper objectMapper;
+    /** 读取类操作（恢复、回退）复用同步实现 */
+    private final JSONLContextRepository delegate;
+    private final CheckpointIndex index;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    private final BlockingQueue<WriteRequest> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private final Thread shutdownHook;
+    private final AtomicReference<Throwable> writeFailure = new AtomicReference<>();
+    private volatile boolean closed = false;
+
+    // 以下字段仅由写线程访问
+    private FileChannel channel;
+    private boolean dirty = false;
+    /** 下一次提交的起始偏移（即当前文件长度） */
+    private long writeOffset = 0;
+    private long lastFsyncNanos = System.nanoTime();
+
+    // 统计
+    private final LongAdder commitCount = new LongAdder();
+    private final LongAdder lineCount = new LongAdder();
+    private final LongAdder fsyncCount = new LongAdder();
+
+    public AsyncJSONLContextRepository(Path fileBackend, ObjectMapper objectMapper) {
+        this(fileBackend, objectMapper, FsyncPolicy.INTERVAL, DEFAULT_FSYNC_INTERVAL);
+    }
+
+    public AsyncJSONLContextRepository(Path fileBackend, ObjectMapper objectMapper,
+                                       FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.fileBackend = fileBackend;
+        this.objectMapper = objectMapper;
+        this.delegate = new JSONLContextRepository(fileBackend, objectMapper);
+        this.index = delegate.getCheckpointIndex();
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+
+        this.writerThread = new Thread(this::writeLoop, "Context-Writer-" + fileBackend.getFileName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+
+        this.shutdownHook = new Thread(this::drainOnShutdown, "Context-Writer-Shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        log.debug("AsyncJSONLContextRepository started: {}, fsync={}", fileBackend, fsyncPolicy);
+    }
+
+    @Override
+    public Mono<RestoredContext> restore() {
+        // 在写线程上执行，保证读取到之前入队的全部写入
+        return Mono.defer(() -> Mono.fromFuture(submit(() -> delegate.restore().block())));
+    }
+
+    @Override
+    public Mono<Void> appendMessages(List<Message> messages) {
+        return Mono.defer(() -> {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            try {
+                for (Message message : messages) {
+                    lines.write(objectMapper.writeValueAsBytes(message));
+                    lines.write('\n');
+                }
+            } catch (IOException e) {
+                log.error("Failed to serialize messages", e);
+                return Mono.error(new RuntimeException("Failed to persist messages", e));
+            }
+            return enqueue(new WriteRequest(WriteRequest.Kind.MESSAGES, lines.toByteArray(), messages.size()));
+        });
+    }
+
+    @Override
+    public Mono<Void> updateTokenCount(int tokenCount) {
+        return Mono.defer(() -> {
+            ObjectNode usageNode = objectMapper.createObjectNode();
+            usageNode.put("role", "_usage");
+            usageNode.put("token_count", tokenCount);
+            return enqueueNode(usageNode, WriteRequest.Kind.USAGE, tokenCount, "Failed to persist token count");
+        });
+    }
+
+    @Override
+    public Mono<Void> saveCheckpoint(int checkpointId) {
+        return Mono.defer(() -> {
+            ObjectNode checkpointNode = objectMapper.createObjectNode();
+            checkpointNode.put("role", "_checkpoint");
+            checkpointNode.put("id", checkpointId);
+            return enqueueNode(checkpointNode, WriteRequest.Kind.CHECKPOINT, checkpointId, "Failed to persist checkpoint");
+        });
+    }
+
+    @Override
+    public Mono<RestoredContext> revertToCheckpoint(int checkpointId) {
+        // 在写线程上执行：之前入队的写入先提交，回退期间文件句柄关闭，完成后重新打开
+        return Mono.defer(() -> Mono.fromFuture(submit(() -> {
+            closeChannel();
+            try {
+                return delegate.revertToCheckpoint(checkpointId).block();
+            } finally {
+                openChannel();
+            }
+        })));
+    }
+
+    @Override
+    public Mono<Void> flush() {
+        return Mono.defer(() -> Mono.fromFuture(submit(() -> {
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                fsync();
+            }
+            return null;
+        }))).then();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(WriteRequest.STOP);
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Context writer did not stop within {}ms: {}", CLOSE_TIMEOUT_MS, fileBackend);
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM 正在退出，钩子已在执行
+        }
+        log.debug("AsyncJSONLContextRepository closed: {} ({})", fileBackend, getStats());
+    }
+
+    /**
+     * 获取写入统计信息
+     */
+    public String getStats() {
+        return String.format("commits=%d, lines=%d, fsyncs=%d, pending=%d",
+                commitCount.sum(), lineCount.sum(), fsyncCount.sum(), queue.size());
+    }
+
+    private Mono<Void> enqueueNode(ObjectNode node, WriteRequest.Kind kind, int value, String errorMessage) {
+        byte[] line;
+        try {
+            line = (objectMapper.writeValueAsString(node) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            log.error(errorMessage, e);
+            return Mono.error(new RuntimeException(errorMessage, e));
+        }
+        return enqueue(new WriteRequest(kind, line, value));
+    }
+
+    private Mono<Void> enqueue(WriteRequest request) {
+        Throwable failure = writeFailure.getAndSet(null);
+        if (failure != null) {
+            return Mono.error(new RuntimeException("Previous context write failed", failure));
+        }
+        if (closed) {
+            return Mono.error(new IllegalStateException("Context repository is closed: " + fileBackend));
+        }
+        queue.add(request);
+        return Mono.empty();
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> action) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("Context repository is closed: " + fileBackend));
+            return future;
+        }
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Object> result = (CompletableFuture<Object>) future;
+        queue.add(new WriteRequest(action, result));
+        return future;
+    }
+
+    /**
+     * 写线程主循环
+     */
+    private void writeLoop() {
+        List<WriteRequest> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            openChannel();
+            while (true) {
+                WriteRequest first = nextRequest();
+                if (first == null) {
+                    // INTERVAL 策略下的空闲补刷
+                    fsyncQuietly();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                boolean stop = processBatch(batch);
+                batch.clear();
+                if (stop) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Failed to open context file: {}", fileBackend, e);
+            writeFailure.set(e);
+            closed = true;
+            failPending(e);
+        } finally {
+            closeChannel();
+        }
+    }
+
+    private WriteRequest nextRequest() throws InterruptedException {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && dirty) {
+            long waitNanos = fsyncIntervalNanos - (System.nanoTime() - lastFsyncNanos);
+            return waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+        }
+        return queue.take();
+    }
+
+    /**
+     * 处理一批请求：连续的写入合并为一次提交，遇到屏障/动作时先提交已累积的写入
+     *
+     * @return 是否收到停止信号
+     */
+    private boolean processBatch(List<WriteRequest> batch) {
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        int pendingLines = 0;
+        boolean stop = false;
+        boolean indexing = ensureIndexTracking();
+
+        for (WriteRequest request : batch) {
+            if (request.payload != null) {
+                if (indexing) {
+                    trackIndex(request, writeOffset + pending.size());
+                }
+                pending.write(request.payload, 0, request.payload.length);
+                pendingLines += request.kind == WriteRequest.Kind.MESSAGES ? request.value : 1;
+                continue;
+            }
+
+            commit(pending, pendingLines);
+            pending.reset();
+            pendingLines = 0;
+
+            if (request == WriteRequest.STOP) {
+                stop = true;
+                continue;
+            }
+            runAction(request);
+            indexing = ensureIndexTracking();
+        }
+        commit(pending, pendingLines);
+
+        if (stop) {
+            fsyncQuietly();
+        }
+        return stop;
+    }
+
+    private void commit(ByteArrayOutputStream pending, int lines) {
+        if (pending.size() == 0) {
+            return;
+        }
+        try {
+            if (channel == null) {
+                openChannel();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            writeOffset += pending.size();
+            dirty = true;
+            index.persist();
+            commitCount.increment();
+            lineCount.add(lines);
+
+            if (fsyncPolicy == FsyncPolicy.EVERY_COMMIT
+                    || (fsyncPolicy == FsyncPolicy.INTERVAL
+                    && System.nanoTime() - lastFsyncNanos >= fsyncIntervalNanos)) {
+                fsync();
+            }
+        } catch (IOException e) {
+            log.error("Failed to persist context to file: {}", fileBackend, e);
+            writeFailure.set(e);
+            index.invalidate();
+            resyncOffset();
+        }
+    }
+
+    /**
+     * 确保检查点索引可用；失败时本批次不维护索引（回退会退回全量扫描）
+     */
+    private boolean ensureIndexTracking() {
+        try {
+            delegate.ensureIndexTracking();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to initialize checkpoint index for {}: {}", fileBackend, e.getMessage());
+            index.invalidate();
+            return false;
+        }
+    }
+
+    private void trackIndex(WriteRequest request, long offset) {
+        switch (request.kind) {
+            case MESSAGES -> index.onMessages(request.value);
+            case USAGE -> index.onTokenCount(request.value);
+            case CHECKPOINT -> index.onCheckpoint(request.value, offset);
+        }
+    }
+
+    private void resyncOffset() {
+        try {
+            writeOffset = channel != null ? channel.size() : Files.size(fileBackend);
+        } catch (IOException e) {
+            log.debug("Failed to read context file size: {}", e.getMessage());
+        }
+    }
+
+    private void runAction(WriteRequest request) {
+        Throwable failure = writeFailure.getAndSet(null);
+        if (failure != null) {
+            request.result.completeExceptionally(
+                    new RuntimeException("Previous context write failed", failure));
+            return;
+        }
+        try {
+            request.result.complete(request.action.call());
+        } catch (Throwable e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    private void fsync() throws IOException {
+        if (dirty && channel != null) {
+            channel.force(false);
+            fsyncCount.increment();
+        }
+        dirty = false;
+        lastFsyncNanos = System.nanoTime();
+    }
+
+    private void fsyncQuietly() {
+        try {
+            fsync();
+        } catch (IOException e) {
+            log.error("Failed to fsync context file: {}", fileBackend, e);
+            writeFailure.set(e);
+        }
+    }
+
+    private void openChannel() throws IOException {
+        Path parent = fileBackend.getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(fileBackend,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writeOffset = channel.size();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            fsync();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close context file: {}", fileBackend, e);
+        }
+        channel = null;
+    }
+
+    private void failPending(Throwable cause) {
+        List<WriteRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (WriteRequest request : remaining) {
+            if (request.result != null) {
+                request.result.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * JVM 退出时排空队列，避免丢失尚未写出的消息
+     */
+    private void drainOnShutdown() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(WriteRequest.STOP);
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 写队列中的请求：要么是待写入的行，要么是需要在写线程上执行的动作
+     */
+    private static final class WriteRequest {
+        static final WriteRequest STOP = new WriteRequest(null, null);
+
+        /** 写入内容的类型，决定如何维护检查点索引 */
+        enum Kind { MESSAGES, USAGE, CHECKPOINT }
+
+        final Kind kind;
+        final byte[] payload;
+        /** MESSAGES：消息条数；USAGE：Token 计数；CHECKPOINT：检查点 ID */
+        final int value;
+        final Callable<?> action;
+        final CompletableFuture<Object> result;
+
+        WriteRequest(Kind kind, byte[] payload, int value) {
+            this.kind = kind;
+            this.payload = payload;
+            this.value = value;
+            this.action = null;
+            this.result = null;
+        }
+
+        WriteRequest(Callable<?> action, CompletableFuture<Object> result) {
+            this.kind = null;
+            this.payload = null;
+            this.value = 0;
+            this.action = action;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package io.leavesfly.jimi.core.engine.context;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Context 历史文件的检查点偏移索引（sidecar 文件）
+ * <p>
+ * 文件：{@code <history>.idx}，每个检查点一条 20 字节定长记录：
+ * id(int) | offset(long) | messageCount(int) | tokenCount(int)
+ * <p>
+ * offset 是 _checkpoint 行在历史文件中的起始字节偏移，messageCount / tokenCount
+ * 是该检查点之前的消息数与 Token 计数。回退时据此直接截取前缀，无需解析检查点之后的内容。
+ * <p>
+ * 索引只是加速手段：查找时会校验偏移处确实是对应的检查点行，不一致（旧文件、外部修改、
+ * 写入失败等）时返回空，由调用方退回全量扫描并重建索引。
+ */
+@Slf4j
+public final class CheckpointIndex {
+
+    /** sidecar 文件后缀 */
+    public static final String SUFFIX = ".idx";
+
+    private static final int RECORD_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * 检查点索引项
+     *
+     * @param id           检查点 ID
+     * @param offset       检查点行的起始字节偏移
+     * @param messageCount 检查点之前的消息数
+     * @param tokenCount   检查点处的 Token 计数
+     */
+    public record Entry(int id, long offset, int messageCount, int tokenCount) {
+    }
+
+    private final Path indexFile;
+    private final List<Entry> entries = new ArrayList<>();
+    /** 已记录但尚未写入 sidecar 的索引项（数据行落盘后才写入） */
+    private final List<Entry> unsaved = new ArrayList<>();
+    private boolean loaded = false;
+
+    /** 是否掌握历史文件当前的消息数与 Token 计数 */
+    private boolean tracking = false;
+    private int messageCount;
+    private int tokenCount;
+
+    public CheckpointIndex(Path historyFile) {
+        this.indexFile = indexFileOf(historyFile);
+    }
+
+    /**
+     * 获取历史文件对应的 sidecar 索引路径
+     */
+    public static Path indexFileOf(Path historyFile) {
+        return historyFile.resolveSibling(historyFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * 检查点行的字节内容（不含换行），与 JSONL 仓库写入的格式一致
+     */
+    static byte[] checkpointLine(int checkpointId) {
+        return ("{\"role\":\"_checkpoint\",\"id\":" + checkpointId + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    synchronized boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * 用一次完整扫描的结果替换索引，并重写 sidecar 文件
+     */
+    synchronized void reset(List<Entry> scanned, int messageCount, int tokenCount) throws IOException {
+        boolean changed = !loaded || !entries.equals(scanned);
+        entries.clear();
+        entries.addAll(scanned);
+        unsaved.clear();
+        loaded = true;
+        this.messageCount = messageCount;
+        this.tokenCount = tokenCount;
+        this.tracking = true;
+        if (changed || (scanned.isEmpty() && Files.exists(indexFile))) {
+            rewrite();
+        }
+    }
+
+    /**
+     * 写入失败等情况下放弃增量状态，下次写入前重新扫描
+     */
+    synchronized void invalidate() {
+        unsaved.clear();
+        tracking = false;
+    }
+
+    synchronized void onMessages(int count) {
+        messageCount += count;
+    }
+
+    synchronized void onTokenCount(int tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+    /**
+     * 记录一个检查点
+     *
+     * @param checkpointId 检查点 ID
+     * @param offset       检查点行的起始字节偏移
+     */
+    synchronized void onCheckpoint(int checkpointId, long offset) {
+        load();
+        Entry entry = new Entry(checkpointId, offset, messageCount, tokenCount);
+        entries.add(entry);
+        unsaved.add(entry);
+    }
+
+    /**
+     * 将未保存的索引项追加到 sidecar 文件，应在对应数据行写出之后调用
+     */
+    synchronized void persist() throws IOException {
+        if (unsaved.isEmpty()) {
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(encode(unsaved));
+        }
+        unsaved.clear();
+    }
+
+    /**
+     * 按偏移获取已知检查点，供恢复时跳过检查点行的解析
+     */
+    synchronized Map<Long, Entry> entriesByOffset() {
+        load();
+        Map<Long, Entry> byOffset = new HashMap<>();
+        for (Entry entry : entries) {
+            byOffset.put(entry.offset(), entry);
+        }
+        return byOffset;
+    }
+
+    /**
+     * 查找检查点，并校验其偏移在给定数据文件中仍然有效
+     *
+     * @param checkpointId 检查点 ID
+     * @param dataFile     要校验的历史文件（回退时为轮转后的文件）
+     * @return 有效的索引项；索引缺失或失效时为空
+     */
+    synchronized Optional<Entry> find(int checkpointId, Path dataFile) {
+        load();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Entry entry = entries.get(i);
+            if (entry.id() == checkpointId) {
+                return verify(entry, dataFile) ? Optional.of(entry) : Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 将历史文件的前 length 个字节复制到目标文件（覆盖）
+     */
+    static void copyPrefix(Path source, Path target, long length) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < length) {
+                long transferred = in.transferTo(position, length - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private boolean verify(Entry entry, Path dataFile) {
+        byte[] expected = checkpointLine(entry.id());
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            if (entry.offset() < 0 || entry.offset() + expected.length > channel.size()) {
+                return false;
+            }
+            ByteBuffer actual = ByteBuffer.allocate(expected.length);
+            while (actual.hasRemaining()) {
+                if (channel.read(actual, entry.offset() + actual.position()) < 0) {
+                    return false;
+                }
+            }
+            return Arrays.equals(expected, actual.array());
+        } catch (IOException e) {
+            log.debug("Failed to verify checkpoint index entry {}: {}", entry, e.getMessage());
+            return false;
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (InputStream raw = Files.newInputStream(indexFile);
+             DataInputStream in = new DataInputStream(raw)) {
+            long records = Files.size(indexFile) / RECORD_SIZE;
+            for (long i = 0; i < records; i++) {
+                entries.add(new Entry(in.readInt(), in.readLong(), in.readInt(), in.readInt()));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to load checkpoint index {}, ignoring: {}", indexFile, e.getMessage());
+            entries.clear();
+        }
+    }
+
+    private void rewrite() throws IOException {
+        if (entries.isEmpty()) {
+            Files.deleteIfExists(indexFile);
+            return;
+        }
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(tempFile, encode(entries));
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encode(List<Entry> toEncode) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(toEncode.size() * RECORD_SIZE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Entry entry : toEncode) {
+            out.writeInt(entry.id());
+            out.writeLong(entry.offset());
+            out.writeInt(entry.messageCount());
+            out.writeInt(entry.tokenCount());
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -57,13 +57,27 @@ public class Context {
 
 
     /**
-     * 构造器（可选择Repository实现）
+     * 构造器（使用同步写入的 JSONLContextRepository）
      *
      * @param fileBackend  文件后端路径
      * @param objectMapper JSON序列化工具
      */
     public Context(Path fileBackend, ObjectMapper objectMapper) {
-        this.repository = new JSONLContextRepository(fileBackend, objectMapper);
+        this(fileBackend, objectMapper, false);
+    }
+
+    /**
+     * 构造器（可选择Repository实现）
+     *
+     * @param fileBackend  文件后端路径
+     * @param objectMapper JSON序列化工具
+     * @param asyncBatch   是否使用异步批量写入的 {@link AsyncJSONLContextRepository}，
+     *                     启用后需在退出前调用 {@link #close()}
+     */
+    public Context(Path fileBackend, ObjectMapper objectMapper, boolean asyncBatch) {
+        this.repository = asyncBatch
+                ? new AsyncJSONLContextRepository(fileBackend, objectMapper)
+                : new JSONLContextRepository(fileBackend, objectMapper);
         this.history = new ArrayList<>();
         this.tokenCount = 0;
         this.nextCheckpointId = 0;
@@ -214,6 +228,20 @@ public class Context {
         });
     }
 
+    /**
+     * 等待已提交的持久化写入全部落盘
+     */
+    public Mono<Void> flush() {
+        return repository.flush();
+    }
+
+    /**
+     * 关闭持久化存储，排空未完成的写入
+     */
+    public void close() {
+        repository.close();
+    }
+
     /**
      * 获取消息历史（只读视图）
      */
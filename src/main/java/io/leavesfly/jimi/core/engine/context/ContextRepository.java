@@ -56,6 +56,20 @@ public interface ContextRepository {
      */
     Mono<RestoredContext> revertToCheckpoint(int checkpointId);
     
+    /**
+     * 写入屏障：之前提交的所有写入落盘后完成
+     * 同步实现每次写入即落盘，默认无需等待
+     */
+    default Mono<Void> flush() {
+        return Mono.empty();
+    }
+    
+    /**
+     * 释放存储资源（文件句柄、后台线程等），关闭前会排空未完成的写入
+     */
+    default void close() {
+    }
+    
     /**
      * 恢复的上下文数据
      */
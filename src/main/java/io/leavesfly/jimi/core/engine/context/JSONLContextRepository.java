@@ -6,15 +6,19 @@ import io.leavesfly.jimi.llm.message.Message;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * JSONL 格式的 Context 持久化实现
@@ -29,16 +33,24 @@ import java.util.List;
  * - 轮转备份：回退时保留原文件为 .1, .2 等
  * - 原子性：使用文件移动保证操作原子性
  * - 追加写入：高效的顺序写入
+ * - 检查点索引：{@link CheckpointIndex} 记录每个检查点的字节偏移，
+ *   回退只需复制检查点之前的前缀，恢复时元数据行不经过 JSON 解析
  */
 @Slf4j
 public class JSONLContextRepository implements ContextRepository {
     
+    private static final String USAGE_PREFIX = "{\"role\":\"_usage\",\"token_count\":";
+    private static final String CHECKPOINT_PREFIX = "{\"role\":\"_checkpoint\",\"id\":";
+    private static final String ROLE_PREFIX = "{\"role\":\"";
+    
     private final Path fileBackend;
     private final ObjectMapper objectMapper;
+    private final CheckpointIndex checkpointIndex;
     
     public JSONLContextRepository(Path fileBackend, ObjectMapper objectMapper) {
         this.fileBackend = fileBackend;
         this.objectMapper = objectMapper;
+        this.checkpointIndex = new CheckpointIndex(fileBackend);
     }
     
     @Override
@@ -48,63 +60,40 @@ public class JSONLContextRepository implements ContextRepository {
             
             if (!Files.exists(fileBackend)) {
                 log.debug("No context file found, returning empty context");
+                checkpointIndex.reset(Collections.emptyList(), 0, 0);
                 return new RestoredContext(new ArrayList<>(), 0, 0);
             }
             
             if (Files.size(fileBackend) == 0) {
                 log.debug("Empty context file, returning empty context");
+                checkpointIndex.reset(Collections.emptyList(), 0, 0);
                 return new RestoredContext(new ArrayList<>(), 0, 0);
             }
             
-            List<Message> messages = new ArrayList<>();
-            int tokenCount = 0;
-            int nextCheckpointId = 0;
-            
-            try (BufferedReader reader = Files.newBufferedReader(fileBackend)) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.trim().isEmpty()) {
-                        continue;
-                    }
-                    
-                    ObjectNode lineJson = objectMapper.readValue(line, ObjectNode.class);
-                    String role = lineJson.get("role").asText();
-                    
-                    // 处理元数据
-                    if ("_usage".equals(role)) {
-                        tokenCount = lineJson.get("token_count").asInt();
-                        continue;
-                    }
-                    
-                    if ("_checkpoint".equals(role)) {
-                        nextCheckpointId = lineJson.get("id").asInt() + 1;
-                        continue;
-                    }
-                    
-                    // 解析为普通消息
-                    Message message = objectMapper.readValue(line, Message.class);
-                    messages.add(message);
-                }
-            }
+            ScanResult result = scan(fileBackend, -1, checkpointIndex.entriesByOffset(), true);
+            checkpointIndex.reset(result.checkpoints, result.messageCount, result.tokenCount);
             
             log.info("Restored context: {} messages, {} tokens, {} checkpoints", 
-                    messages.size(), tokenCount, nextCheckpointId);
+                    result.messages.size(), result.tokenCount, result.nextCheckpointId);
             
-            return new RestoredContext(messages, tokenCount, nextCheckpointId);
+            return new RestoredContext(result.messages, result.tokenCount, result.nextCheckpointId);
         });
     }
     
     @Override
     public Mono<Void> appendMessages(List<Message> messages) {
         return Mono.fromRunnable(() -> {
-            try (BufferedWriter writer = Files.newBufferedWriter(fileBackend, 
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            try {
+                ensureIndexTracking();
+                ByteArrayOutputStream lines = new ByteArrayOutputStream();
                 for (Message message : messages) {
-                    String json = objectMapper.writeValueAsString(message);
-                    writer.write(json);
-                    writer.newLine();
+                    lines.write(objectMapper.writeValueAsBytes(message));
+                    lines.write('\n');
                 }
+                append(lines.toByteArray());
+                checkpointIndex.onMessages(messages.size());
             } catch (IOException e) {
+                checkpointIndex.invalidate();
                 log.error("Failed to persist messages to file", e);
                 throw new RuntimeException("Failed to persist messages", e);
             }
@@ -114,14 +103,15 @@ public class JSONLContextRepository implements ContextRepository {
     @Override
     public Mono<Void> updateTokenCount(int tokenCount) {
         return Mono.fromRunnable(() -> {
-            try (BufferedWriter writer = Files.newBufferedWriter(fileBackend,
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            try {
+                ensureIndexTracking();
                 ObjectNode usageNode = objectMapper.createObjectNode();
                 usageNode.put("role", "_usage");
                 usageNode.put("token_count", tokenCount);
-                writer.write(objectMapper.writeValueAsString(usageNode));
-                writer.newLine();
+                append(toLine(usageNode));
+                checkpointIndex.onTokenCount(tokenCount);
             } catch (IOException e) {
+                checkpointIndex.invalidate();
                 log.error("Failed to persist token count", e);
                 throw new RuntimeException("Failed to persist token count", e);
             }
@@ -131,14 +121,17 @@ public class JSONLContextRepository implements ContextRepository {
     @Override
     public Mono<Void> saveCheckpoint(int checkpointId) {
         return Mono.fromRunnable(() -> {
-            try (BufferedWriter writer = Files.newBufferedWriter(fileBackend,
-                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            try {
+                ensureIndexTracking();
                 ObjectNode checkpointNode = objectMapper.createObjectNode();
                 checkpointNode.put("role", "_checkpoint");
                 checkpointNode.put("id", checkpointId);
-                writer.write(objectMapper.writeValueAsString(checkpointNode));
-                writer.newLine();
+                long offset = Files.exists(fileBackend) ? Files.size(fileBackend) : 0;
+                append(toLine(checkpointNode));
+                checkpointIndex.onCheckpoint(checkpointId, offset);
+                checkpointIndex.persist();
             } catch (IOException e) {
+                checkpointIndex.invalidate();
                 log.error("Failed to persist checkpoint", e);
                 throw new RuntimeException("Failed to persist checkpoint", e);
             }
@@ -156,57 +149,192 @@ public class JSONLContextRepository implements ContextRepository {
                 Files.move(fileBackend, rotatedPath, StandardCopyOption.REPLACE_EXISTING);
                 log.debug("Rotated history file: {}", rotatedPath);
                 
-                List<Message> messages = new ArrayList<>();
-                int tokenCount = 0;
-                int nextCheckpointId = 0;
-                
-                // 从轮转文件恢复到指定检查点
-                try (BufferedReader reader = Files.newBufferedReader(rotatedPath);
-                     BufferedWriter writer = Files.newBufferedWriter(fileBackend,
-                             StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-                    
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        if (line.trim().isEmpty()) {
-                            continue;
-                        }
-                        
-                        ObjectNode lineJson = objectMapper.readValue(line, ObjectNode.class);
-                        String role = lineJson.get("role").asText();
-                        
-                        // 遇到目标检查点时停止
-                        if ("_checkpoint".equals(role) && lineJson.get("id").asInt() == checkpointId) {
-                            break;
-                        }
-                        
-                        // 写入新文件
-                        writer.write(line);
-                        writer.newLine();
-                        
-                        // 恢复到内存
-                        if ("_usage".equals(role)) {
-                            tokenCount = lineJson.get("token_count").asInt();
-                        } else if ("_checkpoint".equals(role)) {
-                            nextCheckpointId = lineJson.get("id").asInt() + 1;
-                        } else {
-                            Message message = objectMapper.readValue(line, Message.class);
-                            messages.add(message);
-                        }
-                    }
+                ScanResult result;
+                Optional<CheckpointIndex.Entry> indexed = checkpointIndex.find(checkpointId, rotatedPath);
+                if (indexed.isPresent()) {
+                    // 快速路径：直接复制检查点之前的前缀，只解析保留下来的部分
+                    CheckpointIndex.copyPrefix(rotatedPath, fileBackend, indexed.get().offset());
+                    result = scan(fileBackend, -1, checkpointIndex.entriesByOffset(), true);
+                } else {
+                    // 索引缺失或失效：扫描轮转文件定位检查点，再复制前缀
+                    log.debug("Checkpoint {} not found in index, scanning {}", checkpointId, rotatedPath);
+                    result = scan(rotatedPath, checkpointId, Collections.emptyMap(), true);
+                    CheckpointIndex.copyPrefix(rotatedPath, fileBackend, result.endOffset);
                 }
+                checkpointIndex.reset(result.checkpoints, result.messageCount, result.tokenCount);
                 
                 log.info("Reverted to checkpoint {}: {} messages, {} tokens", 
-                        checkpointId, messages.size(), tokenCount);
+                        checkpointId, result.messages.size(), result.tokenCount);
                 
-                return new RestoredContext(messages, tokenCount, nextCheckpointId);
+                return new RestoredContext(result.messages, result.tokenCount, result.nextCheckpointId);
                 
             } catch (IOException e) {
+                checkpointIndex.invalidate();
                 log.error("Failed to revert to checkpoint", e);
                 throw new RuntimeException("Failed to revert to checkpoint", e);
             }
         });
     }
     
+    /**
+     * 获取检查点索引，供共享同一文件格式的写入实现维护索引
+     */
+    CheckpointIndex getCheckpointIndex() {
+        return checkpointIndex;
+    }
+    
+    /**
+     * 确保检查点索引掌握当前文件的消息数与 Token 计数
+     * 未经 restore 就直接写入已有文件时，先做一次不解析消息的扫描
+     */
+    void ensureIndexTracking() throws IOException {
+        if (checkpointIndex.isTracking()) {
+            return;
+        }
+        if (!Files.exists(fileBackend)) {
+            checkpointIndex.reset(Collections.emptyList(), 0, 0);
+            return;
+        }
+        ScanResult result = scan(fileBackend, -1, checkpointIndex.entriesByOffset(), false);
+        checkpointIndex.reset(result.checkpoints, result.messageCount, result.tokenCount);
+    }
+    
+    private void append(byte[] bytes) throws IOException {
+        Files.write(fileBackend, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+    
+    private byte[] toLine(ObjectNode node) throws IOException {
+        return (objectMapper.writeValueAsString(node) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 逐行扫描历史文件
+     * 
+     * @param file            要扫描的文件
+     * @param stopAtCheckpoint 遇到该 ID 的检查点时停止（-1 表示扫描到文件末尾）
+     * @param knownCheckpoints 索引中已知的检查点（按偏移），命中时跳过解析
+     * @param parseMessages   是否解析消息（false 时只计数）
+     */
+    private ScanResult scan(Path file, int stopAtCheckpoint, Map<Long, CheckpointIndex.Entry> knownCheckpoints,
+                            boolean parseMessages) throws IOException {
+        ScanResult result = new ScanResult();
+        long offset = 0;
+        
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] chunk = new byte[64 * 1024];
+            int chunkLength = 0;
+            int chunkPosition = 0;
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+            boolean eof = false;
+            while (!eof) {
+                // 读取一行（按字节定位换行，便于计算偏移）
+                buffer.reset();
+                boolean lineEnded = false;
+                while (!lineEnded) {
+                    if (chunkPosition == chunkLength) {
+                        chunkLength = in.read(chunk);
+                        chunkPosition = 0;
+                        if (chunkLength < 0) {
+                            eof = true;
+                            break;
+                        }
+                    }
+                    int lineEnd = chunkPosition;
+                    while (lineEnd < chunkLength && chunk[lineEnd] != '\n') {
+                        lineEnd++;
+                    }
+                    buffer.write(chunk, chunkPosition, lineEnd - chunkPosition);
+                    lineEnded = lineEnd < chunkLength;
+                    chunkPosition = lineEnded ? lineEnd + 1 : lineEnd;
+                }
+                long lineOffset = offset;
+                offset += buffer.size() + (lineEnded ? 1 : 0);
+                
+                String line = buffer.toString(StandardCharsets.UTF_8).trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                
+                int checkpointId = checkpointIdOf(line, lineOffset, knownCheckpoints);
+                if (checkpointId >= 0) {
+                    // 遇到目标检查点时停止
+                    if (checkpointId == stopAtCheckpoint) {
+                        result.endOffset = lineOffset;
+                        return result;
+                    }
+                    result.checkpoints.add(new CheckpointIndex.Entry(
+                            checkpointId, lineOffset, result.messageCount, result.tokenCount));
+                    result.nextCheckpointId = checkpointId + 1;
+                    continue;
+                }
+                
+                Integer tokenCount = parseMetadata(line, USAGE_PREFIX);
+                if (tokenCount == null && !line.startsWith(ROLE_PREFIX + "_") && line.startsWith(ROLE_PREFIX)) {
+                    // 普通消息：只解析一次
+                    result.messageCount++;
+                    if (parseMessages) {
+                        result.messages.add(objectMapper.readValue(line, Message.class));
+                    }
+                    continue;
+                }
+                if (tokenCount != null) {
+                    result.tokenCount = tokenCount;
+                    continue;
+                }
+                
+                // 非标准格式的行，按通用方式解析
+                ObjectNode lineJson = objectMapper.readValue(line, ObjectNode.class);
+                String role = lineJson.get("role").asText();
+                if ("_usage".equals(role)) {
+                    result.tokenCount = lineJson.get("token_count").asInt();
+                } else if ("_checkpoint".equals(role)) {
+                    int id = lineJson.get("id").asInt();
+                    if (id == stopAtCheckpoint) {
+                        result.endOffset = lineOffset;
+                        return result;
+                    }
+                    result.checkpoints.add(new CheckpointIndex.Entry(
+                            id, lineOffset, result.messageCount, result.tokenCount));
+                    result.nextCheckpointId = id + 1;
+                } else {
+                    result.messageCount++;
+                    if (parseMessages) {
+                        result.messages.add(objectMapper.treeToValue(lineJson, Message.class));
+                    }
+                }
+            }
+        }
+        
+        result.endOffset = offset;
+        return result;
+    }
+    
+    /**
+     * 识别检查点行：优先使用索引中的偏移，否则按固定格式解析；不是检查点返回 -1
+     */
+    private static int checkpointIdOf(String line, long offset, Map<Long, CheckpointIndex.Entry> knownCheckpoints) {
+        CheckpointIndex.Entry known = knownCheckpoints.get(offset);
+        if (known != null && line.equals(CHECKPOINT_PREFIX + known.id() + "}")) {
+            return known.id();
+        }
+        Integer id = parseMetadata(line, CHECKPOINT_PREFIX);
+        return id != null ? id : -1;
+    }
+    
+    /**
+     * 按写入时的固定格式解析元数据行中的整数值，格式不符时返回 null
+     */
+    private static Integer parseMetadata(String line, String prefix) {
+        if (!line.startsWith(prefix) || !line.endsWith("}")) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(line.substring(prefix.length(), line.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
     /**
      * 获取下一个可用的轮转文件路径
      */
@@ -223,4 +351,17 @@ public class JSONLContextRepository implements ContextRepository {
         
         throw new IOException("No available rotation path found");
     }
+    
+    /**
+     * 扫描结果
+     */
+    private static class ScanResult {
+        private final List<Message> messages = new ArrayList<>();
+        private final List<CheckpointIndex.Entry> checkpoints = new ArrayList<>();
+        private int messageCount = 0;
+        private int tokenCount = 0;
+        private int nextCheckpointId = 0;
+        /** 扫描停止处的字节偏移（目标检查点行的起点或文件末尾） */
+        private long endOffset = 0;
+    }
 }
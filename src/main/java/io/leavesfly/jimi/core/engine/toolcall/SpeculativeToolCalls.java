@@ -0,0 +1,105 @@
+package io.leavesfly.jimi.core.engine.toolcall;
+
+import io.leavesfly.jimi.llm.message.ToolCall;
+import io.leavesfly.jimi.tool.ToolResult;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 推测执行的工具调用
+ * <p>
+ * 在 LLM 仍在流式输出时，StreamAccumulator 每确定一个完整的工具调用（id、名称、完整参数）
+ * 就通知这里，并发安全的工具调用会被立即提交执行，使工具耗时与生成耗时重叠。
+ * 流结束后 ToolDispatcher 按原始顺序取回已启动的结果，未启动的调用照常执行。
+ * <p>
+ * 推测阶段只执行工具本身；Wire 上的调用/结果消息、Hooks 和错误跟踪都推迟到
+ * ToolDispatcher 取回结果时才发生（此时 assistant 消息已追加到上下文），
+ * 因此被取消的推测调用不会对外留下没有结果的调用消息。
+ * <p>
+ * 推测规则：
+ * - 只推测响应开头连续的并发安全调用；一旦出现非并发安全调用（如写文件），
+ *   后续调用都不再推测，保证读操作不会越过它之前的写操作
+ * - 同时推测执行的调用数不超过 ToolDispatcher 的并行上限
+ * - 注册了 PRE_TOOL_USE Hook 时不推测，保证 Hook 先于工具执行
+ * - 流出错或被取消时，cancelAll() 取消所有已启动的调用
+ */
+@Slf4j
+public class SpeculativeToolCalls {
+
+    private final ToolDispatcher toolDispatcher;
+    private final int maxSpeculative;
+    private final Map<String, CompletableFuture<ToolResult>> started = new ConcurrentHashMap<>();
+
+    /** 出现过非并发安全调用后停止推测 */
+    private volatile boolean stopped = false;
+
+    SpeculativeToolCalls(ToolDispatcher toolDispatcher, int maxSpeculative) {
+        this.toolDispatcher = toolDispatcher;
+        this.maxSpeculative = maxSpeculative;
+    }
+
+    /**
+     * 工具调用已完整确定时调用，满足条件则立即开始执行
+     *
+     * @param toolCall 已确定的工具调用
+     */
+    public void submit(ToolCall toolCall) {
+        if (stopped || toolCall == null || toolCall.getId() == null || toolCall.getFunction() == null) {
+            return;
+        }
+        if (!toolDispatcher.isToolConcurrentSafe(toolCall)) {
+            stopped = true;
+            return;
+        }
+        if (started.size() >= maxSpeculative || !hasCompleteArguments(toolCall)) {
+            return;
+        }
+
+        log.debug("Speculatively executing tool call {} ({}) while streaming",
+                toolCall.getId(), toolCall.getFunction().getName());
+        CompletableFuture<ToolResult> future = toolDispatcher.runTool(toolCall)
+                .subscribeOn(Schedulers.boundedElastic())
+                .toFuture();
+        started.putIfAbsent(toolCall.getId(), future);
+    }
+
+    /**
+     * 取回已推测启动的工具执行结果
+     *
+     * @param toolCall 工具调用
+     * @return 已启动时返回工具的执行结果，否则返回 null
+     */
+    Mono<ToolResult> take(ToolCall toolCall) {
+        CompletableFuture<ToolResult> future = toolCall.getId() != null ? started.get(toolCall.getId()) : null;
+        return future != null ? Mono.fromFuture(future) : null;
+    }
+
+    /**
+     * 已推测启动的调用数
+     */
+    public int getStartedCount() {
+        return started.size();
+    }
+
+    /**
+     * 取消所有已启动且未完成的调用
+     */
+    public void cancelAll() {
+        stopped = true;
+        started.values().forEach(future -> future.cancel(true));
+    }
+
+    private boolean hasCompleteArguments(ToolCall toolCall) {
+        String arguments = toolCall.getFunction().getArguments();
+        if (arguments == null) {
+            return false;
+        }
+        String trimmed = arguments.trim();
+        return trimmed.startsWith("{") && trimmed.endsWith("}");
+    }
+}
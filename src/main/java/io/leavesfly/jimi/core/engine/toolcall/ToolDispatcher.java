@@ -4,6 +4,7 @@ package io.leavesfly.jimi.core.engine.toolcall;
 import io.leavesfly.jimi.core.engine.context.Context;
 import io.leavesfly.jimi.core.hook.HookContext;
 import io.leavesfly.jimi.core.hook.HookRegistry;
+import io.leavesfly.jimi.core.hook.HookSpec;
 import io.leavesfly.jimi.core.hook.HookType;
 
 import io.leavesfly.jimi.llm.message.Message;
@@ -39,6 +40,8 @@ import java.util.Optional;
  * - 非并发安全的工具（如文件写入、BashTool）串行执行
  * - 工具调用按原始顺序分组：连续的并发安全工具合并为一个并行批次，
  *   遇到非并发安全工具则单独串行执行
+ * - 流式阶段已确定的开头并发安全调用可通过 SpeculativeToolCalls 提前执行工具本身，
+ *   调用消息、Hooks 与结果在流结束后按原始顺序处理
  */
 @Slf4j
 public class ToolDispatcher {
@@ -74,13 +77,26 @@ public class ToolDispatcher {
      * @return 完成的 Mono
      */
     public Mono<Void> executeToolCalls(List<ToolCall> toolCalls, Context context) {
+        return executeToolCalls(toolCalls, context, null);
+    }
+
+    /**
+     * 执行工具调用列表，复用流式阶段已推测启动的调用结果
+     *
+     * @param toolCalls   工具调用列表
+     * @param context     上下文
+     * @param speculation 推测执行状态（可为 null）
+     * @return 完成的 Mono
+     */
+    public Mono<Void> executeToolCalls(List<ToolCall> toolCalls, Context context, SpeculativeToolCalls speculation) {
         // === 1. 按并发安全性分组 ===
         List<ToolCallBatch> batches = groupIntoBatches(toolCalls);
-        log.info("Grouped {} tool calls into {} batches for execution", toolCalls.size(), batches.size());
+        log.info("Grouped {} tool calls into {} batches for execution ({} started while streaming)",
+                toolCalls.size(), batches.size(), speculation != null ? speculation.getStartedCount() : 0);
 
         // === 2. 按批次顺序执行（批次间串行，批次内并行） ===
         return Flux.fromIterable(batches)
-                .concatMap(batch -> executeBatch(batch, context))
+                .concatMap(batch -> executeBatch(batch, context, speculation))
                 // === 3. 收集所有结果并追加到上下文 ===
                 .collectList()
                 .flatMap(allResults -> appendAllResults(allResults, context));
@@ -141,10 +157,31 @@ public class ToolDispatcher {
         return batches;
     }
 
+    /**
+     * 开始一次流式响应的推测执行
+     * 流式阶段确定的并发安全工具调用可通过返回对象提前执行；
+     * 注册了 PRE_TOOL_USE Hook 时不推测，Hook 必须先于工具执行
+     *
+     * @return 推测执行状态
+     */
+    public SpeculativeToolCalls startSpeculation() {
+        boolean hasPreToolHooks = hookRegistry != null
+                && hookRegistry.getHooks(HookType.PRE_TOOL_USE).stream().anyMatch(HookSpec::isEnabled);
+        return new SpeculativeToolCalls(this, hasPreToolHooks ? 0 : MAX_PARALLEL_CONCURRENCY);
+    }
+
+    /**
+     * 只执行工具本身，不发送 Wire 消息、不触发 Hooks（供推测执行使用）
+     */
+    Mono<ToolResult> runTool(ToolCall toolCall) {
+        return Mono.defer(() -> toolRegistry.execute(toolCall.getFunction().getName(),
+                toolCall.getFunction().getArguments()));
+    }
+
     /**
      * 判断工具调用是否并发安全
      */
-    private boolean isToolConcurrentSafe(ToolCall toolCall) {
+    boolean isToolConcurrentSafe(ToolCall toolCall) {
         String toolName = toolCall.getFunction().getName();
         Optional<Tool<?>> toolOpt = toolRegistry.getTool(toolName);
         return toolOpt.map(Tool::isConcurrentSafe).orElse(false);
@@ -152,13 +189,13 @@ public class ToolDispatcher {
 
     /**
      * 执行一个批次的工具调用
+     * 批次内的结果按原始顺序返回；已推测启动的调用直接等待其结果
      */
-    private Mono<List<Message>> executeBatch(ToolCallBatch batch, Context context) {
+    private Mono<List<Message>> executeBatch(ToolCallBatch batch, Context context, SpeculativeToolCalls speculation) {
         if (batch.parallel && batch.toolCalls.size() > 1) {
             log.info("Executing parallel batch of {} concurrent-safe tool calls", batch.toolCalls.size());
             return Flux.fromIterable(batch.toolCalls)
-                    .flatMap(toolCall -> executeToolCallSafely(toolCall, context)
-                                    .subscribeOn(Schedulers.boundedElastic()),
+                    .flatMapSequential(toolCall -> resolveToolCall(toolCall, context, speculation, true),
                             MAX_PARALLEL_CONCURRENCY)
                     .collectList();
         } else {
@@ -166,16 +203,29 @@ public class ToolDispatcher {
             String toolName = batch.toolCalls.get(0).getFunction().getName();
             log.info("Executing serial batch: {}", toolName);
             return Flux.fromIterable(batch.toolCalls)
-                    .concatMap(toolCall -> executeToolCallSafely(toolCall, context))
+                    .concatMap(toolCall -> resolveToolCall(toolCall, context, speculation, false))
                     .collectList();
         }
     }
 
+    /**
+     * 取得工具调用的结果：优先复用推测执行的工具结果，否则现在执行
+     */
+    private Mono<Message> resolveToolCall(ToolCall toolCall, Context context,
+                                          SpeculativeToolCalls speculation, boolean parallel) {
+        Mono<ToolResult> speculative = speculation != null ? speculation.take(toolCall) : null;
+        if (speculative != null) {
+            return executeToolCallSafely(toolCall, context, speculative);
+        }
+        Mono<Message> execution = executeToolCallSafely(toolCall, context, null);
+        return parallel ? execution.subscribeOn(Schedulers.boundedElastic()) : execution;
+    }
+
     /**
      * 安全执行单个工具调用（带错误恢复）
      */
-    private Mono<Message> executeToolCallSafely(ToolCall toolCall, Context context) {
-        return executeToolCall(toolCall, context)
+    private Mono<Message> executeToolCallSafely(ToolCall toolCall, Context context, Mono<ToolResult> speculative) {
+        return executeToolCall(toolCall, context, speculative)
                 .doOnError(e -> log.error("Tool call failed: {}", toolCall.getFunction().getName(), e))
                 .onErrorResume(e -> {
                     String toolCallId = (toolCall != null && toolCall.getId() != null)
@@ -199,6 +249,18 @@ public class ToolDispatcher {
      * @return 工具结果消息
      */
     public Mono<Message> executeToolCall(ToolCall toolCall, Context context) {
+        return executeToolCall(toolCall, context, null);
+    }
+
+    /**
+     * 执行单个工具调用
+     *
+     * @param toolCall    工具调用
+     * @param context     上下文
+     * @param speculative 推测阶段已开始的工具执行（为 null 时现在执行工具）
+     * @return 工具结果消息
+     */
+    private Mono<Message> executeToolCall(ToolCall toolCall, Context context, Mono<ToolResult> speculative) {
         return Mono.defer(() -> {
             try {
 
@@ -214,7 +276,7 @@ public class ToolDispatcher {
                 DebugLogger.logToolExecution(toolName, rawArgs);
                 long toolStartTime = System.currentTimeMillis();
 
-                return executeValidToolCall(toolName, rawArgs, toolCallId, toolSignature, context)
+                return executeValidToolCall(toolName, rawArgs, toolCallId, toolSignature, context, speculative)
                         .doOnNext(msg -> {
                             long elapsed = System.currentTimeMillis() - toolStartTime;
                             String content = msg.getTextContent();
@@ -236,10 +298,11 @@ public class ToolDispatcher {
      *
      * 执行流程：
      * 1. 触发 PRE_TOOL_USE hook（可阻塞工具调用）
-     * 2. 执行工具
+     * 2. 执行工具（已推测执行时等待其结果）
      * 3. 触发 POST_TOOL_USE hook（成功时）或 POST_TOOL_USE_FAILURE hook（失败时）
      */
-    private Mono<Message> executeValidToolCall(String toolName, String arguments, String toolCallId, String toolSignature, Context context) {
+    private Mono<Message> executeValidToolCall(String toolName, String arguments, String toolCallId, String toolSignature,
+                                               Context context, Mono<ToolResult> speculative) {
         // 构建 PRE_TOOL_USE hook 上下文
         HookContext preHookContext = HookContext.builder()
                 .hookType(HookType.PRE_TOOL_USE)
@@ -249,7 +312,7 @@ public class ToolDispatcher {
                 .build();
 
         return triggerHookSafely(HookType.PRE_TOOL_USE, preHookContext)
-                .then(toolRegistry.execute(toolName, arguments))
+                .then(speculative != null ? speculative : toolRegistry.execute(toolName, arguments))
                 .flatMap(result -> {
                     // 触发 POST_TOOL_USE hook（异步，不阻塞主流程）
                     HookContext postHookContext = HookContext.builder()
@@ -24,7 +24,7 @@ import java.util.stream.Collectors;
 /**
  * 混合搜索管理器
  * 
- * <p>组合 GraphManager 和 RagManager 的能力，
+ * <p>组合 GraphManager 和 RagManager 的能力（符号搜索、向量检索、BM25 关键词检索三路），
  * 实现多种融合策略（RRF、加权平均等）。
  */
 @Slf4j
@@ -58,15 +58,22 @@ public class HybridSearch {
                 ? executeRetrievalSearch(query)
                 : Mono.just(new RetrievalSearchResult(Collections.emptyList(), 0));
         
-        return Mono.zip(graphMono, retrievalMono)
+        // 关键词检索不需要嵌入，只关闭前两路时即为纯词法查询
+        Mono<RetrievalSearchResult> lexicalMono = query.isIncludeLexical() && ragManager.isEnabled()
+                ? executeLexicalSearch(query)
+                : Mono.just(new RetrievalSearchResult(Collections.emptyList(), 0));
+        
+        return Mono.zip(graphMono, retrievalMono, lexicalMono)
                 .map(tuple -> {
                     GraphSearchResult graphResult = tuple.getT1();
                     RetrievalSearchResult retrievalResult = tuple.getT2();
+                    RetrievalSearchResult lexicalResult = tuple.getT3();
                     
                     // 融合结果
                     List<HybridResult.HybridItem> mergedResults = fuseResults(
                             graphResult.entities,
                             retrievalResult.chunks,
+                            lexicalResult.chunks,
                             query);
                     
                     long totalElapsed = System.currentTimeMillis() - startTime;
@@ -77,9 +84,11 @@ public class HybridSearch {
                             .fusionStrategy(query.getStrategy().name())
                             .structuredEntities(graphResult.entities)
                             .semanticChunks(retrievalResult.chunks)
+                            .lexicalChunks(lexicalResult.chunks)
                             .mergedResults(mergedResults)
                             .graphElapsedMs(graphResult.elapsedMs)
                             .retrievalElapsedMs(retrievalResult.elapsedMs)
+                            .lexicalElapsedMs(lexicalResult.elapsedMs)
                             .totalElapsedMs(totalElapsed)
                             .build();
                 })
@@ -156,6 +165,34 @@ public class HybridSearch {
                 });
     }
     
+    /**
+     * 仅关键词（BM25）检索，不调用嵌入服务
+     */
+    public Mono<HybridResult> searchLexicalOnly(HybridQuery query) {
+        if (!ragManager.isEnabled()) {
+            return Mono.just(HybridResult.error("Retrieval 功能未启用"));
+        }
+        
+        return executeLexicalSearch(query)
+                .map(result -> {
+                    List<HybridResult.HybridItem> items = new ArrayList<>();
+                    for (int i = 0; i < result.chunks.size(); i++) {
+                        RetrievalResult.CodeChunkResult chunk = result.chunks.get(i);
+                        items.add(lexicalItem(chunk, chunk.getScore(), i + 1));
+                    }
+                    
+                    return HybridResult.builder()
+                            .success(true)
+                            .keyword(query.getKeyword())
+                            .fusionStrategy("LEXICAL_ONLY")
+                            .lexicalChunks(result.chunks)
+                            .mergedResults(items)
+                            .lexicalElapsedMs(result.elapsedMs)
+                            .totalElapsedMs(result.elapsedMs)
+                            .build();
+                });
+    }
+    
     public boolean isEnabled() {
         return (graphManager != null && graphManager.isEnabled()) 
                 || (ragManager != null && ragManager.isEnabled());
@@ -204,19 +241,40 @@ public class HybridSearch {
                 });
     }
     
+    private Mono<RetrievalSearchResult> executeLexicalSearch(HybridQuery query) {
+        long startTime = System.currentTimeMillis();
+        
+        RetrievalQuery retrievalQuery = RetrievalQuery.builder()
+                .query(query.getKeyword())
+                .topK(query.getTopK())
+                .filter(query.getRetrievalFilter())
+                .build();
+        
+        return ragManager.retrieveLexical(retrievalQuery)
+                .map(result -> {
+                    long elapsed = System.currentTimeMillis() - startTime;
+                    return new RetrievalSearchResult(result.getChunks(), elapsed);
+                })
+                .onErrorResume(e -> {
+                    log.warn("关键词搜索失败: {}", e.getMessage());
+                    return Mono.just(new RetrievalSearchResult(Collections.emptyList(), 0));
+                });
+    }
+    
     private List<HybridResult.HybridItem> fuseResults(
             List<GraphResult.GraphEntity> graphEntities,
             List<RetrievalResult.CodeChunkResult> retrievalChunks,
+            List<RetrievalResult.CodeChunkResult> lexicalChunks,
             HybridQuery query) {
         
         switch (query.getStrategy()) {
             case RRF:
-                return fuseWithRRF(graphEntities, retrievalChunks, query);
+                return fuseWithRRF(graphEntities, retrievalChunks, lexicalChunks, query);
             case WEIGHTED_AVERAGE:
-                return fuseWithWeightedAverage(graphEntities, retrievalChunks, query);
+                return fuseWithWeightedAverage(graphEntities, retrievalChunks, lexicalChunks, query);
             case UNION:
             default:
-                return fuseWithUnion(graphEntities, retrievalChunks, query);
+                return fuseWithUnion(graphEntities, retrievalChunks, lexicalChunks, query);
         }
     }
     
@@ -227,6 +285,7 @@ public class HybridSearch {
     private List<HybridResult.HybridItem> fuseWithRRF(
             List<GraphResult.GraphEntity> graphEntities,
             List<RetrievalResult.CodeChunkResult> retrievalChunks,
+            List<RetrievalResult.CodeChunkResult> lexicalChunks,
             HybridQuery query) {
         
         Map<String, HybridResult.HybridItem> itemMap = new HashMap<>();
@@ -293,6 +352,26 @@ public class HybridSearch {
             }
         }
         
+        // 添加/合并关键词结果
+        for (int i = 0; i < lexicalChunks.size(); i++) {
+            RetrievalResult.CodeChunkResult chunk = lexicalChunks.get(i);
+            String key = chunk.getFilePath() + ":" + chunk.getStartLine();
+            
+            double rrfScore = 1.0 / (RRF_K + i + 1);
+            
+            HybridResult.HybridItem existing = itemMap.get(key);
+            if (existing != null) {
+                existing.setSource(existing.getSource().equals("BOTH") ? "ALL" : existing.getSource() + "+LEXICAL");
+                existing.setScore(existing.getScore() + rrfScore);
+                existing.setLexicalRank(i + 1);
+                if (existing.getContent() == null) {
+                    existing.setContent(chunk.getContent());
+                }
+            } else {
+                itemMap.put(key, lexicalItem(chunk, rrfScore, i + 1));
+            }
+        }
+        
         // 按分数排序并限制数量
         return itemMap.values().stream()
                 .sorted(Comparator.comparingDouble(HybridResult.HybridItem::getScore).reversed())
@@ -306,6 +385,7 @@ public class HybridSearch {
     private List<HybridResult.HybridItem> fuseWithWeightedAverage(
             List<GraphResult.GraphEntity> graphEntities,
             List<RetrievalResult.CodeChunkResult> retrievalChunks,
+            List<RetrievalResult.CodeChunkResult> lexicalChunks,
             HybridQuery query) {
         
         List<HybridResult.HybridItem> items = new ArrayList<>();
@@ -346,6 +426,14 @@ public class HybridSearch {
                     .build());
         }
         
+        // 添加关键词结果（BM25 分数无上界，按本次最高分归一化）
+        double maxLexicalScore = lexicalChunks.isEmpty() ? 1.0 : lexicalChunks.get(0).getScore();
+        for (int i = 0; i < lexicalChunks.size(); i++) {
+            RetrievalResult.CodeChunkResult chunk = lexicalChunks.get(i);
+            double normalizedScore = maxLexicalScore > 0 ? chunk.getScore() / maxLexicalScore : 0.0;
+            items.add(lexicalItem(chunk, normalizedScore * query.getLexicalWeight(), i + 1));
+        }
+        
         return items.stream()
                 .sorted(Comparator.comparingDouble(HybridResult.HybridItem::getScore).reversed())
                 .limit(query.getTopK())
@@ -358,6 +446,7 @@ public class HybridSearch {
     private List<HybridResult.HybridItem> fuseWithUnion(
             List<GraphResult.GraphEntity> graphEntities,
             List<RetrievalResult.CodeChunkResult> retrievalChunks,
+            List<RetrievalResult.CodeChunkResult> lexicalChunks,
             HybridQuery query) {
         
         List<HybridResult.HybridItem> items = new ArrayList<>();
@@ -387,11 +476,32 @@ public class HybridSearch {
                     .build());
         }
         
+        for (int i = 0; i < lexicalChunks.size(); i++) {
+            RetrievalResult.CodeChunkResult chunk = lexicalChunks.get(i);
+            items.add(lexicalItem(chunk, chunk.getScore(), i + 1));
+        }
+        
         return items.stream()
                 .limit(query.getTopK())
                 .collect(Collectors.toList());
     }
     
+    private HybridResult.HybridItem lexicalItem(RetrievalResult.CodeChunkResult chunk, double score, int rank) {
+        return HybridResult.HybridItem.builder()
+                .source("LEXICAL")
+                .id(chunk.getId())
+                .name(chunk.getSymbol())
+                .content(chunk.getContent())
+                .filePath(chunk.getFilePath())
+                .startLine(chunk.getStartLine())
+                .endLine(chunk.getEndLine())
+                .score(score)
+                .graphRank(-1)
+                .retrievalRank(-1)
+                .lexicalRank(rank)
+                .build();
+    }
+    
     // ==================== 内部数据类 ====================
     
     private static class GraphSearchResult {
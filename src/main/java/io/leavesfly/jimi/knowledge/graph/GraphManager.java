@@ -4,13 +4,16 @@ import io.leavesfly.jimi.config.info.GraphConfig;
 import io.leavesfly.jimi.core.engine.JimiRuntime;
 import io.leavesfly.jimi.knowledge.query.GraphQuery;
 import io.leavesfly.jimi.knowledge.result.GraphResult;
+import io.leavesfly.jimi.knowledge.graph.builder.FileManifest;
 import io.leavesfly.jimi.knowledge.graph.builder.GraphBuilder;
 import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
 import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
 import io.leavesfly.jimi.knowledge.graph.navigator.GraphNavigator;
 import io.leavesfly.jimi.knowledge.graph.navigator.ImpactAnalyzer;
+import io.leavesfly.jimi.knowledge.graph.navigator.TraversalCache;
 import io.leavesfly.jimi.knowledge.graph.parser.LanguageParserRegistry;
 import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.CsrCodeGraphStore;
 import io.leavesfly.jimi.knowledge.graph.store.InMemoryCodeGraphStore;
 import io.leavesfly.jimi.knowledge.graph.visualization.GraphVisualizer;
 import lombok.Getter;
@@ -19,6 +22,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -77,10 +81,10 @@ public class GraphManager {
         this.config = config;
 
         // 初始化核心组件
-        this.graphStore = new InMemoryCodeGraphStore();
+        this.graphStore = createGraphStore(config.getStoreType(), config.getSnapshotFormat());
         this.graphBuilder = new GraphBuilder(parserRegistry, graphStore, config);
         this.navigator = new GraphNavigator(graphStore);
-        this.impactAnalyzer = new ImpactAnalyzer(graphStore);
+        this.impactAnalyzer = new ImpactAnalyzer(graphStore, config.getCache());
         this.searchEngine = new GraphSearchEngine(graphStore, navigator);
         this.visualizer = new GraphVisualizer(graphStore);
 
@@ -89,6 +93,23 @@ public class GraphManager {
                 parserRegistry.getSupportedLanguages());
     }
 
+    /**
+     * 按配置创建图存储
+     */
+    private static CodeGraphStore createGraphStore(String storeType, String snapshotFormat) {
+        if ("memory".equalsIgnoreCase(storeType)) {
+            return new InMemoryCodeGraphStore();
+        }
+        if (storeType != null && !"csr".equalsIgnoreCase(storeType)) {
+            log.warn("Unknown graph store type: {}, falling back to csr", storeType);
+        }
+        if (snapshotFormat != null && !"binary".equalsIgnoreCase(snapshotFormat)
+                && !"jsonl".equalsIgnoreCase(snapshotFormat)) {
+            log.warn("Unknown graph snapshot format: {}, falling back to binary", snapshotFormat);
+        }
+        return new CsrCodeGraphStore(!"jsonl".equalsIgnoreCase(snapshotFormat));
+    }
+
     /**
      * 设置工作目录
      * 应在 Session 创建后调用，用于持久化路径计算
@@ -108,13 +129,14 @@ public class GraphManager {
             Path storagePath = resolveStoragePath();
             if (Files.exists(storagePath)) {
                 graphStore.load(storagePath)
-                        .doOnSuccess(success -> {
-                            if (success) {
-                                initialized.set(true);
-                                log.info("Auto-loaded code graph from: {}", storagePath);
-                            } else {
+                        .flatMap(success -> {
+                            if (!success) {
                                 log.debug("No existing graph found at: {}", storagePath);
+                                return Mono.just(false);
                             }
+                            initialized.set(true);
+                            log.info("Auto-loaded code graph from: {}", storagePath);
+                            return refreshAfterLoad(storagePath).thenReturn(true);
                         })
                         .doOnError(e -> log.warn("Failed to auto-load graph: {}", e.getMessage()))
                         .onErrorResume(e -> Mono.just(false))
@@ -143,8 +165,11 @@ public class GraphManager {
      * @return 存储路径
      */
     private Path resolveStoragePath() {
-        Path baseDir = (workDir != null) ? workDir : Paths.get(System.getProperty("user.dir"));
-        return baseDir.resolve(config.getStoragePath());
+        return resolveBaseDir().resolve(config.getStoragePath());
+    }
+
+    private Path resolveBaseDir() {
+        return (workDir != null) ? workDir : Paths.get(System.getProperty("user.dir"));
     }
 
     /**
@@ -194,7 +219,7 @@ public class GraphManager {
                     // 自动保存
                     if (config.getAutoSave() && result.isSuccess()) {
                         Path storagePath = resolveStoragePath();
-                        return graphStore.save()
+                        return saveSnapshot(storagePath)
                                 .doOnSuccess(saved -> {
                                     if (saved) {
                                         log.info("Auto-saved code graph to: {}", storagePath);
@@ -230,7 +255,7 @@ public class GraphManager {
      */
     public void clearGraph() {
         log.info("Clearing code graph...");
-        graphStore.clear().block();
+        graphBuilder.clearGraph().block();
         initialized.set(false);
         log.info("Code graph cleared");
     }
@@ -245,6 +270,7 @@ public class GraphManager {
                         .relationCount(stats.getTotalRelations())
                         .initialized(initialized.get())
                         .projectRoot(currentProjectRoot.get())
+                        .traversalCache(impactAnalyzer.getCacheStats())
                         .build());
     }
 
@@ -268,11 +294,8 @@ public class GraphManager {
 
         Path storagePath = resolveStoragePath();
         log.info("Saving code graph to: {}", storagePath);
-        
-        // 设置存储路径
-        graphStore.setStoragePath(storagePath);
 
-        return graphStore.save()
+        return saveSnapshot(storagePath)
                 .doOnSuccess(success -> {
                     if (success) {
                         log.info("Code graph saved successfully");
@@ -292,16 +315,88 @@ public class GraphManager {
         log.info("Loading code graph from: {}", storagePath);
 
         return graphStore.load(storagePath)
-                .doOnSuccess(success -> {
-                    if (success) {
-                        initialized.set(true);
-                        log.info("Code graph loaded successfully");
-                    } else {
+                .flatMap(success -> {
+                    if (!success) {
                         log.warn("Failed to load code graph");
+                        return Mono.just(false);
                     }
+                    initialized.set(true);
+                    log.info("Code graph loaded successfully");
+                    return refreshAfterLoad(storagePath).thenReturn(true);
                 });
     }
 
+    /**
+     * 保存图快照与文件清单
+     */
+    private Mono<Boolean> saveSnapshot(Path storagePath) {
+        graphStore.setStoragePath(storagePath);
+        return graphStore.save()
+                .map(saved -> {
+                    if (saved) {
+                        try {
+                            graphBuilder.getManifest().save(storagePath);
+                        } catch (IOException e) {
+                            // 没有清单时下次加载不做增量刷新，图本身仍然可用
+                            log.warn("Failed to save graph manifest: {}", e.getMessage());
+                        }
+                    }
+                    return saved;
+                });
+    }
+
+    /**
+     * 加载快照后按文件清单刷新变化的文件
+     * <p>
+     * 刷新针对清单中记录的项目根目录（图可能由 {@code /graph build <path>} 从工作目录以外的目录构建）。
+     * 没有清单（旧版本保存的图）、清单未记录根目录或根目录已不存在时不刷新，图可能与源码不一致，需要手动重建。
+     * 刷新有变化且开启自动保存时，重新保存快照与清单。
+     */
+    private Mono<Void> refreshAfterLoad(Path storagePath) {
+        FileManifest manifest = graphBuilder.getManifest();
+        if (!manifest.load(storagePath)) {
+            currentProjectRoot.set(resolveBaseDir());
+            log.info("No graph manifest found in {}, loaded graph may be stale; rebuild to refresh", storagePath);
+            return Mono.empty();
+        }
+        Path projectRoot = manifest.getProjectRoot();
+        if (projectRoot == null) {
+            currentProjectRoot.set(resolveBaseDir());
+            log.warn("Graph manifest in {} has no project root, skipping refresh; rebuild to refresh", storagePath);
+            return Mono.empty();
+        }
+        currentProjectRoot.set(projectRoot);
+        if (!Files.isDirectory(projectRoot)) {
+            log.warn("Project root {} of loaded graph is missing or not a directory, skipping refresh", projectRoot);
+            return Mono.empty();
+        }
+        if (!config.getRefreshOnLoad()) {
+            return Mono.empty();
+        }
+        return graphBuilder.refreshGraph(projectRoot)
+                .flatMap(stats -> {
+                    if (!config.getAutoSave()) {
+                        return Mono.<Boolean>empty();
+                    }
+                    if (stats.hasChanges()) {
+                        return saveSnapshot(storagePath);
+                    }
+                    if (stats.getHashedFiles() > 0) {
+                        // 只有修改时间变化：保存刷新后的指纹，下次启动不再读取这些文件
+                        return Mono.fromCallable(() -> {
+                            graphBuilder.getManifest().save(storagePath);
+                            return true;
+                        });
+                    }
+                    return Mono.<Boolean>empty();
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to refresh loaded graph: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
     /**
      * 初始化图谱服务
      *
@@ -426,14 +521,7 @@ public class GraphManager {
     }
 
     private List<GraphResult.GraphEntity> searchBySymbol(String keyword, int limit) {
-        GraphSearchEngine.GraphSearchResult result = searchEngine
-                .searchBySymbol(keyword, null, limit).block();
-
-        if (result == null || !result.getSuccess()) {
-            return new ArrayList<>();
-        }
-
-        return result.getResults().stream()
+        return searchEngine.findSymbols(keyword, null, limit).stream()
                 .map(scored -> convertEntity(scored.getEntity()))
                 .collect(Collectors.toList());
     }
@@ -767,12 +855,13 @@ public class GraphManager {
         private final int relationCount;
         private final boolean initialized;
         private final Path projectRoot;
+        private final TraversalCache.Stats traversalCache;
 
         @Override
         public String toString() {
             return String.format(
-                    "GraphStats[entities=%d, relations=%d, initialized=%s, project=%s]",
-                    entityCount, relationCount, initialized, projectRoot
+                    "GraphStats[entities=%d, relations=%d, initialized=%s, project=%s, %s]",
+                    entityCount, relationCount, initialized, projectRoot, traversalCache
             );
         }
     }
@@ -6,6 +6,7 @@ import io.leavesfly.jimi.knowledge.graph.model.RelationType;
 import io.leavesfly.jimi.knowledge.graph.navigator.GraphNavigator;
 import io.leavesfly.jimi.knowledge.graph.navigator.ImpactAnalyzer;
 import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.SymbolIndex;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +40,9 @@ public class GraphSearchEngine {
 
     /**
      * 符号搜索: 根据符号名称查找代码实体
+     * <p>
+     * 基于存储维护的 {@link SymbolIndex}，支持精确、前缀、包含、驼峰缩写 (如 "SAT" -> SubAgentTool)、
+     * 限定名 (查询含 ".") 和三元组模糊匹配，不扫描全部实体
      *
      * @param symbolName  符号名称 (支持部分匹配)
      * @param entityTypes 实体类型过滤 (null表示所有类型)
@@ -54,32 +58,7 @@ public class GraphSearchEngine {
             result.setQuery(symbolName);
             result.setSearchType(SearchType.SYMBOL);
 
-            List<ScoredEntity> scoredEntities = new ArrayList<>();
-
-            // 获取所有实体并进行匹配
-            if (entityTypes == null || entityTypes.isEmpty()) {
-                // 搜索所有类型
-                for (EntityType type : EntityType.values()) {
-                    List<CodeEntity> entities = graphStore.getEntitiesByType(type).block();
-                    if (entities != null) {
-                        scoredEntities.addAll(scoreEntities(entities, symbolName));
-                    }
-                }
-            } else {
-                // 按指定类型搜索
-                for (EntityType type : entityTypes) {
-                    List<CodeEntity> entities = graphStore.getEntitiesByType(type).block();
-                    if (entities != null) {
-                        scoredEntities.addAll(scoreEntities(entities, symbolName));
-                    }
-                }
-            }
-
-            // 按分数排序并取TopK
-            scoredEntities.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-            if (scoredEntities.size() > limit) {
-                scoredEntities = scoredEntities.subList(0, limit);
-            }
+            List<ScoredEntity> scoredEntities = findSymbols(symbolName, entityTypes, limit);
 
             result.setResults(scoredEntities);
             result.setTotalResults(scoredEntities.size());
@@ -93,6 +72,24 @@ public class GraphSearchEngine {
         });
     }
 
+    /**
+     * 同步符号搜索，供已在 Reactive 回调中的调用方使用，避免嵌套 block()
+     *
+     * @param symbolName  符号名称
+     * @param entityTypes 实体类型过滤 (null表示所有类型)
+     * @param limit       返回数量限制
+     * @return 按分数降序排列的结果
+     */
+    public List<ScoredEntity> findSymbols(String symbolName, Set<EntityType> entityTypes, int limit) {
+        return graphStore.getSymbolIndex().search(symbolName, entityTypes, limit).stream()
+                .map(match -> ScoredEntity.builder()
+                        .entity(match.getEntity())
+                        .score(match.getScore())
+                        .reason(match.getReason())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
     /**
      * 关系查询: 查找与指定实体有特定关系的其他实体
      *
@@ -216,12 +213,7 @@ public class GraphSearchEngine {
             // 1. 符号查询
             if (contextQuery.getSymbols() != null && !contextQuery.getSymbols().isEmpty()) {
                 for (String symbol : contextQuery.getSymbols()) {
-                    GraphSearchResult symbolResult = searchBySymbol(symbol,
-                            contextQuery.getEntityTypes(), 50).block();
-
-                    if (symbolResult != null && symbolResult.getSuccess()) {
-                        allResults.addAll(symbolResult.getResults());
-                    }
+                    allResults.addAll(findSymbols(symbol, contextQuery.getEntityTypes(), 50));
                 }
             }
 
@@ -280,84 +272,6 @@ public class GraphSearchEngine {
 
     // ==================== 私有辅助方法 ====================
 
-    /**
-     * 对实体列表进行评分
-     */
-    private List<ScoredEntity> scoreEntities(List<CodeEntity> entities, String query) {
-        List<ScoredEntity> scored = new ArrayList<>();
-        String queryLower = query.toLowerCase();
-
-        for (CodeEntity entity : entities) {
-            String name = entity.getName();
-            String qualifiedName = entity.getQualifiedName();
-
-            if (name == null) {
-                continue;
-            }
-
-            String nameLower = name.toLowerCase();
-            String qualifiedLower = qualifiedName != null ? qualifiedName.toLowerCase() : "";
-
-            double score = 0.0;
-            String reason = "";
-
-            // 精确匹配 (最高分)
-            if (nameLower.equals(queryLower)) {
-                score = 1.0;
-                reason = "Exact match";
-            }
-            // 开头匹配
-            else if (nameLower.startsWith(queryLower)) {
-                score = 0.8;
-                reason = "Name starts with query";
-            }
-            // 包含匹配
-            else if (nameLower.contains(queryLower)) {
-                score = 0.6;
-                reason = "Name contains query";
-            }
-            // 限定名匹配
-            else if (qualifiedLower.contains(queryLower)) {
-                score = 0.4;
-                reason = "Qualified name contains query";
-            }
-            // 驼峰匹配 (如: queryLower="gse", name="GraphSearchEngine")
-            else if (matchesCamelCase(name, query)) {
-                score = 0.5;
-                reason = "CamelCase match";
-            }
-
-            if (score > 0) {
-                scored.add(ScoredEntity.builder()
-                        .entity(entity)
-                        .score(score)
-                        .reason(reason)
-                        .build());
-            }
-        }
-
-        return scored;
-    }
-
-    /**
-     * 驼峰匹配算法
-     */
-    private boolean matchesCamelCase(String name, String query) {
-        if (name == null || query == null || query.isEmpty()) {
-            return false;
-        }
-
-        String capitals = name.chars()
-                .filter(Character::isUpperCase)
-                .collect(StringBuilder::new,
-                        StringBuilder::appendCodePoint,
-                        StringBuilder::append)
-                .toString()
-                .toLowerCase();
-
-        return capitals.contains(query.toLowerCase());
-    }
-
     /**
      * 计算文件路径匹配分数
      */
@@ -0,0 +1,249 @@
+package io.leavesfly.jimi.knowledge.graph.builder;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 代码图文件清单
+ * <p>
+ * 记录构建进图中的每个源文件的指纹（大小、修改时间、内容 MD5）及构建时的项目根目录（绝对路径），
+ * 随图快照一起保存为 {@code manifest.json}。加载快照后与该根目录比对，只有新增、修改、删除的文件需要重新解析：
+ * <ul>
+ *   <li>大小与修改时间都相同的文件视为未变化，不读取内容</li>
+ *   <li>修改时间变化但 MD5 相同的文件（如 touch、切换分支后切回）视为未变化，只刷新指纹</li>
+ * </ul>
+ * 线程安全：并行构建的工作线程可同时记录指纹。
+ */
+@Slf4j
+public class FileManifest {
+
+    /** 清单文件名（位于图存储目录） */
+    public static final String FILE_NAME = "manifest.json";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** 相对路径 -> 指纹 */
+    private final Map<String, Fingerprint> files = new ConcurrentHashMap<>();
+
+    /** 相对路径所基于的项目根目录（绝对路径），未知时为 null */
+    private volatile Path projectRoot;
+
+    /**
+     * 读取文件指纹（内容在读取时计算 MD5）
+     */
+    public static Fingerprint fingerprint(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new Fingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                md5(Files.readAllBytes(file)));
+    }
+
+    public void put(String relativePath, Fingerprint fingerprint) {
+        files.put(relativePath, fingerprint);
+    }
+
+    public void remove(String relativePath) {
+        files.remove(relativePath);
+    }
+
+    public Fingerprint get(String relativePath) {
+        return files.get(relativePath);
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    public boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    public Path getProjectRoot() {
+        return projectRoot;
+    }
+
+    public void setProjectRoot(Path projectRoot) {
+        this.projectRoot = projectRoot == null ? null : projectRoot.toAbsolutePath().normalize();
+    }
+
+    public void clear() {
+        files.clear();
+        projectRoot = null;
+    }
+
+    /**
+     * 用一次全量构建的结果替换清单
+     *
+     * @param projectRoot 构建的项目根目录
+     * @param fingerprints 相对路径 -> 指纹
+     */
+    public void replaceAll(Path projectRoot, Map<String, Fingerprint> fingerprints) {
+        files.clear();
+        files.putAll(fingerprints);
+        setProjectRoot(projectRoot);
+    }
+
+    /**
+     * 与工作区比对
+     * <p>
+     * 修改时间变化但内容未变的文件会就地刷新指纹，下次比对不再读取内容。
+     *
+     * @param projectRoot 项目根目录
+     * @param currentFiles 当前工作区中可解析的源文件（绝对路径）
+     * @return 变化的文件
+     */
+    public Diff diff(Path projectRoot, List<Path> currentFiles) {
+        Diff diff = new Diff();
+        Set<String> seen = new HashSet<>();
+        for (Path file : currentFiles) {
+            String relativePath = projectRoot.relativize(file).toString();
+            seen.add(relativePath);
+            Fingerprint recorded = files.get(relativePath);
+            if (recorded == null) {
+                diff.added.add(file);
+                continue;
+            }
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                long mtime = attributes.lastModifiedTime().toMillis();
+                if (attributes.size() == recorded.getSize() && mtime == recorded.getMtime()) {
+                    diff.unchanged++;
+                    continue;
+                }
+                diff.hashedFiles++;
+                Fingerprint current = fingerprint(file);
+                if (current.getMd5().equals(recorded.getMd5())) {
+                    files.put(relativePath, current);
+                    diff.unchanged++;
+                } else {
+                    diff.modified.add(file);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read file attributes: {} - {}", file, e.getMessage());
+                diff.modified.add(file);
+            }
+        }
+        for (String relativePath : files.keySet()) {
+            if (!seen.contains(relativePath)) {
+                diff.deleted.add(projectRoot.resolve(relativePath));
+            }
+        }
+        diff.deleted.sort(null);
+        return diff;
+    }
+
+    /**
+     * 保存到图存储目录
+     */
+    public void save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Snapshot snapshot = new Snapshot();
+        snapshot.version = FORMAT_VERSION;
+        snapshot.projectRoot = projectRoot == null ? null : projectRoot.toString();
+        snapshot.files = new TreeMap<>(files);
+        Path target = directory.resolve(FILE_NAME);
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        OBJECT_MAPPER.writeValue(temp.toFile(), snapshot);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        log.debug("Saved graph manifest: {} files to {}", files.size(), target);
+    }
+
+    /**
+     * 从图存储目录加载
+     *
+     * @return 清单存在且版本匹配时返回 true（项目根目录可能为 null）；否则清单被清空并返回 false
+     */
+    public boolean load(Path directory) {
+        clear();
+        Path source = directory.resolve(FILE_NAME);
+        if (!Files.exists(source)) {
+            return false;
+        }
+        try {
+            Snapshot snapshot = OBJECT_MAPPER.readValue(source.toFile(), Snapshot.class);
+            if (snapshot.version != FORMAT_VERSION || snapshot.files == null) {
+                log.warn("Unsupported graph manifest version {} in {}", snapshot.version, source);
+                return false;
+            }
+            files.putAll(snapshot.files);
+            projectRoot = snapshot.projectRoot == null ? null : Paths.get(snapshot.projectRoot);
+            log.debug("Loaded graph manifest: {} files from {}", files.size(), source);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to load graph manifest: {} - {}", source, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String md5(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    /**
+     * 文件指纹
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Fingerprint {
+        private long size;
+        /** 最后修改时间（毫秒） */
+        private long mtime;
+        private String md5;
+    }
+
+    /**
+     * 清单与工作区的差异
+     */
+    @Data
+    public static class Diff {
+        private final List<Path> added = new ArrayList<>();
+        private final List<Path> modified = new ArrayList<>();
+        private final List<Path> deleted = new ArrayList<>();
+        private int unchanged;
+        /** 修改时间变化、需要读取内容比对 MD5 的文件数 */
+        private int hashedFiles;
+
+        public boolean isEmpty() {
+            return added.isEmpty() && modified.isEmpty() && deleted.isEmpty();
+        }
+    }
+
+    /**
+     * manifest.json 的持久化格式
+     */
+    static class Snapshot {
+        public int version;
+        /** 项目根目录绝对路径；旧清单中没有该字段 */
+        public String projectRoot;
+        public Map<String, Fingerprint> files = new HashMap<>();
+    }
+}
@@ -1,6 +1,10 @@
 package io.leavesfly.jimi.knowledge.graph.builder;
 
 import io.leavesfly.jimi.config.info.GraphConfig;
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.parser.CompilationUnitCache;
 import io.leavesfly.jimi.knowledge.graph.parser.LanguageParser;
 import io.leavesfly.jimi.knowledge.graph.parser.LanguageParserRegistry;
 import io.leavesfly.jimi.knowledge.graph.parser.ParseResult;
@@ -9,6 +13,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
 import java.nio.file.FileSystems;
@@ -16,9 +22,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,6 +36,8 @@ import java.util.stream.Stream;
  * <p>
  * 负责扫描项目代码,解析并构建代码图。
  * 支持多语言，通过 LanguageParserRegistry 自动选择合适的解析器。
+ * 全量构建按 {@code graph.build_parallelism} 并行解析文件。
+ * 构建与增量更新同时维护 {@link FileManifest}，加载快照后用 {@link #refreshGraph} 只重新解析变化的文件。
  */
 @Slf4j
 @Component
@@ -36,6 +47,16 @@ public class GraphBuilder {
     private final CodeGraphStore graphStore;
     private final GraphConfig config;
     
+    /** 图中每个文件对应的源文件指纹 */
+    @lombok.Getter
+    private final FileManifest manifest = new FileManifest();
+    
+    /** 每个工作线程的在途文件数上限（有界工作队列） */
+    private static final int QUEUE_FACTOR = 4;
+    
+    /** 最终解析阶段每批写入的关系数 */
+    private static final int RELATION_BATCH_SIZE = 10_000;
+    
     // 缓存的 PathMatcher，避免重复创建
     private List<PathMatcher> includeMatchers;
     private List<PathMatcher> excludeMatchers;
@@ -72,21 +93,38 @@ public class GraphBuilder {
     
     /**
      * 构建整个项目的代码图
+     * <p>
+     * 文件在有界线程池中并行解析（每个工作线程持有各自的 JavaParser，见 {@link CompilationUnitCache}），
+     * 解析结果按文件顺序分批写入图存储；全部文件解析完成后，再统一解析跨文件的关系目标并写入关系。
+     * 任意并行度下得到的图都相同。
      *
      * @param projectRoot 项目根目录
      * @return 构建结果统计
      */
     public Mono<BuildStats> buildGraph(Path projectRoot) {
-        log.info("Building code graph for project: {}", projectRoot);
+        int parallelism = resolveParallelism();
+        log.info("Building code graph for project: {} (parallelism: {})", projectRoot, parallelism);
         log.info("Supported languages: {}", parserRegistry.getSupportedLanguages());
         
         return Mono.fromCallable(() -> scanSourceFiles(projectRoot))
             .flatMap(sourceFiles -> {
                 log.info("Found {} source files to parse", sourceFiles.size());
+                BuildSession session = new BuildSession(parallelism);
                 
-                return Flux.fromIterable(sourceFiles)
-                    .flatMap(file -> parseAndStore(file, projectRoot))
-                    .reduce(new BuildStats(), this::mergeStats);
+                return Mono.using(
+                        () -> Schedulers.newBoundedElastic(parallelism, Integer.MAX_VALUE, "graph-build", 60, true),
+                        scheduler -> Flux.fromIterable(sourceFiles)
+                            // 最多 parallelism * QUEUE_FACTOR 个文件在途，按扫描顺序输出
+                            .flatMapSequential(file -> Mono.defer(() -> session.parseFile(file, projectRoot))
+                                    .subscribeOn(scheduler),
+                                parallelism * QUEUE_FACTOR, 1)
+                            .buffer(config.getBuildBatchSize())
+                            .concatMap(session::storeEntities)
+                            .then(Mono.defer(session::resolveAndStoreRelations))
+                            // 离开构建线程池再完成：dispose 会中断池中线程，不能让下游（如自动保存）在其上继续执行
+                            .publishOn(Schedulers.boundedElastic()),
+                        Scheduler::dispose)
+                    .then(Mono.fromCallable(() -> session.finish(projectRoot)));
             })
             .doOnSuccess(stats -> {
                 log.info("Graph build completed: {}", stats);
@@ -98,6 +136,8 @@ public class GraphBuilder {
     
     /**
      * 增量更新:解析单个文件并更新图
+     * <p>
+     * 文件原有的实体及其出边先被删除，再写入新的实体和关系；其他文件指向该文件的关系保持不变。
      *
      * @param filePath 文件路径
      * @param projectRoot 项目根目录
@@ -106,24 +146,18 @@ public class GraphBuilder {
     public Mono<ParseResult> updateFile(Path filePath, Path projectRoot) {
         log.info("Updating graph for file: {}", filePath);
         
-        Optional<LanguageParser> parserOpt = parserRegistry.getParserForFile(filePath);
-        if (parserOpt.isEmpty()) {
+        if (!parserRegistry.canParse(filePath)) {
             log.warn("No parser available for file: {}", filePath);
             return Mono.just(ParseResult.failure(filePath.toString(), "No parser available for this file type"));
         }
         
-        LanguageParser parser = parserOpt.get();
-        return Mono.fromCallable(() -> parser.parseFile(filePath, projectRoot))
+        return replaceFileEntities(filePath, projectRoot)
             .flatMap(result -> {
                 if (!result.getSuccess()) {
                     return Mono.just(result);
                 }
-                
-                // 先删除该文件的旧数据
-                String relativeFilePath = projectRoot.relativize(filePath).toString();
-                return graphStore.deleteEntitiesByFile(relativeFilePath)
-                    .then(graphStore.addEntities(result.getEntities()))
-                    .then(graphStore.addRelations(result.getRelations()))
+                return Mono.fromRunnable(() -> resolveAgainstStore(List.of(result)))
+                    .then(Mono.defer(() -> graphStore.addRelations(result.getRelations())))
                     .thenReturn(result);
             })
             .doOnSuccess(result -> {
@@ -142,17 +176,74 @@ public class GraphBuilder {
         String relativeFilePath = projectRoot.relativize(filePath).toString();
         log.info("Removing graph data for file: {}", relativeFilePath);
         
-        return graphStore.deleteEntitiesByFile(relativeFilePath)
+        return deleteFileData(relativeFilePath)
             .doOnSuccess(count -> {
+                manifest.remove(relativeFilePath);
                 log.info("Removed {} entities from file: {}", count, relativeFilePath);
             });
     }
     
+    /**
+     * 按文件清单刷新代码图
+     * <p>
+     * 与工作区比对后删除已删除文件的数据，重新解析新增和修改的文件；未变化的文件不读取内容。
+     * 新增和修改的文件先全部写入实体，再统一解析关系目标，它们之间的相互引用与全量构建一样被解析。
+     * 未变化文件中原本无法解析的关系不会重新解析，需要时执行全量重建。
+     *
+     * @param projectRoot 项目根目录
+     * @return 刷新统计
+     */
+    public Mono<RefreshStats> refreshGraph(Path projectRoot) {
+        long startTime = System.nanoTime();
+        manifest.setProjectRoot(projectRoot);
+        return Mono.fromCallable(() -> manifest.diff(projectRoot, scanSourceFiles(projectRoot)))
+            .flatMap(diff -> {
+                RefreshStats stats = new RefreshStats();
+                stats.addedFiles = diff.getAdded().size();
+                stats.modifiedFiles = diff.getModified().size();
+                stats.deletedFiles = diff.getDeleted().size();
+                stats.unchangedFiles = diff.getUnchanged();
+                stats.hashedFiles = diff.getHashedFiles();
+                
+                List<Path> changedFiles = new ArrayList<>(diff.getModified());
+                changedFiles.addAll(diff.getAdded());
+                List<ParseResult> parsed = new ArrayList<>();
+                return Flux.fromIterable(diff.getDeleted())
+                    .concatMap(file -> removeFile(file, projectRoot))
+                    .thenMany(Flux.fromIterable(changedFiles)
+                        .concatMap(file -> replaceFileEntities(file, projectRoot)))
+                    .doOnNext(result -> {
+                        if (result.getSuccess()) {
+                            parsed.add(result);
+                        } else {
+                            stats.failedFiles++;
+                            log.warn("Failed to parse file: {} - {}", result.getFilePath(), result.getErrorMessage());
+                        }
+                    })
+                    .then(Mono.defer(() -> {
+                        stats.resolvedRelations = resolveAgainstStore(parsed);
+                        List<CodeRelation> relations = new ArrayList<>();
+                        parsed.forEach(result -> relations.addAll(result.getRelations()));
+                        return Flux.fromIterable(relations)
+                            .buffer(RELATION_BATCH_SIZE)
+                            .concatMap(graphStore::addRelations)
+                            .then();
+                    }))
+                    .then(Mono.fromCallable(() -> {
+                        stats.durationMs = (System.nanoTime() - startTime) / 1_000_000;
+                        return stats;
+                    }));
+            })
+            .doOnSuccess(stats -> log.info("Graph refresh completed: {}", stats))
+            .doOnError(e -> log.error("Failed to refresh graph", e));
+    }
+    
     /**
      * 清空代码图
      */
     public Mono<Void> clearGraph() {
         log.info("Clearing code graph");
+        manifest.clear();
         return graphStore.clear();
     }
     
@@ -179,6 +270,9 @@ public class GraphBuilder {
                  .forEach(sourceFiles::add);
         }
         
+        // Files.walk 的顺序取决于文件系统，排序后构建顺序确定
+        sourceFiles.sort(null);
+        
         return sourceFiles;
     }
     
@@ -221,54 +315,202 @@ public class GraphBuilder {
     }
     
     /**
-     * 解析文件并存储到图中
+     * 解析单个文件（在构建线程池中执行），不支持的文件类型返回空
      */
-    private Mono<BuildStats> parseAndStore(Path filePath, Path projectRoot) {
+    private Mono<ParseResult> parseFile(Path filePath, Path projectRoot) {
         Optional<LanguageParser> parserOpt = parserRegistry.getParserForFile(filePath);
         if (parserOpt.isEmpty()) {
             // 不支持的文件类型，跳过
-            return Mono.just(new BuildStats());
+            return Mono.empty();
         }
         
         LanguageParser parser = parserOpt.get();
         return Mono.fromCallable(() -> parser.parseFile(filePath, projectRoot))
-            .flatMap(result -> {
-                BuildStats stats = new BuildStats();
-                stats.totalFiles++;
-                
-                if (!result.getSuccess()) {
-                    stats.failedFiles++;
-                    log.warn("Failed to parse file: {} - {}", filePath, result.getErrorMessage());
-                    return Mono.just(stats);
-                }
-                
-                stats.successFiles++;
-                stats.totalEntities += result.getEntities().size();
-                stats.totalRelations += result.getRelations().size();
-                
-                return graphStore.addEntities(result.getEntities())
-                    .then(graphStore.addRelations(result.getRelations()))
-                    .thenReturn(stats);
+            .onErrorResume(e -> {
+                log.error("Error processing file: {}", filePath, e);
+                return Mono.just(ParseResult.failure(filePath.toString(), e.getMessage()));
+            });
+    }
+    
+    /**
+     * 解析文件并替换其在图中的实体（关系由调用方在实体写入后统一解析、写入）
+     * <p>
+     * 指纹在解析前读取：解析期间文件若再被修改，下次刷新时会因修改时间不同而重新比对。
+     * 只有解析成功的文件才记入清单，失败的文件保留旧数据并在下次刷新时重试。
+     * 不支持的文件类型返回空，不计为失败。
+     */
+    private Mono<ParseResult> replaceFileEntities(Path filePath, Path projectRoot) {
+        Optional<LanguageParser> parserOpt = parserRegistry.getParserForFile(filePath);
+        if (parserOpt.isEmpty()) {
+            // 不支持的文件类型，跳过
+            return Mono.empty();
+        }
+        
+        LanguageParser parser = parserOpt.get();
+        String relativeFilePath = projectRoot.relativize(filePath).toString();
+        return Mono.fromCallable(() -> {
+                FileManifest.Fingerprint fingerprint = FileManifest.fingerprint(filePath);
+                return new FingerprintedResult(parser.parseFile(filePath, projectRoot), fingerprint);
             })
             .onErrorResume(e -> {
                 log.error("Error processing file: {}", filePath, e);
-                BuildStats stats = new BuildStats();
-                stats.totalFiles++;
-                stats.failedFiles++;
-                return Mono.just(stats);
+                return Mono.just(new FingerprintedResult(
+                    ParseResult.failure(filePath.toString(), e.getMessage()), null));
+            })
+            .flatMap(parsed -> {
+                ParseResult result = parsed.result();
+                if (!result.getSuccess()) {
+                    return Mono.just(result);
+                }
+                return deleteFileData(relativeFilePath)
+                    .then(graphStore.addEntities(result.getEntities()))
+                    .then(Mono.fromRunnable(() -> manifest.put(relativeFilePath, parsed.fingerprint())))
+                    .thenReturn(result);
             });
     }
     
     /**
-     * 合并统计信息
+     * 删除文件的实体及这些实体的出边
+     * <p>
+     * 出边由文件自身的解析产生，重新解析时会再次写入；入边来自其他文件，保持不变。
      */
-    private BuildStats mergeStats(BuildStats a, BuildStats b) {
-        a.totalFiles += b.totalFiles;
-        a.successFiles += b.successFiles;
-        a.failedFiles += b.failedFiles;
-        a.totalEntities += b.totalEntities;
-        a.totalRelations += b.totalRelations;
-        return a;
+    private Mono<Integer> deleteFileData(String relativeFilePath) {
+        return graphStore.getEntitiesByFile(relativeFilePath)
+            .flatMap(entities -> Flux.fromIterable(entities)
+                .flatMapIterable(entity -> graphStore.getRelationsBySourceSync(entity.getId()))
+                .concatMap(relation -> graphStore.deleteRelation(relation.getId()))
+                .then(graphStore.deleteEntitiesByFile(relativeFilePath)));
+    }
+    
+    /**
+     * 增量更新时，以图中已有的类型为符号表解析关系目标（符号表对本批文件只构建一次）
+     *
+     * @return 改写的关系数
+     */
+    private int resolveAgainstStore(List<ParseResult> results) {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        RelationResolver resolver = new RelationResolver(id -> graphStore.getEntitySync(id) != null);
+        for (EntityType type : RelationResolver.TYPE_KINDS) {
+            for (CodeEntity entity : graphStore.getEntitiesByTypeSync(type)) {
+                resolver.addType(entity.getName(), entity.getQualifiedName());
+            }
+        }
+        int resolved = 0;
+        for (ParseResult result : results) {
+            String packageName = RelationResolver.packageOf(result.getSymbolTable());
+            for (CodeRelation relation : result.getRelations()) {
+                if (resolver.resolve(relation, packageName)) {
+                    resolved++;
+                }
+            }
+        }
+        return resolved;
+    }
+    
+    /**
+     * 构建并行度：0 表示全部 CPU 核数
+     */
+    private int resolveParallelism() {
+        Integer configured = config.getBuildParallelism();
+        if (configured == null || configured <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return configured;
+    }
+    
+    /**
+     * 一次构建的状态
+     * <p>
+     * 只在解析结果的有序输出上被调用（同一时刻只有一个写入方），无需加锁。
+     */
+    private class BuildSession {
+        
+        private final BuildStats stats = new BuildStats();
+        private final long startTime = System.nanoTime();
+        private final Set<String> entityIds = new HashSet<>();
+        private final RelationResolver resolver = new RelationResolver(
+            id -> entityIds.contains(id) || graphStore.getEntitySync(id) != null);
+        /** 按文件顺序暂存的关系，所有实体写入后再解析目标 */
+        private final List<ParseResult> pendingRelations = new ArrayList<>();
+        /** 解析前读取的文件指纹（工作线程并发写入） */
+        private final Map<String, FileManifest.Fingerprint> fingerprints = new ConcurrentHashMap<>();
+        
+        BuildSession(int parallelism) {
+            stats.parallelism = parallelism;
+        }
+        
+        /**
+         * 读取指纹并解析文件（在构建线程池中执行），解析成功的文件记入清单
+         */
+        Mono<ParseResult> parseFile(Path filePath, Path projectRoot) {
+            FileManifest.Fingerprint fingerprint;
+            try {
+                fingerprint = FileManifest.fingerprint(filePath);
+            } catch (IOException e) {
+                log.debug("Failed to fingerprint file: {} - {}", filePath, e.getMessage());
+                fingerprint = null;
+            }
+            FileManifest.Fingerprint parsedFingerprint = fingerprint;
+            return GraphBuilder.this.parseFile(filePath, projectRoot)
+                .doOnNext(result -> {
+                    if (result.getSuccess() && parsedFingerprint != null) {
+                        fingerprints.put(projectRoot.relativize(filePath).toString(), parsedFingerprint);
+                    }
+                });
+        }
+        
+        /**
+         * 写入一批文件的实体
+         */
+        Mono<Integer> storeEntities(List<ParseResult> batch) {
+            List<CodeEntity> entities = new ArrayList<>();
+            for (ParseResult result : batch) {
+                stats.totalFiles++;
+                if (!result.getSuccess()) {
+                    stats.failedFiles++;
+                    log.warn("Failed to parse file: {} - {}", result.getFilePath(), result.getErrorMessage());
+                    continue;
+                }
+                stats.successFiles++;
+                stats.totalEntities += result.getEntities().size();
+                stats.totalRelations += result.getRelations().size();
+                
+                entities.addAll(result.getEntities());
+                result.getEntities().forEach(entity -> entityIds.add(entity.getId()));
+                resolver.addSymbols(result.getSymbolTable());
+                pendingRelations.add(result);
+            }
+            return graphStore.addEntities(entities);
+        }
+        
+        /**
+         * 解析关系目标并写入关系
+         */
+        Mono<Void> resolveAndStoreRelations() {
+            List<CodeRelation> relations = new ArrayList<>();
+            for (ParseResult result : pendingRelations) {
+                String packageName = RelationResolver.packageOf(result.getSymbolTable());
+                for (CodeRelation relation : result.getRelations()) {
+                    if (resolver.resolve(relation, packageName)) {
+                        stats.resolvedRelations++;
+                    }
+                    relations.add(relation);
+                }
+            }
+            pendingRelations.clear();
+            return Flux.fromIterable(relations)
+                .buffer(RELATION_BATCH_SIZE)
+                .concatMap(graphStore::addRelations)
+                .then();
+        }
+        
+        BuildStats finish(Path projectRoot) {
+            manifest.replaceAll(projectRoot, fingerprints);
+            stats.durationMs = (System.nanoTime() - startTime) / 1_000_000;
+            return stats;
+        }
     }
     
     /**
@@ -281,12 +523,64 @@ public class GraphBuilder {
         private int failedFiles = 0;
         private int totalEntities = 0;
         private int totalRelations = 0;
+        /** 最终解析阶段改写为跨文件实体 id 的关系数 */
+        private int resolvedRelations = 0;
+        private int parallelism = 1;
+        private long durationMs = 0;
+        
+        /**
+         * 构建吞吐（文件/秒）
+         */
+        public double getFilesPerSecond() {
+            return durationMs > 0 ? totalFiles * 1000.0 / durationMs : 0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(
+                "Files: %d (success: %d, failed: %d), Entities: %d, Relations: %d (resolved: %d), "
+                    + "%d ms with parallelism %d (%.0f files/s)",
+                totalFiles, successFiles, failedFiles, totalEntities, totalRelations, resolvedRelations,
+                durationMs, parallelism, getFilesPerSecond()
+            );
+        }
+    }
+    
+    /**
+     * 解析结果与解析前读取的文件指纹
+     */
+    private record FingerprintedResult(ParseResult result, FileManifest.Fingerprint fingerprint) {
+    }
+    
+    /**
+     * 增量刷新统计信息
+     */
+    @lombok.Data
+    public static class RefreshStats {
+        private int addedFiles = 0;
+        private int modifiedFiles = 0;
+        private int deletedFiles = 0;
+        private int unchangedFiles = 0;
+        /** 修改时间变化、读取内容比对 MD5 的文件数 */
+        private int hashedFiles = 0;
+        private int failedFiles = 0;
+        private int resolvedRelations = 0;
+        private long durationMs = 0;
+        
+        /**
+         * 是否有文件被重新解析或删除
+         */
+        public boolean hasChanges() {
+            return addedFiles + modifiedFiles + deletedFiles > 0;
+        }
         
         @Override
         public String toString() {
             return String.format(
-                "Files: %d (success: %d, failed: %d), Entities: %d, Relations: %d",
-                totalFiles, successFiles, failedFiles, totalEntities, totalRelations
+                "Files added: %d, modified: %d, deleted: %d, unchanged: %d (hashed: %d), failed: %d, "
+                    + "resolved relations: %d, %d ms",
+                addedFiles, modifiedFiles, deletedFiles, unchangedFiles, hashedFiles, failedFiles,
+                resolvedRelations, durationMs
             );
         }
     }
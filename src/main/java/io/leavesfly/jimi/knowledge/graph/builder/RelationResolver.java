@@ -0,0 +1,164 @@
+package io.leavesfly.jimi.knowledge.graph.builder;
+
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * 关系目标解析器
+ * <p>
+ * 解析器在单个文件内只知道类型的简单名：{@code extends B} 产生 {@code CLASS:B}，
+ * {@code Utils.foo()} 产生 {@code METHOD:Utils.foo(0)}。所有文件解析完成后，
+ * 用全项目的类型符号表把这些目标改写为真实实体 id：
+ * <ul>
+ *   <li>目标实体已存在时保持不变</li>
+ *   <li>同包中存在同名类型时取同包类型，否则仅在全项目唯一时改写，有歧义时保持原样</li>
+ *   <li>改写后的 id 必须对应已存在的实体</li>
+ * </ul>
+ * 规则只依赖符号表内容，与文件解析完成的先后顺序无关，并行构建与单线程构建结果一致。
+ * 非线程安全：由构建流程在单一写入方中使用。
+ */
+class RelationResolver {
+
+    /** 类型实体的 id 前缀，按候选顺序尝试 */
+    static final List<EntityType> TYPE_KINDS = List.of(
+            EntityType.CLASS, EntityType.INTERFACE, EntityType.ENUM, EntityType.ANNOTATION);
+
+    /** 简单名 -> 全限定名（有序，保证歧义判断与遍历顺序无关） */
+    private final Map<String, SortedSet<String>> typesBySimpleName = new HashMap<>();
+
+    private final Predicate<String> entityExists;
+
+    RelationResolver(Predicate<String> entityExists) {
+        this.entityExists = entityExists;
+    }
+
+    /**
+     * 登记一个类型符号
+     */
+    void addType(String simpleName, String qualifiedName) {
+        typesBySimpleName.computeIfAbsent(simpleName, k -> new TreeSet<>()).add(qualifiedName);
+    }
+
+    /**
+     * 登记一个文件的符号表（ParseResult.symbolTable：简单名 -> 全限定名）
+     */
+    void addSymbols(Map<String, String> symbolTable) {
+        if (symbolTable != null) {
+            symbolTable.forEach(this::addType);
+        }
+    }
+
+    /**
+     * 改写关系目标
+     *
+     * @param relation 待解析的关系（原地修改 targetId）
+     * @param packageName 关系所在文件的包名
+     * @return 是否发生了改写
+     */
+    boolean resolve(CodeRelation relation, String packageName) {
+        String targetId = relation.getTargetId();
+        if (targetId == null || entityExists.test(targetId)) {
+            return false;
+        }
+        int colon = targetId.indexOf(':');
+        if (colon < 0) {
+            return false;
+        }
+        String kind = targetId.substring(0, colon);
+        String name = targetId.substring(colon + 1);
+
+        String resolved;
+        if (EntityType.METHOD.name().equals(kind) || EntityType.CONSTRUCTOR.name().equals(kind)) {
+            resolved = resolveMember(kind, name, packageName);
+        } else {
+            resolved = resolveType(kind, name, packageName);
+        }
+        if (resolved == null) {
+            return false;
+        }
+        relation.setTargetId(resolved);
+        return true;
+    }
+
+    /**
+     * 类型目标：CLASS:B -> CLASS:com.example.B（或 INTERFACE: 等实际类型）
+     */
+    private String resolveType(String kind, String simpleName, String packageName) {
+        String qualifiedName = resolveQualifiedName(simpleName, packageName);
+        if (qualifiedName == null) {
+            return null;
+        }
+        String sameKind = kind + ":" + qualifiedName;
+        if (entityExists.test(sameKind)) {
+            return sameKind;
+        }
+        for (EntityType type : TYPE_KINDS) {
+            String id = type.name() + ":" + qualifiedName;
+            if (entityExists.test(id)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 成员目标：METHOD:Utils.foo(1) -> METHOD:com.example.Utils.foo(1)，仅处理所属类型为简单名的情形
+     */
+    private String resolveMember(String kind, String name, String packageName) {
+        int signatureStart = name.indexOf('(');
+        int ownerEnd = name.lastIndexOf('.', signatureStart < 0 ? name.length() : signatureStart);
+        if (ownerEnd <= 0) {
+            return null;
+        }
+        String owner = name.substring(0, ownerEnd);
+        if (owner.indexOf('.') >= 0) {
+            return null;
+        }
+        String qualifiedOwner = resolveQualifiedName(owner, packageName);
+        if (qualifiedOwner == null) {
+            return null;
+        }
+        String id = kind + ":" + qualifiedOwner + name.substring(ownerEnd);
+        return entityExists.test(id) ? id : null;
+    }
+
+    private String resolveQualifiedName(String simpleName, String packageName) {
+        if (simpleName.indexOf('.') >= 0) {
+            return null;
+        }
+        SortedSet<String> candidates = typesBySimpleName.get(simpleName);
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        String samePackage = packageName == null || packageName.isEmpty()
+                ? simpleName : packageName + "." + simpleName;
+        if (candidates.contains(samePackage)) {
+            return samePackage;
+        }
+        return candidates.size() == 1 ? candidates.first() : null;
+    }
+
+    /**
+     * 从文件符号表推断包名
+     */
+    static String packageOf(Map<String, String> symbolTable) {
+        if (symbolTable == null) {
+            return "";
+        }
+        for (Map.Entry<String, String> symbol : symbolTable.entrySet()) {
+            String qualifiedName = symbol.getValue();
+            int prefixLength = qualifiedName.length() - symbol.getKey().length() - 1;
+            if (prefixLength > 0 && qualifiedName.endsWith("." + symbol.getKey())) {
+                return qualifiedName.substring(0, prefixLength);
+            }
+        }
+        return "";
+    }
+}
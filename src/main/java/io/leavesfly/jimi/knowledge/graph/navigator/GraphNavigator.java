@@ -26,10 +26,18 @@ import java.util.stream.Collectors;
 @Component
 public class GraphNavigator {
     
+    /**
+     * 调用链查询最多返回的路径数
+     */
+    public static final int MAX_CALL_CHAINS = 20;
+    
     private final CodeGraphStore graphStore;
     
+    private final PathFinder pathFinder;
+    
     public GraphNavigator(CodeGraphStore graphStore) {
         this.graphStore = graphStore;
+        this.pathFinder = new PathFinder(graphStore);
     }
     
     /**
@@ -132,25 +140,42 @@ public class GraphNavigator {
     }
     
     /**
-     * 查找调用链: 找到所有从 fromEntity 到 toEntity 的调用路径
+     * 查找调用链: 按长度升序找到从 fromEntity 到 toEntity 的调用路径
+     * <p>
+     * 沿 CALLS 关系用 Yen 算法求至多 {@link #MAX_CALL_CHAINS} 条无环路径，受 PathFinder 访问预算限制，
+     * 预算耗尽时返回已找到的路径。起点即终点时返回只含该实体、深度为 0 的一条调用链。
      *
      * @param fromEntityId 起始实体
      * @param toEntityId 目标实体
      * @param maxDepth 最大深度
-     * @return 所有调用路径
+     * @return 调用路径
      */
     public Mono<List<CallChain>> findCallChains(String fromEntityId, String toEntityId, int maxDepth) {
-        return Mono.fromCallable(() -> {
-            List<CallChain> chains = new ArrayList<>();
-            Set<String> visited = new HashSet<>();
-            List<CodeEntity> currentPath = new ArrayList<>();
-            List<CodeRelation> currentRelations = new ArrayList<>();
-            
-            dfsCallChain(fromEntityId, toEntityId, maxDepth, 0, 
-                        visited, currentPath, currentRelations, chains);
-            
-            return chains;
-        });
+        if (fromEntityId.equals(toEntityId)) {
+            return Mono.fromCallable(() -> {
+                // 使用同步方法避免 block()
+                CodeEntity entity = graphStore.getEntitySync(fromEntityId);
+                if (entity == null || maxDepth < 0) {
+                    return Collections.<CallChain>emptyList();
+                }
+                CallChain chain = new CallChain();
+                chain.setPath(new ArrayList<>(List.of(entity)));
+                chain.setRelations(new ArrayList<>());
+                chain.setDepth(0);
+                return List.of(chain);
+            });
+        }
+        return pathFinder.findKShortestPaths(fromEntityId, toEntityId, Set.of(RelationType.CALLS),
+                        maxDepth, MAX_CALL_CHAINS)
+                .map(result -> result.getPaths().stream()
+                        .map(path -> {
+                            CallChain chain = new CallChain();
+                            chain.setPath(path.getEntities());
+                            chain.setRelations(path.getRelations());
+                            chain.setDepth(path.getLength());
+                            return chain;
+                        })
+                        .collect(Collectors.toList()));
     }
     
     /**
@@ -245,49 +270,6 @@ public class GraphNavigator {
                 .collect(Collectors.toList()));
     }
     
-    private void dfsCallChain(String currentId, String targetId, int maxDepth, int currentDepth,
-                             Set<String> visited, List<CodeEntity> currentPath, 
-                             List<CodeRelation> currentRelations, List<CallChain> result) {
-        if (currentDepth > maxDepth) {
-            return;
-        }
-        
-        // 使用同步方法避免 block()
-        CodeEntity current = graphStore.getEntitySync(currentId);
-        if (current == null) {
-            return;
-        }
-        
-        visited.add(currentId);
-        currentPath.add(current);
-        
-        if (currentId.equals(targetId)) {
-            // 找到目标,保存路径
-            CallChain chain = new CallChain();
-            chain.setPath(new ArrayList<>(currentPath));
-            chain.setRelations(new ArrayList<>(currentRelations));
-            chain.setDepth(currentDepth);
-            result.add(chain);
-        } else {
-            // 继续搜索 - 使用同步方法避免 block()
-            List<CodeRelation> relations = graphStore.getRelationsBySourceSync(currentId);
-            if (relations != null) {
-                for (CodeRelation relation : relations) {
-                    if (relation.getType() == RelationType.CALLS && 
-                        !visited.contains(relation.getTargetId())) {
-                        currentRelations.add(relation);
-                        dfsCallChain(relation.getTargetId(), targetId, maxDepth, currentDepth + 1,
-                                   visited, currentPath, currentRelations, result);
-                        currentRelations.remove(currentRelations.size() - 1);
-                    }
-                }
-            }
-        }
-        
-        currentPath.remove(currentPath.size() - 1);
-        visited.remove(currentId);
-    }
-    
     private void collectInheritanceChain(String entityId, RelationType relationType, 
                                         boolean outgoing, List<CodeEntity> result, Set<String> visited) {
         if (visited.contains(entityId)) {
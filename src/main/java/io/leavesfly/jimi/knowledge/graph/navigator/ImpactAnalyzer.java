@@ -1,5 +1,6 @@
 package io.leavesfly.jimi.knowledge.graph.navigator;
 
+import io.leavesfly.jimi.config.info.GraphConfig;
 import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
 import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
 import io.leavesfly.jimi.knowledge.graph.model.EntityType;
@@ -7,7 +8,6 @@ import io.leavesfly.jimi.knowledge.graph.model.RelationType;
 import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
@@ -17,15 +17,44 @@ import java.util.stream.Collectors;
  * 影响分析器
  * <p>
  * 分析代码变更的影响范围,支持正向和反向依赖分析
+ * <p>
+ * 上下游影响、调用者、被调用者的多跳遍历结果经 {@link TraversalCache} 缓存，
+ * 图变化后只有途经变更文件的结果需要重新遍历。
+ * <p>
+ * 由 {@link io.leavesfly.jimi.knowledge.graph.GraphManager} 按 {@code graph.cache} 配置创建，与其图存储共用同一份缓存，
+ * 不注册为 Spring Bean。
  */
 @Slf4j
-@Component
 public class ImpactAnalyzer {
     
+    /**
+     * 影响分析沿用的依赖关系类型
+     */
+    private static final Set<RelationType> DEPENDENCY_RELATIONS = EnumSet.of(
+            RelationType.CALLS,
+            RelationType.REFERENCES,
+            RelationType.EXTENDS,
+            RelationType.IMPLEMENTS,
+            RelationType.USES_TYPE);
+    
+    private static final Set<RelationType> CALL_RELATIONS = EnumSet.of(RelationType.CALLS);
+    
+    private static final Set<EntityType> CALLABLE_TYPES = EnumSet.of(EntityType.METHOD, EntityType.CONSTRUCTOR);
+    
     private final CodeGraphStore graphStore;
     
+    private final TraversalCache traversalCache;
+    
+    /**
+     * 使用默认缓存配置创建
+     */
     public ImpactAnalyzer(CodeGraphStore graphStore) {
+        this(graphStore, new GraphConfig.CacheConfig());
+    }
+    
+    public ImpactAnalyzer(CodeGraphStore graphStore, GraphConfig.CacheConfig cacheConfig) {
         this.graphStore = graphStore;
+        this.traversalCache = new TraversalCache(graphStore, cacheConfig);
     }
     
     /**
@@ -55,24 +84,18 @@ public class ImpactAnalyzer {
             
             result.setTargetEntity(targetEntity);
             
-            // 下游影响分析 (谁依赖我)
+            // 下游影响分析 (谁依赖我，沿入边)
             if (analysisType == AnalysisType.DOWNSTREAM || analysisType == AnalysisType.BOTH) {
-                Set<CodeEntity> downstreamEntities = new HashSet<>();
-                Set<CodeRelation> downstreamRelations = new HashSet<>();
-                analyzeDownstream(entityId, maxDepth, 0, downstreamEntities, 
-                                downstreamRelations, new HashSet<>());
-                result.setDownstreamEntities(new ArrayList<>(downstreamEntities));
-                result.setDownstreamRelations(new ArrayList<>(downstreamRelations));
+                TraversalCache.Reach downstream = reach(entityId, false, maxDepth, DEPENDENCY_RELATIONS, null);
+                result.setDownstreamEntities(new ArrayList<>(downstream.entities()));
+                result.setDownstreamRelations(new ArrayList<>(downstream.relations()));
             }
             
-            // 上游依赖分析 (我依赖谁)
+            // 上游依赖分析 (我依赖谁，沿出边)
             if (analysisType == AnalysisType.UPSTREAM || analysisType == AnalysisType.BOTH) {
-                Set<CodeEntity> upstreamEntities = new HashSet<>();
-                Set<CodeRelation> upstreamRelations = new HashSet<>();
-                analyzeUpstream(entityId, maxDepth, 0, upstreamEntities, 
-                              upstreamRelations, new HashSet<>());
-                result.setUpstreamEntities(new ArrayList<>(upstreamEntities));
-                result.setUpstreamRelations(new ArrayList<>(upstreamRelations));
+                TraversalCache.Reach upstream = reach(entityId, true, maxDepth, DEPENDENCY_RELATIONS, null);
+                result.setUpstreamEntities(new ArrayList<>(upstream.entities()));
+                result.setUpstreamRelations(new ArrayList<>(upstream.relations()));
             }
             
             result.setSuccess(true);
@@ -150,42 +173,26 @@ public class ImpactAnalyzer {
             
             result.setMethod(method);
             
-            // 查找所有调用该方法的方法 (直接调用者) - 使用同步方法
-            List<CodeRelation> callers = graphStore.getRelationsByTargetSync(methodEntityId);
-            if (callers != null) {
-                List<CodeEntity> directCallers = callers.stream()
-                    .filter(rel -> rel.getType() == RelationType.CALLS)
-                    .map(rel -> graphStore.getEntitySync(rel.getSourceId()))
-                    .filter(Objects::nonNull)
-                    .filter(e -> e.getType() == EntityType.METHOD || 
-                               e.getType() == EntityType.CONSTRUCTOR)
-                    .collect(Collectors.toList());
-                
-                result.setDirectCallers(directCallers);
-                
-                // 递归查找间接调用者
-                Set<CodeEntity> indirectCallers = new HashSet<>();
-                for (CodeEntity caller : directCallers) {
-                    findIndirectCallers(caller.getId(), maxDepth - 1, indirectCallers, new HashSet<>());
-                }
-                indirectCallers.removeAll(directCallers); // 移除直接调用者
-                result.setIndirectCallers(new ArrayList<>(indirectCallers));
-            }
+            // 直接调用者：一跳内调用该方法的方法
+            List<CodeEntity> directCallers = reach(methodEntityId, false, 1, CALL_RELATIONS, CALLABLE_TYPES).entities();
+            result.setDirectCallers(new ArrayList<>(directCallers));
             
-            // 查找该方法调用的所有方法 (直接被调用者) - 使用同步方法
-            List<CodeRelation> callees = graphStore.getRelationsBySourceSync(methodEntityId);
-            if (callees != null) {
-                List<CodeEntity> directCallees = callees.stream()
-                    .filter(rel -> rel.getType() == RelationType.CALLS)
-                    .map(rel -> graphStore.getEntitySync(rel.getTargetId()))
-                    .filter(Objects::nonNull)
-                    .filter(e -> e.getType() == EntityType.METHOD || 
-                               e.getType() == EntityType.CONSTRUCTOR)
+            // 间接调用者：maxDepth 跳内的其余调用者
+            if (maxDepth > 1) {
+                Set<String> directIds = directCallers.stream()
+                    .map(CodeEntity::getId)
+                    .collect(Collectors.toSet());
+                List<CodeEntity> indirectCallers = reach(methodEntityId, false, maxDepth, CALL_RELATIONS, CALLABLE_TYPES)
+                    .entities().stream()
+                    .filter(e -> !directIds.contains(e.getId()))
                     .collect(Collectors.toList());
-                
-                result.setDirectCallees(directCallees);
+                result.setIndirectCallers(indirectCallers);
             }
             
+            // 直接被调用者：该方法调用的方法
+            result.setDirectCallees(new ArrayList<>(
+                reach(methodEntityId, true, 1, CALL_RELATIONS, CALLABLE_TYPES).entities()));
+            
             result.calculateStatistics();
             
             return result;
@@ -262,105 +269,73 @@ public class ImpactAnalyzer {
     // ==================== 私有辅助方法 ====================
     
     /**
-     * 递归分析下游影响 (谁依赖我)
+     * 获取遍历结果（经缓存）
+     *
+     * @param outgoing true 沿出边（我依赖谁、我调用谁），false 沿入边（谁依赖我、谁调用我）
      */
-    private void analyzeDownstream(String entityId, int maxDepth, int currentDepth,
-                                   Set<CodeEntity> entities, Set<CodeRelation> relations,
-                                   Set<String> visited) {
-        if (currentDepth >= maxDepth || visited.contains(entityId)) {
-            return;
-        }
-        
-        visited.add(entityId);
-        
-        // 获取所有指向该实体的关系 (入边) - 使用同步方法避免 block()
-        List<CodeRelation> incomingRelations = graphStore.getRelationsByTargetSync(entityId);
-        
-        if (incomingRelations != null) {
-            for (CodeRelation relation : incomingRelations) {
-                // 过滤相关的依赖关系类型
-                if (isDependencyRelation(relation.getType())) {
-                    relations.add(relation);
-                    
-                    CodeEntity dependent = graphStore.getEntitySync(relation.getSourceId());
-                    if (dependent != null && !entities.contains(dependent)) {
-                        entities.add(dependent);
-                        analyzeDownstream(dependent.getId(), maxDepth, currentDepth + 1,
-                                        entities, relations, visited);
-                    }
-                }
-            }
-        }
+    private TraversalCache.Reach reach(String entityId, boolean outgoing, int maxDepth,
+                                       Set<RelationType> relationTypes, Set<EntityType> entityTypes) {
+        TraversalCache.Key key = new TraversalCache.Key(entityId,
+                outgoing ? GraphNavigator.Direction.OUTGOING : GraphNavigator.Direction.INCOMING,
+                maxDepth, relationTypes, entityTypes);
+        return traversalCache.get(key,
+                touchedFiles -> traverse(entityId, outgoing, maxDepth, relationTypes, entityTypes, touchedFiles));
     }
     
     /**
-     * 递归分析上游依赖 (我依赖谁)
+     * 按层遍历 maxDepth 跳：结果实体按跳数由近及远、不含起点；关系为已展开实体上所有匹配类型的边
+     * <p>
+     * 访问到的每个实体（含起点和被类型过滤掉的实体）所在文件都计入 touchedFiles，供缓存按文件失效。
      */
-    private void analyzeUpstream(String entityId, int maxDepth, int currentDepth,
-                                Set<CodeEntity> entities, Set<CodeRelation> relations,
-                                Set<String> visited) {
-        if (currentDepth >= maxDepth || visited.contains(entityId)) {
-            return;
+    private TraversalCache.Reach traverse(String entityId, boolean outgoing, int maxDepth,
+                                          Set<RelationType> relationTypes, Set<EntityType> entityTypes,
+                                          Set<String> touchedFiles) {
+        List<CodeEntity> entities = new ArrayList<>();
+        List<CodeRelation> relations = new ArrayList<>();
+        CodeEntity start = graphStore.getEntitySync(entityId);
+        if (start != null) {
+            touchedFiles.add(start.getFilePath());
         }
         
+        Set<String> visited = new HashSet<>();
         visited.add(entityId);
-        
-        // 获取该实体的所有关系 (出边) - 使用同步方法避免 block()
-        List<CodeRelation> outgoingRelations = graphStore.getRelationsBySourceSync(entityId);
-        
-        if (outgoingRelations != null) {
-            for (CodeRelation relation : outgoingRelations) {
-                if (isDependencyRelation(relation.getType())) {
-                    relations.add(relation);
-                    
-                    CodeEntity dependency = graphStore.getEntitySync(relation.getTargetId());
-                    if (dependency != null && !entities.contains(dependency)) {
-                        entities.add(dependency);
-                        analyzeUpstream(dependency.getId(), maxDepth, currentDepth + 1,
-                                      entities, relations, visited);
+        List<String> frontier = List.of(entityId);
+        for (int depth = 0; depth < maxDepth && !frontier.isEmpty(); depth++) {
+            List<String> next = new ArrayList<>();
+            for (String currentId : frontier) {
+                // 使用同步方法避免 block()
+                List<CodeRelation> edges = outgoing
+                        ? graphStore.getRelationsBySourceSync(currentId)
+                        : graphStore.getRelationsByTargetSync(currentId);
+                for (CodeRelation relation : edges) {
+                    if (!relationTypes.contains(relation.getType())) {
+                        continue;
                     }
-                }
-            }
-        }
-    }
-    
-    /**
-     * 查找间接调用者
-     */
-    private void findIndirectCallers(String methodId, int remainingDepth,
-                                     Set<CodeEntity> result, Set<String> visited) {
-        if (remainingDepth <= 0 || visited.contains(methodId)) {
-            return;
-        }
-        
-        visited.add(methodId);
-        
-        // 使用同步方法避免 block()
-        List<CodeRelation> callers = graphStore.getRelationsByTargetSync(methodId);
-        if (callers != null) {
-            for (CodeRelation rel : callers) {
-                if (rel.getType() == RelationType.CALLS) {
-                    CodeEntity caller = graphStore.getEntitySync(rel.getSourceId());
-                    if (caller != null && 
-                        (caller.getType() == EntityType.METHOD || 
-                         caller.getType() == EntityType.CONSTRUCTOR)) {
-                        result.add(caller);
-                        findIndirectCallers(caller.getId(), remainingDepth - 1, result, visited);
+                    String neighborId = outgoing ? relation.getTargetId() : relation.getSourceId();
+                    CodeEntity neighbor = graphStore.getEntitySync(neighborId);
+                    if (neighbor != null) {
+                        touchedFiles.add(neighbor.getFilePath());
+                        if (entityTypes != null && !entityTypes.contains(neighbor.getType())) {
+                            continue;
+                        }
+                    }
+                    relations.add(relation);
+                    if (neighbor != null && visited.add(neighborId)) {
+                        entities.add(neighbor);
+                        next.add(neighborId);
                     }
                 }
             }
+            frontier = next;
         }
+        return new TraversalCache.Reach(entities, relations);
     }
     
     /**
-     * 判断是否为依赖关系
+     * 遍历结果缓存统计
      */
-    private boolean isDependencyRelation(RelationType type) {
-        return type == RelationType.CALLS ||
-               type == RelationType.REFERENCES ||
-               type == RelationType.EXTENDS ||
-               type == RelationType.IMPLEMENTS ||
-               type == RelationType.USES_TYPE;
+    public TraversalCache.Stats getCacheStats() {
+        return traversalCache.stats();
     }
     
     // ==================== 数据模型 ====================
@@ -9,6 +9,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
@@ -19,19 +20,37 @@ import java.util.stream.Collectors;
  * 路径查找器
  * <p>
  * 提供多种路径查找算法,支持最短路径、所有路径等
+ * <ul>
+ *   <li>最短路径：双向 BFS，正向沿出边、反向沿入边，每次扩展较小一侧的一整层</li>
+ *   <li>K 条最短路径 / 所有路径：Yen 算法，按长度升序给出无环路径</li>
+ * </ul>
+ * 每次查找最多访问 visitBudget 个节点，超出时停止并返回已找到的结果（标记 truncated）。
  */
 @Slf4j
 @Component
 public class PathFinder {
     
+    /**
+     * 默认访问预算（单次查找最多发现的节点数）
+     */
+    public static final int DEFAULT_VISIT_BUDGET = 200_000;
+    
     private final CodeGraphStore graphStore;
     
+    private final int visitBudget;
+    
+    @Autowired
     public PathFinder(CodeGraphStore graphStore) {
+        this(graphStore, DEFAULT_VISIT_BUDGET);
+    }
+    
+    public PathFinder(CodeGraphStore graphStore, int visitBudget) {
         this.graphStore = graphStore;
+        this.visitBudget = visitBudget;
     }
     
     /**
-     * 查找最短路径 (BFS)
+     * 查找最短路径 (双向 BFS)
      *
      * @param fromId 起始实体ID
      * @param toId 目标实体ID
@@ -48,53 +67,34 @@ public class PathFinder {
             result.setToEntityId(toId);
             result.setSearchType(SearchType.SHORTEST);
             
-            // BFS 查找最短路径
-            Queue<PathNode> queue = new LinkedList<>();
-            Map<String, PathNode> visited = new HashMap<>();
-            
-            PathNode start = new PathNode(fromId, null, null, 0);
-            queue.offer(start);
-            visited.put(fromId, start);
+            Budget budget = new Budget(visitBudget);
+            List<CodeRelation> relations = null;
+            if (graphStore.getEntitySync(fromId) != null && graphStore.getEntitySync(toId) != null) {
+                relations = bidirectionalSearch(fromId, toId, relationTypes, maxHops,
+                        Collections.emptySet(), Collections.emptySet(), budget);
+            }
+            result.setVisitedNodes(budget.visited);
+            result.setTruncated(budget.exhausted);
             
-            while (!queue.isEmpty()) {
-                PathNode current = queue.poll();
-                
-                if (current.entityId.equals(toId)) {
-                    // 找到目标,回溯构建路径
-                    result.setPath(buildPath(current));
-                    result.setSuccess(true);
-                    return result;
-                }
-                
-                if (current.depth >= maxHops) {
-                    continue;
-                }
-                
-                // 遍历邻居 - 使用同步方法避免 block()
-                List<CodeRelation> relations = graphStore.getRelationsBySourceSync(current.entityId);
-                if (relations != null) {
-                    for (CodeRelation relation : relations) {
-                        if (relationTypes == null || relationTypes.contains(relation.getType())) {
-                            String neighborId = relation.getTargetId();
-                            
-                            if (!visited.containsKey(neighborId)) {
-                                PathNode neighbor = new PathNode(neighborId, current, relation, current.depth + 1);
-                                queue.offer(neighbor);
-                                visited.put(neighborId, neighbor);
-                            }
-                        }
-                    }
-                }
+            if (relations != null) {
+                result.setPath(toPath(fromId, relations));
+                result.setSuccess(true);
+                return result;
             }
             
             result.setSuccess(false);
-            result.setErrorMessage("No path found");
+            if (budget.exhausted) {
+                log.warn("Shortest path search {} -> {} stopped after visiting {} nodes", fromId, toId, budget.visited);
+                result.setErrorMessage("Search budget exhausted after visiting " + budget.visited + " nodes");
+            } else {
+                result.setErrorMessage("No path found");
+            }
             return result;
         });
     }
     
     /**
-     * 查找所有路径 (DFS)
+     * 查找所有路径（按长度升序，至多 maxPaths 条无环路径）
      *
      * @param fromId 起始实体ID
      * @param toId 目标实体ID
@@ -106,33 +106,11 @@ public class PathFinder {
     public Mono<MultiPathResult> findAllPaths(String fromId, String toId,
                                               Set<RelationType> relationTypes,
                                               int maxHops, int maxPaths) {
-        return Mono.fromCallable(() -> {
-            MultiPathResult result = new MultiPathResult();
-            result.setFromEntityId(fromId);
-            result.setToEntityId(toId);
-            result.setSearchType(SearchType.ALL_PATHS);
-            result.setMaxPaths(maxPaths);
-            
-            List<Path> paths = new ArrayList<>();
-            Set<String> visited = new HashSet<>();
-            List<CodeEntity> currentPath = new ArrayList<>();
-            List<CodeRelation> currentRelations = new ArrayList<>();
-            
-            dfsAllPaths(fromId, toId, relationTypes, maxHops, 0, maxPaths,
-                       visited, currentPath, currentRelations, paths);
-            
-            result.setPaths(paths);
-            result.setSuccess(!paths.isEmpty());
-            if (paths.isEmpty()) {
-                result.setErrorMessage("No paths found");
-            }
-            
-            return result;
-        });
+        return Mono.fromCallable(() -> findPaths(fromId, toId, relationTypes, maxHops, maxPaths, SearchType.ALL_PATHS));
     }
     
     /**
-     * 查找K条最短路径
+     * 查找K条最短路径 (Yen 算法)
      *
      * @param fromId 起始实体ID
      * @param toId 目标实体ID
@@ -144,18 +122,7 @@ public class PathFinder {
     public Mono<MultiPathResult> findKShortestPaths(String fromId, String toId,
                                                     Set<RelationType> relationTypes,
                                                     int maxHops, int k) {
-        return findAllPaths(fromId, toId, relationTypes, maxHops, k * 2)
-            .map(result -> {
-                // 按路径长度排序,取前K条
-                List<Path> sortedPaths = result.getPaths().stream()
-                    .sorted(Comparator.comparingInt(Path::getLength))
-                    .limit(k)
-                    .collect(Collectors.toList());
-                
-                result.setPaths(sortedPaths);
-                result.setSearchType(SearchType.K_SHORTEST);
-                return result;
-            });
+        return Mono.fromCallable(() -> findPaths(fromId, toId, relationTypes, maxHops, k, SearchType.K_SHORTEST));
     }
     
     /**
@@ -209,53 +176,173 @@ public class PathFinder {
     // ==================== 私有辅助方法 ====================
     
     /**
-     * DFS 查找所有路径
+     * Yen 算法：先求最短路径，再依次以上一条路径上的每个节点为分叉点，
+     * 屏蔽已选路径在该处的出边和分叉点之前的节点，求分叉点到目标的最短路径，候选中最短者为下一条
      */
-    private void dfsAllPaths(String currentId, String targetId,
-                            Set<RelationType> relationTypes,
-                            int maxHops, int currentDepth, int maxPaths,
-                            Set<String> visited, List<CodeEntity> currentPath,
-                            List<CodeRelation> currentRelations, List<Path> result) {
-        if (result.size() >= maxPaths || currentDepth > maxHops) {
-            return;
+    private MultiPathResult findPaths(String fromId, String toId, Set<RelationType> relationTypes,
+                                      int maxHops, int k, SearchType searchType) {
+        MultiPathResult result = new MultiPathResult();
+        result.setFromEntityId(fromId);
+        result.setToEntityId(toId);
+        result.setSearchType(searchType);
+        result.setMaxPaths(k);
+        
+        Budget budget = new Budget(visitBudget);
+        List<List<CodeRelation>> accepted = new ArrayList<>();
+        if (k > 0 && !fromId.equals(toId)
+                && graphStore.getEntitySync(fromId) != null && graphStore.getEntitySync(toId) != null) {
+            List<CodeRelation> first = bidirectionalSearch(fromId, toId, relationTypes, maxHops,
+                    Collections.emptySet(), Collections.emptySet(), budget);
+            if (first != null) {
+                accepted.add(first);
+            }
         }
         
-        CodeEntity current = graphStore.getEntitySync(currentId);
-        if (current == null) {
-            return;
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+                Comparator.comparingInt((Candidate c) -> c.relations.size()).thenComparingInt(c -> c.order));
+        Set<List<String>> seen = new HashSet<>();
+        accepted.forEach(path -> seen.add(relationIds(path)));
+        int order = 0;
+        
+        search:
+        while (!accepted.isEmpty() && accepted.size() < k) {
+            List<CodeRelation> previous = accepted.get(accepted.size() - 1);
+            List<String> previousNodes = nodeIds(fromId, previous);
+            for (int i = 0; i < previous.size(); i++) {
+                List<CodeRelation> root = previous.subList(0, i);
+                List<String> rootIds = relationIds(root);
+                
+                // 屏蔽与本条路径共享同一前缀的已选路径在分叉点的出边，以及前缀上的节点（保证无环）
+                Set<String> excludedRelations = new HashSet<>();
+                for (List<CodeRelation> path : accepted) {
+                    if (path.size() > i && relationIds(path.subList(0, i)).equals(rootIds)) {
+                        excludedRelations.add(path.get(i).getId());
+                    }
+                }
+                Set<String> excludedNodes = new HashSet<>(previousNodes.subList(0, i));
+                
+                List<CodeRelation> spur = bidirectionalSearch(previousNodes.get(i), toId, relationTypes,
+                        maxHops - i, excludedNodes, excludedRelations, budget);
+                if (budget.exhausted) {
+                    break search;
+                }
+                if (spur != null) {
+                    List<CodeRelation> candidate = new ArrayList<>(root);
+                    candidate.addAll(spur);
+                    if (seen.add(relationIds(candidate))) {
+                        candidates.add(new Candidate(candidate, order++));
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            accepted.add(candidates.poll().relations);
         }
         
-        visited.add(currentId);
-        currentPath.add(current);
+        result.setPaths(accepted.stream()
+                .map(relations -> toPath(fromId, relations))
+                .collect(Collectors.toList()));
+        result.setVisitedNodes(budget.visited);
+        result.setTruncated(budget.exhausted);
+        result.setSuccess(!accepted.isEmpty());
+        if (budget.exhausted) {
+            log.warn("Path search {} -> {} stopped after visiting {} nodes, returning {} paths",
+                    fromId, toId, budget.visited, accepted.size());
+        }
+        if (accepted.isEmpty()) {
+            result.setErrorMessage(budget.exhausted
+                    ? "Search budget exhausted after visiting " + budget.visited + " nodes"
+                    : "No paths found");
+        }
+        return result;
+    }
+    
+    /**
+     * 双向 BFS 最短路径：正向沿出边、反向沿入边，每次扩展较小一侧的一整层
+     * <p>
+     * 两侧已探索深度之和不小于已找到的最短长度时即为最优；只经过存在的实体，跳过被屏蔽的节点和关系。
+     *
+     * @return 路径上的关系序列（起点即终点时为空）；无路径或预算耗尽时返回 null
+     */
+    private List<CodeRelation> bidirectionalSearch(String fromId, String toId, Set<RelationType> relationTypes,
+                                                   int maxHops, Set<String> excludedNodes,
+                                                   Set<String> excludedRelations, Budget budget) {
+        if (fromId.equals(toId)) {
+            return Collections.emptyList();
+        }
+        if (maxHops <= 0) {
+            return null;
+        }
+        Map<String, Visit> forward = new HashMap<>();
+        Map<String, Visit> backward = new HashMap<>();
+        forward.put(fromId, new Visit(null, 0));
+        backward.put(toId, new Visit(null, 0));
+        List<String> forwardFrontier = List.of(fromId);
+        List<String> backwardFrontier = List.of(toId);
+        int forwardDepth = 0;
+        int backwardDepth = 0;
+        String meeting = null;
+        int best = Integer.MAX_VALUE;
         
-        if (currentId.equals(targetId) && currentDepth > 0) {
-            // 找到目标,保存路径
-            Path path = Path.builder()
-                .entities(new ArrayList<>(currentPath))
-                .relations(new ArrayList<>(currentRelations))
-                .length(currentDepth)
-                .build();
-            result.add(path);
-        } else {
-            // 继续搜索 - 使用同步方法避免 block()
-            List<CodeRelation> relations = graphStore.getRelationsBySourceSync(currentId);
-            if (relations != null) {
+        while (best > forwardDepth + backwardDepth && forwardDepth + backwardDepth < maxHops
+                && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            boolean outgoing = forwardFrontier.size() <= backwardFrontier.size();
+            Map<String, Visit> visited = outgoing ? forward : backward;
+            Map<String, Visit> opposite = outgoing ? backward : forward;
+            int depth = (outgoing ? forwardDepth : backwardDepth) + 1;
+            List<String> next = new ArrayList<>();
+            
+            for (String entityId : outgoing ? forwardFrontier : backwardFrontier) {
+                // 使用同步方法避免 block()
+                List<CodeRelation> relations = outgoing
+                        ? graphStore.getRelationsBySourceSync(entityId)
+                        : graphStore.getRelationsByTargetSync(entityId);
                 for (CodeRelation relation : relations) {
-                    if ((relationTypes == null || relationTypes.contains(relation.getType())) &&
-                        !visited.contains(relation.getTargetId())) {
-                        
-                        currentRelations.add(relation);
-                        dfsAllPaths(relation.getTargetId(), targetId, relationTypes,
-                                  maxHops, currentDepth + 1, maxPaths,
-                                  visited, currentPath, currentRelations, result);
-                        currentRelations.remove(currentRelations.size() - 1);
+                    if ((relationTypes != null && !relationTypes.contains(relation.getType()))
+                            || excludedRelations.contains(relation.getId())) {
+                        continue;
+                    }
+                    String neighborId = outgoing ? relation.getTargetId() : relation.getSourceId();
+                    if (visited.containsKey(neighborId) || excludedNodes.contains(neighborId)
+                            || graphStore.getEntitySync(neighborId) == null) {
+                        continue;
+                    }
+                    if (!budget.tryVisit()) {
+                        return null;
+                    }
+                    visited.put(neighborId, new Visit(relation, depth));
+                    next.add(neighborId);
+                    Visit match = opposite.get(neighborId);
+                    if (match != null && depth + match.depth < best) {
+                        best = depth + match.depth;
+                        meeting = neighborId;
                     }
                 }
             }
+            
+            if (outgoing) {
+                forwardFrontier = next;
+                forwardDepth = depth;
+            } else {
+                backwardFrontier = next;
+                backwardDepth = depth;
+            }
         }
         
-        currentPath.remove(currentPath.size() - 1);
-        visited.remove(currentId);
+        if (meeting == null || best > maxHops) {
+            return null;
+        }
+        
+        // 从相遇点分别回溯到起点和终点
+        LinkedList<CodeRelation> path = new LinkedList<>();
+        for (Visit visit = forward.get(meeting); visit.via != null; visit = forward.get(visit.via.getSourceId())) {
+            path.addFirst(visit.via);
+        }
+        for (Visit visit = backward.get(meeting); visit.via != null; visit = backward.get(visit.via.getTargetId())) {
+            path.addLast(visit.via);
+        }
+        return new ArrayList<>(path);
     }
     
     /**
@@ -308,32 +395,42 @@ public class PathFinder {
     }
     
     /**
-     * 从PathNode回溯构建路径
+     * 由关系序列构建路径
      */
-    private Path buildPath(PathNode endNode) {
+    private Path toPath(String fromId, List<CodeRelation> relations) {
         List<CodeEntity> entities = new ArrayList<>();
-        List<CodeRelation> relations = new ArrayList<>();
-        
-        PathNode current = endNode;
-        while (current != null) {
+        for (String entityId : nodeIds(fromId, relations)) {
             // 使用同步方法避免 block()
-            CodeEntity entity = graphStore.getEntitySync(current.entityId);
+            CodeEntity entity = graphStore.getEntitySync(entityId);
             if (entity != null) {
-                entities.add(0, entity);
+                entities.add(entity);
             }
-            if (current.relation != null) {
-                relations.add(0, current.relation);
-            }
-            current = current.parent;
         }
         
         return Path.builder()
             .entities(entities)
-            .relations(relations)
-            .length(endNode.depth)
+            .relations(new ArrayList<>(relations))
+            .length(relations.size())
             .build();
     }
     
+    private static List<String> nodeIds(String fromId, List<CodeRelation> relations) {
+        List<String> ids = new ArrayList<>(relations.size() + 1);
+        ids.add(fromId);
+        for (CodeRelation relation : relations) {
+            ids.add(relation.getTargetId());
+        }
+        return ids;
+    }
+    
+    private static List<String> relationIds(List<CodeRelation> relations) {
+        List<String> ids = new ArrayList<>(relations.size());
+        for (CodeRelation relation : relations) {
+            ids.add(relation.getId());
+        }
+        return ids;
+    }
+    
     // ==================== 数据模型 ====================
     
     /**
@@ -346,19 +443,37 @@ public class PathFinder {
     }
     
     /**
-     * 路径节点 (用于BFS)
+     * BFS 访问记录：到达该节点经过的关系（起点为 null）与所在层
      */
-    private static class PathNode {
-        String entityId;
-        PathNode parent;
-        CodeRelation relation;
-        int depth;
+    private record Visit(CodeRelation via, int depth) {
+    }
+    
+    /**
+     * Yen 算法的候选路径（同长度按生成顺序）
+     */
+    private record Candidate(List<CodeRelation> relations, int order) {
+    }
+    
+    /**
+     * 访问预算
+     */
+    private static final class Budget {
+        private int remaining;
+        private int visited;
+        private boolean exhausted;
         
-        PathNode(String entityId, PathNode parent, CodeRelation relation, int depth) {
-            this.entityId = entityId;
-            this.parent = parent;
-            this.relation = relation;
-            this.depth = depth;
+        Budget(int limit) {
+            this.remaining = limit;
+        }
+        
+        boolean tryVisit() {
+            if (remaining <= 0) {
+                exhausted = true;
+                return false;
+            }
+            remaining--;
+            visited++;
+            return true;
         }
     }
     
@@ -411,6 +526,10 @@ public class PathFinder {
         private Boolean success;
         private String errorMessage;
         private Path path;
+        
+        // 访问预算耗尽时为 true，结果可能不完整
+        private Boolean truncated = false;
+        private Integer visitedNodes = 0;
     }
     
     /**
@@ -426,6 +545,10 @@ public class PathFinder {
         private String errorMessage;
         private List<Path> paths = new ArrayList<>();
         
+        // 访问预算耗尽时为 true，paths 为此前已确定的最短若干条
+        private Boolean truncated = false;
+        private Integer visitedNodes = 0;
+        
         public Path getShortestPath() {
             return paths.stream()
                 .min(Comparator.comparingInt(Path::getLength))
@@ -0,0 +1,224 @@
+package io.leavesfly.jimi.knowledge.graph.navigator;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.leavesfly.jimi.config.info.GraphConfig;
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.model.RelationType;
+import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 遍历结果缓存
+ * <p>
+ * 缓存影响分析、调用者、被调用者等多跳遍历的结果，键为 (起点实体, 方向, 深度, 关系类型, 实体类型)，
+ * 所有条目对应同一个图版本（{@link CodeGraphStore#getGraphVersion()}）：
+ * <ul>
+ *   <li>每个条目记下遍历途经的实体所在的文件</li>
+ *   <li>图版本变化后，按 {@link CodeGraphStore#getChangedFilesSince(long)} 只淘汰途经变更文件的条目，其余条目沿用到新版本</li>
+ *   <li>变更不可追溯（清空、加载、变更记录已淘汰）时淘汰全部条目</li>
+ * </ul>
+ * 缓存的结果被多个调用方共享，不得修改。
+ */
+@Slf4j
+public class TraversalCache {
+
+    /** 条目固定开销估算（缓存节点、键、途经文件集合），字节 */
+    private static final long ENTRY_BYTES = 160;
+
+    /** 每个结果实体的估算字节数（实体对象与存储共享，只计引用与列表槽位） */
+    private static final long ENTITY_REF_BYTES = 8;
+
+    /** 每个结果关系的估算字节数（CSR 存储每次查询都新建关系对象，按独立对象计） */
+    private static final long RELATION_BYTES = 96;
+
+    /** 每个途经文件的估算字节数（集合节点，路径字符串与实体共享） */
+    private static final long FILE_BYTES = 48;
+
+    private final CodeGraphStore graphStore;
+
+    /** 未启用时为 null */
+    private final Cache<Key, Entry> cache;
+
+    /** 缓存条目对应的图版本 */
+    private volatile long syncedVersion = -1L;
+
+    private final LongAdder invalidatedEntries = new LongAdder();
+
+    public TraversalCache(CodeGraphStore graphStore, GraphConfig.CacheConfig config) {
+        this.graphStore = graphStore;
+        if (config == null || !Boolean.TRUE.equals(config.getEnabled())
+                || config.getMaxSize() == null || config.getMaxSize() <= 0) {
+            this.cache = null;
+            return;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .recordStats();
+        if (config.getTtl() != null && config.getTtl() > 0) {
+            builder.expireAfterWrite(Duration.ofSeconds(config.getTtl()));
+        }
+        this.cache = builder.build();
+    }
+
+    /**
+     * 获取遍历结果，未命中时执行遍历并缓存
+     *
+     * @param key 遍历参数
+     * @param traversal 遍历函数，参数为途经文件集合，遍历时应加入每个访问到的实体所在的文件
+     * @return 遍历结果
+     */
+    public Reach get(Key key, Function<Set<String>, Reach> traversal) {
+        long version = graphStore.getGraphVersion();
+        if (cache == null || version < 0) {
+            return traversal.apply(new HashSet<>());
+        }
+        if (syncedVersion != version) {
+            syncTo(version);
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return entry.reach;
+        }
+
+        Set<String> files = new HashSet<>();
+        Reach reach = traversal.apply(files);
+        synchronized (this) {
+            // 遍历期间图发生变化时不缓存
+            if (syncedVersion == version && graphStore.getGraphVersion() == version) {
+                cache.put(key, new Entry(reach, Set.copyOf(files), estimateBytes(reach, files)));
+            }
+        }
+        return reach;
+    }
+
+    /**
+     * 淘汰全部条目
+     */
+    public synchronized void invalidateAll() {
+        if (cache != null) {
+            invalidatedEntries.add(cache.estimatedSize());
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 缓存统计：命中率、条目数、失效条目数与估算内存占用
+     */
+    public Stats stats() {
+        if (cache == null) {
+            return Stats.builder().enabled(false).build();
+        }
+        CacheStats stats = cache.stats();
+        long bytes = 0;
+        for (Entry entry : cache.asMap().values()) {
+            bytes += entry.bytes;
+        }
+        return Stats.builder()
+                .enabled(true)
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .entries(cache.estimatedSize())
+                .invalidatedEntries(invalidatedEntries.sum())
+                .estimatedBytes(bytes)
+                .graphVersion(syncedVersion)
+                .build();
+    }
+
+    /**
+     * 同步到新的图版本：只淘汰途经变更文件的条目
+     */
+    private synchronized void syncTo(long version) {
+        if (syncedVersion == version) {
+            return;
+        }
+        Set<String> changedFiles = syncedVersion < 0 ? null : graphStore.getChangedFilesSince(syncedVersion);
+        if (changedFiles == null) {
+            invalidatedEntries.add(cache.estimatedSize());
+            cache.invalidateAll();
+        } else if (!changedFiles.isEmpty()) {
+            int before = cache.asMap().size();
+            cache.asMap().values().removeIf(entry -> !Collections.disjoint(entry.files, changedFiles));
+            int removed = before - cache.asMap().size();
+            invalidatedEntries.add(removed);
+            log.debug("Traversal cache synced to version {}: {} changed files, {} entries invalidated",
+                    version, changedFiles.size(), removed);
+        }
+        syncedVersion = version;
+    }
+
+    private static long estimateBytes(Reach reach, Set<String> files) {
+        return ENTRY_BYTES
+                + reach.entities().size() * ENTITY_REF_BYTES
+                + reach.relations().size() * RELATION_BYTES
+                + files.size() * FILE_BYTES;
+    }
+
+    // ==================== 数据模型 ====================
+
+    /**
+     * 缓存键
+     *
+     * @param entityId 起点实体
+     * @param direction 遍历方向（OUTGOING 沿出边，INCOMING 沿入边）
+     * @param depth 最大跳数
+     * @param relationTypes 沿哪些关系类型遍历
+     * @param entityTypes 只经过这些类型的实体（null 表示不限）
+     */
+    public record Key(String entityId, GraphNavigator.Direction direction, int depth,
+                      Set<RelationType> relationTypes, Set<EntityType> entityTypes) {
+
+        public Key {
+            relationTypes = Set.copyOf(relationTypes);
+            entityTypes = entityTypes == null ? null : Set.copyOf(entityTypes);
+        }
+    }
+
+    /**
+     * 遍历结果：按跳数由近及远的可达实体，以及途经的关系
+     */
+    public record Reach(List<CodeEntity> entities, List<CodeRelation> relations) {
+    }
+
+    private record Entry(Reach reach, Set<String> files, long bytes) {
+    }
+
+    /**
+     * 缓存统计
+     */
+    @Data
+    @Builder
+    public static class Stats {
+        private boolean enabled;
+        private long hits;
+        private long misses;
+        private double hitRate;
+        private long entries;
+        private long invalidatedEntries;
+        private long estimatedBytes;
+        private long graphVersion;
+
+        @Override
+        public String toString() {
+            if (!enabled) {
+                return "TraversalCache[disabled]";
+            }
+            return String.format("TraversalCache[hitRate=%.1f%%, hits=%d, misses=%d, entries=%d, invalidated=%d, memory=%dKB]",
+                    hitRate * 100, hits, misses, entries, invalidatedEntries, estimatedBytes / 1024);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.leavesfly.jimi.knowledge.graph.parser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Java 编译单元缓存
+ * <p>
+ * 代码图构建（{@link JavaASTParser}）与 RAG 的 AST 分块共用同一份解析结果：
+ * 按文件内容哈希缓存 JavaParser 的 CompilationUnit，同一内容只解析一次。
+ * <p>
+ * - 以内容哈希为键，文件修改后自然失效，无需按路径清理
+ * - 值为软引用，内存紧张时可被回收（回收后重新解析）
+ * - JavaParser 实例非线程安全，每个线程各持一个
+ * <p>
+ * 缓存中的 CompilationUnit 被多个调用方共享，只能读取，不得修改。
+ */
+@Component
+public class CompilationUnitCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final Cache<String, Optional<CompilationUnit>> units;
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(JavaParser::new);
+
+    public CompilationUnitCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CompilationUnitCache(int maxEntries) {
+        this.units = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .softValues()
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 解析 Java 源码（命中缓存时不重新解析）
+     *
+     * @param content 文件内容
+     * @return 编译单元，语法错误时为空
+     */
+    public Optional<CompilationUnit> parse(String content) {
+        return units.get(contentKey(content), key -> {
+            com.github.javaparser.ParseResult<CompilationUnit> result = parsers.get().parse(content);
+            return result.isSuccessful() ? result.getResult() : Optional.empty();
+        });
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public CacheStats stats() {
+        return units.stats();
+    }
+
+    private static String contentKey(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package io.leavesfly.jimi.knowledge.graph.parser;
 
-import com.github.javaparser.JavaParser;
-
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.PackageDeclaration;
@@ -13,16 +11,19 @@ import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
 import io.leavesfly.jimi.knowledge.graph.model.EntityType;
 import io.leavesfly.jimi.knowledge.graph.model.RelationType;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.Set;
 
 /**
  * Java AST 解析器
  * <p>
- * 使用 JavaParser 解析 Java 源代码，提取代码实体和关系
+ * 使用 JavaParser 解析 Java 源代码，提取代码实体和关系。
+ * 解析经由 {@link CompilationUnitCache}，与 RAG 的 AST 分块共享同一份解析结果。
  */
 @Slf4j
 @Component
@@ -40,10 +41,15 @@ public class JavaASTParser implements LanguageParser {
         return SUPPORTED_EXTENSIONS;
     }
     
-    private final JavaParser javaParser;
+    private final CompilationUnitCache compilationUnitCache;
     
     public JavaASTParser() {
-        this.javaParser = new JavaParser();
+        this(new CompilationUnitCache());
+    }
+    
+    @Autowired
+    public JavaASTParser(CompilationUnitCache compilationUnitCache) {
+        this.compilationUnitCache = compilationUnitCache;
     }
     
     /**
@@ -63,17 +69,17 @@ public class JavaASTParser implements LanguageParser {
             // 读取文件内容
             String content = Files.readString(filePath);
             
-            // 解析 Java 代码 (使用 JavaParser 库的 ParseResult)
-            com.github.javaparser.ParseResult<CompilationUnit> parseResult = javaParser.parse(content);
+            // 解析 Java 代码（相同内容复用缓存的编译单元）
+            Optional<CompilationUnit> parsed = compilationUnitCache.parse(content);
             
-            if (!parseResult.isSuccessful() || !parseResult.getResult().isPresent()) {
+            if (parsed.isEmpty()) {
                 log.warn("Failed to parse file: {}", filePath);
                 return ParseResult.failure(
                     result.getFilePath(), 
                     "Parse failed");
             }
             
-            CompilationUnit cu = parseResult.getResult().get();
+            CompilationUnit cu = parsed.get();
             
             // 提取包名
             String packageName = cu.getPackageDeclaration()
@@ -8,6 +8,7 @@ import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 /**
@@ -155,6 +156,38 @@ public interface CodeGraphStore {
      */
     Mono<Void> clear();
     
+    // ==================== 符号索引 ====================
+    
+    /**
+     * 获取符号索引
+     * <p>
+     * 由存储随实体增删、清空、加载同步维护（实现可以在首次调用时才建立），供符号搜索按名称查找实体而不扫描全部实体
+     */
+    SymbolIndex getSymbolIndex();
+    
+    // ==================== 图版本 ====================
+    
+    /**
+     * 图版本号：每次增删实体或关系、清空或加载后递增，用于使遍历结果缓存失效
+     *
+     * @return 当前版本；不支持版本跟踪的实现返回 -1（调用方不应缓存其遍历结果）
+     */
+    default long getGraphVersion() {
+        return -1L;
+    }
+    
+    /**
+     * 自指定版本之后的变更涉及的文件：被增删实体所在的文件、被增删关系两端实体所在的文件
+     * <p>
+     * 新增实体时还包括已有关系另一端实体所在的文件（此前指向它的悬空关系因此变得可达）。
+     *
+     * @param version 起始版本（不含）
+     * @return 文件集合；无法确定（变更记录已淘汰、期间发生清空或加载）时返回 null，调用方应视为全部变化
+     */
+    default Set<String> getChangedFilesSince(long version) {
+        return null;
+    }
+    
     // ==================== 持久化操作 ====================
     
     /**
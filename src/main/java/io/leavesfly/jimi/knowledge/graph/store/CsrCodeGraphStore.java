@@ -0,0 +1,1268 @@
+package io.leavesfly.jimi.knowledge.graph.store;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.model.RelationType;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 压缩稀疏行（CSR）代码图存储
+ * <p>
+ * 面向大图的紧凑实现：
+ * - 实体 id 驻留为 int 节点编号，遍历时只做数组访问，不做字符串哈希
+ * - 边按边编号存于列式数组（源、目标、类型），出边 / 入边邻接为 CSR 数组（偏移 + 边编号 + 邻居编号）
+ * - 新增的边先进入按节点的增量表，增量超过阈值时合并进 CSR；删除的边只在位图中标记，合并时剔除
+ * - 权重非 1.0 或带属性的边才额外保存权重 / 属性
+ * <p>
+ * 关系 id 由存储分配（{@code rel-<边编号>}），在存储生命周期内稳定，不保留调用方传入的 id；
+ * 读取返回的 {@link CodeRelation} 是按需生成的副本，修改它不影响存储，未设置属性时 properties 为 null。
+ * 边的增删与遍历语义（含重复边、删除实体不删除关系）与 {@link InMemoryCodeGraphStore} 一致。
+ * <p>
+ * 默认保存为二进制快照 {@code graph.bin}（见 {@link GraphSnapshotFile}），邻接与文件索引随快照保存，加载时直接装入；
+ * 也可保存为与 InMemoryCodeGraphStore 相同的 JSONL 格式（entities.jsonl / relations.jsonl）。
+ * 加载时优先读取不早于 JSONL 文件的二进制快照，两种存储仍可互相加载 JSONL 格式。
+ * <p>
+ * 读操作共享读锁，写操作独占写锁。
+ */
+@Slf4j
+public class CsrCodeGraphStore implements CodeGraphStore {
+
+    private static final RelationType[] RELATION_TYPES = RelationType.values();
+    private static final String ENTITIES_FILE = "entities.jsonl";
+    private static final String RELATIONS_FILE = "relations.jsonl";
+    private static final String RELATION_ID_PREFIX = "rel-";
+    private static final Double DEFAULT_WEIGHT = 1.0;
+
+    /** 增量边数超过 max(该值, 存活边数 / 4) 时合并进 CSR */
+    private static final int MIN_COMPACT_DELTA = 4096;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Path graphPath;
+
+    /** 保存为二进制快照（false 时保存为 JSONL） */
+    private final boolean binarySnapshot;
+
+    // ==================== 节点 ====================
+
+    /** 实体 id -> 节点编号（关系端点即使没有对应实体也会驻留） */
+    private final Map<String, Integer> nodeIndex = new HashMap<>();
+    private String[] nodeIds = new String[16];
+    private CodeEntity[] nodeEntities = new CodeEntity[16];
+    private int nodeCount;
+    private int entityCount;
+
+    /** 文件路径 -> 节点编号 */
+    private final Map<String, IntList> fileIndex = new HashMap<>();
+
+    /**
+     * 符号索引：首次使用时由当前实体建立，之后在写锁内随实体增删维护；加载快照后丢弃，
+     * 不使用符号搜索时不占用内存与加载时间
+     */
+    private volatile SymbolIndex symbolIndex;
+
+    /** 变更记录：图版本号与最近变更涉及的文件 */
+    private final GraphChangeLog changeLog = new GraphChangeLog();
+
+    // ==================== 边表（按边编号） ====================
+
+    private int[] edgeSource = new int[16];
+    private int[] edgeTarget = new int[16];
+    private byte[] edgeType = new byte[16];
+    private int edgeCount;
+    private int liveEdgeCount;
+    private final BitSet deletedEdges = new BitSet();
+    private final Map<Integer, Double> edgeWeights = new HashMap<>();
+    private final Map<Integer, Map<String, Object>> edgeProperties = new HashMap<>();
+
+    // ==================== 邻接：CSR + 增量 ====================
+
+    /** 编号小于该值的边已合并进 CSR */
+    private int compactedEdges;
+    /** CSR 覆盖的节点数 */
+    private int csrNodeCount;
+    private int[] outOffsets = {0};
+    private int[] outEdgeIds = new int[0];
+    private int[] outNeighbors = new int[0];
+    private int[] inOffsets = {0};
+    private int[] inEdgeIds = new int[0];
+    private int[] inNeighbors = new int[0];
+    /** 尚未合并的边，按节点存边编号 */
+    private IntList[] outDelta = new IntList[16];
+    private IntList[] inDelta = new IntList[16];
+
+    public CsrCodeGraphStore() {
+        this(true);
+    }
+
+    /**
+     * @param binarySnapshot 是否保存为二进制快照；false 时保存为 JSONL
+     */
+    public CsrCodeGraphStore(boolean binarySnapshot) {
+        this.binarySnapshot = binarySnapshot;
+    }
+
+    @Override
+    public void setStoragePath(Path storagePath) {
+        this.graphPath = storagePath;
+        log.debug("Graph storage path set to: {}", storagePath);
+    }
+
+    // ==================== 实体操作 ====================
+
+    @Override
+    public Mono<Void> addEntity(CodeEntity entity) {
+        return Mono.fromRunnable(() -> write(() -> {
+            CodeEntity previous = putEntity(entity);
+            if (symbolIndex != null) {
+                symbolIndex.add(entity);
+            }
+            Set<String> changedFiles = new HashSet<>();
+            collectAddedFiles(entity, previous, changedFiles);
+            changeLog.record(changedFiles);
+        }));
+    }
+
+    @Override
+    public Mono<Integer> addEntities(List<CodeEntity> entityList) {
+        return Mono.fromCallable(() -> {
+            write(() -> {
+                CodeEntity[] previous = new CodeEntity[entityList.size()];
+                for (int i = 0; i < previous.length; i++) {
+                    previous[i] = putEntity(entityList.get(i));
+                }
+                if (symbolIndex != null) {
+                    symbolIndex.addAll(entityList);
+                }
+                Set<String> changedFiles = new HashSet<>();
+                for (int i = 0; i < previous.length; i++) {
+                    collectAddedFiles(entityList.get(i), previous[i], changedFiles);
+                }
+                changeLog.record(changedFiles);
+            });
+            log.debug("Added {} entities to graph", entityList.size());
+            return entityList.size();
+        });
+    }
+
+    @Override
+    public Mono<CodeEntity> getEntity(String id) {
+        return Mono.fromCallable(() -> getEntitySync(id));
+    }
+
+    @Override
+    public Mono<List<CodeEntity>> getEntitiesByType(EntityType type) {
+        return Mono.fromCallable(() -> getEntitiesByTypeSync(type));
+    }
+
+    @Override
+    public Mono<List<CodeEntity>> getEntitiesByFile(String filePath) {
+        return Mono.fromCallable(() -> read(() -> {
+            IntList nodes = fileIndex.get(filePath);
+            if (nodes == null) {
+                return Collections.<CodeEntity>emptyList();
+            }
+            List<CodeEntity> result = new ArrayList<>(nodes.size);
+            for (int i = 0; i < nodes.size; i++) {
+                CodeEntity entity = nodeEntities[nodes.values[i]];
+                if (entity != null) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        }));
+    }
+
+    @Override
+    public Mono<Void> deleteEntity(String id) {
+        return Mono.fromRunnable(() -> write(() -> {
+            Integer node = nodeIndex.get(id);
+            if (node != null && nodeEntities[node] != null) {
+                String filePath = nodeEntities[node].getFilePath();
+                IntList fileNodes = fileIndex.get(filePath);
+                if (fileNodes != null) {
+                    fileNodes.remove(node);
+                }
+                nodeEntities[node] = null;
+                entityCount--;
+                if (symbolIndex != null) {
+                    symbolIndex.remove(id);
+                }
+                changeLog.record(Collections.singleton(filePath));
+                log.debug("Deleted entity: {}", id);
+            }
+        }));
+    }
+
+    @Override
+    public Mono<Integer> deleteEntitiesByFile(String filePath) {
+        return Mono.fromCallable(() -> {
+            int count = write(() -> {
+                IntList nodes = fileIndex.remove(filePath);
+                if (nodes == null) {
+                    return 0;
+                }
+                List<String> removed = new ArrayList<>(nodes.size);
+                for (int i = 0; i < nodes.size; i++) {
+                    int node = nodes.values[i];
+                    if (nodeEntities[node] != null) {
+                        nodeEntities[node] = null;
+                        entityCount--;
+                        removed.add(nodeIds[node]);
+                    }
+                }
+                if (symbolIndex != null) {
+                    symbolIndex.removeAll(removed);
+                }
+                changeLog.record(Collections.singleton(filePath));
+                return removed.size();
+            });
+            log.info("Deleted {} entities from file: {}", count, filePath);
+            return count;
+        });
+    }
+
+    // ==================== 关系操作 ====================
+
+    @Override
+    public Mono<Void> addRelation(CodeRelation relation) {
+        return Mono.fromRunnable(() -> write(() -> {
+            Set<String> changedFiles = new HashSet<>();
+            collectEdgeFiles(appendEdge(relation), changedFiles);
+            changeLog.record(changedFiles);
+            compactIfNeeded();
+        }));
+    }
+
+    @Override
+    public Mono<Integer> addRelations(List<CodeRelation> relationList) {
+        return Mono.fromCallable(() -> {
+            write(() -> {
+                Set<String> changedFiles = new HashSet<>();
+                for (CodeRelation relation : relationList) {
+                    collectEdgeFiles(appendEdge(relation), changedFiles);
+                }
+                changeLog.record(changedFiles);
+                compactIfNeeded();
+            });
+            log.debug("Added {} relations to graph", relationList.size());
+            return relationList.size();
+        });
+    }
+
+    @Override
+    public Mono<List<CodeRelation>> getRelationsBySource(String sourceId) {
+        return Mono.fromCallable(() -> getRelationsBySourceSync(sourceId));
+    }
+
+    @Override
+    public Mono<List<CodeRelation>> getRelationsByTarget(String targetId) {
+        return Mono.fromCallable(() -> getRelationsByTargetSync(targetId));
+    }
+
+    @Override
+    public Mono<List<CodeRelation>> getRelationsByType(RelationType type) {
+        return Mono.fromCallable(() -> read(() -> {
+            List<CodeRelation> result = new ArrayList<>();
+            byte ordinal = (byte) type.ordinal();
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (edgeType[edge] == ordinal && !deletedEdges.get(edge)) {
+                    result.add(materialize(edge));
+                }
+            }
+            return result;
+        }));
+    }
+
+    @Override
+    public Mono<Void> deleteRelation(String relationId) {
+        return Mono.fromRunnable(() -> write(() -> {
+            int edge = parseEdgeId(relationId);
+            if (edge >= 0 && deleteEdge(edge)) {
+                Set<String> changedFiles = new HashSet<>();
+                collectEdgeFiles(edge, changedFiles);
+                changeLog.record(changedFiles);
+            }
+        }));
+    }
+
+    @Override
+    public Mono<Integer> deleteRelationsByEntity(String entityId) {
+        return Mono.fromCallable(() -> write(() -> {
+            Integer node = nodeIndex.get(entityId);
+            if (node == null) {
+                return 0;
+            }
+            IntList edges = new IntList();
+            collectEdges(node, true, edges);
+            collectEdges(node, false, edges);
+            int count = 0;
+            Set<String> changedFiles = new HashSet<>();
+            for (int i = 0; i < edges.size; i++) {
+                if (deleteEdge(edges.values[i])) {
+                    collectEdgeFiles(edges.values[i], changedFiles);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                changeLog.record(changedFiles);
+            }
+            return count;
+        }));
+    }
+
+    // ==================== 图查询 ====================
+
+    @Override
+    public Mono<List<CodeEntity>> findPath(String fromId, String toId, int maxHops) {
+        return Mono.fromCallable(() -> read(() -> {
+            Integer from = nodeIndex.get(fromId);
+            Integer to = nodeIndex.get(toId);
+            if (fromId.equals(toId)) {
+                return entitiesOf(from == null ? new int[0] : new int[]{from});
+            }
+            if (from == null || to == null) {
+                return Collections.<CodeEntity>emptyList();
+            }
+
+            // BFS，parent 数组记录前驱，找到后回溯路径
+            int[] parent = new int[nodeCount];
+            Arrays.fill(parent, -1);
+            int[] depth = new int[nodeCount];
+            int[] queue = new int[nodeCount];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = from;
+            parent[from] = from;
+            IntList neighbors = new IntList();
+            while (head < tail) {
+                int current = queue[head++];
+                if (current == to) {
+                    IntList path = new IntList();
+                    for (int node = to; node != from; node = parent[node]) {
+                        path.add(node);
+                    }
+                    path.add(from);
+                    return entitiesOf(path.reversed());
+                }
+                if (depth[current] >= maxHops) {
+                    continue;
+                }
+                neighbors.clear();
+                collectNeighbors(current, neighbors);
+                for (int i = 0; i < neighbors.size; i++) {
+                    int next = neighbors.values[i];
+                    if (parent[next] < 0) {
+                        parent[next] = current;
+                        depth[next] = depth[current] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return Collections.<CodeEntity>emptyList();
+        }));
+    }
+
+    @Override
+    public Mono<List<CodeEntity>> getNeighbors(String entityId, RelationType relationType, boolean outgoing) {
+        return Mono.fromCallable(() -> read(() -> {
+            Integer node = nodeIndex.get(entityId);
+            if (node == null) {
+                return Collections.<CodeEntity>emptyList();
+            }
+            IntList edges = new IntList();
+            collectEdges(node, outgoing, edges);
+            List<CodeEntity> result = new ArrayList<>(edges.size);
+            for (int i = 0; i < edges.size; i++) {
+                int edge = edges.values[i];
+                if (relationType != null && edgeType[edge] != relationType.ordinal()) {
+                    continue;
+                }
+                CodeEntity neighbor = nodeEntities[outgoing ? edgeTarget[edge] : edgeSource[edge]];
+                if (neighbor != null) {
+                    result.add(neighbor);
+                }
+            }
+            return result;
+        }));
+    }
+
+    @Override
+    public Mono<List<CodeEntity>> bfs(String startId, Predicate<CodeEntity> filter, int maxDepth) {
+        return Mono.fromCallable(() -> read(() -> {
+            Integer start = nodeIndex.get(startId);
+            if (start == null) {
+                return Collections.<CodeEntity>emptyList();
+            }
+            List<CodeEntity> result = new ArrayList<>();
+            BitSet visited = new BitSet(nodeCount);
+            int[] queue = new int[nodeCount];
+            int[] depth = new int[nodeCount];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            visited.set(start);
+            IntList neighbors = new IntList();
+            while (head < tail) {
+                int current = queue[head++];
+                CodeEntity entity = nodeEntities[current];
+                if (entity != null && filter.test(entity)) {
+                    result.add(entity);
+                }
+                if (depth[current] >= maxDepth) {
+                    continue;
+                }
+                neighbors.clear();
+                collectNeighbors(current, neighbors);
+                for (int i = 0; i < neighbors.size; i++) {
+                    int next = neighbors.values[i];
+                    if (!visited.get(next)) {
+                        visited.set(next);
+                        depth[next] = depth[current] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return result;
+        }));
+    }
+
+    @Override
+    public Mono<List<CodeEntity>> dfs(String startId, Predicate<CodeEntity> filter, int maxDepth) {
+        return Mono.fromCallable(() -> read(() -> {
+            Integer start = nodeIndex.get(startId);
+            if (start == null) {
+                return Collections.<CodeEntity>emptyList();
+            }
+            // 显式栈的先序遍历，访问顺序与递归实现一致
+            List<CodeEntity> result = new ArrayList<>();
+            BitSet visited = new BitSet(nodeCount);
+            List<int[]> frames = new ArrayList<>();
+            IntList cursors = new IntList();
+            IntList depths = new IntList();
+
+            visited.set(start);
+            visit(start, filter, result);
+            frames.add(neighborsOf(start));
+            cursors.add(0);
+            depths.add(0);
+            while (!frames.isEmpty()) {
+                int top = frames.size() - 1;
+                int[] neighbors = frames.get(top);
+                int cursor = cursors.values[top];
+                int depth = depths.values[top];
+                if (cursor >= neighbors.length || depth + 1 > maxDepth) {
+                    frames.remove(top);
+                    cursors.size--;
+                    depths.size--;
+                    continue;
+                }
+                cursors.values[top] = cursor + 1;
+                int next = neighbors[cursor];
+                if (visited.get(next)) {
+                    continue;
+                }
+                visited.set(next);
+                visit(next, filter, result);
+                frames.add(neighborsOf(next));
+                cursors.add(0);
+                depths.add(depth + 1);
+            }
+            return result;
+        }));
+    }
+
+    private void visit(int node, Predicate<CodeEntity> filter, List<CodeEntity> result) {
+        CodeEntity entity = nodeEntities[node];
+        if (entity != null && filter.test(entity)) {
+            result.add(entity);
+        }
+    }
+
+    private int[] neighborsOf(int node) {
+        IntList neighbors = new IntList();
+        collectNeighbors(node, neighbors);
+        return neighbors.toArray();
+    }
+
+    // ==================== 统计查询 ====================
+
+    @Override
+    public Mono<GraphStats> getStats() {
+        return Mono.fromCallable(() -> read(() -> {
+            Map<EntityType, Integer> entitiesByType = new EnumMap<>(EntityType.class);
+            for (int node = 0; node < nodeCount; node++) {
+                if (nodeEntities[node] != null) {
+                    entitiesByType.merge(nodeEntities[node].getType(), 1, Integer::sum);
+                }
+            }
+            int[] counts = new int[RELATION_TYPES.length];
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (!deletedEdges.get(edge)) {
+                    counts[edgeType[edge]]++;
+                }
+            }
+            Map<RelationType, Integer> relationsByType = new EnumMap<>(RelationType.class);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    relationsByType.put(RELATION_TYPES[i], counts[i]);
+                }
+            }
+            return GraphStats.builder()
+                    .totalEntities(entityCount)
+                    .totalRelations(liveEdgeCount)
+                    .entitiesByType(new HashMap<>(entitiesByType))
+                    .relationsByType(new HashMap<>(relationsByType))
+                    .lastUpdated(System.currentTimeMillis())
+                    .build();
+        }));
+    }
+
+    @Override
+    public Mono<Integer> countEntities(EntityType type) {
+        return Mono.fromCallable(() -> read(() -> {
+            int count = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                if (nodeEntities[node] != null && nodeEntities[node].getType() == type) {
+                    count++;
+                }
+            }
+            return count;
+        }));
+    }
+
+    @Override
+    public Mono<Integer> countRelations(RelationType type) {
+        return Mono.fromCallable(() -> read(() -> {
+            int count = 0;
+            byte ordinal = (byte) type.ordinal();
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (edgeType[edge] == ordinal && !deletedEdges.get(edge)) {
+                    count++;
+                }
+            }
+            return count;
+        }));
+    }
+
+    @Override
+    public Mono<Void> clear() {
+        return Mono.fromRunnable(() -> {
+            int[] cleared = write(() -> {
+                int[] counts = {entityCount, liveEdgeCount};
+                resetAll();
+                return counts;
+            });
+            log.info("Cleared graph: {} entities, {} relations", cleared[0], cleared[1]);
+        });
+    }
+
+    // ==================== 符号索引 ====================
+
+    @Override
+    public SymbolIndex getSymbolIndex() {
+        SymbolIndex index = symbolIndex;
+        if (index != null) {
+            return index;
+        }
+        return write(() -> {
+            if (symbolIndex == null) {
+                SymbolIndex built = new SymbolIndex();
+                List<CodeEntity> entities = new ArrayList<>(entityCount);
+                for (int node = 0; node < nodeCount; node++) {
+                    if (nodeEntities[node] != null) {
+                        entities.add(nodeEntities[node]);
+                    }
+                }
+                built.addAll(entities);
+                symbolIndex = built;
+                log.debug("Built symbol index: {} entities", entities.size());
+            }
+            return symbolIndex;
+        });
+    }
+
+    // ==================== 图版本 ====================
+
+    @Override
+    public long getGraphVersion() {
+        return changeLog.version();
+    }
+
+    @Override
+    public Set<String> getChangedFilesSince(long version) {
+        return changeLog.changedFilesSince(version);
+    }
+
+    // ==================== 持久化操作 ====================
+
+    @Override
+    public Mono<Boolean> save() {
+        if (graphPath == null) {
+            log.warn("Graph path not set, cannot save");
+            return Mono.just(false);
+        }
+        return Mono.fromCallable(() -> read(() -> {
+            try {
+                Files.createDirectories(graphPath);
+                if (binarySnapshot) {
+                    GraphSnapshotFile.write(graphPath.resolve(GraphSnapshotFile.FILE_NAME), snapshot());
+                    // JSONL 文件已过时，删除以免其他存储加载到旧数据
+                    Files.deleteIfExists(graphPath.resolve(ENTITIES_FILE));
+                    Files.deleteIfExists(graphPath.resolve(RELATIONS_FILE));
+                } else {
+                    saveJsonl();
+                    Files.deleteIfExists(graphPath.resolve(GraphSnapshotFile.FILE_NAME));
+                }
+
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("entityCount", entityCount);
+                metadata.put("relationCount", liveEdgeCount);
+                metadata.put("lastUpdated", System.currentTimeMillis());
+                metadata.put("format", binarySnapshot ? "binary" : "jsonl");
+                objectMapper.writerWithDefaultPrettyPrinter()
+                        .writeValue(graphPath.resolve("metadata.json").toFile(), metadata);
+
+                log.info("Saved code graph: {} entities, {} relations to {} ({})", entityCount, liveEdgeCount,
+                        graphPath, binarySnapshot ? "binary" : "jsonl");
+                return true;
+            } catch (IOException e) {
+                log.error("Failed to save code graph", e);
+                return false;
+            }
+        }));
+    }
+
+    private void saveJsonl() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(graphPath.resolve(ENTITIES_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int node = 0; node < nodeCount; node++) {
+                if (nodeEntities[node] != null) {
+                    writer.write(objectMapper.writeValueAsString(nodeEntities[node]));
+                    writer.newLine();
+                }
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(graphPath.resolve(RELATIONS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (!deletedEdges.get(edge)) {
+                    writer.write(objectMapper.writeValueAsString(materialize(edge)));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Mono<Boolean> load(Path graphPath) {
+        this.graphPath = graphPath;
+        return Mono.fromCallable(() -> {
+            Path snapshotFile = graphPath.resolve(GraphSnapshotFile.FILE_NAME);
+            Path entitiesFile = graphPath.resolve(ENTITIES_FILE);
+            if (Files.exists(snapshotFile) && !isOlder(snapshotFile, entitiesFile)) {
+                try {
+                    GraphSnapshotFile.Snapshot snapshot = GraphSnapshotFile.read(snapshotFile);
+                    write(() -> install(snapshot));
+                    log.info("Loaded code graph: {} entities, {} relations from {}",
+                            snapshot.entityCount, snapshot.edgeCount, snapshotFile);
+                    return true;
+                } catch (IOException e) {
+                    log.warn("Failed to load graph snapshot {}, trying JSONL: {}", snapshotFile, e.getMessage());
+                }
+            }
+            return loadJsonl(graphPath);
+        });
+    }
+
+    private boolean loadJsonl(Path graphPath) {
+        Path entitiesFile = graphPath.resolve(ENTITIES_FILE);
+        Path relationsFile = graphPath.resolve(RELATIONS_FILE);
+        if (!Files.exists(entitiesFile) || !Files.exists(relationsFile)) {
+            log.warn("Graph files not found in: {}", graphPath);
+            return false;
+        }
+        try {
+            List<CodeEntity> loadedEntities = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(entitiesFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    loadedEntities.add(objectMapper.readValue(line, CodeEntity.class));
+                }
+            }
+            List<CodeRelation> loadedRelations = new ArrayList<>();
+            try (BufferedReader reader = Files.newBufferedReader(relationsFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    loadedRelations.add(objectMapper.readValue(line, CodeRelation.class));
+                }
+            }
+
+            write(() -> {
+                resetAll();
+                loadedEntities.forEach(this::putEntity);
+                loadedRelations.forEach(this::appendEdge);
+                compact();
+            });
+            log.info("Loaded code graph: {} entities, {} relations from {}",
+                    loadedEntities.size(), loadedRelations.size(), graphPath);
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to load code graph", e);
+            return false;
+        }
+    }
+
+    /**
+     * InMemoryCodeGraphStore 保存 JSONL 时不会删除 graph.bin，此时以较新的 JSONL 为准
+     */
+    private static boolean isOlder(Path file, Path other) throws IOException {
+        return Files.exists(other)
+                && Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(other)) < 0;
+    }
+
+    // ==================== 同步访问方法实现 ====================
+
+    @Override
+    public CodeEntity getEntitySync(String id) {
+        return read(() -> {
+            Integer node = nodeIndex.get(id);
+            return node == null ? null : nodeEntities[node];
+        });
+    }
+
+    @Override
+    public List<CodeRelation> getRelationsBySourceSync(String sourceId) {
+        return relationsOf(sourceId, true);
+    }
+
+    @Override
+    public List<CodeRelation> getRelationsByTargetSync(String targetId) {
+        return relationsOf(targetId, false);
+    }
+
+    @Override
+    public List<CodeEntity> getEntitiesByTypeSync(EntityType type) {
+        return read(() -> {
+            List<CodeEntity> result = new ArrayList<>();
+            for (int node = 0; node < nodeCount; node++) {
+                CodeEntity entity = nodeEntities[node];
+                if (entity != null && entity.getType() == type) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        });
+    }
+
+    private List<CodeRelation> relationsOf(String entityId, boolean outgoing) {
+        return read(() -> {
+            Integer node = nodeIndex.get(entityId);
+            if (node == null) {
+                return Collections.<CodeRelation>emptyList();
+            }
+            IntList edges = new IntList();
+            collectEdges(node, outgoing, edges);
+            List<CodeRelation> result = new ArrayList<>(edges.size);
+            for (int i = 0; i < edges.size; i++) {
+                result.add(materialize(edges.values[i]));
+            }
+            return result;
+        });
+    }
+
+    // ==================== 内部实现（调用方持有锁） ====================
+
+    private int internNode(String id) {
+        Integer existing = nodeIndex.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        if (nodeCount == nodeIds.length) {
+            int capacity = nodeIds.length * 2;
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            nodeEntities = Arrays.copyOf(nodeEntities, capacity);
+            outDelta = Arrays.copyOf(outDelta, capacity);
+            inDelta = Arrays.copyOf(inDelta, capacity);
+        }
+        int node = nodeCount++;
+        nodeIds[node] = id;
+        nodeIndex.put(id, node);
+        return node;
+    }
+
+    /**
+     * 写入实体
+     *
+     * @return 同 id 的旧实体，没有时为 null
+     */
+    private CodeEntity putEntity(CodeEntity entity) {
+        int node = internNode(entity.getId());
+        CodeEntity previous = nodeEntities[node];
+        boolean indexFile = previous == null;
+        if (previous == null) {
+            entityCount++;
+        } else if (!Objects.equals(previous.getFilePath(), entity.getFilePath())) {
+            IntList oldFile = fileIndex.get(previous.getFilePath());
+            if (oldFile != null) {
+                oldFile.remove(node);
+            }
+            indexFile = true;
+        }
+        nodeEntities[node] = entity;
+        if (indexFile) {
+            fileIndex.computeIfAbsent(entity.getFilePath(), k -> new IntList()).add(node);
+        }
+        return previous;
+    }
+
+    /**
+     * 追加一条边
+     *
+     * @return 边编号
+     */
+    private int appendEdge(CodeRelation relation) {
+        int source = internNode(relation.getSourceId());
+        int target = internNode(relation.getTargetId());
+        if (edgeCount == edgeSource.length) {
+            int capacity = edgeSource.length * 2;
+            edgeSource = Arrays.copyOf(edgeSource, capacity);
+            edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+            edgeType = Arrays.copyOf(edgeType, capacity);
+        }
+        int edge = edgeCount++;
+        edgeSource[edge] = source;
+        edgeTarget[edge] = target;
+        edgeType[edge] = (byte) relation.getType().ordinal();
+        liveEdgeCount++;
+        if (relation.getWeight() != null && relation.getWeight() != 1.0) {
+            edgeWeights.put(edge, relation.getWeight());
+        }
+        if (relation.getProperties() != null && !relation.getProperties().isEmpty()) {
+            edgeProperties.put(edge, new HashMap<>(relation.getProperties()));
+        }
+        deltaList(outDelta, source).add(edge);
+        deltaList(inDelta, target).add(edge);
+        return edge;
+    }
+
+    private static IntList deltaList(IntList[] delta, int node) {
+        IntList list = delta[node];
+        if (list == null) {
+            list = new IntList();
+            delta[node] = list;
+        }
+        return list;
+    }
+
+    /**
+     * 收集新增实体所在的文件（含被替换的旧实体所在文件），以及已有关系另一端实体所在的文件
+     */
+    private void collectAddedFiles(CodeEntity entity, CodeEntity previous, Set<String> files) {
+        if (previous != null) {
+            files.add(previous.getFilePath());
+        }
+        files.add(entity.getFilePath());
+        IntList neighbors = new IntList();
+        collectNeighbors(nodeIndex.get(entity.getId()), neighbors);
+        for (int i = 0; i < neighbors.size; i++) {
+            files.add(fileOf(neighbors.values[i]));
+        }
+    }
+
+    /**
+     * 收集边两端实体所在的文件
+     */
+    private void collectEdgeFiles(int edge, Set<String> files) {
+        files.add(fileOf(edgeSource[edge]));
+        files.add(fileOf(edgeTarget[edge]));
+    }
+
+    private String fileOf(int node) {
+        CodeEntity entity = nodeEntities[node];
+        return entity != null ? entity.getFilePath() : null;
+    }
+
+    private boolean deleteEdge(int edge) {
+        if (edge >= edgeCount || deletedEdges.get(edge)) {
+            return false;
+        }
+        deletedEdges.set(edge);
+        liveEdgeCount--;
+        edgeWeights.remove(edge);
+        edgeProperties.remove(edge);
+        return true;
+    }
+
+    private void compactIfNeeded() {
+        if (edgeCount - compactedEdges > Math.max(MIN_COMPACT_DELTA, liveEdgeCount / 4)) {
+            compact();
+        }
+    }
+
+    /**
+     * 将增量边合并进 CSR，并剔除已删除的边（边编号不变）
+     */
+    private void compact() {
+        int[][] csr = buildCsr(nodeCount, edgeCount, liveEdgeCount, edgeSource, edgeTarget, deletedEdges);
+        outOffsets = csr[0];
+        outEdgeIds = csr[1];
+        outNeighbors = csr[2];
+        inOffsets = csr[3];
+        inEdgeIds = csr[4];
+        inNeighbors = csr[5];
+        csrNodeCount = nodeCount;
+        compactedEdges = edgeCount;
+        Arrays.fill(outDelta, null);
+        Arrays.fill(inDelta, null);
+        log.debug("Compacted graph adjacency: {} nodes, {} live edges", nodeCount, liveEdgeCount);
+    }
+
+    /**
+     * 构建出边与入边 CSR：{outOffsets, outEdgeIds, outNeighbors, inOffsets, inEdgeIds, inNeighbors}
+     * <p>
+     * 按边编号顺序填充，邻接顺序即插入顺序；deleted 为 null 时所有边都存活。
+     */
+    private static int[][] buildCsr(int nodes, int edges, int liveEdges, int[] source, int[] target, BitSet deleted) {
+        int[] outCounts = new int[nodes + 1];
+        int[] inCounts = new int[nodes + 1];
+        for (int edge = 0; edge < edges; edge++) {
+            if (deleted == null || !deleted.get(edge)) {
+                outCounts[source[edge] + 1]++;
+                inCounts[target[edge] + 1]++;
+            }
+        }
+        for (int node = 0; node < nodes; node++) {
+            outCounts[node + 1] += outCounts[node];
+            inCounts[node + 1] += inCounts[node];
+        }
+
+        int[] outEdges = new int[liveEdges];
+        int[] outNeighborIds = new int[liveEdges];
+        int[] inEdges = new int[liveEdges];
+        int[] inNeighborIds = new int[liveEdges];
+        int[] outCursor = Arrays.copyOf(outCounts, nodes);
+        int[] inCursor = Arrays.copyOf(inCounts, nodes);
+        for (int edge = 0; edge < edges; edge++) {
+            if (deleted != null && deleted.get(edge)) {
+                continue;
+            }
+            int outPos = outCursor[source[edge]]++;
+            outEdges[outPos] = edge;
+            outNeighborIds[outPos] = target[edge];
+            int inPos = inCursor[target[edge]]++;
+            inEdges[inPos] = edge;
+            inNeighborIds[inPos] = source[edge];
+        }
+        return new int[][]{outCounts, outEdges, outNeighborIds, inCounts, inEdges, inNeighborIds};
+    }
+
+    /**
+     * 生成快照：存活边按原顺序重新编号为 0..n-1，邻接为完整 CSR（调用方持有读锁，不修改存储）
+     */
+    private GraphSnapshotFile.Snapshot snapshot() {
+        GraphSnapshotFile.Snapshot snapshot = new GraphSnapshotFile.Snapshot();
+        snapshot.nodeCount = nodeCount;
+        snapshot.entityCount = entityCount;
+        snapshot.nodeIds = nodeIds;
+        snapshot.nodeEntities = nodeEntities;
+
+        int edges = liveEdgeCount;
+        snapshot.edgeCount = edges;
+        snapshot.edgeSource = new int[edges];
+        snapshot.edgeTarget = new int[edges];
+        snapshot.edgeType = new byte[edges];
+        int next = 0;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (deletedEdges.get(edge)) {
+                continue;
+            }
+            snapshot.edgeSource[next] = edgeSource[edge];
+            snapshot.edgeTarget[next] = edgeTarget[edge];
+            snapshot.edgeType[next] = edgeType[edge];
+            Double weight = edgeWeights.get(edge);
+            if (weight != null) {
+                snapshot.edgeWeights.put(next, weight);
+            }
+            Map<String, Object> properties = edgeProperties.get(edge);
+            if (properties != null) {
+                snapshot.edgeProperties.put(next, properties);
+            }
+            next++;
+        }
+        int[][] csr = buildCsr(nodeCount, edges, edges, snapshot.edgeSource, snapshot.edgeTarget, null);
+        snapshot.outOffsets = csr[0];
+        snapshot.outEdgeIds = csr[1];
+        snapshot.outNeighbors = csr[2];
+        snapshot.inOffsets = csr[3];
+        snapshot.inEdgeIds = csr[4];
+        snapshot.inNeighbors = csr[5];
+
+        fileIndex.forEach((path, nodes) -> {
+            if (nodes.size > 0) {
+                snapshot.fileIndex.put(path, nodes.toArray());
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * 装入快照：数组直接成为存储状态，只重建 id -> 节点编号的哈希表
+     */
+    private void install(GraphSnapshotFile.Snapshot snapshot) {
+        resetAll();
+        int nodes = snapshot.nodeCount;
+        int capacity = Math.max(16, nodes);
+        nodeIds = nodes == capacity ? snapshot.nodeIds : Arrays.copyOf(snapshot.nodeIds, capacity);
+        nodeEntities = nodes == capacity ? snapshot.nodeEntities : Arrays.copyOf(snapshot.nodeEntities, capacity);
+        nodeCount = nodes;
+        entityCount = snapshot.entityCount;
+        for (int node = 0; node < nodes; node++) {
+            nodeIndex.put(nodeIds[node], node);
+        }
+        snapshot.fileIndex.forEach((path, fileNodes) -> fileIndex.put(path, IntList.wrap(fileNodes)));
+
+        int edges = snapshot.edgeCount;
+        int edgeCapacity = Math.max(16, edges);
+        edgeSource = edges == edgeCapacity ? snapshot.edgeSource : Arrays.copyOf(snapshot.edgeSource, edgeCapacity);
+        edgeTarget = edges == edgeCapacity ? snapshot.edgeTarget : Arrays.copyOf(snapshot.edgeTarget, edgeCapacity);
+        edgeType = edges == edgeCapacity ? snapshot.edgeType : Arrays.copyOf(snapshot.edgeType, edgeCapacity);
+        edgeCount = edges;
+        liveEdgeCount = edges;
+        edgeWeights.putAll(snapshot.edgeWeights);
+        edgeProperties.putAll(snapshot.edgeProperties);
+
+        outOffsets = snapshot.outOffsets;
+        outEdgeIds = snapshot.outEdgeIds;
+        outNeighbors = snapshot.outNeighbors;
+        inOffsets = snapshot.inOffsets;
+        inEdgeIds = snapshot.inEdgeIds;
+        inNeighbors = snapshot.inNeighbors;
+        csrNodeCount = nodes;
+        compactedEdges = edges;
+        outDelta = new IntList[capacity];
+        inDelta = new IntList[capacity];
+    }
+
+    /**
+     * 收集节点的出边或入边编号（CSR 在前、增量在后，即插入顺序）
+     */
+    private void collectEdges(int node, boolean outgoing, IntList edges) {
+        if (node < csrNodeCount) {
+            int[] offsets = outgoing ? outOffsets : inOffsets;
+            int[] ids = outgoing ? outEdgeIds : inEdgeIds;
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                if (!deletedEdges.get(ids[i])) {
+                    edges.add(ids[i]);
+                }
+            }
+        }
+        IntList delta = (outgoing ? outDelta : inDelta)[node];
+        if (delta != null) {
+            for (int i = 0; i < delta.size; i++) {
+                if (!deletedEdges.get(delta.values[i])) {
+                    edges.add(delta.values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 收集所有邻居（出边目标在前，入边来源在后，与 InMemoryCodeGraphStore 一致）
+     */
+    private void collectNeighbors(int node, IntList neighbors) {
+        if (node < csrNodeCount) {
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                if (!deletedEdges.get(outEdgeIds[i])) {
+                    neighbors.add(outNeighbors[i]);
+                }
+            }
+        }
+        IntList outgoing = outDelta[node];
+        if (outgoing != null) {
+            for (int i = 0; i < outgoing.size; i++) {
+                int edge = outgoing.values[i];
+                if (!deletedEdges.get(edge)) {
+                    neighbors.add(edgeTarget[edge]);
+                }
+            }
+        }
+        if (node < csrNodeCount) {
+            for (int i = inOffsets[node]; i < inOffsets[node + 1]; i++) {
+                if (!deletedEdges.get(inEdgeIds[i])) {
+                    neighbors.add(inNeighbors[i]);
+                }
+            }
+        }
+        IntList incoming = inDelta[node];
+        if (incoming != null) {
+            for (int i = 0; i < incoming.size; i++) {
+                int edge = incoming.values[i];
+                if (!deletedEdges.get(edge)) {
+                    neighbors.add(edgeSource[edge]);
+                }
+            }
+        }
+    }
+
+    private CodeRelation materialize(int edge) {
+        Double weight = edgeWeights.isEmpty() ? DEFAULT_WEIGHT : edgeWeights.getOrDefault(edge, DEFAULT_WEIGHT);
+        Map<String, Object> properties = edgeProperties.isEmpty() ? null : edgeProperties.get(edge);
+        return new CodeRelation(RELATION_ID_PREFIX + edge, nodeIds[edgeSource[edge]], nodeIds[edgeTarget[edge]],
+                RELATION_TYPES[edgeType[edge]], weight, properties == null ? null : new HashMap<>(properties), null);
+    }
+
+    private int parseEdgeId(String relationId) {
+        if (relationId == null || !relationId.startsWith(RELATION_ID_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(relationId.substring(RELATION_ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private List<CodeEntity> entitiesOf(int[] nodes) {
+        List<CodeEntity> result = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            if (nodeEntities[node] != null) {
+                result.add(nodeEntities[node]);
+            }
+        }
+        return result;
+    }
+
+    private void resetAll() {
+        nodeIndex.clear();
+        nodeIds = new String[16];
+        nodeEntities = new CodeEntity[16];
+        nodeCount = 0;
+        entityCount = 0;
+        fileIndex.clear();
+        symbolIndex = null;
+        changeLog.reset();
+        edgeSource = new int[16];
+        edgeTarget = new int[16];
+        edgeType = new byte[16];
+        edgeCount = 0;
+        liveEdgeCount = 0;
+        deletedEdges.clear();
+        edgeWeights.clear();
+        edgeProperties.clear();
+        compactedEdges = 0;
+        csrNodeCount = 0;
+        outOffsets = new int[]{0};
+        outEdgeIds = new int[0];
+        outNeighbors = new int[0];
+        inOffsets = new int[]{0};
+        inEdgeIds = new int[0];
+        inNeighbors = new int[0];
+        outDelta = new IntList[16];
+        inDelta = new IntList[16];
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 可增长的 int 列表
+     */
+    private static final class IntList {
+
+        int[] values = new int[4];
+        int size;
+
+        static IntList wrap(int[] values) {
+            IntList list = new IntList();
+            list.values = values.length == 0 ? new int[4] : values;
+            list.size = values.length;
+            return list;
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        int[] reversed() {
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = values[size - 1 - i];
+            }
+            return result;
+        }
+    }
+}
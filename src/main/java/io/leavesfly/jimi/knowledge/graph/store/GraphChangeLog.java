@@ -0,0 +1,94 @@
+package io.leavesfly.jimi.knowledge.graph.store;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * 图变更记录：单调递增的图版本号，以及最近若干次变更涉及的文件
+ * <p>
+ * 每次变更版本号加一，并记下 (版本, 文件)；超出容量时淘汰最早的记录。
+ * 清空、加载等整体替换视为重置，此前版本的变更不可追溯。
+ */
+final class GraphChangeLog {
+
+    /** 默认保留的 (版本, 文件) 记录数 */
+    static final int DEFAULT_CAPACITY = 8192;
+
+    private final int capacity;
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+
+    private long version;
+
+    /** 可追溯的最早版本：早于它的版本之后的变更已不完整 */
+    private long floor;
+
+    GraphChangeLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    GraphChangeLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * 记录一次变更
+     *
+     * @param files 变更涉及的文件（可以为空集合，仅递增版本号）
+     */
+    synchronized void record(Collection<String> files) {
+        version++;
+        if (files.size() > capacity) {
+            changes.clear();
+            floor = version;
+            return;
+        }
+        for (String file : files) {
+            if (file != null) {
+                changes.addLast(new Change(version, file));
+            }
+        }
+        while (changes.size() > capacity) {
+            floor = changes.removeFirst().version;
+        }
+    }
+
+    /**
+     * 记录一次整体替换（清空、加载）
+     */
+    synchronized void reset() {
+        version++;
+        changes.clear();
+        floor = version;
+    }
+
+    /**
+     * 自指定版本之后的变更涉及的文件
+     *
+     * @return 文件集合；变更不可追溯时返回 null
+     */
+    synchronized Set<String> changedFilesSince(long since) {
+        if (since < floor || since > version) {
+            return null;
+        }
+        Set<String> files = new HashSet<>();
+        Iterator<Change> it = changes.descendingIterator();
+        while (it.hasNext()) {
+            Change change = it.next();
+            if (change.version <= since) {
+                break;
+            }
+            files.add(change.file);
+        }
+        return files;
+    }
+
+    private record Change(long version, String file) {
+    }
+}
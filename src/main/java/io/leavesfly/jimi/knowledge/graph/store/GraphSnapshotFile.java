@@ -0,0 +1,551 @@
+package io.leavesfly.jimi.knowledge.graph.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 代码图二进制快照文件（graph.bin）
+ * <p>
+ * 格式（小端序）：
+ * <pre>
+ * 头部   magic(int) | version(int) | nodes | entities | edges | strings | files | weights | properties（int）
+ *        | 8 个分区的起始偏移 + 文件末尾偏移（long）
+ * 字符串 strings+1 个偏移(int) | UTF-8 字节；实体 id、名称、路径等都以字符串表下标引用，-1 表示 null
+ * 节点   nodes 个 id 下标
+ * 实体   定长记录：node | type(byte) | flags(byte) | name | qualifiedName | filePath | visibility
+ *        | startLine | endLine | createdAt(long) | 属性数
+ * 属性   按实体顺序的变长属性：key 下标 | 类型标记(byte) | 值
+ * 边     edges 个源节点 | edges 个目标节点 | edges 个类型(byte)，边编号即下标
+ * 邻接   出边 CSR（nodes+1 个偏移 | 边编号 | 邻居）与入边 CSR，与内存中的布局相同
+ * 文件   每个文件：路径下标 | 节点数 | 节点编号
+ * 稀疏   非默认权重：边编号 | 权重(double)；边属性：边编号 | 属性数 | 属性
+ * </pre>
+ * 读取时按分区内存映射，整型数组批量拷贝，邻接与文件索引直接装入，不再重建索引。
+ * 相同的字符串（文件路径、可见性、属性名等）只解码一次，加载后的实体共享同一实例。
+ */
+final class GraphSnapshotFile {
+
+    static final String FILE_NAME = "graph.bin";
+
+    private static final int MAGIC = 0x4A475246; // "JGRF"
+    private static final int FORMAT_VERSION = 1;
+    private static final int SECTION_COUNT = 8;
+    private static final int HEADER_BYTES = 9 * Integer.BYTES + (SECTION_COUNT + 1) * Long.BYTES;
+
+    private static final int STRINGS = 0;
+    private static final int NODES = 1;
+    private static final int ENTITIES = 2;
+    private static final int ATTRIBUTES = 3;
+    private static final int EDGES = 4;
+    private static final int ADJACENCY = 5;
+    private static final int FILES = 6;
+    private static final int SPARSE = 7;
+
+    private static final int NULL_INDEX = -1;
+    private static final int NULL_LINE = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private static final byte FLAG_STATIC = 1;
+    private static final byte FLAG_ABSTRACT = 1 << 1;
+    private static final byte FLAG_STATIC_NULL = 1 << 2;
+    private static final byte FLAG_ABSTRACT_NULL = 1 << 3;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_BOOLEAN = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_DOUBLE = 5;
+    /** 其他类型（列表、嵌套 Map 等）以 JSON 文本存入字符串表 */
+    private static final byte TAG_JSON = 6;
+
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private GraphSnapshotFile() {
+    }
+
+    /**
+     * 快照内容：边已按存活边重新编号，邻接为完整的 CSR
+     */
+    static final class Snapshot {
+        String[] nodeIds;
+        /** 与 nodeIds 等长，没有实体的节点为 null */
+        CodeEntity[] nodeEntities;
+        int nodeCount;
+        int entityCount;
+        int edgeCount;
+        int[] edgeSource;
+        int[] edgeTarget;
+        byte[] edgeType;
+        int[] outOffsets;
+        int[] outEdgeIds;
+        int[] outNeighbors;
+        int[] inOffsets;
+        int[] inEdgeIds;
+        int[] inNeighbors;
+        Map<String, int[]> fileIndex = new HashMap<>();
+        Map<Integer, Double> edgeWeights = new HashMap<>();
+        Map<Integer, Map<String, Object>> edgeProperties = new HashMap<>();
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 写出快照（先写临时文件再替换，写入中断不会破坏已有快照）
+     */
+    static void write(Path file, Snapshot snapshot) throws IOException {
+        StringTable strings = new StringTable();
+        for (int node = 0; node < snapshot.nodeCount; node++) {
+            strings.intern(snapshot.nodeIds[node]);
+        }
+
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // 实体、属性与稀疏分区会向字符串表追加字符串，先编码到内存，最后写字符串表
+            BufferWriter entities = new BufferWriter();
+            BufferWriter attributes = new BufferWriter();
+            for (int node = 0; node < snapshot.nodeCount; node++) {
+                CodeEntity entity = snapshot.nodeEntities[node];
+                if (entity != null) {
+                    writeEntity(entities, attributes, strings, node, entity);
+                }
+            }
+            BufferWriter files = new BufferWriter();
+            for (Map.Entry<String, int[]> entry : snapshot.fileIndex.entrySet()) {
+                files.putInt(strings.intern(entry.getKey()));
+                files.putInt(entry.getValue().length);
+                files.putInts(entry.getValue(), entry.getValue().length);
+            }
+            BufferWriter sparse = new BufferWriter();
+            for (Map.Entry<Integer, Double> weight : snapshot.edgeWeights.entrySet()) {
+                sparse.putInt(weight.getKey());
+                sparse.putDouble(weight.getValue());
+            }
+            for (Map.Entry<Integer, Map<String, Object>> properties : snapshot.edgeProperties.entrySet()) {
+                sparse.putInt(properties.getKey());
+                writeAttributes(sparse, strings, properties.getValue());
+            }
+
+            long[] offsets = new long[SECTION_COUNT + 1];
+            long position = HEADER_BYTES;
+            channel.position(position);
+
+            offsets[STRINGS] = position;
+            position += strings.write(channel);
+            offsets[NODES] = position;
+            BufferWriter nodes = new BufferWriter();
+            for (int node = 0; node < snapshot.nodeCount; node++) {
+                nodes.putInt(strings.indexOf(snapshot.nodeIds[node]));
+            }
+            position += nodes.writeTo(channel);
+            offsets[ENTITIES] = position;
+            position += entities.writeTo(channel);
+            offsets[ATTRIBUTES] = position;
+            position += attributes.writeTo(channel);
+
+            offsets[EDGES] = position;
+            BufferWriter edges = new BufferWriter();
+            edges.putInts(snapshot.edgeSource, snapshot.edgeCount);
+            edges.putInts(snapshot.edgeTarget, snapshot.edgeCount);
+            edges.putBytes(snapshot.edgeType, snapshot.edgeCount);
+            position += edges.writeTo(channel);
+
+            offsets[ADJACENCY] = position;
+            BufferWriter adjacency = new BufferWriter();
+            adjacency.putInts(snapshot.outOffsets, snapshot.nodeCount + 1);
+            adjacency.putInts(snapshot.outEdgeIds, snapshot.edgeCount);
+            adjacency.putInts(snapshot.outNeighbors, snapshot.edgeCount);
+            adjacency.putInts(snapshot.inOffsets, snapshot.nodeCount + 1);
+            adjacency.putInts(snapshot.inEdgeIds, snapshot.edgeCount);
+            adjacency.putInts(snapshot.inNeighbors, snapshot.edgeCount);
+            position += adjacency.writeTo(channel);
+
+            offsets[FILES] = position;
+            position += files.writeTo(channel);
+            offsets[SPARSE] = position;
+            position += sparse.writeTo(channel);
+            offsets[SECTION_COUNT] = position;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putInt(snapshot.nodeCount).putInt(snapshot.entityCount).putInt(snapshot.edgeCount)
+                    .putInt(strings.size()).putInt(snapshot.fileIndex.size())
+                    .putInt(snapshot.edgeWeights.size()).putInt(snapshot.edgeProperties.size());
+            for (long offset : offsets) {
+                header.putLong(offset);
+            }
+            header.flip();
+            channel.position(0);
+            writeFully(channel, header);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeEntity(BufferWriter out, BufferWriter attributes, StringTable strings,
+                                    int node, CodeEntity entity) throws IOException {
+        byte flags = 0;
+        if (entity.getIsStatic() == null) {
+            flags |= FLAG_STATIC_NULL;
+        } else if (entity.getIsStatic()) {
+            flags |= FLAG_STATIC;
+        }
+        if (entity.getIsAbstract() == null) {
+            flags |= FLAG_ABSTRACT_NULL;
+        } else if (entity.getIsAbstract()) {
+            flags |= FLAG_ABSTRACT;
+        }
+        out.putInt(node);
+        out.putByte(entity.getType() == null ? -1 : (byte) entity.getType().ordinal());
+        out.putByte(flags);
+        out.putInt(strings.intern(entity.getName()));
+        out.putInt(strings.intern(entity.getQualifiedName()));
+        out.putInt(strings.intern(entity.getFilePath()));
+        out.putInt(strings.intern(entity.getVisibility()));
+        out.putInt(entity.getStartLine() == null ? NULL_LINE : entity.getStartLine());
+        out.putInt(entity.getEndLine() == null ? NULL_LINE : entity.getEndLine());
+        out.putLong(entity.getCreatedAt() == null ? NULL_TIME : entity.getCreatedAt());
+        Map<String, Object> entityAttributes = entity.getAttributes();
+        out.putInt(entityAttributes == null ? -1 : entityAttributes.size());
+        if (entityAttributes != null) {
+            writeAttributeValues(attributes, strings, entityAttributes);
+        }
+    }
+
+    private static void writeAttributes(BufferWriter out, StringTable strings, Map<String, Object> attributes)
+            throws IOException {
+        out.putInt(attributes.size());
+        writeAttributeValues(out, strings, attributes);
+    }
+
+    private static void writeAttributeValues(BufferWriter out, StringTable strings, Map<String, Object> attributes)
+            throws IOException {
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            out.putInt(strings.intern(attribute.getKey()));
+            Object value = attribute.getValue();
+            if (value == null) {
+                out.putByte(TAG_NULL);
+            } else if (value instanceof String text) {
+                out.putByte(TAG_STRING);
+                out.putInt(strings.intern(text));
+            } else if (value instanceof Boolean bool) {
+                out.putByte(TAG_BOOLEAN);
+                out.putByte(bool ? (byte) 1 : 0);
+            } else if (value instanceof Integer number) {
+                out.putByte(TAG_INT);
+                out.putInt(number);
+            } else if (value instanceof Long number) {
+                out.putByte(TAG_LONG);
+                out.putLong(number);
+            } else if (value instanceof Double number) {
+                out.putByte(TAG_DOUBLE);
+                out.putDouble(number);
+            } else {
+                try {
+                    out.putByte(TAG_JSON);
+                    out.putInt(strings.intern(OBJECT_MAPPER.writeValueAsString(value)));
+                } catch (JsonProcessingException e) {
+                    throw new IOException("Cannot serialize attribute " + attribute.getKey(), e);
+                }
+            }
+        }
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 读取快照
+     *
+     * @throws IOException 文件损坏、版本不符或分区超过 2GB
+     */
+    static Snapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Truncated graph snapshot: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported graph snapshot format: " + file);
+            }
+            Snapshot snapshot = new Snapshot();
+            snapshot.nodeCount = header.getInt();
+            snapshot.entityCount = header.getInt();
+            snapshot.edgeCount = header.getInt();
+            int stringCount = header.getInt();
+            int fileCount = header.getInt();
+            int weightCount = header.getInt();
+            int propertyCount = header.getInt();
+            long[] offsets = new long[SECTION_COUNT + 1];
+            for (int i = 0; i <= SECTION_COUNT; i++) {
+                offsets[i] = header.getLong();
+            }
+            if (offsets[SECTION_COUNT] > channel.size()) {
+                throw new IOException("Truncated graph snapshot: " + file);
+            }
+
+            String[] strings = readStrings(section(channel, offsets, STRINGS), stringCount);
+
+            int nodes = snapshot.nodeCount;
+            int[] nodeStrings = readInts(section(channel, offsets, NODES), nodes);
+            snapshot.nodeIds = new String[nodes];
+            for (int node = 0; node < nodes; node++) {
+                snapshot.nodeIds[node] = strings[nodeStrings[node]];
+            }
+
+            snapshot.nodeEntities = new CodeEntity[nodes];
+            ByteBuffer entities = section(channel, offsets, ENTITIES);
+            ByteBuffer attributes = section(channel, offsets, ATTRIBUTES);
+            for (int i = 0; i < snapshot.entityCount; i++) {
+                int node = entities.getInt();
+                snapshot.nodeEntities[node] = readEntity(entities, attributes, strings, snapshot.nodeIds[node]);
+            }
+
+            int edges = snapshot.edgeCount;
+            ByteBuffer edgeSection = section(channel, offsets, EDGES);
+            snapshot.edgeSource = readInts(edgeSection, edges);
+            snapshot.edgeTarget = readInts(edgeSection, edges);
+            snapshot.edgeType = new byte[edges];
+            edgeSection.get(snapshot.edgeType);
+
+            ByteBuffer adjacency = section(channel, offsets, ADJACENCY);
+            snapshot.outOffsets = readInts(adjacency, nodes + 1);
+            snapshot.outEdgeIds = readInts(adjacency, edges);
+            snapshot.outNeighbors = readInts(adjacency, edges);
+            snapshot.inOffsets = readInts(adjacency, nodes + 1);
+            snapshot.inEdgeIds = readInts(adjacency, edges);
+            snapshot.inNeighbors = readInts(adjacency, edges);
+
+            ByteBuffer files = section(channel, offsets, FILES);
+            snapshot.fileIndex = new HashMap<>(Math.max(16, fileCount * 2));
+            for (int i = 0; i < fileCount; i++) {
+                String path = strings[files.getInt()];
+                snapshot.fileIndex.put(path, readInts(files, files.getInt()));
+            }
+
+            ByteBuffer sparse = section(channel, offsets, SPARSE);
+            for (int i = 0; i < weightCount; i++) {
+                snapshot.edgeWeights.put(sparse.getInt(), sparse.getDouble());
+            }
+            for (int i = 0; i < propertyCount; i++) {
+                int edge = sparse.getInt();
+                snapshot.edgeProperties.put(edge, readAttributes(sparse, strings, sparse.getInt()));
+            }
+            return snapshot;
+        } catch (RuntimeException e) {
+            // 下标越界、缓冲区下溢等：文件内容与头部不一致
+            throw new IOException("Corrupted graph snapshot: " + file, e);
+        }
+    }
+
+    private static CodeEntity readEntity(ByteBuffer in, ByteBuffer attributes, String[] strings, String id)
+            throws IOException {
+        byte type = in.get();
+        byte flags = in.get();
+        String name = string(strings, in.getInt());
+        String qualifiedName = string(strings, in.getInt());
+        String filePath = string(strings, in.getInt());
+        String visibility = string(strings, in.getInt());
+        int startLine = in.getInt();
+        int endLine = in.getInt();
+        long createdAt = in.getLong();
+        int attributeCount = in.getInt();
+        // 全参构造器：避免无参构造器中 attributes / createdAt 默认值的多余分配
+        CodeEntity entity = new CodeEntity(id, type < 0 ? null : ENTITY_TYPES[type], name, qualifiedName, filePath,
+                startLine == NULL_LINE ? null : startLine,
+                endLine == NULL_LINE ? null : endLine,
+                visibility,
+                (flags & FLAG_STATIC_NULL) != 0 ? null : (flags & FLAG_STATIC) != 0,
+                (flags & FLAG_ABSTRACT_NULL) != 0 ? null : (flags & FLAG_ABSTRACT) != 0,
+                attributeCount < 0 ? null : readAttributes(attributes, strings, attributeCount),
+                createdAt == NULL_TIME ? null : createdAt);
+        return entity;
+    }
+
+    private static Map<String, Object> readAttributes(ByteBuffer in, String[] strings, int count) throws IOException {
+        Map<String, Object> attributes = new HashMap<>(Math.max(4, count * 2));
+        for (int i = 0; i < count; i++) {
+            String key = strings[in.getInt()];
+            byte tag = in.get();
+            Object value = switch (tag) {
+                case TAG_NULL -> null;
+                case TAG_STRING -> strings[in.getInt()];
+                case TAG_BOOLEAN -> in.get() != 0;
+                case TAG_INT -> in.getInt();
+                case TAG_LONG -> in.getLong();
+                case TAG_DOUBLE -> in.getDouble();
+                case TAG_JSON -> OBJECT_MAPPER.readValue(strings[in.getInt()], Object.class);
+                default -> throw new IOException("Unknown attribute tag: " + tag);
+            };
+            attributes.put(key, value);
+        }
+        return attributes;
+    }
+
+    private static String[] readStrings(ByteBuffer in, int count) {
+        int[] offsets = readInts(in, count + 1);
+        byte[] bytes = new byte[offsets[count]];
+        in.get(bytes);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index == NULL_INDEX ? null : strings[index];
+    }
+
+    private static ByteBuffer section(FileChannel channel, long[] offsets, int section) throws IOException {
+        long start = offsets[section];
+        long length = offsets[section + 1] - start;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Graph snapshot section too large: " + length + " bytes");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 字符串表：按首次出现顺序编号
+     */
+    private static final class StringTable {
+
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private int totalBytes;
+
+        int intern(String value) {
+            if (value == null) {
+                return NULL_INDEX;
+            }
+            Integer existing = index.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int id = encoded.size();
+            index.put(value, id);
+            encoded.add(bytes);
+            totalBytes += bytes.length;
+            return id;
+        }
+
+        int indexOf(String value) {
+            return value == null ? NULL_INDEX : index.get(value);
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        long write(FileChannel channel) throws IOException {
+            BufferWriter out = new BufferWriter();
+            int offset = 0;
+            out.putInt(0);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.putInt(offset);
+            }
+            long written = out.writeTo(channel);
+            for (byte[] bytes : encoded) {
+                out.putBytes(bytes, bytes.length);
+            }
+            return written + out.writeTo(channel);
+        }
+    }
+
+    /**
+     * 可增长的小端序写缓冲
+     */
+    private static final class BufferWriter {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        void putByte(byte value) {
+            ensure(1).put(value);
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES).putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES).putLong(value);
+        }
+
+        void putDouble(double value) {
+            ensure(Double.BYTES).putDouble(value);
+        }
+
+        void putInts(int[] values, int count) {
+            ensure((long) count * Integer.BYTES).asIntBuffer().put(values, 0, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+        }
+
+        void putBytes(byte[] values, int count) {
+            ensure(count).put(values, 0, count);
+        }
+
+        /**
+         * 写出已缓冲的内容并清空缓冲
+         *
+         * @return 写出的字节数
+         */
+        long writeTo(FileChannel channel) throws IOException {
+            buffer.flip();
+            long written = buffer.remaining();
+            writeFully(channel, buffer);
+            buffer.clear();
+            return written;
+        }
+
+        private ByteBuffer ensure(long bytes) {
+            if (buffer.remaining() < bytes) {
+                long required = buffer.position() + bytes;
+                if (required > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Graph snapshot section too large: " + required + " bytes");
+                }
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, buffer.capacity() * 2L));
+                ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer;
+        }
+    }
+}
@@ -57,16 +57,30 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
     // 文件索引: filePath -> List<entityId>
     private final Map<String, List<String>> fileIndex = new ConcurrentHashMap<>();
     
+    // 符号索引: 名称 -> 实体
+    private final SymbolIndex symbolIndex = new SymbolIndex();
+    
+    // 变更记录: 图版本号与最近变更涉及的文件
+    private final GraphChangeLog changeLog = new GraphChangeLog();
+    
     // ==================== 实体操作 ====================
     
     @Override
     public Mono<Void> addEntity(CodeEntity entity) {
         return Mono.fromRunnable(() -> {
-            entities.put(entity.getId(), entity);
+            CodeEntity previous = entities.put(entity.getId(), entity);
             
             // 更新文件索引 - 使用线程安全的 CopyOnWriteArrayList
             fileIndex.computeIfAbsent(entity.getFilePath(), k -> new CopyOnWriteArrayList<>())
                 .add(entity.getId());
+            symbolIndex.add(entity);
+            
+            Set<String> changedFiles = new HashSet<>();
+            if (previous != null) {
+                changedFiles.add(previous.getFilePath());
+            }
+            collectAddedFiles(entity, changedFiles);
+            changeLog.record(changedFiles);
             
             log.debug("Added entity: {}", entity.getDescription());
         });
@@ -75,15 +89,24 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
     @Override
     public Mono<Integer> addEntities(List<CodeEntity> entityList) {
         return Mono.fromCallable(() -> {
-            int count = 0;
+            // 先按键分组再 addAll：CopyOnWriteArrayList 每批只复制一次，而不是每条记录复制一次
+            Map<String, List<String>> idsByFile = new HashMap<>();
+            Set<String> changedFiles = new HashSet<>();
+            for (CodeEntity entity : entityList) {
+                CodeEntity previous = entities.put(entity.getId(), entity);
+                if (previous != null) {
+                    changedFiles.add(previous.getFilePath());
+                }
+                idsByFile.computeIfAbsent(entity.getFilePath(), k -> new ArrayList<>()).add(entity.getId());
+            }
+            appendAll(fileIndex, idsByFile);
+            symbolIndex.addAll(entityList);
             for (CodeEntity entity : entityList) {
-                entities.put(entity.getId(), entity);
-                fileIndex.computeIfAbsent(entity.getFilePath(), k -> new CopyOnWriteArrayList<>())
-                    .add(entity.getId());
-                count++;
+                collectAddedFiles(entity, changedFiles);
             }
-            log.info("Added {} entities to graph", count);
-            return count;
+            changeLog.record(changedFiles);
+            log.debug("Added {} entities to graph", entityList.size());
+            return entityList.size();
         });
     }
     
@@ -125,6 +148,8 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
                 if (fileEntities != null) {
                     fileEntities.remove(id);
                 }
+                symbolIndex.remove(id);
+                changeLog.record(Collections.singleton(entity.getFilePath()));
                 log.debug("Deleted entity: {}", id);
             }
         });
@@ -144,6 +169,8 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
                     count++;
                 }
             }
+            symbolIndex.removeAll(entityIds);
+            changeLog.record(Collections.singleton(filePath));
             
             log.info("Deleted {} entities from file: {}", count, filePath);
             return count;
@@ -163,6 +190,10 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
             incomingEdges.computeIfAbsent(relation.getTargetId(), k -> new CopyOnWriteArrayList<>())
                 .add(relation.getId());
             
+            Set<String> changedFiles = new HashSet<>();
+            collectRelationFiles(relation, changedFiles);
+            changeLog.record(changedFiles);
+            
             log.debug("Added relation: {}", relation.getDescription());
         });
     }
@@ -170,20 +201,64 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
     @Override
     public Mono<Integer> addRelations(List<CodeRelation> relationList) {
         return Mono.fromCallable(() -> {
-            int count = 0;
+            Map<String, List<String>> outgoing = new HashMap<>();
+            Map<String, List<String>> incoming = new HashMap<>();
+            Set<String> changedFiles = new HashSet<>();
             for (CodeRelation relation : relationList) {
                 relations.put(relation.getId(), relation);
-                outgoingEdges.computeIfAbsent(relation.getSourceId(), k -> new CopyOnWriteArrayList<>())
-                    .add(relation.getId());
-                incomingEdges.computeIfAbsent(relation.getTargetId(), k -> new CopyOnWriteArrayList<>())
-                    .add(relation.getId());
-                count++;
+                outgoing.computeIfAbsent(relation.getSourceId(), k -> new ArrayList<>()).add(relation.getId());
+                incoming.computeIfAbsent(relation.getTargetId(), k -> new ArrayList<>()).add(relation.getId());
+                collectRelationFiles(relation, changedFiles);
             }
-            log.info("Added {} relations to graph", count);
-            return count;
+            appendAll(outgoingEdges, outgoing);
+            appendAll(incomingEdges, incoming);
+            changeLog.record(changedFiles);
+            log.debug("Added {} relations to graph", relationList.size());
+            return relationList.size();
         });
     }
     
+    /**
+     * 收集关系两端实体所在的文件
+     */
+    private void collectRelationFiles(CodeRelation relation, Set<String> files) {
+        files.add(fileOf(relation.getSourceId()));
+        files.add(fileOf(relation.getTargetId()));
+    }
+    
+    /**
+     * 收集新增实体所在的文件，以及已有关系另一端实体所在的文件
+     */
+    private void collectAddedFiles(CodeEntity entity, Set<String> files) {
+        files.add(entity.getFilePath());
+        for (String relationId : outgoingEdges.getOrDefault(entity.getId(), Collections.emptyList())) {
+            CodeRelation relation = relations.get(relationId);
+            if (relation != null) {
+                files.add(fileOf(relation.getTargetId()));
+            }
+        }
+        for (String relationId : incomingEdges.getOrDefault(entity.getId(), Collections.emptyList())) {
+            CodeRelation relation = relations.get(relationId);
+            if (relation != null) {
+                files.add(fileOf(relation.getSourceId()));
+            }
+        }
+    }
+    
+    private String fileOf(String entityId) {
+        CodeEntity entity = entities.get(entityId);
+        return entity != null ? entity.getFilePath() : null;
+    }
+    
+    /**
+     * 将分组后的 id 追加到索引中（每个键一次 addAll）
+     */
+    private static void appendAll(Map<String, List<String>> index, Map<String, List<String>> additions) {
+        for (Map.Entry<String, List<String>> entry : additions.entrySet()) {
+            index.computeIfAbsent(entry.getKey(), k -> new CopyOnWriteArrayList<>()).addAll(entry.getValue());
+        }
+    }
+    
     @Override
     public Mono<List<CodeRelation>> getRelationsBySource(String sourceId) {
         return Mono.fromCallable(() -> {
@@ -235,6 +310,10 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
                 if (inEdges != null) {
                     inEdges.remove(relationId);
                 }
+                
+                Set<String> changedFiles = new HashSet<>();
+                collectRelationFiles(relation, changedFiles);
+                changeLog.record(changedFiles);
             }
         });
     }
@@ -243,12 +322,15 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
     public Mono<Integer> deleteRelationsByEntity(String entityId) {
         return Mono.fromCallable(() -> {
             int count = 0;
+            Set<String> changedFiles = new HashSet<>();
             
             // 删除出边
             List<String> outEdges = outgoingEdges.remove(entityId);
             if (outEdges != null) {
                 for (String relationId : outEdges) {
-                    if (relations.remove(relationId) != null) {
+                    CodeRelation relation = relations.remove(relationId);
+                    if (relation != null) {
+                        collectRelationFiles(relation, changedFiles);
                         count++;
                     }
                 }
@@ -258,12 +340,17 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
             List<String> inEdges = incomingEdges.remove(entityId);
             if (inEdges != null) {
                 for (String relationId : inEdges) {
-                    if (relations.remove(relationId) != null) {
+                    CodeRelation relation = relations.remove(relationId);
+                    if (relation != null) {
+                        collectRelationFiles(relation, changedFiles);
                         count++;
                     }
                 }
             }
             
+            if (count > 0) {
+                changeLog.record(changedFiles);
+            }
             return count;
         });
     }
@@ -480,11 +567,28 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
             outgoingEdges.clear();
             incomingEdges.clear();
             fileIndex.clear();
+            symbolIndex.clear();
+            changeLog.reset();
             
             log.info("Cleared graph: {} entities, {} relations", entityCount, relationCount);
         });
     }
     
+    @Override
+    public SymbolIndex getSymbolIndex() {
+        return symbolIndex;
+    }
+    
+    @Override
+    public long getGraphVersion() {
+        return changeLog.version();
+    }
+    
+    @Override
+    public Set<String> getChangedFilesSince(long version) {
+        return changeLog.changedFilesSince(version);
+    }
+    
     // ==================== 持久化操作 ====================
     
     @Override
@@ -600,6 +704,7 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
                 
                 // 重建索引
                 rebuildIndices();
+                changeLog.reset();
                 
                 log.info("Loaded code graph: {} entities, {} relations from {}",
                         entities.size(), relations.size(), graphPath);
@@ -613,7 +718,7 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
     }
     
     /**
-     * 重建索引（邻接表和文件索引）
+     * 重建索引（邻接表、文件索引和符号索引）
      */
     private void rebuildIndices() {
         outgoingEdges.clear();
@@ -634,6 +739,9 @@ public class InMemoryCodeGraphStore implements CodeGraphStore {
                 .add(relation.getId());
         }
         
+        // 重建符号索引
+        symbolIndex.rebuild(entities.values());
+        
         log.debug("Rebuilt indices: {} file entries, {} outgoing edges, {} incoming edges",
                 fileIndex.size(), outgoingEdges.size(), incomingEdges.size());
     }
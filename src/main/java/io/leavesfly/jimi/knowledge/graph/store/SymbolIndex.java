@@ -0,0 +1,875 @@
+package io.leavesfly.jimi.knowledge.graph.store;
+
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 符号索引
+ * <p>
+ * 按实体简单名称建立的二级索引，由存储在实体增删时同步维护，符号搜索不再扫描全部实体：
+ * - 精确 / 前缀：小写名称的有序表
+ * - 驼峰：名称各段首字母的有序表（"SAT"、"sat"、"SubAT" 都命中 SubAgentTool）
+ * - 包含：取查询三元组中最短的倒排表，逐个校验名称
+ * - 模糊：名称三元组倒排表，按 Dice 系数打分（容忍拼写错误）
+ * - 限定名：查询含 "." 时按所有者（限定名中成员名前一段）查找，再校验成员名与限定名（不做模糊匹配）
+ * <p>
+ * 同名实体共享一个名称条目，三元组与驼峰索引按名称而非按实体建立；删除实体不回收名称条目。
+ * Top-K 以名称为单位入堆，同名的大量实体（如 getName）只占一个堆元素；较高分档已填满 limit 个结果时跳过较低分档，
+ * 单字符前缀等宽查询最多检查 {@value #SCAN_LIMIT} 个名称或实体。
+ * <p>
+ * 读写锁保护，存储写入时可同时查询。
+ */
+public class SymbolIndex {
+
+    public static final double EXACT_SCORE = 1.0;
+    public static final double PREFIX_SCORE = 0.8;
+    public static final double CONTAINS_SCORE = 0.6;
+    public static final double CAMEL_CASE_SCORE = 0.5;
+    public static final double QUALIFIED_SCORE = 0.4;
+    /** 模糊匹配得分 = 该值 × 三元组 Dice 系数 */
+    public static final double FUZZY_WEIGHT = 0.35;
+
+    /** 模糊匹配的最低 Dice 系数 */
+    private static final double MIN_FUZZY_SIMILARITY = 0.5;
+    /** 前缀 / 驼峰分档最多检查的名称数，限定名分档最多检查的实体数 */
+    private static final int SCAN_LIMIT = 4096;
+    /** 三元组首尾填充字符 */
+    private static final char BOUNDARY = '\u0000';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ==================== 实体槽位 ====================
+
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private CodeEntity[] slotEntities = new CodeEntity[16];
+    private int[] slotNames = new int[16];
+    private int slotCount;
+    private final IntList freeSlots = new IntList();
+    /** 槽位所属的所有者键（见 {@link #ownerIndex}）及在其槽位列表中的下标 */
+    private String[] slotOwners = new String[16];
+    private int[] slotOwnerPositions = new int[16];
+
+    // ==================== 名称条目 ====================
+
+    /** 小写名称 -> 名称编号 */
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    /** 同上，有序，用于前缀查询 */
+    private final TreeMap<String, Integer> sortedNames = new TreeMap<>();
+    private String[] names = new String[16];
+    /** 首次出现时的原始拼写，用于驼峰分段 */
+    private String[] spellings = new String[16];
+    /** 名称下的槽位，按实体 id 有序（取结果时同名实体无需再排序） */
+    private IntList[] nameSlots = new IntList[16];
+    private int[] nameTrigramCounts = new int[16];
+    private int nameCount;
+
+    /** 驼峰首字母（小写） -> 名称编号，只收录至少两段的名称 */
+    private final TreeMap<String, IntList> humpIndex = new TreeMap<>();
+    /** 三元组键（见 {@link #key(long)}） -> 名称编号 */
+    private final Map<Long, IntList> trigramIndex = new HashMap<>();
+    /** 反转的小写所有者（限定名中成员名前一段：方法 / 字段的类、顶层类的包） -> 槽位，反转后后缀查询变为前缀查询 */
+    private final Map<String, IntList> ownerIndex = new HashMap<>();
+    /** 同上，有序 */
+    private final TreeMap<String, IntList> sortedOwners = new TreeMap<>();
+
+    /** 模糊匹配的计数缓冲（按线程复用，避免每次查询分配与名称数等长的数组） */
+    private final ThreadLocal<SharedCounts> sharedCounts = ThreadLocal.withInitial(SharedCounts::new);
+
+    // ==================== 维护 ====================
+
+    /**
+     * 添加实体；同 id 的实体被替换
+     */
+    public void add(CodeEntity entity) {
+        write(() -> put(entity));
+    }
+
+    public void addAll(Collection<CodeEntity> entities) {
+        write(() -> entities.forEach(this::put));
+    }
+
+    public void remove(String id) {
+        write(() -> delete(id));
+    }
+
+    public void removeAll(Collection<String> ids) {
+        write(() -> ids.forEach(this::delete));
+    }
+
+    public void clear() {
+        write(this::reset);
+    }
+
+    /**
+     * 以给定实体重建索引（加载快照后使用）
+     */
+    public void rebuild(Collection<CodeEntity> entities) {
+        write(() -> {
+            reset();
+            entities.forEach(this::put);
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 按符号名称查找实体
+     *
+     * @param query 符号名称（大小写不敏感；驼峰匹配区分查询中的大写字母）
+     * @param entityTypes 实体类型过滤（null 或空表示所有类型）
+     * @param limit 返回数量上限
+     * @return 按得分降序排列的结果，同分时名称较短者在前，同名时按 id 排序
+     */
+    public List<Match> search(String query, Set<EntityType> entityTypes, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String trimmed = query.trim();
+        String lower = trimmed.toLowerCase(Locale.ROOT);
+        Set<EntityType> types = entityTypes == null || entityTypes.isEmpty() ? null : entityTypes;
+
+        lock.readLock().lock();
+        try {
+            TopK topK = new TopK(limit, types);
+            BitSet seen = new BitSet(nameCount);
+
+            Integer exact = nameIds.get(lower);
+            if (exact != null) {
+                seen.set(exact);
+                topK.offerName(exact, EXACT_SCORE, "Exact match");
+            }
+            if (!topK.excludes(PREFIX_SCORE)) {
+                matchPrefix(topK, seen, lower);
+            }
+            if (lower.length() >= 3 && !topK.excludes(CONTAINS_SCORE)) {
+                matchContains(topK, seen, lower);
+            }
+            if (!topK.excludes(CAMEL_CASE_SCORE)) {
+                matchCamelCase(topK, seen, trimmed);
+            }
+            boolean qualified = lower.indexOf('.') >= 0;
+            if (qualified && !topK.excludes(QUALIFIED_SCORE)) {
+                matchQualified(topK, lower);
+            }
+            if (!qualified && lower.length() >= 3 && !topK.excludes(FUZZY_WEIGHT)) {
+                matchFuzzy(topK, seen, lower);
+            }
+            return topK.drain();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void matchPrefix(TopK topK, BitSet seen, String prefix) {
+        int scanned = 0;
+        for (Map.Entry<String, Integer> entry : sortedNames.tailMap(prefix, false).entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || ++scanned > SCAN_LIMIT) {
+                break;
+            }
+            int name = entry.getValue();
+            if (!seen.get(name)) {
+                seen.set(name);
+                topK.offerName(name, PREFIX_SCORE, "Name starts with query");
+            }
+        }
+    }
+
+    private void matchContains(TopK topK, BitSet seen, String query) {
+        IntList shortest = null;
+        for (long trigram : trigrams(query, false)) {
+            IntList postings = trigramIndex.get(key(trigram));
+            if (postings == null) {
+                return;
+            }
+            if (shortest == null || postings.size < shortest.size) {
+                shortest = postings;
+            }
+        }
+        for (int i = 0; i < shortest.size; i++) {
+            int name = shortest.values[i];
+            if (!seen.get(name) && names[name].contains(query)) {
+                seen.set(name);
+                topK.offerName(name, CONTAINS_SCORE, "Name contains query");
+            }
+        }
+    }
+
+    private void matchCamelCase(TopK topK, BitSet seen, String query) {
+        List<String> tokens = queryTokens(query);
+        if (tokens.size() < 2) {
+            return;
+        }
+        StringBuilder initials = new StringBuilder(tokens.size());
+        boolean singleLetters = true;
+        for (String token : tokens) {
+            initials.append(Character.toLowerCase(token.charAt(0)));
+            singleLetters &= token.length() == 1;
+        }
+        String from = initials.toString();
+        int scanned = 0;
+        for (Map.Entry<String, IntList> entry : humpIndex.tailMap(from, true).entrySet()) {
+            if (!entry.getKey().startsWith(from)) {
+                break;
+            }
+            IntList nameIds = entry.getValue();
+            for (int i = 0; i < nameIds.size; i++) {
+                if (++scanned > SCAN_LIMIT) {
+                    return;
+                }
+                int name = nameIds.values[i];
+                if (!seen.get(name) && (singleLetters || matchesSegments(segments(spellings[name]), tokens))) {
+                    seen.set(name);
+                    topK.offerName(name, CAMEL_CASE_SCORE, "CamelCase match");
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询形如 "[包.]所有者.成员前缀"：按所有者（限定名中成员前一段）查找，再校验成员名前缀与完整限定名。
+     * 所有者前没有 "." 时所有者可以是更长名称的后缀（"Store.find" 命中 GraphStore.findPath）
+     */
+    private void matchQualified(TopK topK, String query) {
+        int memberDot = query.lastIndexOf('.');
+        String member = query.substring(memberDot + 1);
+        String head = query.substring(0, memberDot);
+        int ownerDot = head.lastIndexOf('.');
+        String owner = reverse(head.substring(ownerDot + 1));
+        if (owner.isEmpty()) {
+            return;
+        }
+        Map<String, IntList> owners = ownerDot >= 0
+                ? sortedOwners.subMap(owner, true, owner, true)
+                : sortedOwners.subMap(owner, true, owner + Character.MAX_VALUE, false);
+
+        Map<Integer, IntList> matchedByName = new HashMap<>();
+        int scanned = 0;
+        scan:
+        for (IntList slots : owners.values()) {
+            for (int i = 0; i < slots.size; i++) {
+                if (++scanned > SCAN_LIMIT) {
+                    break scan;
+                }
+                int slot = slots.values[i];
+                String qualifiedName = slotEntities[slot].getQualifiedName();
+                if (names[slotNames[slot]].startsWith(member) && containsIgnoreCase(qualifiedName, query)) {
+                    matchedByName.computeIfAbsent(slotNames[slot], k -> new IntList()).add(slot);
+                }
+            }
+        }
+        matchedByName.forEach((name, slots) -> {
+            slots.sort(slotEntities);
+            topK.offerSlots(name, slots, QUALIFIED_SCORE, "Qualified name contains query");
+        });
+    }
+
+    /**
+     * Dice 系数不低于 t 的名称至少与查询共有 ceil(t·|q| / (2 - t)) 个三元组，因此必然含有最稀有的
+     * |q| - minShared + 1 个三元组之一：只遍历这些倒排表生成候选，其余较常见的三元组逐个候选校验
+     */
+    private void matchFuzzy(TopK topK, BitSet seen, String query) {
+        long[] queryTrigrams = trigrams(query, true);
+        int count = queryTrigrams.length;
+        int[] sizes = new int[count];
+        for (int i = 0; i < count; i++) {
+            IntList postings = trigramIndex.get(key(queryTrigrams[i]));
+            sizes[i] = postings == null ? 0 : postings.size;
+        }
+        // 按倒排表长度升序（查询三元组很少，插入排序即可）
+        for (int i = 1; i < count; i++) {
+            for (int j = i; j > 0 && sizes[j] < sizes[j - 1]; j--) {
+                int size = sizes[j];
+                sizes[j] = sizes[j - 1];
+                sizes[j - 1] = size;
+                long trigram = queryTrigrams[j];
+                queryTrigrams[j] = queryTrigrams[j - 1];
+                queryTrigrams[j - 1] = trigram;
+            }
+        }
+        int minShared = (int) Math.ceil(MIN_FUZZY_SIMILARITY * count / (2 - MIN_FUZZY_SIMILARITY));
+        int probes = count - minShared + 1;
+
+        SharedCounts counts = sharedCounts.get();
+        counts.reset(nameCount);
+        int[] shared = counts.shared;
+        IntList touched = counts.touched;
+        for (int p = 0; p < probes; p++) {
+            IntList postings = trigramIndex.get(key(queryTrigrams[p]));
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                if (shared[postings.values[i]]++ == 0) {
+                    touched.add(postings.values[i]);
+                }
+            }
+        }
+        for (int i = 0; i < touched.size; i++) {
+            int name = touched.values[i];
+            int common = shared[name];
+            shared[name] = 0;
+            int total = count + nameTrigramCounts[name];
+            // 结果已满时，低于当前最差得分的候选无需校验
+            double threshold = Math.max(MIN_FUZZY_SIMILARITY, topK.floor() / FUZZY_WEIGHT);
+            if (seen.get(name) || 2.0 * (common + count - probes) / total < threshold) {
+                continue;
+            }
+            for (int p = probes; p < count; p++) {
+                if (hasTrigram(names[name], queryTrigrams[p])) {
+                    common++;
+                }
+            }
+            double similarity = 2.0 * common / total;
+            if (similarity >= threshold) {
+                topK.offerName(name, FUZZY_WEIGHT * similarity, "Fuzzy match");
+            }
+        }
+    }
+
+    // ==================== 内部维护 ====================
+
+    private void put(CodeEntity entity) {
+        if (entity == null || entity.getId() == null) {
+            return;
+        }
+        delete(entity.getId());
+        if (entity.getName() == null || entity.getName().isEmpty()) {
+            return;
+        }
+        int name = internName(entity.getName());
+        int slot = freeSlots.size > 0 ? freeSlots.values[--freeSlots.size] : newSlot();
+        IntList slots = nameSlots[name];
+        slotEntities[slot] = entity;
+        slotNames[slot] = name;
+        if (slots.size == 0 || slotEntities[slots.values[slots.size - 1]].getId().compareTo(entity.getId()) < 0) {
+            slots.add(slot);
+        } else {
+            slots.insert(-searchById(slots, entity.getId()) - 1, slot);
+        }
+        slotById.put(entity.getId(), slot);
+
+        String owner = owner(entity.getQualifiedName());
+        slotOwners[slot] = owner;
+        if (owner != null) {
+            IntList ownerSlots = ownerIndex.get(owner);
+            if (ownerSlots == null) {
+                ownerSlots = new IntList();
+                ownerIndex.put(owner, ownerSlots);
+                sortedOwners.put(owner, ownerSlots);
+            }
+            slotOwnerPositions[slot] = ownerSlots.size;
+            ownerSlots.add(slot);
+        }
+    }
+
+    private void delete(String id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        IntList slots = nameSlots[slotNames[slot]];
+        slots.removeAt(searchById(slots, id));
+
+        String owner = slotOwners[slot];
+        if (owner != null) {
+            IntList ownerSlots = ownerIndex.get(owner);
+            int ownerPosition = slotOwnerPositions[slot];
+            int lastOwned = ownerSlots.values[--ownerSlots.size];
+            ownerSlots.values[ownerPosition] = lastOwned;
+            slotOwnerPositions[lastOwned] = ownerPosition;
+            if (ownerSlots.size == 0) {
+                ownerIndex.remove(owner);
+                sortedOwners.remove(owner);
+            }
+        }
+        slotEntities[slot] = null;
+        slotOwners[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    /**
+     * 在按 id 有序的槽位列表中二分查找；未找到时返回 -(插入位置) - 1
+     */
+    private int searchById(IntList slots, String id) {
+        int low = 0;
+        int high = slots.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = slotEntities[slots.values[mid]].getId().compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int newSlot() {
+        if (slotCount == slotEntities.length) {
+            int capacity = slotEntities.length * 2;
+            slotEntities = Arrays.copyOf(slotEntities, capacity);
+            slotNames = Arrays.copyOf(slotNames, capacity);
+            slotOwners = Arrays.copyOf(slotOwners, capacity);
+            slotOwnerPositions = Arrays.copyOf(slotOwnerPositions, capacity);
+        }
+        return slotCount++;
+    }
+
+    private int internName(String spelling) {
+        String lower = spelling.toLowerCase(Locale.ROOT);
+        Integer existing = nameIds.get(lower);
+        if (existing != null) {
+            return existing;
+        }
+        if (nameCount == names.length) {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            spellings = Arrays.copyOf(spellings, capacity);
+            nameSlots = Arrays.copyOf(nameSlots, capacity);
+            nameTrigramCounts = Arrays.copyOf(nameTrigramCounts, capacity);
+        }
+        int name = nameCount++;
+        names[name] = lower;
+        spellings[name] = spelling;
+        nameSlots[name] = new IntList();
+        nameIds.put(lower, name);
+        sortedNames.put(lower, name);
+
+        long[] trigrams = trigrams(lower, true);
+        nameTrigramCounts[name] = trigrams.length;
+        for (long trigram : trigrams) {
+            trigramIndex.computeIfAbsent(key(trigram), k -> new IntList()).add(name);
+        }
+        List<String> segments = segments(spelling);
+        if (segments.size() >= 2) {
+            StringBuilder initials = new StringBuilder(segments.size());
+            segments.forEach(segment -> initials.append(Character.toLowerCase(segment.charAt(0))));
+            humpIndex.computeIfAbsent(initials.toString(), k -> new IntList()).add(name);
+        }
+        return name;
+    }
+
+    private void reset() {
+        slotById.clear();
+        slotEntities = new CodeEntity[16];
+        slotNames = new int[16];
+        slotOwners = new String[16];
+        slotOwnerPositions = new int[16];
+        slotCount = 0;
+        freeSlots.size = 0;
+        nameIds.clear();
+        sortedNames.clear();
+        names = new String[16];
+        spellings = new String[16];
+        nameSlots = new IntList[16];
+        nameTrigramCounts = new int[16];
+        nameCount = 0;
+        humpIndex.clear();
+        trigramIndex.clear();
+        ownerIndex.clear();
+        sortedOwners.clear();
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== 文本切分 ====================
+
+    /**
+     * 去重后的三元组（三个字符打包为 long）；padded 为 true 时首尾各填充一个边界字符，短名称也有三元组
+     */
+    static long[] trigrams(String text, boolean padded) {
+        String source = padded ? BOUNDARY + text + BOUNDARY : text;
+        if (source.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[source.length() - 2];
+        int count = 0;
+        outer:
+        for (int i = 0; i + 2 < source.length(); i++) {
+            long trigram = ((long) source.charAt(i) << 32) | ((long) source.charAt(i + 1) << 16) | source.charAt(i + 2);
+            for (int j = 0; j < count; j++) {
+                if (result[j] == trigram) {
+                    continue outer;
+                }
+            }
+            result[count++] = trigram;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 三个字符打包的 long 直接作键时 Long.hashCode 冲突严重（高低位异或），乘以奇数常量打散（可逆，不会产生新冲突）
+     */
+    private static Long key(long trigram) {
+        return trigram * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * 首尾填充边界字符后的名称是否含有该三元组
+     */
+    private static boolean hasTrigram(String name, long trigram) {
+        char first = (char) (trigram >>> 32);
+        char second = (char) (trigram >>> 16);
+        char third = (char) trigram;
+        for (int i = 0; i + 2 < name.length() + 2; i++) {
+            if (paddedChar(name, i) == first && paddedChar(name, i + 1) == second
+                    && paddedChar(name, i + 2) == third) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static char paddedChar(String name, int index) {
+        return index == 0 || index == name.length() + 1 ? BOUNDARY : name.charAt(index - 1);
+    }
+
+    /**
+     * 名称分段：大写字母在小写字母或数字之后、连续大写中紧跟小写的最后一个（HTTPServer -> HTTP, Server）、
+     * 下划线与 $ 之后各开始一段
+     */
+    static List<String> segments(String name) {
+        List<String> result = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_' || c == '$') {
+                if (start >= 0) {
+                    result.add(name.substring(start, i));
+                    start = -1;
+                }
+                continue;
+            }
+            if (start < 0) {
+                start = i;
+            } else if (Character.isUpperCase(c) && (!Character.isUpperCase(name.charAt(i - 1))
+                    || (i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1))))) {
+                result.add(name.substring(start, i));
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            result.add(name.substring(start));
+        }
+        return result;
+    }
+
+    /**
+     * 驼峰查询分词：含大写字母或下划线时每个大写字母开始一个词（"SubAT" -> Sub, A, T），
+     * 全小写时每个字符是一个首字母（"sat" -> s, a, t）
+     */
+    static List<String> queryTokens(String query) {
+        List<String> tokens = new ArrayList<>();
+        boolean camel = query.chars().anyMatch(c -> Character.isUpperCase(c) || c == '_');
+        int start = -1;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                if (start >= 0) {
+                    tokens.add(query.substring(start, i));
+                    start = -1;
+                }
+                continue;
+            }
+            if (!camel) {
+                tokens.add(String.valueOf(c));
+            } else if (start < 0) {
+                start = i;
+            } else if (Character.isUpperCase(c)) {
+                tokens.add(query.substring(start, i));
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(query.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * 所有者键：限定名中成员名前一段（方法签名的括号不计入），小写后反转；没有所有者时返回 null
+     */
+    static String owner(String qualifiedName) {
+        if (qualifiedName == null) {
+            return null;
+        }
+        int end = qualifiedName.indexOf('(');
+        int memberDot = qualifiedName.lastIndexOf('.', (end < 0 ? qualifiedName.length() : end) - 1);
+        if (memberDot <= 0) {
+            return null;
+        }
+        int ownerDot = qualifiedName.lastIndexOf('.', memberDot - 1);
+        return reverse(qualifiedName.substring(ownerDot + 1, memberDot).toLowerCase(Locale.ROOT));
+    }
+
+    private static String reverse(String text) {
+        return new StringBuilder(text).reverse().toString();
+    }
+
+    /**
+     * 不区分大小写的包含判断（query 已为小写），不分配新字符串
+     */
+    private static boolean containsIgnoreCase(String text, String query) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + query.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesSegments(List<String> segments, List<String> tokens) {
+        if (segments.size() < tokens.size()) {
+            return false;
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!segments.get(i).regionMatches(true, 0, tokens.get(i), 0, tokens.get(i).length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== 数据模型 ====================
+
+    /**
+     * 匹配结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Match {
+        private CodeEntity entity;
+        private double score;
+        private String reason;
+    }
+
+    /**
+     * 有界 Top-K
+     * <p>
+     * 以名称为单位入堆（同一名称的实体得分相同），堆顶为当前最差的名称；
+     * 去掉堆顶后剩余实体仍不少于 limit 个时淘汰堆顶。取结果时才展开实体并按 id 排序。
+     */
+    private final class TopK {
+
+        /** 得分降序，同分时名称短者、名称字典序小者在前 */
+        private final Comparator<Group> bestFirst = Comparator
+                .comparingDouble((Group g) -> -g.score)
+                .thenComparingInt(g -> names[g.name].length())
+                .thenComparing(g -> names[g.name]);
+
+        private final int limit;
+        private final Set<EntityType> types;
+        private final PriorityQueue<Group> heap;
+        /** 堆中各名称的实体数之和 */
+        private int total;
+
+        TopK(int limit, Set<EntityType> types) {
+            this.limit = limit;
+            this.types = types;
+            this.heap = new PriorityQueue<>(bestFirst.reversed());
+        }
+
+        /**
+         * 已有 limit 个结果且最差的也高于该分数时，分档中的候选都进不了结果
+         */
+        boolean excludes(double maxScore) {
+            return total >= limit && heap.peek().score > maxScore;
+        }
+
+        /**
+         * 进入结果所需的最低得分：结果未满时为 0
+         */
+        double floor() {
+            return total >= limit ? heap.peek().score : 0;
+        }
+
+        /**
+         * 名称下的全部实体
+         */
+        void offerName(int name, double score, String reason) {
+            if (admits(name, score)) {
+                IntList slots = nameSlots[name];
+                int count = types == null ? slots.size : countAccepted(slots);
+                if (count > 0) {
+                    add(new Group(name, null, count, score, reason));
+                }
+            }
+        }
+
+        /**
+         * 名称下的部分实体
+         */
+        void offerSlots(int name, IntList slots, double score, String reason) {
+            if (admits(name, score)) {
+                int count = countAccepted(slots);
+                if (count > 0) {
+                    add(new Group(name, slots, count, score, reason));
+                }
+            }
+        }
+
+        private boolean admits(int name, double score) {
+            if (total < limit) {
+                return true;
+            }
+            Group worst = heap.peek();
+            if (score != worst.score) {
+                return score > worst.score;
+            }
+            String candidate = names[name];
+            String current = names[worst.name];
+            if (candidate.length() != current.length()) {
+                return candidate.length() < current.length();
+            }
+            return candidate.compareTo(current) <= 0;
+        }
+
+        private void add(Group group) {
+            heap.add(group);
+            total += group.count;
+            while (total - heap.peek().count >= limit) {
+                total -= heap.poll().count;
+            }
+        }
+
+        private int countAccepted(IntList slots) {
+            int count = 0;
+            for (int i = 0; i < slots.size; i++) {
+                if (accepts(slotEntities[slots.values[i]])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private boolean accepts(CodeEntity entity) {
+            return types == null || types.contains(entity.getType());
+        }
+
+        List<Match> drain() {
+            List<Group> groups = new ArrayList<>(heap);
+            groups.sort(bestFirst);
+            List<Match> result = new ArrayList<>(Math.min(limit, total));
+            for (Group group : groups) {
+                int remaining = limit - result.size();
+                if (remaining <= 0) {
+                    break;
+                }
+                List<CodeEntity> entities = new ArrayList<>(Math.min(remaining, group.count));
+                IntList slots = group.slots != null ? group.slots : nameSlots[group.name];
+                for (int i = 0; i < slots.size && entities.size() < remaining; i++) {
+                    CodeEntity entity = slotEntities[slots.values[i]];
+                    if (accepts(entity)) {
+                        entities.add(entity);
+                    }
+                }
+                for (CodeEntity entity : entities) {
+                    result.add(new Match(entity, group.score, group.reason));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 一个名称下入选的实体；slots 为 null 表示名称下的全部实体
+     */
+    private record Group(int name, IntList slots, int count, double score, String reason) {
+    }
+
+    /**
+     * 模糊匹配中各名称与查询共有的三元组数；用后按 touched 归零
+     */
+    private static final class SharedCounts {
+        private int[] shared = new int[0];
+        private final IntList touched = new IntList();
+
+        void reset(int capacity) {
+            if (shared.length < capacity) {
+                shared = new int[Math.max(capacity, shared.length * 2)];
+            }
+            touched.size = 0;
+        }
+    }
+
+    /**
+     * 可增长的 int 列表
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void insert(int index, int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void removeAt(int index) {
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+
+        /**
+         * 按槽位对应实体的 id 排序
+         */
+        void sort(CodeEntity[] entities) {
+            Integer[] boxed = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                boxed[i] = values[i];
+            }
+            Arrays.sort(boxed, Comparator.comparing(slot -> entities[slot].getId()));
+            for (int i = 0; i < size; i++) {
+                values[i] = boxed[i];
+            }
+        }
+    }
+}
@@ -7,7 +7,8 @@ import lombok.Data;
  * 混合搜索查询请求
  * 
  * <p>用于HybridSearch模块，融合Graph和Retrieval的能力：
- * - 同时执行结构化搜索和语义搜索
+ * - 同时执行结构化搜索、语义搜索和关键词（BM25）搜索
+ * - 关闭结构化与语义两路时为纯关键词查询，不调用嵌入服务
  * - 支持多种融合策略
  * - 结果去重和排序
  */
@@ -44,6 +45,12 @@ public class HybridQuery {
     @Builder.Default
     private double retrievalWeight = 0.5;
     
+    /**
+     * 关键词（BM25）结果权重（0-1）
+     */
+    @Builder.Default
+    private double lexicalWeight = 0.5;
+    
     /**
      * 是否包含结构化实体（来自Graph）
      */
@@ -56,6 +63,12 @@ public class HybridQuery {
     @Builder.Default
     private boolean includeSemantic = true;
     
+    /**
+     * 是否包含关键词命中的片段（来自 BM25 词法索引）
+     */
+    @Builder.Default
+    private boolean includeLexical = true;
+    
     /**
      * 过滤条件（可选）
      */
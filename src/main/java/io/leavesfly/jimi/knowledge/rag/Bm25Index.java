@@ -0,0 +1,382 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 代码片段的 BM25 倒排索引（词法检索，无需嵌入）
+ * <p>
+ * 分词面向代码：按标识符切分，保留完整标识符（小写），同时拆出 camelCase / snake_case / 字母数字边界的子词，
+ * 因此 "getUserName"、"user_name"、"USER_NAME" 都能被 "user name" 命中，精确标识符仍然排在前面。
+ * <p>
+ * 每个片段分配可复用的整数序号，倒排表为 term → (序号, 词频)，支持增量增删。
+ * 文件：lexical.bin = magic | version | 序号上界 | 每个序号 (id, 长度) | 词项数 | 每个词项 (term, df, (序号, tf)*)
+ */
+final class Bm25Index {
+
+    private static final int MAGIC = 0x4A424D32; // "JBM2"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /** 参与索引的最短 / 最长词长（过长的多为编码数据） */
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final List<String> idByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private int[] lengthByOrdinal = new int[16];
+    private String[][] termsByOrdinal = new String[16][];
+    private long totalLength;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /**
+     * 检索命中（片段 ID + BM25 分数）
+     */
+    record Hit(String id, float score) {
+    }
+
+    synchronized void add(CodeChunk chunk) {
+        remove(chunk.getId());
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(documentText(chunk))) {
+            termFrequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        int ordinal = allocate(chunk.getId());
+        lengthByOrdinal[ordinal] = length;
+        termsByOrdinal[ordinal] = termFrequencies.keySet().toArray(new String[0]);
+        totalLength += length;
+        termFrequencies.forEach((term, tf) -> postings.computeIfAbsent(term, k -> new Postings()).add(ordinal, tf));
+    }
+
+    synchronized void remove(String id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        for (String term : termsByOrdinal[ordinal]) {
+            Postings list = postings.get(term);
+            if (list != null && list.remove(ordinal) && list.size == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengthByOrdinal[ordinal];
+        lengthByOrdinal[ordinal] = 0;
+        termsByOrdinal[ordinal] = null;
+        idByOrdinal.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    synchronized void clear() {
+        ordinalById.clear();
+        idByOrdinal.clear();
+        freeOrdinals.clear();
+        lengthByOrdinal = new int[16];
+        termsByOrdinal = new String[16][];
+        totalLength = 0;
+        postings.clear();
+    }
+
+    synchronized int size() {
+        return ordinalById.size();
+    }
+
+    synchronized boolean contains(String id) {
+        return ordinalById.containsKey(id);
+    }
+
+    /**
+     * BM25 检索
+     *
+     * @param query  查询文本（与文档使用相同分词）
+     * @param topK   返回数量
+     * @param accept 片段 ID 过滤器（只对能进入 TopK 的候选调用），可为 null
+     * @return 按分数降序的命中
+     */
+    synchronized List<Hit> search(String query, int topK, Predicate<String> accept) {
+        int documents = ordinalById.size();
+        if (topK <= 0 || documents == 0 || query == null) {
+            return new ArrayList<>();
+        }
+
+        float avgLength = (float) totalLength / documents;
+        float[] scores = new float[idByOrdinal.size()];
+        int[] touched = new int[Math.min(scores.length, 1024)];
+        int touchedCount = 0;
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Postings list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            float idf = (float) Math.log(1 + (documents - list.size + 0.5) / (list.size + 0.5));
+            for (int i = 0; i < list.size; i++) {
+                int ordinal = list.docs[i];
+                int tf = list.tfs[i];
+                float norm = K1 * (1 - B + B * lengthByOrdinal[ordinal] / avgLength);
+                if (scores[ordinal] == 0f) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.min(scores.length, touched.length * 2));
+                    }
+                    touched[touchedCount++] = ordinal;
+                }
+                scores[ordinal] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        TopKHeap heap = new TopKHeap(topK);
+        for (int i = 0; i < touchedCount; i++) {
+            int ordinal = touched[i];
+            float score = scores[ordinal];
+            if (heap.accepts(score) && (accept == null || accept.test(idByOrdinal.get(ordinal)))) {
+                heap.offer(ordinal, score);
+            }
+        }
+
+        float[] topScores = new float[heap.size()];
+        int[] ordinals = heap.drainDescending(topScores);
+        List<Hit> hits = new ArrayList<>(ordinals.length);
+        for (int i = 0; i < ordinals.length; i++) {
+            hits.add(new Hit(idByOrdinal.get(ordinals[i]), topScores[i]));
+        }
+        return hits;
+    }
+
+    // ==================== 持久化 ====================
+
+    synchronized void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(idByOrdinal.size());
+            for (int ordinal = 0; ordinal < idByOrdinal.size(); ordinal++) {
+                String id = idByOrdinal.get(ordinal);
+                out.writeUTF(id != null ? id : "");
+                out.writeInt(id != null ? lengthByOrdinal[ordinal] : -1);
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                Postings list = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(list.size);
+                for (int i = 0; i < list.size; i++) {
+                    out.writeInt(list.docs[i]);
+                    out.writeInt(list.tfs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取索引文件
+     *
+     * @throws IOException 格式不符时抛出，调用方应从片段重建
+     */
+    static Bm25Index read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported lexical index format: " + file);
+            }
+            Bm25Index index = new Bm25Index();
+            int bound = in.readInt();
+            index.ensureCapacity(bound);
+            for (int ordinal = 0; ordinal < bound; ordinal++) {
+                String id = in.readUTF();
+                int length = in.readInt();
+                if (length < 0) {
+                    index.idByOrdinal.add(null);
+                    index.freeOrdinals.push(ordinal);
+                } else {
+                    index.idByOrdinal.add(id);
+                    index.ordinalById.put(id, ordinal);
+                    index.lengthByOrdinal[ordinal] = length;
+                    index.totalLength += length;
+                }
+            }
+
+            Map<Integer, List<String>> termsByOrdinal = new HashMap<>();
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int df = in.readInt();
+                Postings list = new Postings();
+                for (int i = 0; i < df; i++) {
+                    int ordinal = in.readInt();
+                    int tf = in.readInt();
+                    if (ordinal < 0 || ordinal >= bound || index.idByOrdinal.get(ordinal) == null) {
+                        throw new IOException("Corrupted lexical index: " + file);
+                    }
+                    list.add(ordinal, tf);
+                    termsByOrdinal.computeIfAbsent(ordinal, k -> new ArrayList<>()).add(term);
+                }
+                index.postings.put(term, list);
+            }
+            for (Map.Entry<String, Integer> entry : index.ordinalById.entrySet()) {
+                List<String> terms = termsByOrdinal.get(entry.getValue());
+                index.termsByOrdinal[entry.getValue()] = terms != null ? terms.toArray(new String[0]) : new String[0];
+            }
+            return index;
+        }
+    }
+
+    // ==================== 分词 ====================
+
+    /**
+     * 代码感知分词：完整标识符 + camelCase / snake_case 子词，统一小写
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isIdentifierChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isIdentifierChar(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                addIdentifier(tokens, text, start, i);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static void addIdentifier(List<String> tokens, String text, int start, int end) {
+        String identifier = trimUnderscores(text.substring(start, end));
+        if (identifier.length() < MIN_TOKEN_LENGTH || identifier.length() > MAX_TOKEN_LENGTH) {
+            return;
+        }
+        tokens.add(identifier.toLowerCase(Locale.ROOT));
+
+        // 拆分子词：下划线、小写→大写、连续大写→大写+小写（HTTPServer → HTTP, Server）、字母↔数字
+        List<String> parts = new ArrayList<>();
+        int partStart = 0;
+        for (int p = 1; p <= identifier.length(); p++) {
+            boolean boundary = p == identifier.length();
+            if (!boundary) {
+                char prev = identifier.charAt(p - 1);
+                char c = identifier.charAt(p);
+                boundary = c == '_' || prev == '_'
+                        || (Character.isLowerCase(prev) && Character.isUpperCase(c))
+                        || (Character.isUpperCase(prev) && Character.isUpperCase(c)
+                        && p + 1 < identifier.length() && Character.isLowerCase(identifier.charAt(p + 1)))
+                        || (Character.isDigit(prev) != Character.isDigit(c));
+            }
+            if (boundary) {
+                String part = identifier.substring(partStart, p);
+                if (!part.equals("_")) {
+                    parts.add(part);
+                }
+                partStart = p;
+            }
+        }
+        if (parts.size() > 1) {
+            for (String part : parts) {
+                if (part.length() >= MIN_TOKEN_LENGTH) {
+                    tokens.add(part.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+    }
+
+    private static String trimUnderscores(String identifier) {
+        int start = 0;
+        int end = identifier.length();
+        while (start < end && identifier.charAt(start) == '_') {
+            start++;
+        }
+        while (end > start && identifier.charAt(end - 1) == '_') {
+            end--;
+        }
+        return identifier.substring(start, end);
+    }
+
+    // ==================== 内部实现 ====================
+
+    private static String documentText(CodeChunk chunk) {
+        String content = chunk.getContent() != null ? chunk.getContent() : "";
+        return chunk.getSymbol() != null ? chunk.getSymbol() + "\n" + content : content;
+    }
+
+    private int allocate(String id) {
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = idByOrdinal.size();
+            idByOrdinal.add(id);
+            ensureCapacity(ordinal + 1);
+        } else {
+            ordinal = freeOrdinals.pop();
+            idByOrdinal.set(ordinal, id);
+        }
+        ordinalById.put(id, ordinal);
+        return ordinal;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > lengthByOrdinal.length) {
+            int newCapacity = Math.max(capacity, lengthByOrdinal.length * 2);
+            lengthByOrdinal = Arrays.copyOf(lengthByOrdinal, newCapacity);
+            termsByOrdinal = Arrays.copyOf(termsByOrdinal, newCapacity);
+        }
+    }
+
+    /**
+     * 单个词项的倒排表（序号与词频并列的原始数组）
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] tfs = new int[4];
+        int size;
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    size--;
+                    docs[i] = docs[size];
+                    tfs[i] = tfs[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 片段元数据倒排索引，用于在向量计算之前把 {@link VectorStore.SearchFilter} 解析为候选集合
+ * <p>
+ * 每个片段分配一个整数序号（删除后复用），倒排表均为序号 BitSet：
+ * - language → 片段
+ * - 目录前缀（"src/"、"src/main/" ...）→ 该目录下的全部片段
+ * - updatedAt 有序索引（TreeMap）
+ * - symbol 三元组（trigram）→ 片段
+ * <p>
+ * 语言与时间条件精确求解；filePattern / symbolPattern 为正则，只能从中提取字面前缀 / 必需子串
+ * 得到候选超集，候选仍需用（缓存的）正则复核。
+ */
+final class ChunkFilterIndex {
+
+    private static final int GRAM = 3;
+    private static final String REGEX_META = "\\.[]{}()*+?^$|";
+
+    /** 编译后的正则缓存，避免每个片段重复编译 */
+    private static final Cache<String, Pattern> PATTERN_CACHE = Caffeine.newBuilder()
+            .maximumSize(256)
+            .build();
+
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final List<CodeChunk> chunkByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+
+    private final Map<String, BitSet> byLanguage = new HashMap<>();
+    private final Map<String, BitSet> byDirectory = new HashMap<>();
+    private final NavigableMap<Long, BitSet> byUpdatedAt = new TreeMap<>();
+    private final Map<String, BitSet> bySymbolGram = new HashMap<>();
+    private final BitSet withoutSymbol = new BitSet();
+
+    /**
+     * 获取编译后的正则（缓存）
+     */
+    static Pattern compile(String regex) {
+        return PATTERN_CACHE.get(regex, Pattern::compile);
+    }
+
+    synchronized void add(CodeChunk chunk) {
+        remove(chunk.getId());
+        int ordinal = freeOrdinals.isEmpty() ? chunkByOrdinal.size() : freeOrdinals.pop();
+        if (ordinal == chunkByOrdinal.size()) {
+            chunkByOrdinal.add(chunk);
+        } else {
+            chunkByOrdinal.set(ordinal, chunk);
+        }
+        ordinalById.put(chunk.getId(), ordinal);
+        live.set(ordinal);
+
+        if (chunk.getLanguage() != null) {
+            byLanguage.computeIfAbsent(chunk.getLanguage(), k -> new BitSet()).set(ordinal);
+        }
+        for (String directory : directories(chunk.getFilePath())) {
+            byDirectory.computeIfAbsent(directory, k -> new BitSet()).set(ordinal);
+        }
+        byUpdatedAt.computeIfAbsent(chunk.getUpdatedAt(), k -> new BitSet()).set(ordinal);
+        if (chunk.getSymbol() == null) {
+            withoutSymbol.set(ordinal);
+        } else {
+            for (String gram : grams(chunk.getSymbol())) {
+                bySymbolGram.computeIfAbsent(gram, k -> new BitSet()).set(ordinal);
+            }
+        }
+    }
+
+    synchronized void remove(String id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        CodeChunk chunk = chunkByOrdinal.get(ordinal);
+        chunkByOrdinal.set(ordinal, null);
+        live.clear(ordinal);
+        freeOrdinals.push(ordinal);
+
+        if (chunk.getLanguage() != null) {
+            clear(byLanguage, chunk.getLanguage(), ordinal);
+        }
+        for (String directory : directories(chunk.getFilePath())) {
+            clear(byDirectory, directory, ordinal);
+        }
+        clear(byUpdatedAt, chunk.getUpdatedAt(), ordinal);
+        if (chunk.getSymbol() == null) {
+            withoutSymbol.clear(ordinal);
+        } else {
+            for (String gram : grams(chunk.getSymbol())) {
+                clear(bySymbolGram, gram, ordinal);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        ordinalById.clear();
+        chunkByOrdinal.clear();
+        freeOrdinals.clear();
+        live.clear();
+        byLanguage.clear();
+        byDirectory.clear();
+        byUpdatedAt.clear();
+        bySymbolGram.clear();
+        withoutSymbol.clear();
+    }
+
+    /**
+     * @return 片段序号，未索引时为 -1
+     */
+    synchronized int ordinalOf(String id) {
+        Integer ordinal = ordinalById.get(id);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /** 序号上界（不含） */
+    synchronized int ordinalBound() {
+        return chunkByOrdinal.size();
+    }
+
+    synchronized int size() {
+        return ordinalById.size();
+    }
+
+    /**
+     * 将过滤条件解析为候选序号集合
+     * <p>
+     * 语言与时间条件为精确结果；正则条件为超集，调用方需复核。
+     */
+    synchronized BitSet resolve(VectorStore.SearchFilter filter) {
+        BitSet candidates = (BitSet) live.clone();
+        if (filter == null) {
+            return candidates;
+        }
+
+        if (filter.getLanguage() != null) {
+            candidates.and(byLanguage.getOrDefault(filter.getLanguage(), new BitSet()));
+        }
+
+        if (filter.getMinUpdatedAt() != null && !candidates.isEmpty()) {
+            BitSet recent = new BitSet();
+            for (BitSet ordinals : byUpdatedAt.tailMap(filter.getMinUpdatedAt(), true).values()) {
+                recent.or(ordinals);
+            }
+            candidates.and(recent);
+        }
+
+        if (filter.getFilePattern() != null && !candidates.isEmpty()) {
+            String prefix = literalPrefix(filter.getFilePattern());
+            int slash = prefix.lastIndexOf('/');
+            if (slash >= 0) {
+                candidates.and(byDirectory.getOrDefault(prefix.substring(0, slash + 1), new BitSet()));
+            }
+        }
+
+        if (filter.getSymbolPattern() != null && !candidates.isEmpty()) {
+            Set<String> required = requiredGrams(filter.getSymbolPattern());
+            if (!required.isEmpty()) {
+                // 没有 symbol 的片段不受符号条件约束
+                BitSet symbolMatches = (BitSet) live.clone();
+                for (String gram : required) {
+                    symbolMatches.and(bySymbolGram.getOrDefault(gram, new BitSet()));
+                }
+                symbolMatches.or(withoutSymbol);
+                candidates.and(symbolMatches);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 将过滤条件解析为候选片段 ID（正则条件为超集，调用方需复核）
+     */
+    synchronized List<String> resolveIds(VectorStore.SearchFilter filter) {
+        BitSet ordinals = resolve(filter);
+        List<String> ids = new ArrayList<>(ordinals.cardinality());
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            ids.add(chunkByOrdinal.get(ordinal).getId());
+        }
+        return ids;
+    }
+
+    // ==================== 内部实现 ====================
+
+    private static <K> void clear(Map<K, BitSet> postings, K key, int ordinal) {
+        BitSet ordinals = postings.get(key);
+        if (ordinals != null) {
+            ordinals.clear(ordinal);
+            if (ordinals.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 文件路径的全部目录前缀（以 / 结尾）
+     */
+    private static List<String> directories(String filePath) {
+        List<String> directories = new ArrayList<>();
+        if (filePath == null) {
+            return directories;
+        }
+        int slash = filePath.indexOf('/');
+        while (slash >= 0) {
+            directories.add(filePath.substring(0, slash + 1));
+            slash = filePath.indexOf('/', slash + 1);
+        }
+        return directories;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * 正则匹配整个字符串时必然出现的字面前缀
+     */
+    static String literalPrefix(String regex) {
+        if (hasAlternationOrFlags(regex)) {
+            return "";
+        }
+        List<String> runs = literalRuns(regex, true);
+        return runs.isEmpty() ? "" : runs.get(0);
+    }
+
+    /**
+     * 正则匹配时必然出现的三元组
+     */
+    static Set<String> requiredGrams(String regex) {
+        Set<String> required = new HashSet<>();
+        if (hasAlternationOrFlags(regex)) {
+            return required;
+        }
+        for (String run : literalRuns(regex, false)) {
+            required.addAll(grams(run));
+        }
+        return required;
+    }
+
+    private static boolean hasAlternationOrFlags(String regex) {
+        return regex.contains("|") || regex.contains("(?") || regex.contains("\\Q");
+    }
+
+    /**
+     * 提取正则中连续的字面片段；被量化（? * {）的末尾字符不计入
+     *
+     * @param prefixOnly 只提取开头的第一段
+     */
+    private static List<String> literalRuns(String regex, boolean prefixOnly) {
+        List<String> runs = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal = 0;
+            int next = i + 1;
+            if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                literal = regex.charAt(i + 1);
+                next = i + 2;
+            } else if (REGEX_META.indexOf(c) < 0 && depth == 0) {
+                literal = c;
+            }
+
+            if (literal != 0) {
+                char following = next < regex.length() ? regex.charAt(next) : 0;
+                if (following == '?' || following == '*' || following == '{') {
+                    flush(runs, run);
+                    if (prefixOnly) {
+                        return runs;
+                    }
+                } else {
+                    run.append(literal);
+                }
+                i = next;
+                continue;
+            }
+
+            flush(runs, run);
+            if (prefixOnly) {
+                return runs;
+            }
+            if (c == '[') {
+                // 跳过字符类
+                int end = regex.indexOf(']', i + 2);
+                i = end < 0 ? regex.length() : end + 1;
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+            } else if (c == '\\') {
+                i++;
+            }
+            i++;
+        }
+        flush(runs, run);
+        return runs;
+    }
+
+    private static void flush(List<String> runs, StringBuilder run) {
+        if (run.length() > 0) {
+            runs.add(run.toString());
+            run.setLength(0);
+        }
+    }
+}
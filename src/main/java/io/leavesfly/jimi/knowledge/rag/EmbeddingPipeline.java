@@ -0,0 +1,210 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 嵌入流水线（位于分块与入库之间）
+ * <p>
+ * 功能：
+ * - 按 contentHash 去重：相同内容只嵌入一次，向量共享给所有重复片段
+ * - 微批：将待嵌入片段攒成不超过 batchSize 的批次调用 embedBatch
+ * - 并发：最多 concurrency 个批次同时在途
+ * - 重试：失败批次按指数退避重试 maxRetries 次，仍失败则该批片段不带向量入库
+ * - 统计：嵌入/去重/失败数量与吞吐（chunks/s）
+ * <p>
+ * 流式构建时同一流水线会被多次调用（每个窗口一次），可选的跨调用向量缓存（有界）
+ * 让后续窗口中的重复内容也能复用已嵌入的向量。
+ */
+@Slf4j
+public class EmbeddingPipeline {
+
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(200);
+
+    private final EmbeddingProvider embeddingProvider;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxRetries;
+
+    /** 跨调用的 contentHash → 向量缓存（未启用时为 null） */
+    private final Cache<String, float[]> knownVectors;
+
+    public EmbeddingPipeline(EmbeddingProvider embeddingProvider, int batchSize, int concurrency, int maxRetries) {
+        this(embeddingProvider, batchSize, concurrency, maxRetries, 0);
+    }
+
+    /**
+     * @param dedupCacheSize 跨调用去重缓存的最大条目数（0 表示只在单次调用内去重）
+     */
+    public EmbeddingPipeline(EmbeddingProvider embeddingProvider, int batchSize, int concurrency, int maxRetries,
+                             int dedupCacheSize) {
+        this.embeddingProvider = embeddingProvider;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.knownVectors = dedupCacheSize > 0
+                ? Caffeine.newBuilder().maximumSize(dedupCacheSize).build()
+                : null;
+    }
+
+    /**
+     * 为片段流计算向量
+     *
+     * @param chunks 分块产出的片段流
+     * @return 全部片段（已回填 embedding，失败批次除外）及统计
+     */
+    public Mono<Result> embed(Flux<CodeChunk> chunks) {
+        return Mono.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            List<CodeChunk> allChunks = new ArrayList<>();
+            // contentHash -> 首次出现的片段（代表），其余重复片段最后共享代表的向量
+            Map<String, CodeChunk> representatives = new ConcurrentHashMap<>();
+            AtomicInteger embedded = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            AtomicInteger batches = new AtomicInteger();
+            AtomicInteger retries = new AtomicInteger();
+
+            return chunks
+                    .doOnNext(allChunks::add)
+                    .filter(chunk -> {
+                        String key = dedupKey(chunk);
+                        float[] known = knownVectors != null ? knownVectors.getIfPresent(key) : null;
+                        if (known != null) {
+                            chunk.setEmbedding(known);
+                            return false;
+                        }
+                        return representatives.putIfAbsent(key, chunk) == null;
+                    })
+                    .buffer(batchSize)
+                    .flatMap(batch -> embedBatch(batch, retries)
+                            .doOnNext(count -> {
+                                embedded.addAndGet(count);
+                                batches.incrementAndGet();
+                            })
+                            .onErrorResume(e -> {
+                                log.warn("嵌入批次失败（已重试 {} 次），{} 个片段将不带向量入库: {}",
+                                        maxRetries, batch.size(), e.getMessage());
+                                failed.addAndGet(batch.size());
+                                return Mono.empty();
+                            }), concurrency)
+                    .then(Mono.fromCallable(() -> {
+                        // 重复片段共享代表的向量（没有代表的片段已从跨调用缓存取得向量）
+                        int deduped = 0;
+                        for (CodeChunk chunk : allChunks) {
+                            CodeChunk representative = representatives.get(dedupKey(chunk));
+                            if (representative != chunk) {
+                                if (representative != null) {
+                                    chunk.setEmbedding(representative.getEmbedding());
+                                }
+                                deduped++;
+                            }
+                        }
+                        if (knownVectors != null) {
+                            representatives.forEach((key, representative) -> {
+                                if (representative.getEmbedding() != null) {
+                                    knownVectors.put(key, representative.getEmbedding());
+                                }
+                            });
+                        }
+
+                        long elapsedMs = Math.max(1, System.currentTimeMillis() - startTime);
+                        double chunksPerSecond = allChunks.size() * 1000.0 / elapsedMs;
+                        log.info("嵌入完成: {} chunks, 嵌入 {}, 去重 {}, 失败 {}, {} 批次, 重试 {} 次, {} chunks/s",
+                                allChunks.size(), embedded.get(), deduped, failed.get(),
+                                batches.get(), retries.get(), String.format("%.1f", chunksPerSecond));
+
+                        return Result.builder()
+                                .chunks(allChunks)
+                                .embeddedChunks(embedded.get())
+                                .dedupedChunks(deduped)
+                                .failedChunks(failed.get())
+                                .batches(batches.get())
+                                .retries(retries.get())
+                                .elapsedMs(elapsedMs)
+                                .chunksPerSecond(chunksPerSecond)
+                                .build();
+                    }));
+        });
+    }
+
+    /**
+     * 嵌入一个批次并回填向量，返回回填数量
+     */
+    private Mono<Integer> embedBatch(List<CodeChunk> batch, AtomicInteger retries) {
+        List<String> texts = new ArrayList<>(batch.size());
+        for (CodeChunk chunk : batch) {
+            texts.add(chunk.getContent());
+        }
+
+        return Mono.defer(() -> embeddingProvider.embedBatch(texts))
+                .flatMap(vectors -> {
+                    if (vectors == null || vectors.size() != batch.size()) {
+                        return Mono.error(new IllegalStateException(String.format(
+                                "Embedding count mismatch: expected %d, got %d",
+                                batch.size(), vectors == null ? 0 : vectors.size())));
+                    }
+                    return Mono.just(vectors);
+                })
+                .retryWhen(Retry.backoff(maxRetries, RETRY_BACKOFF)
+                        .doBeforeRetry(signal -> {
+                            retries.incrementAndGet();
+                            log.debug("重试嵌入批次（第 {} 次）: {}", signal.totalRetries() + 1,
+                                    signal.failure().getMessage());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .map(vectors -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).setEmbedding(vectors.get(i));
+                    }
+                    return batch.size();
+                });
+    }
+
+    private static String dedupKey(CodeChunk chunk) {
+        return chunk.getContentHash() != null ? chunk.getContentHash() : "id:" + chunk.getId();
+    }
+
+    /**
+     * 流水线结果
+     */
+    @Data
+    @Builder
+    public static class Result {
+        /** 全部片段（含重复片段） */
+        private List<CodeChunk> chunks;
+
+        /** 实际调用 embedBatch 嵌入的片段数 */
+        private int embeddedChunks;
+
+        /** 因内容重复而复用向量的片段数 */
+        private int dedupedChunks;
+
+        /** 重试后仍失败、未取得向量的片段数 */
+        private int failedChunks;
+
+        /** 成功的批次数 */
+        private int batches;
+
+        /** 重试次数 */
+        private int retries;
+
+        /** 耗时（毫秒） */
+        private long elapsedMs;
+
+        /** 吞吐（chunks/s） */
+        private double chunksPerSecond;
+    }
+}
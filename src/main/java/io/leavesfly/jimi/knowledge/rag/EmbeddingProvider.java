@@ -13,6 +13,7 @@ import java.util.List;
  * - 提供向量维度信息
  * <p>
  * 实现可以是：
+ * - 本地计算（{@link LocalEmbeddingProvider}：特征哈希 + 随机投影）
  * - 本地模型（ONNX、JNI等）
  * - 远程API（OpenAI、通义千问等）
  * - LLM提供商的embedding接口
@@ -49,4 +50,14 @@ public interface EmbeddingProvider {
      * @return 提供者名称
      */
     String getProviderName();
+
+    /**
+     * 获取向量格式标识，写入索引目录
+     * 标识不同的向量不可比较，加载格式不一致的索引会被拒绝（需要重新构建）
+     *
+     * @return 格式标识（默认为 提供者名称:维度）
+     */
+    default String getFormatId() {
+        return getProviderName() + ":" + getDimension();
+    }
 }
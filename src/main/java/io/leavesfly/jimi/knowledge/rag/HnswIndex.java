@@ -0,0 +1,510 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW（Hierarchical Navigable Small World）近似最近邻图
+ * <p>
+ * 参考 Malkov & Yashunin 的算法：
+ * - 分层小世界图，层数按 -ln(U)·mL 随机生成，mL = 1/ln(M)
+ * - 上层贪心下降定位入口，底层以 ef 宽度做 beam search
+ * - 邻居选择使用启发式（保留方向多样的邻居），每层最多 M 个，第 0 层最多 2M 个
+ * <p>
+ * 距离为 1 - 余弦相似度：向量按引用保存（不复制），预先计算范数倒数。
+ * 删除为逻辑删除（墓碑），被删节点仍参与导航但不出现在结果中；墓碑过多时由调用方重建。
+ * <p>
+ * 非线程安全，由 {@link HnswVectorStore} 通过读写锁保护；搜索使用的访问标记为线程私有，可并发执行。
+ */
+final class HnswIndex {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private String[] ids = new String[64];
+    private float[][] vectors = new float[64][];
+    private float[] invNorms = new float[64];
+    /** links[node][level] = {count, neighbor...} */
+    private int[][][] links = new int[64][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> nodeById = new HashMap<>();
+
+    private int size = 0;
+    private int deletedCount = 0;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int dimension = -1;
+
+    /** 线程私有的访问标记（按代数复用，避免每次搜索分配） */
+    private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+    HnswIndex(int m, int efConstruction) {
+        this(m, efConstruction, 42L);
+    }
+
+    HnswIndex(int m, int efConstruction, long seed) {
+        this.m = Math.max(2, m);
+        this.maxM0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 插入向量；同 ID 已存在时先逻辑删除旧节点
+     */
+    void insert(String id, float[] vector) {
+        if (dimension < 0) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Vector dimension mismatch: expected " + dimension
+                    + ", got " + vector.length);
+        }
+        remove(id);
+
+        int node = size++;
+        ensureCapacity(size);
+        ids[node] = id;
+        vectors[node] = vector;
+        invNorms[node] = inverseNorm(vector);
+        nodeById.put(id, node);
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] query = vector;
+        float queryInvNorm = invNorms[node];
+        int current = entryPoint;
+        float currentDistance = distance(query, queryInvNorm, current);
+        for (int l = maxLevel; l > level; l--) {
+            int[] greedy = greedySearch(query, queryInvNorm, current, currentDistance, l);
+            current = greedy[0];
+            currentDistance = Float.intBitsToFloat(greedy[1]);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(query, queryInvNorm, current, efConstruction, l, node2 -> true);
+            List<Candidate> neighbors = selectNeighbors(candidates, m);
+            int[] nodeLinks = links[node][l];
+            for (Candidate neighbor : neighbors) {
+                nodeLinks[++nodeLinks[0]] = neighbor.node;
+            }
+            for (Candidate neighbor : neighbors) {
+                connect(neighbor.node, node, l);
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 逻辑删除
+     *
+     * @return 是否存在并被删除
+     */
+    boolean remove(String id) {
+        Integer node = nodeById.remove(id);
+        if (node == null) {
+            return false;
+        }
+        deleted.set(node);
+        deletedCount++;
+        return true;
+    }
+
+    boolean contains(String id) {
+        return nodeById.containsKey(id);
+    }
+
+    /**
+     * 近似 TopK 搜索
+     *
+     * @param query  查询向量
+     * @param k      返回数量
+     * @param ef     搜索宽度（≥ k）
+     * @param accept 额外的节点过滤条件（已删除节点总是被排除）
+     * @return 按相似度降序的结果
+     */
+    List<Hit> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0 || k <= 0 || query.length != dimension) {
+            return Collections.emptyList();
+        }
+        float queryInvNorm = inverseNorm(query);
+        int current = entryPoint;
+        float currentDistance = distance(query, queryInvNorm, current);
+        for (int l = maxLevel; l > 0; l--) {
+            int[] greedy = greedySearch(query, queryInvNorm, current, currentDistance, l);
+            current = greedy[0];
+            currentDistance = Float.intBitsToFloat(greedy[1]);
+        }
+
+        IntPredicate live = node -> !deleted.get(node) && accept.test(node);
+        List<Candidate> candidates = searchLayer(query, queryInvNorm, current, Math.max(ef, k), 0, live);
+        List<Hit> hits = new ArrayList<>(Math.min(k, candidates.size()));
+        for (Candidate candidate : candidates) {
+            if (!live.test(candidate.node)) {
+                continue;
+            }
+            hits.add(new Hit(ids[candidate.node], 1.0 - candidate.distance));
+            if (hits.size() == k) {
+                break;
+            }
+        }
+        return hits;
+    }
+
+    /** 有效节点数 */
+    int size() {
+        return size - deletedCount;
+    }
+
+    /** 逻辑删除的节点数 */
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    String idOf(int node) {
+        return ids[node];
+    }
+
+    // ==================== 持久化 ====================
+
+    /**
+     * 写出图结构（不含向量，向量由 vectors.bin 提供）
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(dimension);
+        out.writeInt(size);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int node = 0; node < size; node++) {
+            out.writeUTF(ids[node]);
+            out.writeBoolean(deleted.get(node));
+            out.writeInt(links[node].length);
+            for (int[] levelLinks : links[node]) {
+                out.writeInt(levelLinks[0]);
+                for (int i = 1; i <= levelLinks[0]; i++) {
+                    out.writeInt(levelLinks[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取图结构，向量通过 vectorLookup 按 ID 获取
+     *
+     * @throws IOException 格式不符、参数不一致或向量缺失时抛出，调用方应重建
+     */
+    static HnswIndex read(DataInputStream in, int expectedM, Function<String, float[]> vectorLookup) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported HNSW index format");
+        }
+        int m = in.readInt();
+        int efConstruction = in.readInt();
+        if (m != expectedM) {
+            throw new IOException("HNSW parameter M changed: " + m + " -> " + expectedM);
+        }
+        HnswIndex index = new HnswIndex(m, efConstruction);
+        index.dimension = in.readInt();
+        int size = in.readInt();
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        index.ensureCapacity(size);
+
+        for (int node = 0; node < size; node++) {
+            String id = in.readUTF();
+            boolean isDeleted = in.readBoolean();
+            int levels = in.readInt();
+            int[][] nodeLinks = new int[levels][];
+            for (int l = 0; l < levels; l++) {
+                int count = in.readInt();
+                nodeLinks[l] = new int[index.maxConnections(l) + 1];
+                nodeLinks[l][0] = count;
+                for (int i = 1; i <= count; i++) {
+                    nodeLinks[l][i] = in.readInt();
+                }
+            }
+
+            float[] vector = isDeleted ? null : vectorLookup.apply(id);
+            if (!isDeleted && (vector == null || vector.length != index.dimension)) {
+                throw new IOException("Vector missing for HNSW node: " + id);
+            }
+            index.ids[node] = id;
+            index.links[node] = nodeLinks;
+            if (isDeleted) {
+                // 墓碑节点仍参与导航，用零向量占位（距离恒为 1）
+                index.vectors[node] = new float[index.dimension];
+                index.invNorms[node] = 0f;
+                index.deleted.set(node);
+                index.deletedCount++;
+            } else {
+                index.vectors[node] = vector;
+                index.invNorms[node] = inverseNorm(vector);
+                index.nodeById.put(id, node);
+            }
+        }
+        index.size = size;
+        return index;
+    }
+
+    // ==================== 内部实现 ====================
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        double u = 1.0 - random.nextDouble();
+        return (int) Math.floor(-Math.log(u) * levelMultiplier);
+    }
+
+    /**
+     * 在某一层贪心下降，返回 {节点, 距离的 float bits}
+     */
+    private int[] greedySearch(float[] query, float queryInvNorm, int start, float startDistance, int level) {
+        int current = start;
+        float currentDistance = startDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = links[current].length > level ? links[current][level] : null;
+            if (neighbors == null) {
+                break;
+            }
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int candidate = neighbors[i];
+                float d = distance(query, queryInvNorm, candidate);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return new int[]{current, Float.floatToIntBits(currentDistance)};
+    }
+
+    /**
+     * 单层 beam search，返回按距离升序的候选（最多 ef 个）
+     * 只有满足 accept 的节点计入结果集，但所有节点都参与扩展
+     */
+    private List<Candidate> searchLayer(float[] query, float queryInvNorm, int entry, int ef, int level,
+                                        IntPredicate accept) {
+        VisitedMarks visited = visitedMarks.get();
+        visited.reset(size);
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(c -> c.distance));
+        PriorityQueue<Candidate> results = new PriorityQueue<>((a, b) -> Float.compare(b.distance, a.distance));
+
+        Candidate first = new Candidate(entry, distance(query, queryInvNorm, entry));
+        visited.mark(entry);
+        candidates.add(first);
+        if (accept.test(entry)) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.distance > results.peek().distance) {
+                break;
+            }
+            int[] neighbors = links[closest.node].length > level ? links[closest.node][level] : null;
+            if (neighbors == null) {
+                continue;
+            }
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!visited.mark(neighbor)) {
+                    continue;
+                }
+                float d = distance(query, queryInvNorm, neighbor);
+                if (results.size() < ef || d < results.peek().distance) {
+                    Candidate candidate = new Candidate(neighbor, d);
+                    candidates.add(candidate);
+                    if (accept.test(neighbor)) {
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(c -> c.distance));
+        if (sorted.isEmpty()) {
+            sorted.add(first);
+        }
+        return sorted;
+    }
+
+    /**
+     * 启发式邻居选择：候选按距离升序，仅当候选离查询点比离已选邻居都近时才选入，
+     * 不足 maxCount 时用被跳过的候选补齐
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> sortedCandidates, int maxCount) {
+        if (sortedCandidates.size() <= maxCount) {
+            return sortedCandidates;
+        }
+        List<Candidate> selected = new ArrayList<>(maxCount);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : sortedCandidates) {
+            if (selected.size() >= maxCount) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (nodeDistance(candidate.node, chosen.node) < candidate.distance) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < maxCount; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * 为已有节点添加一条反向连接，超出上限时重新做邻居选择
+     */
+    private void connect(int node, int newNeighbor, int level) {
+        int[] nodeLinks = links[node][level];
+        int maxCount = maxConnections(level);
+        if (nodeLinks[0] < maxCount) {
+            nodeLinks[++nodeLinks[0]] = newNeighbor;
+            return;
+        }
+
+        List<Candidate> candidates = new ArrayList<>(maxCount + 1);
+        for (int i = 1; i <= nodeLinks[0]; i++) {
+            candidates.add(new Candidate(nodeLinks[i], nodeDistance(node, nodeLinks[i])));
+        }
+        candidates.add(new Candidate(newNeighbor, nodeDistance(node, newNeighbor)));
+        candidates.sort(Comparator.comparingDouble(c -> c.distance));
+
+        List<Candidate> selected = selectNeighbors(candidates, maxCount);
+        nodeLinks[0] = selected.size();
+        for (int i = 0; i < selected.size(); i++) {
+            nodeLinks[i + 1] = selected.get(i).node;
+        }
+    }
+
+    private float distance(float[] query, float queryInvNorm, int node) {
+        float[] vector = vectors[node];
+        float dot = 0f;
+        for (int i = 0; i < vector.length; i++) {
+            dot += query[i] * vector[i];
+        }
+        return 1f - dot * queryInvNorm * invNorms[node];
+    }
+
+    private float nodeDistance(int a, int b) {
+        return distance(vectors[a], invNorms[a], b);
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return sum > 0 ? (float) (1.0 / Math.sqrt(sum)) : 0f;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        vectors = Arrays.copyOf(vectors, newCapacity);
+        invNorms = Arrays.copyOf(invNorms, newCapacity);
+        links = Arrays.copyOf(links, newCapacity);
+    }
+
+    /**
+     * 搜索候选（节点 + 到查询点的距离）
+     */
+    private record Candidate(int node, float distance) {
+    }
+
+    /**
+     * 搜索命中（片段 ID + 余弦相似度）
+     */
+    record Hit(String id, double score) {
+    }
+
+    /**
+     * 基于代数的访问标记，reset 为 O(1)（仅在容量不足或代数溢出时清零）
+     */
+    private static final class VisitedMarks {
+        private int[] marks = new int[0];
+        private int generation = 0;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * @return 首次访问返回 true
+         */
+        boolean mark(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
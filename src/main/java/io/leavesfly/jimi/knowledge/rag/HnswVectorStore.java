@@ -0,0 +1,275 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * 基于 HNSW 图的向量存储实现
+ * <p>
+ * 特点：
+ * - 片段元数据、向量持久化与 MD5 缓存沿用 {@link InMemoryVectorStore}
+ * - 额外维护 HNSW 近似最近邻图，查询复杂度约 O(log N)，替代线性扫描
+ * - 支持增量插入与删除（删除为墓碑，保存时墓碑过多则重建压缩）
+ * - 图结构持久化为索引目录下的 hnsw.bin（与 vectors.bin 同目录），加载失败时自动重建
+ * <p>
+ * 搜索策略：
+ * - 片段数较少时直接精确搜索
+ * - 过滤条件选择性很高（按元数据倒排索引估计命中率低于阈值）时退回精确搜索（只扫描候选），
+ *   否则在图上搜索并按过滤条件跳过不符合的节点，ef 按命中率放大
+ */
+@Slf4j
+public class HnswVectorStore extends InMemoryVectorStore {
+
+    static final String GRAPH_FILE = "hnsw.bin";
+
+    /** 低于该片段数时直接精确搜索 */
+    private static final int EXACT_SEARCH_THRESHOLD = 1000;
+
+    /** 过滤命中率低于该值时退回精确搜索 */
+    private static final double SELECTIVE_FILTER_RATIO = 0.1;
+
+    /** 墓碑占比超过该值时在保存前重建图 */
+    private static final double COMPACT_RATIO = 0.3;
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private HnswIndex index;
+
+    public HnswVectorStore(ObjectMapper objectMapper, int m, int efConstruction, int efSearch) {
+        super(objectMapper);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = Math.max(1, efSearch);
+        this.index = new HnswIndex(m, efConstruction);
+    }
+
+    @Override
+    protected void afterInsert(List<CodeChunk> inserted) {
+        withWriteLock(() -> inserted.forEach(this::insert));
+    }
+
+    @Override
+    public Mono<Boolean> delete(String id) {
+        return super.delete(id).map(removed -> {
+            withWriteLock(() -> index.remove(id));
+            return removed;
+        });
+    }
+
+    @Override
+    public Mono<Integer> deleteByFilePath(String filePath) {
+        return Mono.fromCallable(() -> {
+            List<String> ids = new ArrayList<>();
+            for (CodeChunk chunk : allChunks()) {
+                if (chunk.getFilePath().equals(filePath)) {
+                    ids.add(chunk.getId());
+                }
+            }
+            withWriteLock(() -> ids.forEach(index::remove));
+            return ids;
+        }).flatMap(ids -> super.deleteByFilePath(filePath));
+    }
+
+    @Override
+    public Mono<List<SearchResult>> search(float[] queryVector, int topK) {
+        return search(queryVector, topK, null);
+    }
+
+    @Override
+    public Mono<List<SearchResult>> search(float[] queryVector, int topK, SearchFilter filter) {
+        return Mono.defer(() -> {
+            int indexed = readIndex(HnswIndex::size);
+            if (indexed < EXACT_SEARCH_THRESHOLD) {
+                return super.search(queryVector, topK, filter);
+            }
+
+            double selectivity = filter == null ? 1.0 : estimateSelectivity(filter);
+            if (selectivity < SELECTIVE_FILTER_RATIO) {
+                log.debug("Filter selectivity {} below threshold, using exact search", selectivity);
+                return super.search(queryVector, topK, filter);
+            }
+
+            return Mono.fromCallable(() -> {
+                int ef = (int) Math.ceil(Math.max(efSearch, topK) / selectivity);
+                List<SearchResult> results = new ArrayList<>(topK);
+                lock.readLock().lock();
+                try {
+                    List<HnswIndex.Hit> hits = index.search(queryVector, topK, ef, node -> {
+                        if (filter == null) {
+                            return true;
+                        }
+                        CodeChunk chunk = getChunk(index.idOf(node));
+                        return chunk != null && matchesFilter(chunk, filter);
+                    });
+                    for (HnswIndex.Hit hit : hits) {
+                        CodeChunk chunk = getChunk(hit.id());
+                        if (chunk != null) {
+                            results.add(SearchResult.builder().chunk(chunk).score(hit.score()).build());
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                log.debug("HNSW search completed: {} results (topK={}, ef={})", results.size(), topK, ef);
+                return results;
+            });
+        });
+    }
+
+    @Override
+    public Mono<IndexStats> getStats() {
+        return super.getStats().map(stats -> {
+            stats.setStorageType("hnsw");
+            return stats;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> clear() {
+        return super.clear().map(cleared -> {
+            withWriteLock(() -> index = new HnswIndex(m, efConstruction));
+            return cleared;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> save() {
+        return super.save().map(saved -> {
+            if (!saved) {
+                return false;
+            }
+            Path graphFile = resolveIndexPath().resolve(GRAPH_FILE);
+            lock.writeLock().lock();
+            try {
+                if (index.deletedCount() > 0 && index.deletedCount() > COMPACT_RATIO * (index.size() + index.deletedCount())) {
+                    log.info("Compacting HNSW graph ({} tombstones)", index.deletedCount());
+                    rebuild();
+                }
+                Path tempFile = graphFile.resolveSibling(GRAPH_FILE + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    index.write(out);
+                }
+                Files.move(tempFile, graphFile, StandardCopyOption.REPLACE_EXISTING);
+                log.info("Saved HNSW graph: {} nodes to {}", index.size(), graphFile);
+                return true;
+            } catch (IOException e) {
+                log.error("Failed to save HNSW graph", e);
+                return false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<Boolean> load(Path indexPath) {
+        return super.load(indexPath).map(loaded -> {
+            if (!loaded) {
+                return false;
+            }
+            withWriteLock(() -> {
+                if (!loadGraph(indexPath.resolve(GRAPH_FILE))) {
+                    rebuild();
+                    log.info("Rebuilt HNSW graph: {} nodes", index.size());
+                }
+            });
+            return true;
+        });
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void insert(CodeChunk chunk) {
+        float[] embedding = chunk.getEmbedding();
+        if (embedding == null || embedding.length == 0) {
+            index.remove(chunk.getId());
+            return;
+        }
+        try {
+            index.insert(chunk.getId(), embedding);
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping chunk {} in HNSW graph: {}", chunk.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 从当前片段重建图（需持有写锁）
+     */
+    private void rebuild() {
+        index = new HnswIndex(m, efConstruction);
+        for (CodeChunk chunk : allChunks()) {
+            insert(chunk);
+        }
+    }
+
+    /**
+     * 读取持久化的图（需持有写锁），与片段不一致时返回 false
+     */
+    private boolean loadGraph(Path graphFile) {
+        if (!Files.exists(graphFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graphFile)))) {
+            HnswIndex loaded = HnswIndex.read(in, m, id -> {
+                CodeChunk chunk = getChunk(id);
+                return chunk != null ? chunk.getEmbedding() : null;
+            });
+            long embedded = allChunks().stream()
+                    .filter(chunk -> chunk.getEmbedding() != null && chunk.getEmbedding().length > 0)
+                    .count();
+            if (loaded.size() != embedded) {
+                log.info("HNSW graph out of sync with chunks ({} vs {}), rebuilding", loaded.size(), embedded);
+                return false;
+            }
+            index = loaded;
+            log.info("Loaded HNSW graph: {} nodes from {}", index.size(), graphFile);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to load HNSW graph {}, rebuilding: {}", graphFile, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 用元数据倒排索引估计过滤条件的命中率（正则条件为上界）
+     */
+    private double estimateSelectivity(SearchFilter filter) {
+        int total = allChunks().size();
+        return total == 0 ? 0.0 : (double) countFilterCandidates(filter) / total;
+    }
+
+    private int readIndex(ToIntFunction<HnswIndex> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.applyAsInt(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -6,12 +6,16 @@ import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -19,19 +23,46 @@ import java.util.stream.Collectors;
  * <p>
  * 特点：
  * - 纯内存存储（快速但不持久）
- * - 支持线性扫描相似度搜索
+ * - 支持线性扫描相似度搜索（分区原始数组 + 定长 TopK 堆，大规模时 ForkJoin 并行）
+ * - 元数据倒排索引：过滤条件先解析为候选集合，只对候选做向量计算
+ * - BM25 词法索引：精确标识符、错误信息等关键词检索，无需嵌入
  * - 可选持久化到文件
  * <p>
  * 适合场景：
  * - 小型项目（< 10000个片段）
  * - 原型开发和测试
- * - 后续可替换为基于索引的实现（HNSW等）
+ * - 大规模索引可使用基于 HNSW 图的 {@link HnswVectorStore}
  */
 @Slf4j
 public class InMemoryVectorStore implements VectorStore {
 
+    /** 向量文件名 */
+    protected static final String VECTORS_FILE = "vectors.bin";
+
+    /** BM25 词法索引文件名 */
+    private static final String LEXICAL_FILE = "lexical.bin";
+
+    /** 向量格式标识文件名 */
+    private static final String FORMAT_FILE = "embedding_format";
+
     private final Map<String, CodeChunk> chunks = new ConcurrentHashMap<>();
     private final Map<String, String> fileMD5Cache = new ConcurrentHashMap<>();
+
+    /** 每个扫描分区的行数 */
+    private static final int PARTITION_ROWS = 4096;
+
+    /** 达到该行数时并行扫描 */
+    private static final int PARALLEL_THRESHOLD = 32_768;
+
+    /** 片段集合的修改版本，用于判断扫描快照是否过期 */
+    private final AtomicLong version = new AtomicLong();
+    private volatile VectorSnapshot snapshot;
+
+    /** 语言 / 目录 / 更新时间 / 符号三元组倒排索引 */
+    private final ChunkFilterIndex filterIndex = new ChunkFilterIndex();
+
+    /** 片段内容的 BM25 倒排索引 */
+    private volatile Bm25Index lexicalIndex = new Bm25Index();
     private final ObjectMapper objectMapper;
     private Path indexPath;
     
@@ -46,6 +77,9 @@ public class InMemoryVectorStore implements VectorStore {
      */
     private String configuredIndexPath;
 
+    /** 当前嵌入提供者的向量格式标识（null 表示不校验） */
+    private volatile String embeddingFormat;
+
     public InMemoryVectorStore(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
     }
@@ -96,7 +130,7 @@ public class InMemoryVectorStore implements VectorStore {
      * 
      * @return 索引路径
      */
-    private Path resolveIndexPath() {
+    protected Path resolveIndexPath() {
         if (indexPath != null) {
             return indexPath;
         }
@@ -107,10 +141,46 @@ public class InMemoryVectorStore implements VectorStore {
         return null;
     }
 
+    /**
+     * 当前全部片段（只读视图，供基于索引的子类使用）
+     */
+    protected Collection<CodeChunk> allChunks() {
+        return Collections.unmodifiableCollection(chunks.values());
+    }
+
+    /**
+     * 按 ID 获取片段
+     */
+    protected CodeChunk getChunk(String id) {
+        return chunks.get(id);
+    }
+
+    /**
+     * 转换为保存在片段表中的形式（子类可去掉已另行存放的数据，默认原样保存）
+     */
+    protected CodeChunk toStoredChunk(CodeChunk chunk) {
+        return chunk;
+    }
+
+    /**
+     * 片段写入片段表之后、索引版本递增之前调用，子类在此更新自己的向量索引
+     * <p>
+     * 版本递增之后才对检索可见，保证按新版本缓存的检索结果已包含这些片段。
+     *
+     * @param inserted 调用方传入的原始片段（含 embedding）
+     */
+    protected void afterInsert(List<CodeChunk> inserted) {
+    }
+
     @Override
     public Mono<Boolean> add(CodeChunk chunk) {
         return Mono.fromCallable(() -> {
-            chunks.put(chunk.getId(), chunk);
+            CodeChunk stored = toStoredChunk(chunk);
+            chunks.put(stored.getId(), stored);
+            filterIndex.add(stored);
+            lexicalIndex.add(stored);
+            afterInsert(List.of(chunk));
+            version.incrementAndGet();
             log.debug("Added chunk: {}", chunk.getDescription());
             return true;
         });
@@ -121,9 +191,14 @@ public class InMemoryVectorStore implements VectorStore {
         return Mono.fromCallable(() -> {
             int count = 0;
             for (CodeChunk chunk : chunkList) {
-                chunks.put(chunk.getId(), chunk);
+                CodeChunk stored = toStoredChunk(chunk);
+                chunks.put(stored.getId(), stored);
+                filterIndex.add(stored);
+                lexicalIndex.add(stored);
                 count++;
             }
+            afterInsert(chunkList);
+            version.incrementAndGet();
             log.info("Added {} chunks to index", count);
             return count;
         });
@@ -133,6 +208,9 @@ public class InMemoryVectorStore implements VectorStore {
     public Mono<Boolean> delete(String id) {
         return Mono.fromCallable(() -> {
             CodeChunk removed = chunks.remove(id);
+            filterIndex.remove(id);
+            lexicalIndex.remove(id);
+            version.incrementAndGet();
             return removed != null;
         });
     }
@@ -145,7 +223,12 @@ public class InMemoryVectorStore implements VectorStore {
                     .map(CodeChunk::getId)
                     .collect(Collectors.toList());
             
-            toRemove.forEach(chunks::remove);
+            for (String id : toRemove) {
+                chunks.remove(id);
+                filterIndex.remove(id);
+                lexicalIndex.remove(id);
+            }
+            version.incrementAndGet();
             log.info("Deleted {} chunks from file: {}", toRemove.size(), filePath);
             return toRemove.size();
         });
@@ -159,40 +242,85 @@ public class InMemoryVectorStore implements VectorStore {
     @Override
     public Mono<List<SearchResult>> search(float[] queryVector, int topK, SearchFilter filter) {
         return Mono.fromCallable(() -> {
-            List<SearchResult> results = new ArrayList<>();
-
-            for (CodeChunk chunk : chunks.values()) {
-                // 应用过滤条件
-                if (filter != null && !matchesFilter(chunk, filter)) {
-                    continue;
-                }
-
-                // 检查是否有向量
-                if (chunk.getEmbedding() == null || chunk.getEmbedding().length == 0) {
-                    continue;
-                }
+            VectorSnapshot current = currentSnapshot();
+            if (topK <= 0 || current.rows() == 0 || queryVector.length != current.dimension) {
+                return new ArrayList<SearchResult>();
+            }
 
-                // 计算余弦相似度
-                double score = cosineSimilarity(queryVector, chunk.getEmbedding());
+            // 查询向量只归一化一次，行向量范数在快照中预先计算
+            float[] query = new float[queryVector.length];
+            float queryInvNorm = inverseNorm(queryVector);
+            for (int i = 0; i < query.length; i++) {
+                query[i] = queryVector[i] * queryInvNorm;
+            }
 
+            // 有过滤条件时先由倒排索引求出候选行，只对候选做向量计算
+            int[] candidateRows = filter != null ? current.rowsOf(filterIndex.resolve(filter)) : null;
+            int positions = candidateRows != null ? candidateRows.length : current.rows();
+            ScanTask task = new ScanTask(current, query, topK, filter, candidateRows, 0, positions);
+            TopKHeap heap = positions >= PARALLEL_THRESHOLD
+                    ? ForkJoinPool.commonPool().invoke(task)
+                    : task.compute();
+
+            float[] scores = new float[heap.size()];
+            int[] rows = heap.drainDescending(scores);
+            List<SearchResult> results = new ArrayList<>(rows.length);
+            for (int i = 0; i < rows.length; i++) {
                 results.add(SearchResult.builder()
-                        .chunk(chunk)
-                        .score(score)
+                        .chunk(current.chunks[rows[i]])
+                        .score(scores[i])
                         .build());
             }
 
-            // 按分数降序排序，取TopK
-            results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
-            
-            if (results.size() > topK) {
-                results = results.subList(0, topK);
-            }
-
             log.debug("Search completed: {} results (topK={})", results.size(), topK);
             return results;
         });
     }
 
+    @Override
+    public Mono<List<SearchResult>> lexicalSearch(String query, int topK, SearchFilter filter) {
+        return Mono.fromCallable(() -> {
+            List<SearchResult> results = new ArrayList<>();
+            // 并发删除的片段可能仍留在词法索引中，视为不匹配
+            for (Bm25Index.Hit hit : lexicalIndex.search(query, topK, id -> {
+                CodeChunk candidate = chunks.get(id);
+                return candidate != null && (filter == null || matchesFilter(candidate, filter));
+            })) {
+                CodeChunk chunk = chunks.get(hit.id());
+                if (chunk != null) {
+                    results.add(SearchResult.builder().chunk(chunk).score(hit.score()).build());
+                }
+            }
+            log.debug("Lexical search completed: {} results (topK={})", results.size(), topK);
+            return results;
+        });
+    }
+
+    /**
+     * 获取与当前片段集合一致的扫描快照，过期时重建
+     */
+    private VectorSnapshot currentSnapshot() {
+        VectorSnapshot current = snapshot;
+        long currentVersion = version.get();
+        if (current != null && current.version == currentVersion) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            currentVersion = version.get();
+            if (current == null || current.version != currentVersion) {
+                current = VectorSnapshot.build(currentVersion, chunks.values(), filterIndex);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    @Override
+    public long getIndexVersion() {
+        return version.get();
+    }
+
     @Override
     public Mono<IndexStats> getStats() {
         return Mono.fromCallable(() -> {
@@ -223,11 +351,20 @@ public class InMemoryVectorStore implements VectorStore {
         return Mono.fromCallable(() -> {
             int before = chunks.size();
             chunks.clear();
+            filterIndex.clear();
+            lexicalIndex.clear();
+            version.incrementAndGet();
+            fileMD5Cache.clear();
             log.info("Cleared {} chunks from index", before);
             return true;
         });
     }
 
+    @Override
+    public void setEmbeddingFormat(String formatId) {
+        this.embeddingFormat = formatId;
+    }
+
     @Override
     public Mono<Boolean> save() {
         Path savePath = resolveIndexPath();
@@ -256,30 +393,12 @@ public class InMemoryVectorStore implements VectorStore {
                     }
                 }
 
-                // 保存向量为二进制文件
-                Path vectorsFile = savePath.resolve("vectors.bin");
-                try (DataOutputStream dos = new DataOutputStream(
-                        new BufferedOutputStream(Files.newOutputStream(vectorsFile,
-                                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)))) {
-                    
-                    for (CodeChunk chunk : chunks.values()) {
-                        // 写入chunk ID长度和ID
-                        byte[] idBytes = chunk.getId().getBytes();
-                        dos.writeInt(idBytes.length);
-                        dos.write(idBytes);
-                        
-                        // 写入向量
-                        float[] embedding = chunk.getEmbedding();
-                        if (embedding != null) {
-                            dos.writeInt(embedding.length);
-                            for (float v : embedding) {
-                                dos.writeFloat(v);
-                            }
-                        } else {
-                            dos.writeInt(0);
-                        }
-                    }
+                // 保存向量及其格式标识
+                saveVectors(savePath);
+                if (embeddingFormat != null) {
+                    Files.writeString(savePath.resolve(FORMAT_FILE), embeddingFormat, StandardCharsets.UTF_8);
                 }
+                lexicalIndex.write(savePath.resolve(LEXICAL_FILE));
 
                 log.info("Saved {} chunks to {}", chunks.size(), savePath);
                 
@@ -307,13 +426,23 @@ public class InMemoryVectorStore implements VectorStore {
             }
 
             Path chunksFile = indexPath.resolve("chunks.jsonl");
-            Path vectorsFile = indexPath.resolve("vectors.bin");
 
-            if (!Files.exists(chunksFile) || !Files.exists(vectorsFile)) {
+            if (!Files.exists(chunksFile) || !hasVectorData(indexPath)) {
                 log.warn("Index files not found in: {}", indexPath);
                 return false;
             }
 
+            // 不同嵌入提供者的向量不可比较，格式不一致时不加载，需要重新构建
+            Path formatFile = indexPath.resolve(FORMAT_FILE);
+            if (embeddingFormat != null && Files.exists(formatFile)) {
+                String savedFormat = Files.readString(formatFile, StandardCharsets.UTF_8).strip();
+                if (!embeddingFormat.equals(savedFormat)) {
+                    log.warn("Index at {} was built with embedding format {}, current is {}; rebuild required",
+                            indexPath, savedFormat, embeddingFormat);
+                    return false;
+                }
+            }
+
             try {
                 // 加载chunk元数据
                 Map<String, CodeChunk> loadedChunks = new HashMap<>();
@@ -328,37 +457,15 @@ public class InMemoryVectorStore implements VectorStore {
                 }
 
                 // 加载向量
-                try (DataInputStream dis = new DataInputStream(
-                        new BufferedInputStream(Files.newInputStream(vectorsFile)))) {
-                    
-                    while (dis.available() > 0) {
-                        // 读取chunk ID
-                        int idLength = dis.readInt();
-                        byte[] idBytes = new byte[idLength];
-                        dis.readFully(idBytes);
-                        String chunkId = new String(idBytes);
-                        
-                        // 读取向量
-                        int vectorLength = dis.readInt();
-                        float[] embedding = null;
-                        if (vectorLength > 0) {
-                            embedding = new float[vectorLength];
-                            for (int i = 0; i < vectorLength; i++) {
-                                embedding[i] = dis.readFloat();
-                            }
-                        }
-                        
-                        // 设置向量到chunk
-                        CodeChunk chunk = loadedChunks.get(chunkId);
-                        if (chunk != null) {
-                            chunk.setEmbedding(embedding);
-                        }
-                    }
-                }
+                loadVectors(indexPath, loadedChunks);
 
                 // 更新到内存
                 chunks.clear();
                 chunks.putAll(loadedChunks);
+                filterIndex.clear();
+                loadedChunks.values().forEach(filterIndex::add);
+                lexicalIndex = loadLexicalIndex(indexPath, loadedChunks);
+                version.incrementAndGet();
 
                 // 加载MD5缓存
                 Path md5File = indexPath.resolve("md5_cache.json");
@@ -389,44 +496,277 @@ public class InMemoryVectorStore implements VectorStore {
     }
 
     /**
-     * 计算余弦相似度
+     * 索引目录中是否存在向量数据
+     */
+    protected boolean hasVectorData(Path indexPath) {
+        return Files.exists(indexPath.resolve(VECTORS_FILE));
+    }
+
+    /**
+     * 保存向量为二进制文件 vectors.bin
+     * 格式：每个片段 idLength(int) | idBytes | dim(int，无向量时为 0) | dim 个 float
      */
-    private double cosineSimilarity(float[] a, float[] b) {
-        if (a.length != b.length) {
-            return 0.0;
+    protected void saveVectors(Path savePath) throws IOException {
+        Path vectorsFile = savePath.resolve(VECTORS_FILE);
+        try (DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(vectorsFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)))) {
+
+            for (CodeChunk chunk : chunks.values()) {
+                // 写入chunk ID长度和ID
+                byte[] idBytes = chunk.getId().getBytes();
+                dos.writeInt(idBytes.length);
+                dos.write(idBytes);
+
+                // 写入向量
+                float[] embedding = chunk.getEmbedding();
+                if (embedding != null) {
+                    dos.writeInt(embedding.length);
+                    for (float v : embedding) {
+                        dos.writeFloat(v);
+                    }
+                } else {
+                    dos.writeInt(0);
+                }
+            }
         }
+    }
 
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+    /**
+     * 从 vectors.bin 加载向量并回填到片段
+     *
+     * @param indexPath    索引目录
+     * @param loadedChunks 已加载的片段（尚未替换到内存）
+     */
+    protected void loadVectors(Path indexPath, Map<String, CodeChunk> loadedChunks) throws IOException {
+        Path vectorsFile = indexPath.resolve(VECTORS_FILE);
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(vectorsFile)))) {
+
+            while (dis.available() > 0) {
+                // 读取chunk ID
+                int idLength = dis.readInt();
+                byte[] idBytes = new byte[idLength];
+                dis.readFully(idBytes);
+                String chunkId = new String(idBytes);
+
+                // 读取向量
+                int vectorLength = dis.readInt();
+                float[] embedding = null;
+                if (vectorLength > 0) {
+                    embedding = new float[vectorLength];
+                    for (int i = 0; i < vectorLength; i++) {
+                        embedding[i] = dis.readFloat();
+                    }
+                }
 
-        for (int i = 0; i < a.length; i++) {
-            dotProduct += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
+                // 设置向量到chunk
+                CodeChunk chunk = loadedChunks.get(chunkId);
+                if (chunk != null) {
+                    chunk.setEmbedding(embedding);
+                }
+            }
         }
+    }
 
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
+    /**
+     * 加载 lexical.bin，缺失或与片段不一致时从片段内容重建
+     */
+    private Bm25Index loadLexicalIndex(Path indexPath, Map<String, CodeChunk> loadedChunks) {
+        Path lexicalFile = indexPath.resolve(LEXICAL_FILE);
+        if (Files.exists(lexicalFile)) {
+            try {
+                Bm25Index loaded = Bm25Index.read(lexicalFile);
+                if (loaded.size() == loadedChunks.size() && loadedChunks.keySet().stream().allMatch(loaded::contains)) {
+                    return loaded;
+                }
+                log.info("Lexical index out of sync with chunks, rebuilding");
+            } catch (IOException e) {
+                log.warn("Failed to load lexical index, rebuilding: {}", e.getMessage());
+            }
         }
+        Bm25Index rebuilt = new Bm25Index();
+        loadedChunks.values().forEach(rebuilt::add);
+        return rebuilt;
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double sum = 0.0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return sum > 0 ? (float) (1.0 / Math.sqrt(sum)) : 0f;
+    }
+
+    /**
+     * 统计满足过滤条件的候选片段数（基于倒排索引，正则条件为上界）
+     */
+    protected int countFilterCandidates(SearchFilter filter) {
+        return filterIndex.resolve(filter).cardinality();
+    }
 
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    /**
+     * 满足过滤条件的候选片段 ID（基于倒排索引，正则条件为超集，调用方需用 matchesFilter 复核）
+     */
+    protected List<String> filterCandidateIds(SearchFilter filter) {
+        return filterIndex.resolveIds(filter);
+    }
+
+    /**
+     * 扫描快照：按行排列的向量引用、预计算的范数倒数与片段，按 {@link #PARTITION_ROWS} 分区
+     * <p>
+     * 行向量直接引用片段的 embedding 数组（不复制），片段集合变化后整体重建。
+     * 只收录与首个向量维度一致的片段。rowOfOrdinal 把倒排索引的片段序号映射到行号。
+     */
+    private static final class VectorSnapshot {
+        final long version;
+        final int dimension;
+        final float[][] vectors;
+        final float[] invNorms;
+        final CodeChunk[] chunks;
+        final int[] rowOfOrdinal;
+
+        private VectorSnapshot(long version, int dimension, float[][] vectors, float[] invNorms, CodeChunk[] chunks,
+                               int[] rowOfOrdinal) {
+            this.version = version;
+            this.dimension = dimension;
+            this.vectors = vectors;
+            this.invNorms = invNorms;
+            this.chunks = chunks;
+            this.rowOfOrdinal = rowOfOrdinal;
+        }
+
+        static VectorSnapshot build(long version, Collection<CodeChunk> source, ChunkFilterIndex filterIndex) {
+            List<CodeChunk> embedded = new ArrayList<>(source.size());
+            int dimension = -1;
+            for (CodeChunk chunk : source) {
+                float[] embedding = chunk.getEmbedding();
+                if (embedding == null || embedding.length == 0) {
+                    continue;
+                }
+                if (dimension < 0) {
+                    dimension = embedding.length;
+                }
+                if (embedding.length == dimension) {
+                    embedded.add(chunk);
+                }
+            }
+
+            int rows = embedded.size();
+            float[][] vectors = new float[rows][];
+            float[] invNorms = new float[rows];
+            CodeChunk[] chunks = new CodeChunk[rows];
+            int[] rowOfOrdinal = new int[filterIndex.ordinalBound()];
+            Arrays.fill(rowOfOrdinal, -1);
+            for (int row = 0; row < rows; row++) {
+                CodeChunk chunk = embedded.get(row);
+                chunks[row] = chunk;
+                vectors[row] = chunk.getEmbedding();
+                invNorms[row] = inverseNorm(vectors[row]);
+                int ordinal = filterIndex.ordinalOf(chunk.getId());
+                if (ordinal >= 0 && ordinal < rowOfOrdinal.length) {
+                    rowOfOrdinal[ordinal] = row;
+                }
+            }
+            return new VectorSnapshot(version, dimension, vectors, invNorms, chunks, rowOfOrdinal);
+        }
+
+        /**
+         * 候选片段序号 → 行号（跳过无向量的片段）
+         */
+        int[] rowsOf(BitSet ordinals) {
+            int[] rows = new int[ordinals.cardinality()];
+            int count = 0;
+            for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0 && ordinal < rowOfOrdinal.length;
+                 ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                int row = rowOfOrdinal[ordinal];
+                if (row >= 0) {
+                    rows[count++] = row;
+                }
+            }
+            return count == rows.length ? rows : Arrays.copyOf(rows, count);
+        }
+
+        int rows() {
+            return chunks.length;
+        }
+
+    }
+
+    /**
+     * 按分区扫描的 ForkJoin 任务：叶子任务各自维护一个 TopK 堆，向上合并
+     * <p>
+     * 扫描位置 [from, to)：无候选集时即行号，有候选集时为 candidateRows 的下标。
+     */
+    private final class ScanTask extends RecursiveTask<TopKHeap> {
+        private final VectorSnapshot snapshot;
+        private final float[] query;
+        private final int topK;
+        private final SearchFilter filter;
+        private final int[] candidateRows;
+        private final int from;
+        private final int to;
+
+        ScanTask(VectorSnapshot snapshot, float[] query, int topK, SearchFilter filter,
+                 int[] candidateRows, int from, int to) {
+            this.snapshot = snapshot;
+            this.query = query;
+            this.topK = topK;
+            this.filter = filter;
+            this.candidateRows = candidateRows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopKHeap compute() {
+            int count = to - from;
+            if (count > PARTITION_ROWS && (candidateRows != null ? candidateRows.length : snapshot.rows()) >= PARALLEL_THRESHOLD) {
+                int partitions = (count + PARTITION_ROWS - 1) / PARTITION_ROWS;
+                int middle = from + (partitions / 2) * PARTITION_ROWS;
+                ScanTask left = new ScanTask(snapshot, query, topK, filter, candidateRows, from, middle);
+                ScanTask right = new ScanTask(snapshot, query, topK, filter, candidateRows, middle, to);
+                left.fork();
+                TopKHeap heap = right.compute();
+                heap.merge(left.join());
+                return heap;
+            }
+
+            TopKHeap heap = new TopKHeap(topK);
+            float[][] vectors = snapshot.vectors;
+            float[] invNorms = snapshot.invNorms;
+            for (int position = from; position < to; position++) {
+                int row = candidateRows != null ? candidateRows[position] : position;
+                float[] vector = vectors[row];
+                float dot = 0f;
+                for (int i = 0; i < vector.length; i++) {
+                    dot += query[i] * vector[i];
+                }
+                float score = dot * invNorms[row];
+                // 先按分数剪枝，再复核过滤条件（正则条件的候选是超集）
+                if (heap.accepts(score) && (filter == null || matchesFilter(snapshot.chunks[row], filter))) {
+                    heap.offer(row, score);
+                }
+            }
+            return heap;
+        }
     }
 
     /**
      * 检查chunk是否匹配过滤条件
      */
-    private boolean matchesFilter(CodeChunk chunk, SearchFilter filter) {
+    protected boolean matchesFilter(CodeChunk chunk, SearchFilter filter) {
         if (filter.getLanguage() != null && !filter.getLanguage().equals(chunk.getLanguage())) {
             return false;
         }
 
-        if (filter.getFilePattern() != null && !chunk.getFilePath().matches(filter.getFilePattern())) {
+        if (filter.getFilePattern() != null
+                && !ChunkFilterIndex.compile(filter.getFilePattern()).matcher(chunk.getFilePath()).matches()) {
             return false;
         }
 
         if (filter.getSymbolPattern() != null && chunk.getSymbol() != null 
-                && !chunk.getSymbol().matches(filter.getSymbolPattern())) {
+                && !ChunkFilterIndex.compile(filter.getSymbolPattern()).matcher(chunk.getSymbol()).matches()) {
             return false;
         }
 
@@ -440,6 +780,7 @@ public class InMemoryVectorStore implements VectorStore {
     /**
      * 更新文件MD5缓存
      */
+    @Override
     public void updateFileMD5(String filePath, String md5) {
         fileMD5Cache.put(filePath, md5);
     }
@@ -447,10 +788,27 @@ public class InMemoryVectorStore implements VectorStore {
     /**
      * 获取文件MD5
      */
+    @Override
     public String getFileMD5(String filePath) {
         return fileMD5Cache.get(filePath);
     }
 
+    /**
+     * 移除文件MD5缓存
+     */
+    @Override
+    public void removeFileMD5(String filePath) {
+        fileMD5Cache.remove(filePath);
+    }
+
+    /**
+     * 获取MD5缓存中的全部文件
+     */
+    @Override
+    public Set<String> getTrackedFiles() {
+        return new HashSet<>(fileMD5Cache.keySet());
+    }
+
     /**
      * 检查文件是否需要更新（MD5变化）
      */
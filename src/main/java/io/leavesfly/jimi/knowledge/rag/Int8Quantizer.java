@@ -0,0 +1,279 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 逐维 int8 标量量化（作用于 {@link MappedVectorFile} 中已归一化的向量）
+ * <p>
+ * 每个维度按训练集的 [min, max] 线性映射到 0..255：
+ * x ≈ offset[i] + scale[i] · code[i]
+ * <p>
+ * 近似点积可改写为 Σ(q[i]·scale[i])·code[i] + Σq[i]·offset[i]，
+ * 查询时只需预先计算缩放后的查询向量与常数项，扫描阶段只读 1 字节/维的编码。
+ * <p>
+ * 文件：vectors.int8 = magic | version | dim | rows | recall(float) | scale[dim] | offset[dim] | codes
+ */
+final class Int8Quantizer {
+
+    private static final int MAGIC = 0x4A493851; // "JI8Q"
+    private static final int FORMAT_VERSION = 1;
+
+    /** 单个编码块的最大字节数（避免超出数组上限） */
+    private static final int MAX_BLOCK_BYTES = 1 << 30;
+
+    /** 召回率估计使用的抽样行数与查询数 */
+    private static final int RECALL_SAMPLE_ROWS = 2000;
+    private static final int RECALL_QUERIES = 20;
+    private static final int RECALL_K = 10;
+
+    private final int dimension;
+    private final int rows;
+    private final float[] scale;
+    private final float[] offset;
+    private final int rowsPerBlock;
+    private final byte[][] blocks;
+    private float recall = Float.NaN;
+
+    private Int8Quantizer(int dimension, int rows, float[] scale, float[] offset) {
+        this.dimension = dimension;
+        this.rows = rows;
+        this.scale = scale;
+        this.offset = offset;
+        this.rowsPerBlock = Math.max(1, MAX_BLOCK_BYTES / dimension);
+        int blockCount = (rows + rowsPerBlock - 1) / rowsPerBlock;
+        this.blocks = new byte[blockCount][];
+        for (int b = 0; b < blockCount; b++) {
+            int blockRows = Math.min(rowsPerBlock, rows - b * rowsPerBlock);
+            blocks[b] = new byte[blockRows * dimension];
+        }
+    }
+
+    /**
+     * 用映射文件中的全部行训练逐维范围并编码
+     *
+     * @param vectors      向量文件
+     * @param rerankFactor 估计召回率时使用的重排倍数
+     */
+    static Int8Quantizer train(MappedVectorFile vectors, int rerankFactor) {
+        int dimension = vectors.dimension();
+        int rows = vectors.rows();
+        float[] min = new float[dimension];
+        float[] max = new float[dimension];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (int row = 0; row < rows; row++) {
+            float[] vector = vectors.row(row);
+            for (int i = 0; i < dimension; i++) {
+                min[i] = Math.min(min[i], vector[i]);
+                max[i] = Math.max(max[i], vector[i]);
+            }
+        }
+
+        float[] scale = new float[dimension];
+        float[] offset = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            offset[i] = rows > 0 ? min[i] : 0f;
+            scale[i] = rows > 0 && max[i] > min[i] ? (max[i] - min[i]) / 255f : 0f;
+        }
+
+        Int8Quantizer quantizer = new Int8Quantizer(dimension, rows, scale, offset);
+        for (int row = 0; row < rows; row++) {
+            quantizer.encode(row, vectors.row(row));
+        }
+        quantizer.recall = quantizer.estimateRecall(vectors, rerankFactor);
+        return quantizer;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 预先缩放查询向量：scaled[i] = q[i]·scale[i]
+     */
+    float[] scaleQuery(float[] normalizedQuery) {
+        float[] scaled = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            scaled[i] = normalizedQuery[i] * scale[i];
+        }
+        return scaled;
+    }
+
+    /**
+     * 查询常数项 Σq[i]·offset[i]
+     */
+    float queryBias(float[] normalizedQuery) {
+        float bias = 0f;
+        for (int i = 0; i < dimension; i++) {
+            bias += normalizedQuery[i] * offset[i];
+        }
+        return bias;
+    }
+
+    /**
+     * 基于编码的近似点积
+     */
+    float approxDot(int row, float[] scaledQuery, float bias) {
+        byte[] block = blocks[row / rowsPerBlock];
+        int base = (row % rowsPerBlock) * dimension;
+        float sum = bias;
+        for (int i = 0; i < dimension; i++) {
+            sum += scaledQuery[i] * (block[base + i] & 0xFF);
+        }
+        return sum;
+    }
+
+    /** 编码占用的字节数 */
+    long codeBytes() {
+        return (long) rows * dimension + 2L * dimension * Float.BYTES;
+    }
+
+    /** 相对 float32 的压缩比 */
+    double compressionRatio() {
+        return rows == 0 ? 0.0 : (double) rows * dimension * Float.BYTES / codeBytes();
+    }
+
+    /** 估计的 recall@10（量化扫描 + 精确重排），未知时为 NaN */
+    float recall() {
+        return recall;
+    }
+
+    // ==================== 持久化 ====================
+
+    void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimension);
+            out.writeInt(rows);
+            out.writeFloat(recall);
+            for (float v : scale) {
+                out.writeFloat(v);
+            }
+            for (float v : offset) {
+                out.writeFloat(v);
+            }
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+        }
+    }
+
+    /**
+     * 读取编码文件
+     *
+     * @throws IOException 格式不符或与向量文件不一致时抛出，调用方应重新训练
+     */
+    static Int8Quantizer read(Path file, int expectedDimension, int expectedRows) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported quantized vector format: " + file);
+            }
+            int dimension = in.readInt();
+            int rows = in.readInt();
+            if (dimension != expectedDimension || rows != expectedRows) {
+                throw new IOException("Quantized vectors out of sync: " + rows + "x" + dimension
+                        + " vs " + expectedRows + "x" + expectedDimension);
+            }
+            float recall = in.readFloat();
+            float[] scale = new float[dimension];
+            float[] offset = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                scale[i] = in.readFloat();
+            }
+            for (int i = 0; i < dimension; i++) {
+                offset[i] = in.readFloat();
+            }
+            Int8Quantizer quantizer = new Int8Quantizer(dimension, rows, scale, offset);
+            for (byte[] block : quantizer.blocks) {
+                in.readFully(block);
+            }
+            quantizer.recall = recall;
+            return quantizer;
+        }
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void encode(int row, float[] vector) {
+        byte[] block = blocks[row / rowsPerBlock];
+        int base = (row % rowsPerBlock) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            int code = scale[i] > 0 ? Math.round((vector[i] - offset[i]) / scale[i]) : 0;
+            block[base + i] = (byte) Math.max(0, Math.min(255, code));
+        }
+    }
+
+    /**
+     * 在抽样行上估计 recall@10：以两行均值为查询，比较精确 TopK 与"量化扫描 + 重排"TopK
+     */
+    private float estimateRecall(MappedVectorFile vectors, int rerankFactor) {
+        int sampleRows = Math.min(rows, RECALL_SAMPLE_ROWS);
+        if (sampleRows < RECALL_K * 2) {
+            return Float.NaN;
+        }
+        int stride = rows / sampleRows;
+        int[] sample = new int[sampleRows];
+        for (int i = 0; i < sampleRows; i++) {
+            sample[i] = i * stride;
+        }
+
+        int found = 0;
+        int queries = Math.min(RECALL_QUERIES, sampleRows / 2);
+        for (int q = 0; q < queries; q++) {
+            float[] a = vectors.row(sample[q * 2]);
+            float[] b = vectors.row(sample[q * 2 + 1]);
+            float[] sum = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                sum[i] = a[i] + b[i];
+            }
+            float[] query = MappedVectorFile.normalize(sum);
+            float[] scaled = scaleQuery(query);
+            float bias = queryBias(query);
+
+            Set<Integer> exact = topRows(sample, RECALL_K, row -> vectors.dot(row, query));
+            Set<Integer> candidates = topRows(sample, RECALL_K * rerankFactor, row -> approxDot(row, scaled, bias));
+            int[] candidateRows = candidates.stream().mapToInt(Integer::intValue).toArray();
+            Set<Integer> reranked = topRows(candidateRows, RECALL_K, row -> vectors.dot(row, query));
+            reranked.retainAll(exact);
+            found += reranked.size();
+        }
+        return (float) found / (queries * RECALL_K);
+    }
+
+    private interface RowScorer {
+        float score(int row);
+    }
+
+    private record ScoredRow(int row, float score) {
+    }
+
+    private static Set<Integer> topRows(int[] rows, int k, RowScorer scorer) {
+        PriorityQueue<ScoredRow> heap = new PriorityQueue<>((x, y) -> Float.compare(x.score(), y.score()));
+        for (int row : rows) {
+            heap.add(new ScoredRow(row, scorer.score(row)));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        Set<Integer> result = new HashSet<>();
+        for (ScoredRow entry : heap) {
+            result.add(entry.row());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,275 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.parser.CompilationUnitCache;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * 语法感知的 Java 分块器
+ * <p>
+ * 策略：
+ * - 每个方法 / 构造器一个片段，连续的字段声明合并为一个片段，类型声明头（注解、Javadoc、签名、枚举常量）单独一个片段
+ * - 片段从成员的 Javadoc 开始，按成员边界切分，片段之间没有重叠
+ * - 超过 2 × chunkSize 行的成员退化为带重叠的行窗口，各窗口共享同一 symbol
+ * - symbol 为与代码图一致的全限定名（如 com.example.UserService.find(1)），
+ *   metadata.entityId 为对应的 {@link CodeEntity} id
+ * <p>
+ * 解析经由 {@link CompilationUnitCache}，与代码图构建共享同一份解析结果。
+ * 非 Java 文件和无法解析的文件交给回退分块器（行窗口）。
+ */
+@Slf4j
+public class JavaAstChunker implements Chunker {
+
+    /** 成员超过 chunkSize 的该倍数时按行窗口拆分 */
+    private static final int LARGE_MEMBER_FACTOR = 2;
+
+    private final CompilationUnitCache compilationUnitCache;
+    private final Chunker fallback;
+
+    public JavaAstChunker(CompilationUnitCache compilationUnitCache, Chunker fallback) {
+        this.compilationUnitCache = compilationUnitCache;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Flux<CodeChunk> chunk(String filePath, String content, int chunkSize, int overlap) {
+        if (!"java".equals(detectLanguage(filePath))) {
+            return fallback.chunk(filePath, content, chunkSize, overlap);
+        }
+        return Flux.defer(() -> {
+            Optional<CompilationUnit> unit = compilationUnitCache.parse(content);
+            if (unit.isEmpty()) {
+                log.debug("Java 解析失败，按行窗口分块: {}", filePath);
+                return fallback.chunk(filePath, content, chunkSize, overlap);
+            }
+
+            ChunkSink sink = new ChunkSink(filePath, content.split("\n"), chunkSize, overlap);
+            String packageName = unit.get().getPackageDeclaration()
+                    .map(PackageDeclaration::getNameAsString)
+                    .orElse("");
+            for (TypeDeclaration<?> type : unit.get().getTypes()) {
+                chunkType(type, packageName.isEmpty() ? type.getNameAsString()
+                        : packageName + "." + type.getNameAsString(), sink);
+            }
+            return Flux.fromIterable(sink.chunks);
+        });
+    }
+
+    /**
+     * 类型声明：类头 + 各成员（嵌套类型递归处理）
+     */
+    private void chunkType(TypeDeclaration<?> type, String qualifiedName, ChunkSink sink) {
+        int typeStart = startLine(type);
+        int typeEnd = endLine(type);
+        List<BodyDeclaration<?>> members = type.getMembers();
+
+        // 类头：从类型声明开始到第一个成员之前
+        int headerEnd = members.isEmpty() ? typeEnd : startLine(members.get(0)) - 1;
+        sink.emit(typeStart, headerEnd, qualifiedName, List.of(CodeEntity.generateId(typeEntity(type), qualifiedName)));
+
+        List<FieldDeclaration> fieldGroup = new ArrayList<>();
+        for (BodyDeclaration<?> member : members) {
+            if (member.isFieldDeclaration()) {
+                fieldGroup.add(member.asFieldDeclaration());
+                continue;
+            }
+            flushFields(fieldGroup, qualifiedName, sink);
+
+            if (member.isMethodDeclaration()) {
+                MethodDeclaration method = member.asMethodDeclaration();
+                String signature = qualifiedName + "." + method.getNameAsString()
+                        + "(" + method.getParameters().size() + ")";
+                sink.emit(startLine(method), endLine(method), signature,
+                        List.of(CodeEntity.generateId(EntityType.METHOD, signature)));
+            } else if (member.isConstructorDeclaration()) {
+                ConstructorDeclaration constructor = member.asConstructorDeclaration();
+                String signature = qualifiedName + "." + constructor.getNameAsString()
+                        + "(" + constructor.getParameters().size() + ")";
+                sink.emit(startLine(constructor), endLine(constructor), signature,
+                        List.of(CodeEntity.generateId(EntityType.CONSTRUCTOR, signature)));
+            } else if (member.isTypeDeclaration()) {
+                TypeDeclaration<?> nested = member.asTypeDeclaration();
+                chunkType(nested, qualifiedName + "." + nested.getNameAsString(), sink);
+            } else {
+                // 初始化块、注解成员等归属于所在类型
+                sink.emit(startLine(member), endLine(member), qualifiedName, List.of());
+            }
+        }
+        flushFields(fieldGroup, qualifiedName, sink);
+    }
+
+    /**
+     * 连续的字段声明合并为一个片段，symbol 取第一个字段
+     */
+    private void flushFields(List<FieldDeclaration> fieldGroup, String typeQualifiedName, ChunkSink sink) {
+        if (fieldGroup.isEmpty()) {
+            return;
+        }
+        List<String> entityIds = fieldGroup.stream()
+                .flatMap(field -> field.getVariables().stream())
+                .map(variable -> CodeEntity.generateId(EntityType.FIELD,
+                        typeQualifiedName + "." + variable.getNameAsString()))
+                .collect(Collectors.toList());
+        String symbol = typeQualifiedName + "." + fieldGroup.get(0).getVariable(0).getNameAsString();
+        sink.emit(startLine(fieldGroup.get(0)), endLine(fieldGroup.get(fieldGroup.size() - 1)), symbol, entityIds);
+        fieldGroup.clear();
+    }
+
+    private static EntityType typeEntity(TypeDeclaration<?> type) {
+        if (type instanceof ClassOrInterfaceDeclaration classOrInterface) {
+            return classOrInterface.isInterface() ? EntityType.INTERFACE : EntityType.CLASS;
+        }
+        if (type.isEnumDeclaration()) {
+            return EntityType.ENUM;
+        }
+        if (type.isAnnotationDeclaration()) {
+            return EntityType.ANNOTATION;
+        }
+        return EntityType.CLASS;
+    }
+
+    /**
+     * 节点起始行（含其 Javadoc / 注释）
+     */
+    private static int startLine(Node node) {
+        int line = node.getBegin().map(position -> position.line).orElse(1);
+        return node.getComment()
+                .flatMap(Node::getBegin)
+                .map(position -> Math.min(position.line, line))
+                .orElse(line);
+    }
+
+    private static int endLine(Node node) {
+        return node.getEnd().map(position -> position.line).orElse(startLine(node));
+    }
+
+    @Override
+    public Flux<CodeChunk> chunkFiles(List<Path> files, int chunkSize, int overlap) {
+        return Flux.fromIterable(files)
+                .flatMap(file -> {
+                    try {
+                        return chunk(file.toString(), Files.readString(file), chunkSize, overlap);
+                    } catch (IOException e) {
+                        log.warn("Failed to read file: {}", file, e);
+                        return Flux.empty();
+                    }
+                });
+    }
+
+    @Override
+    public List<String> getSupportedLanguages() {
+        return fallback.getSupportedLanguages();
+    }
+
+    @Override
+    public String detectLanguage(String filePath) {
+        return fallback.detectLanguage(filePath);
+    }
+
+    /**
+     * 收集一个文件的片段
+     */
+    private static final class ChunkSink {
+
+        private final String filePath;
+        private final String[] lines;
+        private final int chunkSize;
+        private final int overlap;
+        private final long updatedAt = System.currentTimeMillis();
+        private final List<CodeChunk> chunks = new ArrayList<>();
+
+        ChunkSink(String filePath, String[] lines, int chunkSize, int overlap) {
+            this.filePath = filePath;
+            this.lines = lines;
+            this.chunkSize = Math.max(1, chunkSize);
+            this.overlap = Math.max(0, Math.min(overlap, this.chunkSize - 1));
+        }
+
+        /**
+         * 输出 [startLine, endLine]（从 1 开始，含两端）的片段，过大时拆成行窗口
+         */
+        void emit(int startLine, int endLine, String symbol, List<String> entityIds) {
+            int start = Math.max(1, startLine);
+            int end = Math.min(lines.length, endLine);
+            if (end < start) {
+                return;
+            }
+            if (end - start + 1 <= chunkSize * LARGE_MEMBER_FACTOR) {
+                add(start, end, symbol, entityIds);
+                return;
+            }
+            for (int windowStart = start; windowStart <= end; windowStart += chunkSize - overlap) {
+                int windowEnd = Math.min(end, windowStart + chunkSize - 1);
+                add(windowStart, windowEnd, symbol, entityIds);
+                if (windowEnd == end) {
+                    break;
+                }
+            }
+        }
+
+        private void add(int start, int end, String symbol, List<String> entityIds) {
+            StringBuilder text = new StringBuilder();
+            for (int i = start - 1; i < end; i++) {
+                text.append(lines[i]);
+                if (i < end - 1) {
+                    text.append('\n');
+                }
+            }
+            String content = text.toString();
+            if (content.isBlank()) {
+                return;
+            }
+
+            Map<String, String> metadata = new HashMap<>();
+            if (!entityIds.isEmpty()) {
+                metadata.put("entityId", String.join(",", entityIds));
+            }
+            chunks.add(CodeChunk.builder()
+                    .id(String.format("%s_%d_%d", filePath.replace("/", "_").replace("\\", "_"), start - 1, end))
+                    .content(content)
+                    .filePath(filePath)
+                    .symbol(symbol)
+                    .startLine(start)
+                    .endLine(end)
+                    .language("java")
+                    .contentHash(md5(content))
+                    .updatedAt(updatedAt)
+                    .metadata(metadata)
+                    .build());
+        }
+
+        private static String md5(String content) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("MD5")
+                        .digest(content.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 本地嵌入提供者（进程内计算，无需网络与模型文件）
+ * <p>
+ * 特征哈希 + 稀疏随机投影：
+ * - 特征：代码分词（完整标识符及 camelCase / snake_case 子词，与 BM25 分词一致），
+ *   以及每个词带边界标记的字符三元组（容忍拼写差异、单复数、词形变化）
+ * - 权重：次线性词频 1 + ln(tf)，三元组权重低于整词
+ * - 投影：每个特征由哈希确定 {@value #PROJECTIONS} 个维度及正负号（稀疏随机投影），累加后 L2 归一化
+ * <p>
+ * 不使用语料级 IDF：向量只取决于文本本身，增量构建、查询与全量构建得到的向量一致。
+ * 结果是确定性的（String.hashCode 由语言规范定义），批量嵌入时片段在 ForkJoin 公共池中并行计算。
+ * <p>
+ * 语义能力弱于神经网络模型，适合离线环境和对构建速度要求高的场景。
+ */
+@Slf4j
+public class LocalEmbeddingProvider implements EmbeddingProvider {
+
+    /** 算法版本：特征或投影方式变化时递增，旧索引因格式标识不同而不会被混用 */
+    private static final int FORMAT_VERSION = 1;
+
+    /** 每个特征投影到的维度数 */
+    private static final int PROJECTIONS = 4;
+
+    private static final int GRAM = 3;
+    private static final float GRAM_WEIGHT = 0.35f;
+    private static final int GRAM_SEED = 0x5bd1e995;
+
+    /** 批量达到该大小时并行计算 */
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private final int dimension;
+
+    public LocalEmbeddingProvider(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+        log.info("Using LocalEmbeddingProvider: hashed n-gram features, dimension={}", dimension);
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public Mono<float[]> embed(String text) {
+        return Mono.fromCallable(() -> vectorize(text));
+    }
+
+    @Override
+    public Mono<List<float[]>> embedBatch(List<String> texts) {
+        return Mono.fromCallable(() -> (texts.size() >= PARALLEL_THRESHOLD ? texts.parallelStream() : texts.stream())
+                .map(this::vectorize)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public String getProviderName() {
+        return "local";
+    }
+
+    @Override
+    public String getFormatId() {
+        return "local-hash-v" + FORMAT_VERSION + ":" + dimension;
+    }
+
+    /**
+     * 计算文本向量
+     */
+    float[] vectorize(String text) {
+        float[] vector = new float[dimension];
+        Map<String, Integer> termFrequency = new HashMap<>();
+        for (String token : Bm25Index.tokenize(text)) {
+            termFrequency.merge(token, 1, Integer::sum);
+        }
+
+        for (Map.Entry<String, Integer> entry : termFrequency.entrySet()) {
+            String token = entry.getKey();
+            float weight = 1 + (float) Math.log(entry.getValue());
+            addFeature(vector, token.hashCode(), weight);
+
+            // 带边界标记的字符三元组：^ab, abc, ..., yz$
+            if (token.length() >= GRAM) {
+                float gramWeight = weight * GRAM_WEIGHT;
+                int length = token.length();
+                for (int start = -1; start + GRAM <= length + 1; start++) {
+                    int hash = GRAM_SEED;
+                    for (int i = start; i < start + GRAM; i++) {
+                        char c = i < 0 ? '^' : i >= length ? '$' : token.charAt(i);
+                        hash = 31 * hash + c;
+                    }
+                    addFeature(vector, hash, gramWeight);
+                }
+            }
+        }
+
+        float norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < dimension; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * 将一个特征累加到 {@value #PROJECTIONS} 个哈希确定的维度上（splitmix64 混洗，最低位决定符号）
+     */
+    private void addFeature(float[] vector, int featureHash, float weight) {
+        for (int k = 1; k <= PROJECTIONS; k++) {
+            long z = (featureHash & 0xffffffffL) + k * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            int index = (int) ((z >>> 1) % dimension);
+            vector[index] += (z & 1) == 0 ? weight : -weight;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 内存映射的向量矩阵文件（只读）
+ * <p>
+ * 格式（小端序）：
+ * magic(int) | version(int) | dimension(int) | rows(int) | rows × dimension 个 float
+ * <p>
+ * 每行写入前做 L2 归一化，打分即点积。单个 MappedByteBuffer 不能超过 2GB，
+ * 因此按整行切分为多个映射段；加载只是 mmap，向量数据常驻页缓存而非 Java 堆。
+ */
+final class MappedVectorFile {
+
+    private static final int MAGIC = 0x4A564543; // "JVEC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /** 单个映射段的最大字节数 */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final int dimension;
+    private final int rows;
+    private final int rowsPerSegment;
+    private final FloatBuffer[] segments;
+    private final long sizeBytes;
+
+    private MappedVectorFile(int dimension, int rows, int rowsPerSegment, FloatBuffer[] segments, long sizeBytes) {
+        this.dimension = dimension;
+        this.rows = rows;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * 写出向量矩阵，每行在写入时归一化
+     *
+     * @param file      目标文件（覆盖）
+     * @param dimension 向量维度
+     * @param rowCount  行数
+     * @param rows      行数据迭代器（长度为 dimension）
+     */
+    static void write(Path file, int dimension, int rowCount, Iterator<float[]> rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(dimension).putInt(rowCount).flip();
+            writeFully(channel, header);
+
+            int rowBytes = dimension * Float.BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(rowBytes, 256 * rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+            int written = 0;
+            while (rows.hasNext()) {
+                float[] row = rows.next();
+                if (buffer.remaining() < rowBytes) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                float invNorm = inverseNorm(row);
+                for (float v : row) {
+                    buffer.putFloat(v * invNorm);
+                }
+                written++;
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+            if (written != rowCount) {
+                throw new IOException("Row count mismatch: expected " + rowCount + ", wrote " + written);
+            }
+        }
+    }
+
+    /**
+     * 映射向量文件
+     */
+    static MappedVectorFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported vector file format: " + file);
+            }
+            int dimension = header.getInt();
+            int rows = header.getInt();
+            long rowBytes = (long) dimension * Float.BYTES;
+            long expected = HEADER_BYTES + rowBytes * rows;
+            if (dimension <= 0 || channel.size() < expected) {
+                throw new IOException("Truncated vector file: " + file);
+            }
+
+            int rowsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / rowBytes);
+            List<FloatBuffer> segments = new ArrayList<>();
+            for (int start = 0; start < rows; start += rowsPerSegment) {
+                int segmentRows = Math.min(rowsPerSegment, rows - start);
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY,
+                                HEADER_BYTES + start * rowBytes, segmentRows * rowBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer());
+            }
+            // 映射在通道关闭后依然有效
+            return new MappedVectorFile(dimension, rows, rowsPerSegment,
+                    segments.toArray(new FloatBuffer[0]), expected);
+        }
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    long sizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * 与已归一化的查询向量做点积（即余弦相似度）
+     */
+    float dot(int row, float[] normalizedQuery) {
+        FloatBuffer segment = segments[row / rowsPerSegment];
+        int base = (row % rowsPerSegment) * dimension;
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += normalizedQuery[i] * segment.get(base + i);
+        }
+        return sum;
+    }
+
+    /**
+     * 复制出一行（已归一化）
+     */
+    float[] row(int row) {
+        FloatBuffer segment = segments[row / rowsPerSegment];
+        float[] vector = new float[dimension];
+        segment.get((row % rowsPerSegment) * dimension, vector);
+        return vector;
+    }
+
+    /**
+     * 返回归一化后的副本
+     */
+    static float[] normalize(float[] vector) {
+        float invNorm = inverseNorm(vector);
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * invNorm;
+        }
+        return normalized;
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return sum > 0 ? (float) (1.0 / Math.sqrt(sum)) : 0f;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于内存映射文件的向量存储实现
+ * <p>
+ * 特点：
+ * - 片段元数据仍在堆上（沿用 {@link InMemoryVectorStore}），但不保存 embedding
+ * - 全部向量 L2 归一化后连续存放在 vectors.mmap 中，加载只是 mmap，不占用 Java 堆
+ * - 打分为查询向量（归一化一次）与各行的点积，无需逐次计算范数
+ * - 上次保存后新增的向量暂存在堆上，save() 时与映射部分合并重写并重新映射
+ * - 带过滤条件的搜索先经元数据倒排索引求出候选行，只为候选行打分
+ * <p>
+ * 行 ID 保存在 vectors.rows；旧格式索引（仅有 vectors.bin）可直接加载，下次保存时转换。
+ * <p>
+ * 可选 int8 量化模式：保存时为映射行训练逐维 int8 编码（vectors.int8，常驻堆上，约为 float 的 1/4），
+ * 搜索先在编码上近似打分选出 topK × {@value #RERANK_FACTOR} 个候选，再从映射文件读取 float 精确重排。
+ */
+@Slf4j
+public class MappedVectorStore extends InMemoryVectorStore {
+
+    static final String MAPPED_VECTORS_FILE = "vectors.mmap";
+    static final String ROW_IDS_FILE = "vectors.rows";
+    static final String QUANTIZED_VECTORS_FILE = "vectors.int8";
+
+    /** 量化模式下精确重排的候选倍数 */
+    static final int RERANK_FACTOR = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean quantized;
+
+    /** 已映射的向量（未保存过时为 null） */
+    private MappedVectorFile mapped;
+    /** 行号 → 片段 ID（映射行在前，堆上新增行在后） */
+    private List<String> rowIds = new ArrayList<>();
+    /** 上次保存后新增的归一化向量 */
+    private List<float[]> pendingRows = new ArrayList<>();
+    private Map<String, Integer> rowById = new HashMap<>();
+    private BitSet deletedRows = new BitSet();
+    private int dimension = -1;
+    /** 映射行的 int8 编码（仅量化模式，未保存过时为 null） */
+    private Int8Quantizer quantizer;
+
+    public MappedVectorStore(ObjectMapper objectMapper) {
+        this(objectMapper, false);
+    }
+
+    /**
+     * @param objectMapper JSON 序列化
+     * @param quantized    是否启用 int8 量化扫描 + 精确重排
+     */
+    public MappedVectorStore(ObjectMapper objectMapper, boolean quantized) {
+        super(objectMapper);
+        this.quantized = quantized;
+    }
+
+    @Override
+    protected CodeChunk toStoredChunk(CodeChunk chunk) {
+        return withoutEmbedding(chunk);
+    }
+
+    @Override
+    protected void afterInsert(List<CodeChunk> inserted) {
+        withWriteLock(() -> inserted.forEach(chunk -> putVector(chunk.getId(), chunk.getEmbedding())));
+    }
+
+    @Override
+    public Mono<Boolean> delete(String id) {
+        return super.delete(id).map(removed -> {
+            withWriteLock(() -> removeVector(id));
+            return removed;
+        });
+    }
+
+    @Override
+    public Mono<Integer> deleteByFilePath(String filePath) {
+        return Mono.fromCallable(() -> {
+            List<String> ids = new ArrayList<>();
+            for (CodeChunk chunk : allChunks()) {
+                if (chunk.getFilePath().equals(filePath)) {
+                    ids.add(chunk.getId());
+                }
+            }
+            withWriteLock(() -> ids.forEach(this::removeVector));
+            return ids;
+        }).flatMap(ids -> super.deleteByFilePath(filePath));
+    }
+
+    @Override
+    public Mono<List<SearchResult>> search(float[] queryVector, int topK) {
+        return search(queryVector, topK, null);
+    }
+
+    @Override
+    public Mono<List<SearchResult>> search(float[] queryVector, int topK, SearchFilter filter) {
+        return Mono.fromCallable(() -> {
+            lock.readLock().lock();
+            try {
+                if (topK <= 0 || queryVector.length != dimension) {
+                    return new ArrayList<SearchResult>();
+                }
+                float[] query = MappedVectorFile.normalize(queryVector);
+                int mappedRows = mapped != null ? mapped.rows() : 0;
+                // 有过滤条件时只扫描倒排索引给出的候选行
+                int[] candidateRows = filter != null ? candidateRows(filter) : null;
+                int positions = candidateRows != null ? candidateRows.length : rowIds.size();
+
+                // 小顶堆保留当前 TopK
+                PriorityQueue<SearchResult> heap = new PriorityQueue<>(topK + 1,
+                        (a, b) -> Double.compare(a.getScore(), b.getScore()));
+                // 量化模式下的映射行：编码上近似打分选候选，再精确重排
+                PriorityQueue<SearchResult> candidates = quantizer != null
+                        ? new PriorityQueue<>(topK * RERANK_FACTOR + 1, (a, b) -> Double.compare(a.getScore(), b.getScore()))
+                        : null;
+                float[] scaledQuery = quantizer != null ? quantizer.scaleQuery(query) : null;
+                float bias = quantizer != null ? quantizer.queryBias(query) : 0f;
+                for (int position = 0; position < positions; position++) {
+                    int row = candidateRows != null ? candidateRows[position] : position;
+                    if (deletedRows.get(row)) {
+                        continue;
+                    }
+                    if (candidates != null && row < mappedRows) {
+                        offer(candidates, topK * RERANK_FACTOR, row, quantizer.approxDot(row, scaledQuery, bias), filter);
+                    } else {
+                        float score = row < mappedRows ? mapped.dot(row, query) : dot(pendingRows.get(row - mappedRows), query);
+                        offer(heap, topK, row, score, filter);
+                    }
+                }
+                if (candidates != null) {
+                    for (SearchResult candidate : candidates) {
+                        int row = rowById.get(candidate.getChunk().getId());
+                        candidate.setScore(mapped.dot(row, query));
+                        offerResult(heap, topK, candidate);
+                    }
+                }
+
+                List<SearchResult> results = new ArrayList<>(heap);
+                results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+                log.debug("Mapped search completed: {} results (topK={})", results.size(), topK);
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 过滤条件的候选片段对应的行号（升序，需持有读锁）
+     */
+    private int[] candidateRows(SearchFilter filter) {
+        List<String> ids = filterCandidateIds(filter);
+        int[] rows = new int[ids.size()];
+        int count = 0;
+        for (String id : ids) {
+            Integer row = rowById.get(id);
+            if (row != null) {
+                rows[count++] = row;
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * 分数高于堆顶且满足过滤条件时入堆
+     */
+    private void offer(PriorityQueue<SearchResult> heap, int capacity, int row, float score, SearchFilter filter) {
+        if (heap.size() >= capacity && score <= heap.peek().getScore()) {
+            return;
+        }
+        CodeChunk chunk = getChunk(rowIds.get(row));
+        if (chunk == null || (filter != null && !matchesFilter(chunk, filter))) {
+            return;
+        }
+        offerResult(heap, capacity, SearchResult.builder().chunk(chunk).score(score).build());
+    }
+
+    private static void offerResult(PriorityQueue<SearchResult> heap, int capacity, SearchResult result) {
+        heap.add(result);
+        if (heap.size() > capacity) {
+            heap.poll();
+        }
+    }
+
+    @Override
+    public Mono<IndexStats> getStats() {
+        return super.getStats().map(stats -> {
+            lock.readLock().lock();
+            try {
+                long mappedBytes = mapped != null ? mapped.sizeBytes() : 0L;
+                long pendingBytes = (long) pendingRows.size() * Math.max(dimension, 0) * Float.BYTES;
+                stats.setIndexSizeBytes(mappedBytes + pendingBytes);
+                stats.setStorageType(quantized ? "mmap-int8" : "mmap");
+                if (quantizer != null) {
+                    stats.setIndexSizeBytes(stats.getIndexSizeBytes() + quantizer.codeBytes());
+                    stats.setCompressionRatio(quantizer.compressionRatio());
+                    if (!Float.isNaN(quantizer.recall())) {
+                        stats.setRecallLoss(1.0 - quantizer.recall());
+                    }
+                }
+                return stats;
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Mono<Boolean> clear() {
+        return super.clear().map(cleared -> {
+            withWriteLock(this::resetVectors);
+            return cleared;
+        });
+    }
+
+    @Override
+    protected boolean hasVectorData(Path indexPath) {
+        return Files.exists(indexPath.resolve(MAPPED_VECTORS_FILE)) || super.hasVectorData(indexPath);
+    }
+
+    /**
+     * 合并映射行与新增行，重写 vectors.mmap 并重新映射
+     */
+    @Override
+    protected void saveVectors(Path savePath) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int mappedRows = mapped != null ? mapped.rows() : 0;
+            List<String> liveIds = new ArrayList<>(rowById.size());
+            List<Integer> liveRows = new ArrayList<>(rowById.size());
+            for (int row = 0; row < rowIds.size(); row++) {
+                if (!deletedRows.get(row)) {
+                    liveIds.add(rowIds.get(row));
+                    liveRows.add(row);
+                }
+            }
+
+            Path vectorsFile = savePath.resolve(MAPPED_VECTORS_FILE);
+            Path tempFile = savePath.resolve(MAPPED_VECTORS_FILE + ".tmp");
+            Iterator<Integer> rows = liveRows.iterator();
+            MappedVectorFile.write(tempFile, Math.max(dimension, 1), liveRows.size(), new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return rows.hasNext();
+                }
+
+                @Override
+                public float[] next() {
+                    int row = rows.next();
+                    return row < mappedRows ? mapped.row(row) : pendingRows.get(row - mappedRows);
+                }
+            });
+            writeRowIds(savePath.resolve(ROW_IDS_FILE), liveIds);
+            Files.move(tempFile, vectorsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // 旧格式向量文件不再与索引同步
+            Files.deleteIfExists(savePath.resolve(VECTORS_FILE));
+
+            resetVectors();
+            if (!liveIds.isEmpty()) {
+                mapped = MappedVectorFile.open(vectorsFile);
+                dimension = mapped.dimension();
+                for (String id : liveIds) {
+                    rowById.put(id, rowIds.size());
+                    rowIds.add(id);
+                }
+            }
+            log.info("Saved {} mapped vectors to {}", liveIds.size(), vectorsFile);
+
+            Path quantizedFile = savePath.resolve(QUANTIZED_VECTORS_FILE);
+            if (quantized && mapped != null) {
+                quantizer = Int8Quantizer.train(mapped, RERANK_FACTOR);
+                quantizer.write(quantizedFile);
+                log.info("Saved int8 codes: {} rows, compression {}x, estimated recall@10 {}",
+                        quantizer.rows(), String.format("%.2f", quantizer.compressionRatio()), quantizer.recall());
+            } else {
+                Files.deleteIfExists(quantizedFile);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 映射 vectors.mmap；仅有旧格式 vectors.bin 时读入并暂存为新增行
+     */
+    @Override
+    protected void loadVectors(Path indexPath, Map<String, CodeChunk> loadedChunks) throws IOException {
+        Path vectorsFile = indexPath.resolve(MAPPED_VECTORS_FILE);
+        Path rowIdsFile = indexPath.resolve(ROW_IDS_FILE);
+        if (!Files.exists(vectorsFile) || !Files.exists(rowIdsFile)) {
+            super.loadVectors(indexPath, loadedChunks);
+            withWriteLock(() -> {
+                resetVectors();
+                for (CodeChunk chunk : loadedChunks.values()) {
+                    putVector(chunk.getId(), chunk.getEmbedding());
+                    chunk.setEmbedding(null);
+                }
+            });
+            log.info("Loaded legacy vectors.bin into mapped store, will convert on next save");
+            return;
+        }
+
+        MappedVectorFile file = MappedVectorFile.open(vectorsFile);
+        List<String> ids = readRowIds(rowIdsFile);
+        if (ids.size() != file.rows()) {
+            throw new IOException("Row id count " + ids.size() + " does not match vector rows " + file.rows());
+        }
+        Int8Quantizer codes = quantized ? loadQuantizer(indexPath.resolve(QUANTIZED_VECTORS_FILE), file) : null;
+        withWriteLock(() -> {
+            resetVectors();
+            mapped = file;
+            quantizer = codes;
+            dimension = file.dimension();
+            for (String id : ids) {
+                int row = rowIds.size();
+                rowIds.add(id);
+                if (loadedChunks.containsKey(id)) {
+                    rowById.put(id, row);
+                } else {
+                    deletedRows.set(row);
+                }
+            }
+        });
+        log.debug("Mapped {} vectors (dim={}) from {}", file.rows(), file.dimension(), vectorsFile);
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 读取 int8 编码，缺失或与向量文件不一致时重新训练
+     */
+    private Int8Quantizer loadQuantizer(Path quantizedFile, MappedVectorFile file) {
+        if (Files.exists(quantizedFile)) {
+            try {
+                return Int8Quantizer.read(quantizedFile, file.dimension(), file.rows());
+            } catch (IOException e) {
+                log.warn("Failed to load int8 codes {}, retraining: {}", quantizedFile, e.getMessage());
+            }
+        }
+        return Int8Quantizer.train(file, RERANK_FACTOR);
+    }
+
+    private void putVector(String id, float[] embedding) {
+        removeVector(id);
+        if (embedding == null || embedding.length == 0) {
+            return;
+        }
+        if (dimension < 0) {
+            dimension = embedding.length;
+        } else if (embedding.length != dimension) {
+            log.warn("Skipping vector for chunk {}: dimension {} does not match {}", id, embedding.length, dimension);
+            return;
+        }
+        rowById.put(id, rowIds.size());
+        rowIds.add(id);
+        pendingRows.add(MappedVectorFile.normalize(embedding));
+    }
+
+    private void removeVector(String id) {
+        Integer row = rowById.remove(id);
+        if (row != null) {
+            deletedRows.set(row);
+        }
+    }
+
+    private void resetVectors() {
+        mapped = null;
+        quantizer = null;
+        rowIds = new ArrayList<>();
+        pendingRows = new ArrayList<>();
+        rowById = new HashMap<>();
+        deletedRows = new BitSet();
+        dimension = -1;
+    }
+
+    private static float dot(float[] row, float[] query) {
+        float sum = 0f;
+        for (int i = 0; i < row.length; i++) {
+            sum += row[i] * query[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 复制片段元数据（不含 embedding），避免修改调用方持有的片段
+     */
+    private static CodeChunk withoutEmbedding(CodeChunk chunk) {
+        return CodeChunk.builder()
+                .id(chunk.getId())
+                .content(chunk.getContent())
+                .filePath(chunk.getFilePath())
+                .symbol(chunk.getSymbol())
+                .startLine(chunk.getStartLine())
+                .endLine(chunk.getEndLine())
+                .language(chunk.getLanguage())
+                .contentHash(chunk.getContentHash())
+                .updatedAt(chunk.getUpdatedAt())
+                .metadata(chunk.getMetadata())
+                .build();
+    }
+
+    private static void writeRowIds(Path file, List<String> ids) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.writeUTF(id);
+            }
+        }
+    }
+
+    private static List<String> readRowIds(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            List<String> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(in.readUTF());
+            }
+            return ids;
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
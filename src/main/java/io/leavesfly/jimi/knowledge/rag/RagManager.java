@@ -1,21 +1,40 @@
 package io.leavesfly.jimi.knowledge.rag;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.leavesfly.jimi.config.info.VectorIndexConfig;
 import io.leavesfly.jimi.core.engine.JimiRuntime;
 import io.leavesfly.jimi.knowledge.query.RetrievalQuery;
 import io.leavesfly.jimi.knowledge.result.RetrievalResult;
+import io.leavesfly.jimi.wire.message.IndexBuildProgress;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -23,6 +42,10 @@ import java.util.stream.Stream;
  * 向量检索管理器（组合 VectorStore、EmbeddingProvider、Chunker）
  * 
  * <p>负责协调检索相关的组件，提供统一的检索接口。
+ * 
+ * <p>检索路径上有两级缓存（Caffeine）：
+ * - 查询向量缓存：按嵌入提供者 + 规整后的查询文本缓存向量，并发的相同查询共享同一次嵌入调用
+ * - 检索结果缓存：按索引版本 + 查询向量 + topK + 过滤条件缓存原始检索结果，索引变化后整体失效
  */
 @Slf4j
 @Component
@@ -33,6 +56,26 @@ public class RagManager {
     private final Chunker chunker;
     private final VectorIndexConfig config;
     
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    /** 构建时并发读取与分块的文件数 */
+    private static final int READ_CONCURRENCY = 4;
+    
+    /** 构建时跨窗口去重缓存的最大条目数 */
+    private static final int DEDUP_CACHE_SIZE = 100_000;
+    
+    /** 构建进度上报间隔 */
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+    
+    /** 查询向量缓存（未启用时为 null） */
+    private final AsyncCache<QueryKey, float[]> queryEmbeddingCache;
+    
+    /** 检索结果缓存（未启用时为 null） */
+    private final Cache<ResultKey, List<VectorStore.SearchResult>> resultCache;
+    
+    /** 结果缓存中条目对应的索引版本 */
+    private final AtomicLong cachedIndexVersion = new AtomicLong(-1L);
+    
     private volatile Path workDir;
     
     @Autowired
@@ -44,6 +87,20 @@ public class RagManager {
         this.embeddingProvider = embeddingProvider;
         this.chunker = chunker;
         this.config = config;
+        this.queryEmbeddingCache = config != null && config.getQueryCacheSize() > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(config.getQueryCacheSize())
+                        .expireAfterWrite(Duration.ofSeconds(config.getQueryCacheTtlSeconds()))
+                        .recordStats()
+                        .buildAsync()
+                : null;
+        this.resultCache = config != null && config.getResultCacheSize() > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(config.getResultCacheSize())
+                        .expireAfterWrite(Duration.ofSeconds(config.getResultCacheTtlSeconds()))
+                        .recordStats()
+                        .<ResultKey, List<VectorStore.SearchResult>>build()
+                : null;
     }
     
     public Mono<Boolean> initialize(JimiRuntime jimiRuntime) {
@@ -60,25 +117,8 @@ public class RagManager {
         
         long startTime = System.currentTimeMillis();
         
-        return embeddingProvider.embed(query.getQuery())
-                .flatMap(queryVector -> {
-                    // 构建过滤条件
-                    VectorStore.SearchFilter filter = null;
-                    if (query.getFilter() != null) {
-                        filter = VectorStore.SearchFilter.builder()
-                                .language(query.getFilter().getLanguage())
-                                .filePattern(query.getFilter().getFilePattern())
-                                .symbolPattern(query.getFilter().getSymbolPattern())
-                                .minUpdatedAt(query.getFilter().getMinUpdatedAt())
-                                .build();
-                    }
-                    
-                    if (filter != null) {
-                        return vectorStore.search(queryVector, query.getTopK(), filter);
-                    } else {
-                        return vectorStore.search(queryVector, query.getTopK());
-                    }
-                })
+        return embedQuery(query.getQuery())
+                .flatMap(queryVector -> search(queryVector, query.getTopK(), toSearchFilter(query)))
                 .map(results -> {
                     long elapsedMs = System.currentTimeMillis() - startTime;
                     
@@ -100,76 +140,383 @@ public class RagManager {
                 });
     }
     
-    public Mono<RetrievalResult> buildIndex(Path projectRoot) {
+    /**
+     * 关键词检索（BM25），不调用嵌入服务
+     * 
+     * <p>适合精确标识符、错误信息、配置键等嵌入不擅长的查询。
+     * 分数为 BM25 分数，与余弦相似度不可比，因此不应用 minScore。
+     */
+    public Mono<RetrievalResult> retrieveLexical(RetrievalQuery query) {
         if (!isEnabled()) {
             return Mono.just(RetrievalResult.error("Retrieval 功能未启用"));
         }
         
-        log.info("开始构建检索索引: {}", projectRoot);
         long startTime = System.currentTimeMillis();
         
-        // 获取配置的文件扩展名和排除模式
-        Set<String> extensions = Arrays.stream(config.getFileExtensions().split(","))
-                .map(String::trim)
-                .collect(Collectors.toSet());
-        
-        // 遍历项目文件并分块
-        return findSourceFiles(projectRoot, extensions)
-                .flatMap(filePath -> {
-                    try {
-                        String content = Files.readString(filePath);
-                        String relativePath = projectRoot.relativize(filePath).toString();
-
-                        return chunker.chunk(relativePath, content, config.getChunkSize(), config.getChunkOverlap());
-
-                    } catch (IOException e) {
-                        log.warn("读取文件失败: {}", filePath, e);
-                        return Flux.empty();
-                    }
-                })
-                .collectList()
-                .flatMap(chunks -> {
-                    log.info("代码分块完成, chunk数量: {}", chunks.size());
-                    
-                    return vectorStore.addBatch(chunks)
-                            .map(addedCount -> {
-                                long elapsedMs = System.currentTimeMillis() - startTime;
-                                log.info("索引构建完成, 耗时: {}ms, 添加: {} chunks", 
-                                        elapsedMs, addedCount);
-                                
-                                return RetrievalResult.builder()
-                                        .success(true)
-                                        .elapsedMs(elapsedMs)
-                                        .indexStats(RetrievalResult.IndexStats.builder()
-                                                .totalChunks(addedCount)
-                                                .build())
-                                        .build();
-                            });
+        return vectorStore.lexicalSearch(query.getQuery(), query.getTopK(), toSearchFilter(query))
+                .map(results -> {
+                    List<RetrievalResult.CodeChunkResult> chunkResults = results.stream()
+                            .map(r -> convertToChunkResult(r, query.isIncludeContent()))
+                            .collect(Collectors.toList());
+                    return RetrievalResult.success(query.getQuery(), chunkResults,
+                            System.currentTimeMillis() - startTime);
                 })
                 .onErrorResume(e -> {
-                    log.error("索引构建失败", e);
+                    log.error("关键词检索失败", e);
                     return Mono.just(RetrievalResult.error(e.getMessage()));
                 });
     }
     
+    public Mono<RetrievalResult> buildIndex(Path projectRoot) {
+        return buildIndex(projectRoot, false);
+    }
+    
+    public Mono<RetrievalResult> buildIndex(Path projectRoot, boolean incremental) {
+        return buildIndex(projectRoot, incremental, null);
+    }
+    
     /**
-     * 查找源代码文件
+     * 构建检索索引（流式，内存占用与项目规模无关）
+     * 
+     * <p>文件惰性遍历，有界并发读取与分块；片段按窗口嵌入并入库，窗口未处理完时不再拉取后续文件。
+     * 每个窗口入库后立即记录其文件的 MD5，每处理 build_checkpoint_files 个文件保存一次索引，
+     * 构建中断后执行增量构建即可跳过检查点之前的文件。
+     * 
+     * @param projectRoot      项目根目录
+     * @param incremental      是否增量构建：按文件 MD5 跳过未变化的文件，变化的文件先删除旧片段再重新分块嵌入，
+     *                         已删除文件的片段被移除
+     * @param progressListener 进度回调（约每秒一次，结束时 done=true），可为 null
+     * @return 构建结果（indexStats 中包含新增/更新/移除/跳过的文件数）
      */
-    private Flux<Path> findSourceFiles(Path projectRoot, Set<String> extensions) {
-        return Flux.defer(() -> {
+    public Mono<RetrievalResult> buildIndex(Path projectRoot, boolean incremental,
+                                            Consumer<IndexBuildProgress> progressListener) {
+        if (!isEnabled()) {
+            return Mono.just(RetrievalResult.error("Retrieval 功能未启用"));
+        }
+        
+        return Mono.defer(() -> {
+            log.info("开始{}构建检索索引: {}", incremental ? "增量" : "", projectRoot);
+            
+            // 获取配置的文件扩展名和排除模式
+            Set<String> extensions = Arrays.stream(config.getFileExtensions().split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toSet());
+            
+            BuildSession session = new BuildSession(progressListener);
+            // 后台统计文件总数，仅用于估算剩余时间
+            Disposable counting = progressListener == null ? null
+                    : findSourceFiles(projectRoot, extensions)
+                            .count()
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .subscribe(session::setTotalFiles, e -> log.debug("统计文件总数失败", e));
+            
+            // 跨窗口去重：后续窗口中的重复内容复用已嵌入的向量
+            EmbeddingPipeline pipeline = new EmbeddingPipeline(embeddingProvider,
+                    config.getEmbeddingBatchSize(), config.getEmbeddingConcurrency(),
+                    config.getEmbeddingMaxRetries(), DEDUP_CACHE_SIZE);
+            int windowChunks = Math.max(1, config.getEmbeddingBatchSize() * config.getEmbeddingConcurrency() * 2);
+            AtomicInteger windowFill = new AtomicInteger();
+            
+            return findSourceFiles(projectRoot, extensions)
+                    .flatMapSequential(filePath -> prepareFile(projectRoot, filePath, incremental)
+                            .subscribeOn(Schedulers.boundedElastic()), READ_CONCURRENCY, 1)
+                    .filter(file -> {
+                        session.seenFiles.add(file.relativePath());
+                        if (file.change() == FileChange.UNCHANGED) {
+                            session.fileSkipped();
+                            return false;
+                        }
+                        return true;
+                    })
+                    // 攒够一个窗口的片段（同一文件的片段不拆分）
+                    .bufferUntil(file -> {
+                        if (windowFill.addAndGet(file.chunks().size()) < windowChunks) {
+                            return false;
+                        }
+                        windowFill.set(0);
+                        return true;
+                    })
+                    .concatMap(window -> indexWindow(window, pipeline, session), 1)
+                    .then(Mono.defer(() -> incremental
+                            ? removeDeletedFiles(projectRoot, session.seenFiles)
+                            : Mono.just(0L)))
+                    .map(removedFiles -> {
+                        long elapsedMs = System.currentTimeMillis() - session.startTime;
+                        log.info("索引构建完成, 耗时: {}ms, 添加: {} chunks, 文件 新增/更新/移除/跳过: {}/{}/{}/{}",
+                                elapsedMs, session.indexedChunks, session.addedFiles, session.updatedFiles,
+                                removedFiles, session.skippedFiles);
+                        
+                        return RetrievalResult.builder()
+                                .success(true)
+                                .elapsedMs(elapsedMs)
+                                .indexStats(RetrievalResult.IndexStats.builder()
+                                        .totalChunks((int) session.indexedChunks)
+                                        .embeddedChunks(session.embeddedChunks)
+                                        .dedupedChunks(session.dedupedChunks)
+                                        .failedChunks(session.failedChunks)
+                                        .chunksPerSecond(session.indexedChunks * 1000.0 / Math.max(1, elapsedMs))
+                                        .addedFiles(session.addedFiles)
+                                        .updatedFiles(session.updatedFiles)
+                                        .removedFiles(removedFiles.intValue())
+                                        .skippedFiles(session.skippedFiles)
+                                        .build())
+                                .build();
+                    })
+                    // 结束进度须在结果交给订阅方之前上报；doFinally 晚于 block() 返回，只兜底取消的情况
+                    .doOnSuccess(result -> session.finish())
+                    .doOnError(e -> session.finish())
+                    .doFinally(signal -> {
+                        if (counting != null) {
+                            counting.dispose();
+                        }
+                        session.finish();
+                    });
+        }).onErrorResume(e -> {
+            log.error("索引构建失败", e);
+            return Mono.just(RetrievalResult.error(e.getMessage()));
+        });
+    }
+    
+    /**
+     * 读取源文件、判断变化类型并分块（未变化的文件不分块）
+     */
+    private Mono<PreparedFile> prepareFile(Path projectRoot, Path filePath, boolean incremental) {
+        return Mono.fromCallable(() -> readSourceFile(projectRoot, filePath))
+                .flatMap(file -> {
+                    FileChange change = FileChange.ADDED;
+                    if (incremental) {
+                        String cachedMD5 = vectorStore.getFileMD5(file.relativePath());
+                        if (file.md5().equals(cachedMD5)) {
+                            return Mono.just(new PreparedFile(file.relativePath(), file.md5(),
+                                    FileChange.UNCHANGED, List.of()));
+                        }
+                        change = cachedMD5 == null ? FileChange.ADDED : FileChange.UPDATED;
+                    }
+                    FileChange fileChange = change;
+                    return chunker.chunk(file.relativePath(), file.content(),
+                                    config.getChunkSize(), config.getChunkOverlap())
+                            .collectList()
+                            .map(chunks -> new PreparedFile(file.relativePath(), file.md5(), fileChange, chunks));
+                });
+    }
+    
+    /**
+     * 嵌入并入库一个窗口：变化文件的旧片段在新片段入库前删除，入库后记录文件 MD5，到期时保存检查点
+     */
+    private Mono<Void> indexWindow(List<PreparedFile> window, EmbeddingPipeline pipeline, BuildSession session) {
+        List<CodeChunk> chunks = window.stream()
+                .flatMap(file -> file.chunks().stream())
+                .collect(Collectors.toList());
+        
+        return pipeline.embed(Flux.fromIterable(chunks))
+                .flatMap(embedding -> Flux.fromIterable(window)
+                        .filter(file -> file.change() == FileChange.UPDATED)
+                        .concatMap(file -> vectorStore.deleteByFilePath(file.relativePath()))
+                        .then(vectorStore.addBatch(embedding.getChunks()))
+                        .doOnNext(addedCount -> {
+                            recordFileHashes(window, embedding.getChunks());
+                            for (PreparedFile file : window) {
+                                if (file.change() == FileChange.UPDATED) {
+                                    session.updatedFiles++;
+                                } else {
+                                    session.addedFiles++;
+                                }
+                            }
+                            session.embeddedChunks += embedding.getEmbeddedChunks();
+                            session.dedupedChunks += embedding.getDedupedChunks();
+                            session.failedChunks += embedding.getFailedChunks();
+                            session.filesDone(window.size(), addedCount);
+                        }))
+                .then(Mono.defer(() -> {
+                    int checkpointFiles = config.getBuildCheckpointFiles();
+                    if (checkpointFiles <= 0 || !session.checkpointDue(checkpointFiles)) {
+                        return Mono.empty();
+                    }
+                    return vectorStore.save()
+                            .doOnNext(saved -> log.info("索引检查点: 已处理 {} 个文件, {} chunks, 保存{}",
+                                    session.processedFiles, session.indexedChunks, saved ? "成功" : "跳过"))
+                            .then();
+                }));
+    }
+    
+    /**
+     * 读取源文件并计算内容 MD5，读取失败返回 null
+     */
+    private SourceFile readSourceFile(Path projectRoot, Path filePath) {
+        try {
+            byte[] bytes = Files.readAllBytes(filePath);
+            String relativePath = projectRoot.relativize(filePath).toString();
+            return new SourceFile(relativePath, new String(bytes, StandardCharsets.UTF_8), md5(bytes));
+        } catch (IOException e) {
+            log.warn("读取文件失败: {}", filePath, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 移除已从磁盘删除的文件的片段（仅增量构建）
+     */
+    private Mono<Long> removeDeletedFiles(Path projectRoot, Set<String> seenFiles) {
+        return Flux.fromIterable(vectorStore.getTrackedFiles())
+                .filter(filePath -> !seenFiles.contains(filePath) && !Files.exists(projectRoot.resolve(filePath)))
+                .concatMap(filePath -> vectorStore.deleteByFilePath(filePath)
+                        .doOnNext(removed -> vectorStore.removeFileMD5(filePath)))
+                .count();
+    }
+    
+    /**
+     * 记录窗口内已成功索引文件的 MD5
+     * 有片段嵌入失败的文件不记录，下次增量构建时会重新处理
+     */
+    private void recordFileHashes(List<PreparedFile> window, List<CodeChunk> chunks) {
+        Set<String> incompleteFiles = chunks.stream()
+                .filter(chunk -> chunk.getEmbedding() == null)
+                .map(CodeChunk::getFilePath)
+                .collect(Collectors.toSet());
+        for (PreparedFile file : window) {
+            if (incompleteFiles.contains(file.relativePath())) {
+                vectorStore.removeFileMD5(file.relativePath());
+            } else {
+                vectorStore.updateFileMD5(file.relativePath(), file.md5());
+            }
+        }
+    }
+    
+    private static String md5(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+    
+    /**
+     * 已读取的源文件
+     */
+    private record SourceFile(String relativePath, String content, String md5) {
+    }
+    
+    /**
+     * 文件相对于索引的变化类型
+     */
+    private enum FileChange {
+        ADDED, UPDATED, UNCHANGED
+    }
+    
+    /**
+     * 已分块、待入库的文件（不再持有文件内容）
+     */
+    private record PreparedFile(String relativePath, String md5, FileChange change, List<CodeChunk> chunks) {
+    }
+    
+    /**
+     * 一次构建的统计与进度
+     * <p>
+     * 窗口串行处理，嵌入相关计数只在窗口内更新；文件计数与进度上报还会被上游的跳过文件触发，因此加锁。
+     */
+    private static final class BuildSession {
+        
+        private final Consumer<IndexBuildProgress> progressListener;
+        private final long startTime = System.currentTimeMillis();
+        private final Set<String> seenFiles = ConcurrentHashMap.newKeySet();
+        private volatile long totalFiles = -1;
+        private long lastReportTime = startTime;
+        
+        private long processedFiles;
+        private long indexedChunks;
+        private int filesSinceCheckpoint;
+        private int addedFiles;
+        private int updatedFiles;
+        private int skippedFiles;
+        private int embeddedChunks;
+        private int dedupedChunks;
+        private int failedChunks;
+        private boolean finished;
+        
+        BuildSession(Consumer<IndexBuildProgress> progressListener) {
+            this.progressListener = progressListener;
+        }
+        
+        void setTotalFiles(long totalFiles) {
+            this.totalFiles = totalFiles;
+        }
+        
+        synchronized void fileSkipped() {
+            skippedFiles++;
+            filesDone(1, 0);
+        }
+        
+        synchronized void filesDone(int files, long chunks) {
+            processedFiles += files;
+            filesSinceCheckpoint += files;
+            indexedChunks += chunks;
+            if (System.currentTimeMillis() - lastReportTime >= PROGRESS_INTERVAL_MS) {
+                report(false);
+            }
+        }
+        
+        /**
+         * 距上次检查点处理的文件数达到阈值时返回 true 并重新计数
+         */
+        synchronized boolean checkpointDue(int checkpointFiles) {
+            if (filesSinceCheckpoint < checkpointFiles) {
+                return false;
+            }
+            filesSinceCheckpoint = 0;
+            return true;
+        }
+        
+        /**
+         * 上报结束进度（只上报一次）
+         */
+        synchronized void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            report(true);
+        }
+        
+        private void report(boolean done) {
+            if (progressListener == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            lastReportTime = now;
+            double filesPerSecond = processedFiles * 1000.0 / Math.max(1, now - startTime);
+            long total = totalFiles;
+            long etaSeconds = done ? 0
+                    : total >= 0 && filesPerSecond > 0
+                            ? (long) Math.ceil(Math.max(0, total - processedFiles) / filesPerSecond)
+                            : -1;
             try {
-                Stream<Path> files = Files.walk(projectRoot)
+                progressListener.accept(IndexBuildProgress.builder()
+                        .processedFiles(processedFiles)
+                        .totalFiles(total)
+                        .indexedChunks(indexedChunks)
+                        .filesPerSecond(filesPerSecond)
+                        .etaSeconds(etaSeconds)
+                        .done(done)
+                        .build());
+            } catch (Exception e) {
+                log.debug("发送索引进度失败", e);
+            }
+        }
+    }
+    
+    /**
+     * 查找源代码文件（惰性遍历，订阅结束时关闭目录流）
+     */
+    private Flux<Path> findSourceFiles(Path projectRoot, Set<String> extensions) {
+        return Flux.using(() -> Files.walk(projectRoot),
+                files -> Flux.fromStream(files
                         .filter(Files::isRegularFile)
                         .filter(path -> {
                             String fileName = path.getFileName().toString();
                             return extensions.stream().anyMatch(fileName::endsWith);
                         })
-                        .filter(path -> !isExcluded(projectRoot, path));
-                return Flux.fromStream(files);
-            } catch (IOException e) {
-                return Flux.error(e);
-            }
-        });
+                        .filter(path -> !isExcluded(projectRoot, path))),
+                Stream::close);
     }
     
     /**
@@ -201,12 +548,24 @@ public class RagManager {
     
     public Mono<RetrievalResult.IndexStats> getStats() {
         return vectorStore.getStats()
-                .map(stats -> RetrievalResult.IndexStats.builder()
-                        .totalChunks(stats.getTotalChunks())
-                        .totalFiles(stats.getTotalFiles())
-                        .lastUpdated(stats.getLastUpdated())
-                        .indexSizeBytes(stats.getIndexSizeBytes())
-                        .build());
+                .map(stats -> {
+                    CacheStats queryStats = queryEmbeddingCache != null
+                            ? queryEmbeddingCache.synchronous().stats() : CacheStats.empty();
+                    CacheStats resultStats = resultCache != null ? resultCache.stats() : CacheStats.empty();
+                    return RetrievalResult.IndexStats.builder()
+                            .totalChunks(stats.getTotalChunks())
+                            .totalFiles(stats.getTotalFiles())
+                            .lastUpdated(stats.getLastUpdated())
+                            .indexSizeBytes(stats.getIndexSizeBytes())
+                            .storageType(stats.getStorageType())
+                            .compressionRatio(stats.getCompressionRatio())
+                            .recallLoss(stats.getRecallLoss())
+                            .queryCacheHits(queryStats.hitCount())
+                            .queryCacheMisses(queryStats.missCount())
+                            .resultCacheHits(resultStats.hitCount())
+                            .resultCacheMisses(resultStats.missCount())
+                            .build();
+                });
     }
     
     public boolean isEnabled() {
@@ -217,8 +576,110 @@ public class RagManager {
         return vectorStore.clear().thenReturn(true);
     }
     
+    // ==================== 缓存 ====================
+    
+    /**
+     * 嵌入查询文本，命中查询向量缓存时不调用嵌入服务
+     * <p>
+     * 返回的向量可能被多个调用方共享，不得修改。
+     */
+    private Mono<float[]> embedQuery(String text) {
+        if (queryEmbeddingCache == null) {
+            return embeddingProvider.embed(text);
+        }
+        String normalized = normalizeQuery(text);
+        QueryKey key = new QueryKey(embeddingProvider.getProviderName(), normalized);
+        // 取消订阅不取消共享的嵌入请求
+        return Mono.fromFuture(() -> queryEmbeddingCache.get(key,
+                (k, executor) -> embeddingProvider.embed(normalized).toFuture()), true);
+    }
+    
+    /**
+     * 向量检索，命中结果缓存时不访问向量存储
+     */
+    private Mono<List<VectorStore.SearchResult>> search(float[] queryVector, int topK,
+                                                        VectorStore.SearchFilter filter) {
+        Mono<List<VectorStore.SearchResult>> search = filter != null
+                ? vectorStore.search(queryVector, topK, filter)
+                : vectorStore.search(queryVector, topK);
+        long indexVersion = vectorStore.getIndexVersion();
+        if (resultCache == null || indexVersion < 0) {
+            return search;
+        }
+        
+        // 索引变化后旧条目全部作废
+        if (cachedIndexVersion.getAndSet(indexVersion) != indexVersion) {
+            resultCache.invalidateAll();
+        }
+        ResultKey key = new ResultKey(indexVersion, queryVector, topK, filter);
+        List<VectorStore.SearchResult> cached = resultCache.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return search.doOnNext(results -> {
+            // 检索期间索引发生变化时不缓存
+            if (vectorStore.getIndexVersion() == indexVersion) {
+                resultCache.put(key, List.copyOf(results));
+            }
+        });
+    }
+    
+    /**
+     * 规整查询文本：Unicode NFC、去掉首尾空白、连续空白合并为一个空格
+     */
+    static String normalizeQuery(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).strip();
+        return WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+    
+    /**
+     * 查询向量缓存键
+     */
+    private record QueryKey(String model, String text) {
+    }
+    
+    /**
+     * 检索结果缓存键（按查询向量内容比较）
+     */
+    private record ResultKey(long indexVersion, float[] queryVector, int topK, VectorStore.SearchFilter filter) {
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResultKey other)) {
+                return false;
+            }
+            return indexVersion == other.indexVersion
+                    && topK == other.topK
+                    && Arrays.equals(queryVector, other.queryVector)
+                    && Objects.equals(filter, other.filter);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(indexVersion, Arrays.hashCode(queryVector), topK, filter);
+        }
+    }
+    
     // ==================== 转换方法 ====================
     
+    private VectorStore.SearchFilter toSearchFilter(RetrievalQuery query) {
+        if (query.getFilter() == null) {
+            return null;
+        }
+        return VectorStore.SearchFilter.builder()
+                .language(query.getFilter().getLanguage())
+                .filePattern(query.getFilter().getFilePattern())
+                .symbolPattern(query.getFilter().getSymbolPattern())
+                .minUpdatedAt(query.getFilter().getMinUpdatedAt())
+                .build();
+    }
+    
     private RetrievalResult.CodeChunkResult convertToChunkResult(VectorStore.SearchResult result,
                                                                   boolean includeContent) {
         CodeChunk chunk = result.getChunk();
@@ -0,0 +1,106 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+/**
+ * 定长 TopK 小顶堆（基于原始数组，入堆不分配对象）
+ * <p>
+ * 堆顶是当前第 K 大的分数，新分数不高于堆顶时直接丢弃。
+ * 并行扫描时每个工作线程各持一个堆，结束时 {@link #merge} 合并。
+ */
+final class TopKHeap {
+
+    private final int capacity;
+    private final int[] rows;
+    private final float[] scores;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.rows = new int[this.capacity];
+        this.scores = new float[this.capacity];
+    }
+
+    /**
+     * 该分数是否能进入堆（用于在昂贵的过滤检查前剪枝）
+     */
+    boolean accepts(float score) {
+        return size < capacity || score > scores[0];
+    }
+
+    void offer(int row, float score) {
+        if (size < capacity) {
+            rows[size] = row;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            rows[0] = row;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    void merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.rows[i], other.scores[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 按分数降序导出行号，scoresOut 同步填充分数（长度至少为 size）
+     */
+    int[] drainDescending(float[] scoresOut) {
+        int count = size;
+        int[] sorted = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sorted[i] = rows[0];
+            scoresOut[i] = scores[0];
+            size--;
+            rows[0] = rows[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
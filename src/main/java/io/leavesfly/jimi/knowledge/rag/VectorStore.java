@@ -3,7 +3,9 @@ package io.leavesfly.jimi.knowledge.rag;
 import reactor.core.publisher.Mono;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 向量存储接口
@@ -71,6 +73,18 @@ public interface VectorStore {
      */
     Mono<List<SearchResult>> search(float[] queryVector, int topK, SearchFilter filter);
 
+    /**
+     * 关键词检索（BM25），不需要查询向量
+     *
+     * @param query  查询文本（按代码标识符分词）
+     * @param topK   返回结果数量
+     * @param filter 过滤条件，可为 null
+     * @return BM25 分数最高的K个片段（异步）；不支持词法索引的实现返回空列表
+     */
+    default Mono<List<SearchResult>> lexicalSearch(String query, int topK, SearchFilter filter) {
+        return Mono.just(Collections.emptyList());
+    }
+
     /**
      * 获取索引统计信息
      *
@@ -100,6 +114,61 @@ public interface VectorStore {
      */
     Mono<Boolean> load(Path indexPath);
 
+    /**
+     * 索引版本号：每次增删片段、清空或加载后递增，用于使检索结果缓存失效
+     *
+     * @return 当前版本；不支持版本跟踪的实现返回 -1（调用方不应缓存其检索结果）
+     */
+    default long getIndexVersion() {
+        return -1L;
+    }
+
+    /**
+     * 设置当前嵌入提供者的向量格式标识（见 {@link EmbeddingProvider#getFormatId()}）
+     * <p>
+     * 支持持久化的实现保存时写入该标识，加载时拒绝格式不一致的索引，避免不同提供者的向量混用。
+     *
+     * @param formatId 格式标识，null 表示不校验
+     */
+    default void setEmbeddingFormat(String formatId) {
+    }
+
+    /**
+     * 获取文件的内容哈希（增量索引用）
+     *
+     * @param filePath 文件路径（与 CodeChunk.filePath 一致）
+     * @return 上次索引时的 MD5，未记录时返回 null
+     */
+    default String getFileMD5(String filePath) {
+        return null;
+    }
+
+    /**
+     * 记录文件的内容哈希（增量索引用）
+     *
+     * @param filePath 文件路径
+     * @param md5      文件内容 MD5
+     */
+    default void updateFileMD5(String filePath, String md5) {
+    }
+
+    /**
+     * 移除文件的内容哈希记录
+     *
+     * @param filePath 文件路径
+     */
+    default void removeFileMD5(String filePath) {
+    }
+
+    /**
+     * 获取已记录内容哈希的全部文件路径
+     *
+     * @return 文件路径集合；不支持增量索引时为空
+     */
+    default Set<String> getTrackedFiles() {
+        return Collections.emptySet();
+    }
+
     /**
      * 搜索结果（片段 + 相似度分数）
      */
@@ -107,7 +176,7 @@ public interface VectorStore {
     @lombok.Builder
     class SearchResult {
         private CodeChunk chunk;
-        private double score; // 相似度分数（余弦相似度、点积等）
+        private double score; // 相似度分数（余弦相似度、点积等；词法检索为 BM25 分数）
     }
 
     /**
@@ -133,5 +202,7 @@ public interface VectorStore {
         private long lastUpdated;     // 最后更新时间
         private long indexSizeBytes;  // 索引大小（字节）
         private String storageType;   // 存储类型
+        private double compressionRatio; // 向量压缩比（相对 float32，未量化时为 0）
+        private Double recallLoss;    // 量化带来的 recall@10 损失估计（未量化或未知时为 null）
     }
 }
@@ -12,6 +12,7 @@ import java.util.List;
  * <p>封装HybridSearch模块的融合结果，包括：
  * - 来自Graph的结构化实体
  * - 来自Retrieval的语义片段
+ * - 来自BM25词法索引的关键词片段
  * - 融合后的综合结果
  */
 @Data
@@ -51,6 +52,12 @@ public class HybridResult {
     @Builder.Default
     private List<RetrievalResult.CodeChunkResult> semanticChunks = Collections.emptyList();
     
+    /**
+     * 关键词代码片段列表（来自BM25词法索引）
+     */
+    @Builder.Default
+    private List<RetrievalResult.CodeChunkResult> lexicalChunks = Collections.emptyList();
+    
     /**
      * 融合后的统一结果（按相关度排序）
      */
@@ -67,6 +74,11 @@ public class HybridResult {
      */
     private long retrievalElapsedMs;
     
+    /**
+     * 关键词检索耗时（毫秒）
+     */
+    private long lexicalElapsedMs;
+    
     /**
      * 总耗时（毫秒）
      */
@@ -105,7 +117,7 @@ public class HybridResult {
     @Data
     @Builder
     public static class HybridItem {
-        /** 来源：GRAPH 或 RETRIEVAL */
+        /** 来源：GRAPH / RETRIEVAL / LEXICAL，多路命中时为 BOTH（图+向量）或以 + 连接 */
         private String source;
         
         /** 实体/片段ID */
@@ -132,5 +144,9 @@ public class HybridResult {
         
         /** 在Retrieval结果中的排名（-1表示不在） */
         private int retrievalRank;
+        
+        /** 在关键词结果中的排名（-1表示不在） */
+        @Builder.Default
+        private int lexicalRank = -1;
     }
 }
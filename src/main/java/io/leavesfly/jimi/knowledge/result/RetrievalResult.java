@@ -124,5 +124,50 @@ public class RetrievalResult {
         
         /** 索引大小（字节） */
         private long indexSizeBytes;
+        
+        /** 存储类型 */
+        private String storageType;
+        
+        /** 向量压缩比（相对 float32，未量化时为 0） */
+        private double compressionRatio;
+        
+        /** 量化带来的 recall@10 损失估计（未量化或未知时为 null） */
+        private Double recallLoss;
+        
+        /** 查询向量缓存命中次数 */
+        private long queryCacheHits;
+        
+        /** 查询向量缓存未命中次数（即实际的查询嵌入调用） */
+        private long queryCacheMisses;
+        
+        /** 检索结果缓存命中次数 */
+        private long resultCacheHits;
+        
+        /** 检索结果缓存未命中次数 */
+        private long resultCacheMisses;
+        
+        /** 本次构建实际嵌入的片段数 */
+        private int embeddedChunks;
+        
+        /** 本次构建因内容重复而复用向量的片段数 */
+        private int dedupedChunks;
+        
+        /** 本次构建嵌入失败（无向量）的片段数 */
+        private int failedChunks;
+        
+        /** 本次构建的吞吐（chunks/s） */
+        private double chunksPerSecond;
+        
+        /** 本次构建新增的文件数 */
+        private int addedFiles;
+        
+        /** 本次构建因内容变化而重建的文件数 */
+        private int updatedFiles;
+        
+        /** 本次构建移除的（已删除）文件数 */
+        private int removedFiles;
+        
+        /** 本次构建因内容未变化而跳过的文件数 */
+        private int skippedFiles;
     }
 }
@@ -14,6 +14,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -45,6 +48,12 @@ public class LLMFactory {
      */
     private final Cache<String, LLM> llmCache;
 
+    /**
+     * 限流器（按 provider 名称共享）
+     * 同一 provider 下的所有模型共用一份请求/token 预算
+     */
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
     @Autowired
     public LLMFactory(JimiConfig config, ObjectMapper objectMapper) {
         this.config = config;
@@ -148,13 +157,15 @@ public class LLMFactory {
                 .baseUrl(baseUrl)
                 .apiKey(apiKey)
                 .customHeaders(providerConfig.getCustomHeaders())
+                .rateLimit(providerConfig.getRateLimit())
                 .build();
 
         // 创建 ChatProvider
         ChatProvider chatProvider = createChatProvider(
                 providerConfig.getType(),
                 model,
-                effectiveProviderConfig
+                effectiveProviderConfig,
+                getRateLimiter(modelConfig.getProvider(), providerConfig)
         );
 
         log.info("Created LLM: provider={}, model={}", providerConfig.getType(), model);
@@ -171,21 +182,32 @@ public class LLMFactory {
     private ChatProvider createChatProvider(
             LLMProviderConfig.ProviderType type,
             String model,
-            LLMProviderConfig config
+            LLMProviderConfig config,
+            RateLimiter rateLimiter
     ) {
         switch (type) {
             case KIMI:
-                return new KimiChatProvider(model, config, objectMapper);
+                return new KimiChatProvider(model, config, objectMapper, rateLimiter);
 
             case CURSOR:
                 return new CursorChatProvider(model, config, objectMapper);
 
             default:
                 return new OpenAICompatibleChatProvider(
-                        model, config, objectMapper, formatProviderLabel(type));
+                        model, config, objectMapper, formatProviderLabel(type), rateLimiter);
         }
     }
 
+    /**
+     * 获取 provider 共享的限流器，未配置限流时返回 null
+     */
+    private RateLimiter getRateLimiter(String providerName, LLMProviderConfig providerConfig) {
+        if (providerConfig.getRateLimit() == null) {
+            return null;
+        }
+        return rateLimiters.computeIfAbsent(providerName, key -> new RateLimiter(providerConfig.getRateLimit()));
+    }
+
     /**
      * 格式化 Provider label
      * 将 ProviderType 的枚举名称转换为友好的显示名称
@@ -216,6 +238,7 @@ public class LLMFactory {
     public void clearCache() {
         long count = llmCache.estimatedSize();
         llmCache.invalidateAll();
+        rateLimiters.clear();
         log.info("LLM cache cleared: {} instances removed", count);
     }
 
@@ -233,6 +256,15 @@ public class LLMFactory {
         );
     }
 
+    /**
+     * 获取各 provider 的限流统计信息（含被限流次数与累计等待时间）
+     */
+    public Map<String, String> getRateLimitStats() {
+        Map<String, String> stats = new TreeMap<>();
+        rateLimiters.forEach((provider, limiter) -> stats.put(provider, limiter.getStats()));
+        return stats;
+    }
+
     /**
      * 解析 API Key，优先使用环境变量
      * 支持的环境变量格式: {PROVIDER_TYPE}_API_KEY
@@ -2,104 +2,231 @@ package io.leavesfly.jimi.llm;
 
 import io.leavesfly.jimi.config.info.LLMProviderConfig;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * LLM 请求限流器
- * 使用滑动窗口算法实现请求频率限制
- * 
+ * 使用 GCRA（Generic Cell Rate Algorithm，令牌桶的等价形式）实现无锁限流
+ *
  * <p>功能：
- * - 在指定时间窗口内限制请求次数
- * - 超过限制时自动休眠指定时间
- * - 线程安全实现
- * 
+ * - 请求数限流：窗口内最多 maxRequests 次请求，允许一个窗口大小的突发
+ * - Token 限流：每分钟最多 tokensPerMinute 个 token，按实际用量（recordTokens）扣减
+ * - acquire() 返回延迟的 Mono，只推迟调用方的响应式链路，不阻塞任何线程
+ * - 状态仅为两个 AtomicLong（理论到达时间），通过 CAS 更新，无锁
+ * - 统计被限流的次数与累计等待时间
+ *
+ * <p>同一 provider 的所有 ChatProvider 应共享同一个实例，由 LLMFactory 负责。
+ *
  * @author Jimi Team
  */
 @Slf4j
 public class RateLimiter {
-    
-    private final long windowMs;      // 时间窗口（毫秒）
-    private final int maxRequests;    // 窗口内最大请求数
-    private final long sleepMs;       // 超限时的休眠时间（毫秒）
-    
-    // 请求时间戳队列（滑动窗口）
-    private final Queue<Long> requestTimestamps = new LinkedList<>();
-    
+
+    private static final long TOKEN_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long windowMs;          // 时间窗口（毫秒）
+    private final int maxRequests;        // 窗口内最大请求数
+    private final long tokensPerMinute;   // 每分钟最大 token 数
+
+    /** 每个请求的发放间隔（纳秒），0 表示不限制请求数 */
+    private final long requestIntervalNanos;
+    /** 请求突发容忍度（纳秒） */
+    private final long requestBurstNanos;
+    /** 每个 token 的发放间隔（纳秒，浮点避免大 TPM 下精度丢失），0 表示不限制 token */
+    private final double tokenIntervalNanos;
+
+    /** 请求桶的理论到达时间（TAT），相对 origin 的纳秒数 */
+    private final AtomicLong requestTat = new AtomicLong(0);
+    /** token 桶的理论到达时间（TAT），相对 origin 的纳秒数 */
+    private final AtomicLong tokenTat = new AtomicLong(0);
+    private final long origin = System.nanoTime();
+
+    // 统计
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder throttledCount = new LongAdder();
+    private final LongAdder throttledNanos = new LongAdder();
+    private final LongAdder recordedTokens = new LongAdder();
+
     /**
      * 构造函数
-     * 
+     *
      * @param config 限流配置
      */
     public RateLimiter(LLMProviderConfig.RateLimitConfig config) {
         this.windowMs = config.getWindowMs();
         this.maxRequests = config.getMaxRequests();
-        this.sleepMs = config.getSleepMs();
-        
-        log.info("RateLimiter initialized: {}ms window, {} max requests, {}ms sleep", 
-                windowMs, maxRequests, sleepMs);
+        this.tokensPerMinute = config.getTokensPerMinute();
+
+        if (windowMs > 0 && maxRequests > 0) {
+            long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+            this.requestIntervalNanos = Math.max(1, windowNanos / maxRequests);
+            this.requestBurstNanos = windowNanos - requestIntervalNanos;
+        } else {
+            this.requestIntervalNanos = 0;
+            this.requestBurstNanos = 0;
+        }
+        this.tokenIntervalNanos = tokensPerMinute > 0 ? (double) TOKEN_WINDOW_NANOS / tokensPerMinute : 0;
+
+        log.info("RateLimiter initialized: {}ms window, {} max requests, {} tokens/min",
+                windowMs, maxRequests, tokensPerMinute > 0 ? tokensPerMinute : "unlimited");
     }
-    
+
     /**
-     * 在发送请求前调用，根据限流规则决定是否需要等待
-     * 线程安全
+     * 申请一次请求许可
+     * 立即预留请求额度，返回的 Mono 在许可可用时完成；无需等待时直接完成。
+     * 若 token 预算已透支，还会等待 token 桶恢复到可用状态。
+     *
+     * @return 许可可用时完成的 Mono
      */
-    public synchronized void acquirePermit() {
-        long now = System.currentTimeMillis();
-        
-        // 清理窗口外的旧请求记录
-        while (!requestTimestamps.isEmpty() && now - requestTimestamps.peek() >= windowMs) {
-            requestTimestamps.poll();
-        }
-        
-        // 检查是否超过限流
-        if (requestTimestamps.size() >= maxRequests) {
-            long oldestRequest = requestTimestamps.peek();
-            long waitTime = sleepMs;
-            
-            log.debug("Rate limit exceeded ({} requests in {}ms window), sleeping for {}ms", 
-                    maxRequests, windowMs, sleepMs);
-            
-            try {
-                Thread.sleep(waitTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Rate limiter sleep interrupted", e);
-            }
-            
-            // 休眠后重新清理窗口
-            now = System.currentTimeMillis();
-            while (!requestTimestamps.isEmpty() && now - requestTimestamps.peek() >= windowMs) {
-                requestTimestamps.poll();
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long delayNanos = reserve();
+            if (delayNanos <= 0) {
+                return Mono.empty();
             }
+            log.debug("Rate limit reached, delaying request for {}ms", TimeUnit.NANOSECONDS.toMillis(delayNanos));
+            return Mono.delay(Duration.ofNanos(delayNanos)).then();
+        });
+    }
+
+    /**
+     * 阻塞式申请许可，供非响应式调用方使用
+     * 不要在 Reactor/Netty 线程上调用
+     */
+    public void acquirePermit() {
+        long delayNanos = reserve();
+        if (delayNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Rate limiter sleep interrupted", e);
+        }
+    }
+
+    /**
+     * 记录一次请求实际消耗的 token 数（通常取响应中的 total_tokens）
+     * 透支的额度会推迟后续请求
+     *
+     * @param tokens 消耗的 token 数
+     */
+    public void recordTokens(long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        recordedTokens.add(tokens);
+        if (tokenIntervalNanos <= 0) {
+            return;
+        }
+        long cost = (long) (tokens * tokenIntervalNanos);
+        long now = now();
+        tokenTat.getAndUpdate(tat -> Math.max(tat, now) + cost);
+    }
+
+    /**
+     * 预留一次请求额度，返回需要等待的纳秒数
+     */
+    private long reserve() {
+        acquireCount.increment();
+        long now = now();
+        long delayNanos = 0;
+
+        if (requestIntervalNanos > 0) {
+            long tat;
+            long base;
+            do {
+                tat = requestTat.get();
+                base = Math.max(tat, now);
+            } while (!requestTat.compareAndSet(tat, base + requestIntervalNanos));
+            delayNanos = base - requestBurstNanos - now;
         }
-        
-        // 记录当前请求时间
-        requestTimestamps.offer(now);
+
+        if (tokenIntervalNanos > 0) {
+            long tokenDelay = tokenTat.get() - TOKEN_WINDOW_NANOS - now;
+            delayNanos = Math.max(delayNanos, tokenDelay);
+        }
+
+        if (delayNanos > 0) {
+            throttledCount.increment();
+            throttledNanos.add(delayNanos);
+        }
+        return delayNanos;
     }
-    
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+
     /**
-     * 获取当前窗口内的请求数
-     * 
+     * 获取当前窗口内的请求数（由请求桶的理论到达时间推算）
+     *
      * @return 当前窗口内的请求计数
      */
-    public synchronized int getCurrentRequestCount() {
-        long now = System.currentTimeMillis();
-        
-        // 清理窗口外的旧请求记录
-        while (!requestTimestamps.isEmpty() && now - requestTimestamps.peek() >= windowMs) {
-            requestTimestamps.poll();
+    public int getCurrentRequestCount() {
+        if (requestIntervalNanos <= 0) {
+            return 0;
+        }
+        long backlog = requestTat.get() - now();
+        if (backlog <= 0) {
+            return 0;
         }
-        
-        return requestTimestamps.size();
+        return (int) ((backlog + requestIntervalNanos - 1) / requestIntervalNanos);
     }
-    
+
+    /**
+     * 申请许可的总次数
+     */
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /**
+     * 被限流（需要等待）的次数
+     */
+    public long getThrottledCount() {
+        return throttledCount.sum();
+    }
+
+    /**
+     * 因限流累计等待的时间（毫秒）
+     */
+    public long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+    }
+
+    /**
+     * 通过 recordTokens 记录的 token 总数
+     */
+    public long getRecordedTokens() {
+        return recordedTokens.sum();
+    }
+
+    /**
+     * 获取限流统计信息
+     */
+    public String getStats() {
+        return String.format(
+                "RateLimiter - Acquired: %d, Throttled: %d, Throttled time: %dms, Tokens: %d",
+                getAcquireCount(),
+                getThrottledCount(),
+                getThrottledMillis(),
+                getRecordedTokens()
+        );
+    }
+
     /**
      * 重置限流器状态
      */
-    public synchronized void reset() {
-        requestTimestamps.clear();
+    public void reset() {
+        requestTat.set(0);
+        tokenTat.set(0);
         log.debug("RateLimiter reset");
     }
 }
@@ -38,16 +38,25 @@ public class KimiChatProvider implements ChatProvider {
             String modelName,
             LLMProviderConfig providerConfig,
             ObjectMapper objectMapper
+    ) {
+        this(modelName, providerConfig, objectMapper,
+                providerConfig.getRateLimit() != null ? new RateLimiter(providerConfig.getRateLimit()) : null);
+    }
+
+    /**
+     * @param rateLimiter 限流器（可为 null），同一 provider 的多个模型应传入同一实例
+     */
+    public KimiChatProvider(
+            String modelName,
+            LLMProviderConfig providerConfig,
+            ObjectMapper objectMapper,
+            RateLimiter rateLimiter
     ) {
         this.modelName = modelName;
         this.objectMapper = objectMapper;
-
-        // 初始化限流器（如果配置了）
-        if (providerConfig.getRateLimit() != null) {
-            this.rateLimiter = new RateLimiter(providerConfig.getRateLimit());
+        this.rateLimiter = rateLimiter;
+        if (rateLimiter != null) {
             log.info("Kimi ChatProvider rate limiting enabled");
-        } else {
-            this.rateLimiter = null;
         }
 
         // 构建 WebClient
@@ -74,10 +83,8 @@ public class KimiChatProvider implements ChatProvider {
             List<Message> history,
             List<Object> tools
     ) {
-        return Mono.defer(() -> {
+        return acquireRateLimit().then(Mono.defer(() -> {
             try {
-                // 应用限流
-                applyRateLimit();
                 ObjectNode requestBody = buildRequestBody(systemPrompt, history, tools, false);
                 return webClient.post()
                         .uri("/chat/completions")
@@ -85,12 +92,13 @@ public class KimiChatProvider implements ChatProvider {
                         .bodyValue(requestBody)
                         .retrieve()
                         .bodyToMono(JsonNode.class)
-                        .map(this::parseResponse);
+                        .map(this::parseResponse)
+                        .doOnNext(result -> recordUsage(result.getUsage()));
             } catch (Exception e) {
                 log.error("Failed to generate chat completion", e);
                 return Mono.error(new RuntimeException("Failed to generate chat completion", e));
             }
-        });
+        }));
     }
 
     @Override
@@ -99,10 +107,8 @@ public class KimiChatProvider implements ChatProvider {
             List<Message> history,
             List<Object> tools
     ) {
-        return Flux.defer(() -> {
+        return acquireRateLimit().thenMany(Flux.defer(() -> {
             try {
-                // 应用限流
-                applyRateLimit();
                 ObjectNode requestBody = buildRequestBody(systemPrompt, history, tools, true);
                 return webClient.post()
                         .uri("/chat/completions")
@@ -113,12 +119,13 @@ public class KimiChatProvider implements ChatProvider {
                         .filter(line -> line.contains("delta"))
                         .map(line -> line.startsWith("data: ") ? line.substring(6) : line) // 移除 "data: " 前缀
                         .filter(data -> !"[DONE]".equals(data))
-                        .map(this::parseStreamChunk);
+                        .map(this::parseStreamChunk)
+                        .doOnNext(chunk -> recordUsage(chunk.getUsage()));
             } catch (Exception e) {
                 log.error("Failed to generate streaming chat completion", e);
                 return Flux.error(new RuntimeException("Failed to generate streaming chat completion", e));
             }
-        });
+        }));
     }
 
     /**
@@ -370,11 +377,18 @@ public class KimiChatProvider implements ChatProvider {
     }
 
     /**
-     * 应用限流（如果配置了）
+     * 申请限流许可（如果配置了），只延迟当前请求链路，不阻塞线程
      */
-    private void applyRateLimit() {
-        if (rateLimiter != null) {
-            rateLimiter.acquirePermit();
+    private Mono<Void> acquireRateLimit() {
+        return rateLimiter != null ? rateLimiter.acquire() : Mono.empty();
+    }
+
+    /**
+     * 将实际 token 用量计入限流器的 token 预算
+     */
+    private void recordUsage(ChatCompletionResult.Usage usage) {
+        if (rateLimiter != null && usage != null) {
+            rateLimiter.recordTokens(usage.getTotalTokens());
         }
     }
 }
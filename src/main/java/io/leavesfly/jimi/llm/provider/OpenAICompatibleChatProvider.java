@@ -46,17 +46,27 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
             LLMProviderConfig providerConfig,
             ObjectMapper objectMapper,
             String providerName
+    ) {
+        this(modelName, providerConfig, objectMapper, providerName,
+                providerConfig.getRateLimit() != null ? new RateLimiter(providerConfig.getRateLimit()) : null);
+    }
+
+    /**
+     * @param rateLimiter 限流器（可为 null），同一 provider 的多个模型应传入同一实例
+     */
+    public OpenAICompatibleChatProvider(
+            String modelName,
+            LLMProviderConfig providerConfig,
+            ObjectMapper objectMapper,
+            String providerName,
+            RateLimiter rateLimiter
     ) {
         this.modelName = modelName;
         this.objectMapper = objectMapper;
         this.providerName = providerName;
-
-        // 初始化限流器（如果配置了）
-        if (providerConfig.getRateLimit() != null) {
-            this.rateLimiter = new RateLimiter(providerConfig.getRateLimit());
+        this.rateLimiter = rateLimiter;
+        if (rateLimiter != null) {
             log.info("{} ChatProvider rate limiting enabled", providerName);
-        } else {
-            this.rateLimiter = null;
         }
 
         // 配置 HttpClient 使用 JVM 的原生 DNS 解析器
@@ -101,10 +111,8 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
             List<Message> history,
             List<Object> tools
     ) {
-        return Mono.defer(() -> {
+        return acquireRateLimit().then(Mono.defer(() -> {
             try {
-                // 应用限流
-                applyRateLimit();
 
                 ObjectNode requestBody = buildRequestBody(systemPrompt, history, tools, false);
 
@@ -128,6 +136,7 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
                         .bodyToMono(JsonNode.class)
                         .map(this::parseResponse)
                         .doOnNext(result -> {
+                            recordUsage(result.getUsage());
                             // Debug: 记录响应信息
                             int contentLen = result.getMessage() != null && result.getMessage().getTextContent() != null
                                     ? result.getMessage().getTextContent().length() : 0;
@@ -154,7 +163,7 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
                 log.error("Failed to generate chat completion with {}", providerName, e);
                 return Mono.error(new RuntimeException("Failed to generate chat completion", e));
             }
-        });
+        }));
     }
 
     @Override
@@ -163,10 +172,8 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
             List<Message> history,
             List<Object> tools
     ) {
-        return Flux.defer(() -> {
+        return acquireRateLimit().thenMany(Flux.defer(() -> {
             try {
-                // 应用限流
-                applyRateLimit();
 
                 // 重置流式处理状态(每次新请求都重置)
                 streamProcessor.reset();
@@ -220,6 +227,7 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
                                 return Mono.empty();
                             }
                         })
+                        .doOnNext(chunk -> recordUsage(chunk.getUsage()))
                         // 关键：遇到DONE类型时立即终止流（包含这个DONE chunk）
                         .takeUntil(chunk -> chunk.getType() == ChatCompletionChunk.ChunkType.DONE)
                         .onErrorResume(e -> {
@@ -244,7 +252,7 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
                         .type(ChatCompletionChunk.ChunkType.DONE)
                         .build());
             }
-        });
+        }));
     }
 
     private ObjectNode buildRequestBody(
@@ -452,11 +460,18 @@ public class OpenAICompatibleChatProvider implements ChatProvider {
     }
 
     /**
-     * 应用限流（如果配置了）
+     * 申请限流许可（如果配置了），只延迟当前请求链路，不阻塞线程
      */
-    private void applyRateLimit() {
-        if (rateLimiter != null) {
-            rateLimiter.acquirePermit();
+    private Mono<Void> acquireRateLimit() {
+        return rateLimiter != null ? rateLimiter.acquire() : Mono.empty();
+    }
+
+    /**
+     * 将实际 token 用量计入限流器的 token 预算
+     */
+    private void recordUsage(ChatCompletionResult.Usage usage) {
+        if (rateLimiter != null && usage != null) {
+            rateLimiter.recordTokens(usage.getTotalTokens());
         }
     }
 }
@@ -2,6 +2,8 @@ package io.leavesfly.jimi.mcp;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -37,6 +39,20 @@ public abstract class AbstractJsonRpcClient implements JsonRpcClient {
      */
     protected abstract JsonRpcMessage.Response sendRequest(String method, Map<String, Object> params) throws Exception;
 
+    /**
+     * 异步发送 JSON-RPC 请求
+     * 默认在 boundedElastic 线程上执行同步的 sendRequest，
+     * 支持多请求并发复用同一连接的子类应覆写此方法
+     *
+     * @param method JSON-RPC 方法名
+     * @param params 方法参数
+     * @return 服务端返回的响应
+     */
+    protected Mono<JsonRpcMessage.Response> sendRequestAsync(String method, Map<String, Object> params) {
+        return Mono.fromCallable(() -> sendRequest(method, params))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     @Override
     public MCPSchema.InitializeResult initialize() throws Exception {
         Map<String, Object> params = new HashMap<>();
@@ -66,12 +82,23 @@ public abstract class AbstractJsonRpcClient implements JsonRpcClient {
 
     @Override
     public MCPSchema.CallToolResult callTool(String toolName, Map<String, Object> arguments) throws Exception {
+        return toCallToolResult(sendRequest("tools/call", buildCallToolParams(toolName, arguments)));
+    }
+
+    @Override
+    public Mono<MCPSchema.CallToolResult> callToolAsync(String toolName, Map<String, Object> arguments) {
+        return sendRequestAsync("tools/call", buildCallToolParams(toolName, arguments))
+                .map(this::toCallToolResult);
+    }
+
+    private Map<String, Object> buildCallToolParams(String toolName, Map<String, Object> arguments) {
         Map<String, Object> params = new HashMap<>();
         params.put("name", toolName);
         params.put("arguments", arguments != null ? arguments : Map.of());
+        return params;
+    }
 
-        JsonRpcMessage.Response response = sendRequest("tools/call", params);
-
+    private MCPSchema.CallToolResult toCallToolResult(JsonRpcMessage.Response response) {
         if (response.getError() != null) {
             throw new RuntimeException("Call tool failed: " + response.getError().getMessage());
         }
@@ -42,6 +42,11 @@ public class HttpJsonRpcClient extends AbstractJsonRpcClient {
 
     @Override
     protected JsonRpcMessage.Response sendRequest(String method, Map<String, Object> params) throws Exception {
+        return sendRequestAsync(method, params).block();
+    }
+
+    @Override
+    protected Mono<JsonRpcMessage.Response> sendRequestAsync(String method, Map<String, Object> params) {
         Object requestId = requestIdCounter.getAndIncrement();
 
         JsonRpcMessage.Request request = JsonRpcMessage.Request.builder()
@@ -53,15 +58,13 @@ public class HttpJsonRpcClient extends AbstractJsonRpcClient {
 
         log.debug("Sending HTTP MCP request: method={}, id={}", method, requestId);
 
-        Mono<JsonRpcMessage.Response> responseMono = webClient.post()
+        return webClient.post()
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(JsonRpcMessage.Response.class)
                 .timeout(Duration.ofSeconds(REQUEST_TIMEOUT_SECONDS))
                 .doOnSuccess(response -> log.debug("Received HTTP MCP response: id={}", response.getId()))
                 .doOnError(error -> log.error("HTTP MCP request failed: {}", error.getMessage()));
-
-        return responseMono.block();
     }
 
     @Override
@@ -1,5 +1,8 @@
 package io.leavesfly.jimi.mcp;
 
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 /**
  * JSON-RPC客户端接口
  * 定义MCP通信的统一接口，支持STDIO和HTTP两种传输方式
@@ -36,4 +39,19 @@ public interface JsonRpcClient extends AutoCloseable {
      * @throws Exception 执行失败时抛出
      */
     MCPSchema.CallToolResult callTool(String toolName, java.util.Map<String, Object> arguments) throws Exception;
+
+    /**
+     * 异步调用工具
+     * 默认实现将同步调用切换到 boundedElastic 线程执行；
+     * 支持请求复用（pipelining）的传输实现应覆写此方法，直接返回按请求ID关联的响应，
+     * 订阅取消时同时取消服务端的挂起请求
+     *
+     * @param toolName 工具名称
+     * @param arguments 工具参数
+     * @return 异步的工具执行结果
+     */
+    default Mono<MCPSchema.CallToolResult> callToolAsync(String toolName, java.util.Map<String, Object> arguments) {
+        return Mono.fromCallable(() -> callTool(toolName, arguments))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
 }
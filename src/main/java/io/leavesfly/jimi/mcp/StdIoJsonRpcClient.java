@@ -1,30 +1,43 @@
 package io.leavesfly.jimi.mcp;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * STDIO JSON-RPC 客户端实现
  * 通过标准输入输出与外部MCP服务进程通信
+ *
+ * 支持请求流水线：多个请求可同时在同一管道上等待响应，
+ * 发送端仅对写入加锁，响应由 readLoop 按请求ID分发到各自的 future
  */
 @Slf4j
 public class StdIoJsonRpcClient extends AbstractJsonRpcClient {
 
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
     private final Process process;
     private final BufferedWriter writer;
     private final BufferedReader reader;
     private final AtomicInteger requestIdCounter = new AtomicInteger(1);
-    private final Map<Object, JsonRpcMessage.Response> responseCache = new ConcurrentHashMap<>();
+    private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    private final Duration requestTimeout;
     private final Thread readerThread;
     private volatile boolean closed = false;
 
@@ -37,7 +50,22 @@ public class StdIoJsonRpcClient extends AbstractJsonRpcClient {
      * @throws IOException 进程启动失败时抛出
      */
     public StdIoJsonRpcClient(String command, List<String> args, Map<String, String> env) throws IOException {
+        this(command, args, env, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * 构造 STDIO JSON-RPC 客户端（自定义单请求超时）
+     *
+     * @param command        启动命令
+     * @param args           命令参数列表
+     * @param env            环境变量映射
+     * @param requestTimeout 单个请求的超时时间
+     * @throws IOException 进程启动失败时抛出
+     */
+    public StdIoJsonRpcClient(String command, List<String> args, Map<String, String> env,
+                              Duration requestTimeout) throws IOException {
         super();
+        this.requestTimeout = requestTimeout;
 
         ProcessBuilder pb = new ProcessBuilder();
         List<String> fullCommand = new ArrayList<>();
@@ -74,7 +102,61 @@ public class StdIoJsonRpcClient extends AbstractJsonRpcClient {
     }
 
     @Override
-    protected synchronized JsonRpcMessage.Response sendRequest(String method, Map<String, Object> params) throws Exception {
+    protected JsonRpcMessage.Response sendRequest(String method, Map<String, Object> params) throws Exception {
+        PendingRequest pending = submit(method, params);
+        try {
+            return pending.future.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(pending, "timeout");
+            throw new RuntimeException("Request timeout: " + method);
+        } catch (InterruptedException e) {
+            cancel(pending, "interrupted");
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * 异步发送请求
+     * 请求写入管道后立即返回，由 readLoop 按请求ID完成对应的 future；
+     * 超时或订阅取消时移除挂起请求，并通知服务端取消
+     */
+    @Override
+    protected Mono<JsonRpcMessage.Response> sendRequestAsync(String method, Map<String, Object> params) {
+        return Mono.defer(() -> {
+            PendingRequest pending;
+            try {
+                pending = submit(method, params);
+            } catch (Exception e) {
+                return Mono.error(e);
+            }
+            return Mono.fromFuture(pending.future, true)
+                    .timeout(requestTimeout, Mono.defer(() -> {
+                        cancel(pending, "timeout");
+                        return Mono.error(new TimeoutException("Request timeout: " + method));
+                    }))
+                    .doOnCancel(() -> cancel(pending, "cancelled"));
+        });
+    }
+
+    /**
+     * 当前挂起（已发送、未收到响应）的请求数
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * 注册挂起请求并写入管道
+     * 只有写入本身需要互斥，等待响应不占用任何锁
+     */
+    private PendingRequest submit(String method, Map<String, Object> params) throws IOException {
+        if (closed) {
+            throw new IOException("Client closed");
+        }
         Object requestId = requestIdCounter.getAndIncrement();
 
         JsonRpcMessage.Request request = JsonRpcMessage.Request.builder()
@@ -87,22 +169,53 @@ public class StdIoJsonRpcClient extends AbstractJsonRpcClient {
         String requestJson = objectMapper.writeValueAsString(request);
         log.debug("Sending MCP request: {}", requestJson);
 
-        writer.write(requestJson);
-        writer.write("\n");
-        writer.flush();
+        PendingRequest pending = new PendingRequest(requestId, method);
+        pendingRequests.put(pending.key, pending);
+        try {
+            writeLine(requestJson);
+        } catch (IOException e) {
+            pendingRequests.remove(pending.key);
+            throw e;
+        }
+        return pending;
+    }
+
+    /**
+     * 取消挂起请求，按 MCP 协议发送 notifications/cancelled 通知服务端放弃处理
+     */
+    private void cancel(PendingRequest pending, String reason) {
+        if (pendingRequests.remove(pending.key) == null || closed) {
+            return;
+        }
+        pending.future.cancel(false);
+        log.debug("Cancelling MCP request {} ({}): {}", pending.key, pending.method, reason);
+        try {
+            Map<String, Object> cancelParams = new HashMap<>();
+            cancelParams.put("requestId", pending.id);
+            cancelParams.put("reason", reason);
+            writeLine(objectMapper.writeValueAsString(JsonRpcMessage.Request.builder()
+                    .jsonrpc("2.0")
+                    .method("notifications/cancelled")
+                    .params(cancelParams)
+                    .build()));
+        } catch (IOException e) {
+            log.debug("Failed to send cancel notification: {}", e.getMessage());
+        }
+    }
 
-        long startTime = System.currentTimeMillis();
-        while (!responseCache.containsKey(requestId)) {
-            if (closed) {
-                throw new RuntimeException("Client closed");
-            }
-            if (System.currentTimeMillis() - startTime > 30000) {
-                throw new RuntimeException("Request timeout");
-            }
-            Thread.sleep(100);
+    private void writeLine(String line) throws IOException {
+        synchronized (writer) {
+            writer.write(line);
+            writer.write("\n");
+            writer.flush();
         }
+    }
 
-        return responseCache.remove(requestId);
+    /**
+     * 统一请求ID的键：Jackson 可能将数字ID反序列化为 Integer 或 Long
+     */
+    private static String keyOf(Object id) {
+        return String.valueOf(id);
     }
 
     /**
@@ -118,8 +231,14 @@ public class StdIoJsonRpcClient extends AbstractJsonRpcClient {
                 log.debug("Received MCP response: {}", line);
                 try {
                     JsonRpcMessage.Response response = objectMapper.readValue(line, JsonRpcMessage.Response.class);
-                    if (response.getId() != null) {
-                        responseCache.put(response.getId(), response);
+                    if (response.getId() == null) {
+                        continue;
+                    }
+                    PendingRequest pending = pendingRequests.remove(keyOf(response.getId()));
+                    if (pending != null) {
+                        pending.future.complete(response);
+                    } else {
+                        log.debug("Dropping response for unknown or cancelled request: {}", response.getId());
                     }
                 } catch (Exception e) {
                     log.warn("Failed to parse response: {}", e.getMessage());
@@ -129,12 +248,39 @@ public class StdIoJsonRpcClient extends AbstractJsonRpcClient {
             if (!closed) {
                 log.error("Error reading from MCP process: {}", e.getMessage());
             }
+        } finally {
+            failAllPending(new IOException("MCP process output closed"));
+        }
+    }
+
+    private void failAllPending(Throwable cause) {
+        for (PendingRequest pending : pendingRequests.values()) {
+            if (pendingRequests.remove(pending.key, pending)) {
+                pending.future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * 挂起请求：等待 readLoop 按ID完成
+     */
+    private static class PendingRequest {
+        final Object id;
+        final String key;
+        final String method;
+        final CompletableFuture<JsonRpcMessage.Response> future = new CompletableFuture<>();
+
+        PendingRequest(Object id, String method) {
+            this.id = id;
+            this.key = keyOf(id);
+            this.method = method;
         }
     }
 
     @Override
     public void close() throws Exception {
         closed = true;
+        failAllPending(new IOException("Client closed"));
         if (writer != null) {
             writer.close();
         }
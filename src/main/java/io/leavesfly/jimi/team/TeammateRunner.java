@@ -7,6 +7,7 @@ import io.leavesfly.jimi.core.agent.AgentSpec;
 import io.leavesfly.jimi.core.compaction.SimpleCompaction;
 import io.leavesfly.jimi.core.engine.AgentExecutor;
 import io.leavesfly.jimi.core.engine.JimiRuntime;
+import io.leavesfly.jimi.core.engine.context.CheckpointIndex;
 import io.leavesfly.jimi.core.engine.context.Context;
 import io.leavesfly.jimi.core.engine.context.ContextManager;
 import io.leavesfly.jimi.llm.message.Message;
@@ -249,6 +250,7 @@ public class TeammateRunner {
         try {
             if (historyFile != null) {
                 Files.deleteIfExists(historyFile);
+                Files.deleteIfExists(CheckpointIndex.indexFileOf(historyFile));
             }
         } catch (IOException e) {
             log.warn("Failed to cleanup temp history file: {}", historyFile, e);
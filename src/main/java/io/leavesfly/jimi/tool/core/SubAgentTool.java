@@ -14,6 +14,7 @@ import io.leavesfly.jimi.core.session.Session;
 import io.leavesfly.jimi.core.engine.AgentExecutor;
 import io.leavesfly.jimi.core.JimiEngine;
 import io.leavesfly.jimi.core.agent.Agent;
+import io.leavesfly.jimi.core.engine.context.CheckpointIndex;
 import io.leavesfly.jimi.core.engine.context.Context;
 import io.leavesfly.jimi.llm.message.Message;
 import io.leavesfly.jimi.llm.message.MessageRole;
@@ -488,6 +489,7 @@ public class SubAgentTool extends AbstractTool<SubAgentTool.Params> {
         try {
             if (tempFile != null && Files.exists(tempFile)) {
                 Files.deleteIfExists(tempFile);
+                Files.deleteIfExists(CheckpointIndex.indexFileOf(tempFile));
                 log.debug("Cleaned up subagent temp history file: {}", tempFile);
             }
         } catch (IOException e) {
@@ -64,6 +64,9 @@ public class CodeLocateTool extends AbstractTool<CodeLocateTool.Params> {
             case VECTOR_ONLY:
                 resultMono = hybridSearch.searchRetrievalOnly(query);
                 break;
+            case LEXICAL_ONLY:
+                resultMono = hybridSearch.searchLexicalOnly(query);
+                break;
             case HYBRID:
             case SMART:
             default:
@@ -127,7 +130,7 @@ public class CodeLocateTool extends AbstractTool<CodeLocateTool.Params> {
         if (totalResults == 0) {
             sb.append("❌ 未找到匹配的代码片段。请尝试:\n");
             sb.append("- 使用更简洁的关键词\n");
-            sb.append("- 切换到其他模式 (smart/hybrid/graph_only/vector_only)\n");
+            sb.append("- 切换到其他模式 (smart/hybrid/graph_only/vector_only/lexical_only)\n");
             sb.append("- 增加 topK 参数\n");
             return sb.toString();
         }
@@ -166,7 +169,8 @@ public class CodeLocateTool extends AbstractTool<CodeLocateTool.Params> {
         SMART,         // 智能模式 (自动分析)
         HYBRID,        // 混合模式 (图+向量)
         GRAPH_ONLY,    // 仅图检索
-        VECTOR_ONLY    // 仅向量检索
+        VECTOR_ONLY,   // 仅向量检索
+        LEXICAL_ONLY   // 仅关键词检索 (BM25，不调用嵌入)
     }
     
     /**
@@ -181,7 +185,7 @@ public class CodeLocateTool extends AbstractTool<CodeLocateTool.Params> {
         @JsonPropertyDescription("查询文本。支持符号名称(如'UserService')、文件路径(如'UserService.java')、或自然语言描述(如'用户认证相关的代码')")
         private String query;
         
-        @JsonPropertyDescription("搜索模式。可选值: smart(智能自动选择), hybrid(混合检索), graph_only(仅图检索), vector_only(仅向量检索)。默认: smart")
+        @JsonPropertyDescription("搜索模式。可选值: smart(智能自动选择), hybrid(混合检索), graph_only(仅图检索), vector_only(仅向量检索), lexical_only(仅关键词检索，适合精确标识符/错误信息/配置键)。默认: smart")
         @Builder.Default
         private SearchMode mode = SearchMode.SMART;
         
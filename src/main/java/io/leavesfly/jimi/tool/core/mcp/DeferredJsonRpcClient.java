@@ -0,0 +1,64 @@
+package io.leavesfly.jimi.tool.core.mcp;
+
+import io.leavesfly.jimi.mcp.JsonRpcClient;
+import io.leavesfly.jimi.mcp.MCPSchema;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟连接的 MCP 客户端
+ * 
+ * 工具从缓存注册时，真实连接仍在后台建立。调用会等待连接就绪后转发给真实客户端，
+ * 连接失败时调用返回对应错误。真实客户端的生命周期由 MCPToolLoader 统一管理。
+ */
+class DeferredJsonRpcClient implements JsonRpcClient {
+
+    private final CompletableFuture<JsonRpcClient> delegate;
+    private final Duration connectTimeout;
+
+    DeferredJsonRpcClient(CompletableFuture<JsonRpcClient> delegate, Duration connectTimeout) {
+        this.delegate = delegate;
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public MCPSchema.InitializeResult initialize() throws Exception {
+        return await().initialize();
+    }
+
+    @Override
+    public MCPSchema.ListToolsResult listTools() throws Exception {
+        return await().listTools();
+    }
+
+    @Override
+    public MCPSchema.CallToolResult callTool(String toolName, Map<String, Object> arguments) throws Exception {
+        return await().callTool(toolName, arguments);
+    }
+
+    @Override
+    public Mono<MCPSchema.CallToolResult> callToolAsync(String toolName, Map<String, Object> arguments) {
+        return Mono.fromFuture(delegate, true)
+                .timeout(connectTimeout)
+                .flatMap(client -> client.callToolAsync(toolName, arguments));
+    }
+
+    @Override
+    public void close() {
+        // 真实客户端由 MCPToolLoader.closeAll 关闭
+    }
+
+    private JsonRpcClient await() throws Exception {
+        try {
+            return delegate.get(connectTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import io.leavesfly.jimi.tool.ToolResult;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -94,30 +95,25 @@ public class MCPTool extends AbstractTool<Map<String, Object>> {
 
     /**
      * 执行MCP工具
-     * 调用外部MCP服务的工具，并转换结果
+     * 通过异步接口调用外部MCP服务的工具，并转换结果；
+     * 超时或订阅被取消时，挂起的请求会随之取消，不占用等待线程
      * 
      * @param params 工具参数
      * @return 异步的ToolResult
      */
     @Override
     public Mono<ToolResult> execute(Map<String, Object> params) {
-        return Mono.fromCallable(() -> {
-            try {
-                // 调用MCP服务的工具
-                MCPSchema.CallToolResult result = mcpClient.callTool(
-                    mcpToolName,
-                    params != null ? params : new HashMap<>()
-                );
+        return mcpClient.callToolAsync(mcpToolName, params != null ? params : new HashMap<>())
+                .timeout(Duration.ofSeconds(timeoutSeconds))
                 // 转换为Jimi的ToolResult格式
-                return MCPResultConverter.convert(result);
-            } catch (Exception e) {
-                log.error("Failed to execute MCP tool {}: {}", mcpToolName, e.getMessage());
-                return ToolResult.error(
-                    "Failed to execute MCP tool: " + e.getMessage(),
-                    "MCP tool execution failed"
-                );
-            }
-        });
+                .map(MCPResultConverter::convert)
+                .onErrorResume(e -> {
+                    log.error("Failed to execute MCP tool {}: {}", mcpToolName, e.getMessage());
+                    return Mono.just(ToolResult.error(
+                        "Failed to execute MCP tool: " + e.getMessage(),
+                        "MCP tool execution failed"
+                    ));
+                });
     }
 
     /**
@@ -0,0 +1,102 @@
+package io.leavesfly.jimi.tool.core.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.leavesfly.jimi.mcp.MCPConfig;
+import io.leavesfly.jimi.mcp.MCPSchema;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * MCP 工具列表磁盘缓存
+ * 
+ * 以服务配置（命令、参数、环境变量、URL、请求头）的 SHA-256 为键，
+ * 缓存每个 MCP 服务 tools/list 的返回结果。启动时命中缓存即可立即注册工具 schema，
+ * 真实连接在后台完成后再与缓存比对。
+ * 
+ * 缓存文件仅包含工具定义，不包含配置本身（环境变量中可能有密钥）。
+ */
+@Slf4j
+public class MCPToolCache {
+
+    /** 序列化配置用于计算哈希，Map 按键排序保证稳定 */
+    private static final ObjectMapper KEY_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final ObjectMapper objectMapper;
+    private final Path cacheDir;
+
+    public MCPToolCache(ObjectMapper objectMapper) {
+        this(objectMapper, Paths.get(System.getProperty("user.home"), ".jimi", "mcp-cache"));
+    }
+
+    public MCPToolCache(ObjectMapper objectMapper, Path cacheDir) {
+        this.objectMapper = objectMapper;
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * 计算服务配置的缓存键
+     */
+    public String keyOf(MCPConfig.ServerConfig config) {
+        try {
+            byte[] json = KEY_MAPPER.writeValueAsBytes(config);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            log.warn("Failed to hash MCP server config: {}", e.getMessage());
+            return Integer.toHexString(config.hashCode());
+        }
+    }
+
+    /**
+     * 读取缓存的工具列表
+     *
+     * @param key 缓存键
+     * @return 缓存的工具列表，不存在或损坏时返回 empty
+     */
+    public Optional<List<MCPSchema.Tool>> load(String key) {
+        Path file = cacheDir.resolve(key + ".json");
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            MCPSchema.ListToolsResult result = objectMapper.readValue(file.toFile(), MCPSchema.ListToolsResult.class);
+            return Optional.ofNullable(result.getTools());
+        } catch (Exception e) {
+            log.warn("Ignoring corrupt MCP tool cache {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 写入工具列表缓存（先写临时文件再原子替换，避免并发启动读到半个文件）
+     *
+     * @param key   缓存键
+     * @param tools 工具列表
+     */
+    public void save(String key, List<MCPSchema.Tool> tools) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path file = cacheDir.resolve(key + ".json");
+            Path tmp = Files.createTempFile(cacheDir, key, ".tmp");
+            byte[] json = objectMapper.writeValueAsBytes(MCPSchema.ListToolsResult.builder().tools(tools).build());
+            Files.write(tmp, json);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to write MCP tool cache: {}", e.getMessage());
+        }
+    }
+}
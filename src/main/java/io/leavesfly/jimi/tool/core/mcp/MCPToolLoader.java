@@ -11,9 +11,20 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * MCP 工具加载器 - Spring Service
@@ -21,9 +32,9 @@ import java.util.Map;
  * 
  * 主要职责：
  * 1. 从配置文件加载MCP服务配置
- * 2. 为每个服务创建StdIoJsonRpcClient客户端
- * 3. 查询服务提供的工具列表
- * 4. 将工具包装为MCPTool并注册到ToolRegistry
+ * 2. 并发为每个服务创建StdIoJsonRpcClient客户端
+ * 3. 查询服务提供的工具列表，并写入磁盘缓存（MCPToolCache）
+ * 4. 将工具包装为MCPTool并注册到ToolRegistry，命中缓存时无需等待连接
  * 5. 统一管理客户端生命周期（通过 @PreDestroy 自动清理）
  * 
  * @author Jimi Team
@@ -31,17 +42,35 @@ import java.util.Map;
 @Slf4j
 @Service
 public class MCPToolLoader {
+    private static final Duration DEFAULT_STARTUP_DEADLINE = Duration.ofSeconds(30);
+
     /** JSON序列化工具 */
     private final ObjectMapper objectMapper;
-    /** 活跃的客户端列表，用于统一管理和关闭 */
-    private final List<JsonRpcClient> activeClients = new ArrayList<>();
+    /** 活跃的客户端列表，用于统一管理和关闭（启动线程并发写入） */
+    private final List<JsonRpcClient> activeClients = new CopyOnWriteArrayList<>();
+    /** 工具列表磁盘缓存 */
+    private final MCPToolCache toolCache;
+    /** 未命中缓存时等待所有服务启动的总期限 */
+    private final Duration startupDeadline;
+    /** 并发启动服务的线程池 */
+    private final ExecutorService startupExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "MCP-Startup");
+        t.setDaemon(true);
+        return t;
+    });
 
     @Autowired
     public MCPToolLoader(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this(objectMapper, new MCPToolCache(objectMapper), DEFAULT_STARTUP_DEADLINE);
         log.info("MCPToolLoader initialized as Spring Service");
     }
 
+    MCPToolLoader(ObjectMapper objectMapper, MCPToolCache toolCache, Duration startupDeadline) {
+        this.objectMapper = objectMapper;
+        this.toolCache = toolCache;
+        this.startupDeadline = startupDeadline;
+    }
+
     /**
      * 从文件加载MCP工具
      * 
@@ -59,7 +88,8 @@ public class MCPToolLoader {
 
     /**
      * 从配置对象加载MCP工具
-     * 核心加载逻辑：遍历每个服务配置，创建客户端，查询工具，注册到ToolRegistry
+     * 核心加载逻辑：所有服务并发建立连接；命中工具列表缓存的服务立即注册工具，
+     * 真实连接在后台完成并与缓存比对；未命中缓存的服务在启动期限内等待连接完成
      * 
      * @param config MCP配置对象
      * @param toolRegistry 工具注册表
@@ -70,33 +100,113 @@ public class MCPToolLoader {
         if (config.getMcpServers() == null || config.getMcpServers().isEmpty()) {
             return loadedTools;
         }
-        // 遍历每个配置的MCP服务
+        long deadline = System.nanoTime() + startupDeadline.toNanos();
+
+        // 1. 并发启动所有服务的连接
+        Map<String, CompletableFuture<ServerConnection>> connections = new LinkedHashMap<>();
         for (Map.Entry<String, MCPConfig.ServerConfig> entry : config.getMcpServers().entrySet()) {
             String serverName = entry.getKey();
             MCPConfig.ServerConfig serverConfig = entry.getValue();
+            connections.put(serverName, CompletableFuture.supplyAsync(
+                    () -> connect(serverName, serverConfig), startupExecutor));
+        }
+
+        // 2. 逐个注册：命中缓存的立即注册，其余等待连接（共享同一启动期限）
+        for (Map.Entry<String, MCPConfig.ServerConfig> entry : config.getMcpServers().entrySet()) {
+            String serverName = entry.getKey();
+            CompletableFuture<ServerConnection> connection = connections.get(serverName);
+            Optional<List<MCPSchema.Tool>> cachedTools = toolCache.load(toolCache.keyOf(entry.getValue()));
+            if (cachedTools.isPresent()) {
+                registerFromCache(serverName, cachedTools.get(), connection, toolRegistry, loadedTools);
+                continue;
+            }
             try {
-                // 1. 创建客户端连接
-                JsonRpcClient client = createClient(serverName, serverConfig);
-                activeClients.add(client);
-                // 2. 初始化连接
-                client.initialize();
-                // 3. 获取工具列表
-                MCPSchema.ListToolsResult toolsResult = client.listTools();
-                List<MCPSchema.Tool> tools = toolsResult.getTools();
-                // 4. 包装和注册每个工具
-                for (MCPSchema.Tool tool : tools) {
-                    MCPTool mcpTool = new MCPTool(tool, client);
-                    toolRegistry.register(mcpTool);
-                    loadedTools.add(mcpTool);
-                    log.info("Loaded MCP tool: {} from server: {}", tool.getName(), serverName);
-                }
+                long remainingNanos = Math.max(0, deadline - System.nanoTime());
+                ServerConnection conn = connection.get(remainingNanos, TimeUnit.NANOSECONDS);
+                registerTools(serverName, conn.tools(), conn.client(), toolRegistry, loadedTools);
+            } catch (TimeoutException e) {
+                log.error("MCP server {} did not start within {}s, skipping its tools",
+                        serverName, startupDeadline.toSeconds());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while loading MCP tools from server {}", serverName);
             } catch (Exception e) {
-                log.error("Failed to load MCP tools from server {}: {}", serverName, e.getMessage());
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                log.error("Failed to load MCP tools from server {}: {}", serverName, cause.getMessage());
             }
         }
         return loadedTools;
     }
 
+    /**
+     * 从缓存注册工具，真实连接就绪后转发调用，并在后台校验缓存
+     */
+    private void registerFromCache(String serverName, List<MCPSchema.Tool> cachedTools,
+                                   CompletableFuture<ServerConnection> connection,
+                                   ToolRegistry toolRegistry, List<MCPTool> loadedTools) {
+        CompletableFuture<JsonRpcClient> clientFuture = connection.thenApply(ServerConnection::client);
+        registerTools(serverName, cachedTools, new DeferredJsonRpcClient(clientFuture, startupDeadline),
+                toolRegistry, loadedTools);
+
+        connection.whenComplete((conn, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.error("MCP server {} failed to connect, its cached tools are unavailable: {}",
+                        serverName, cause.getMessage());
+            } else if (!cachedTools.equals(conn.tools())) {
+                log.warn("MCP server {} tool list changed since last start, cache refreshed; "
+                        + "restart to pick up the new tool definitions", serverName);
+            } else {
+                log.debug("MCP server {} connected, cached tool list verified", serverName);
+            }
+        });
+    }
+
+    private void registerTools(String serverName, List<MCPSchema.Tool> tools, JsonRpcClient client,
+                               ToolRegistry toolRegistry, List<MCPTool> loadedTools) {
+        for (MCPSchema.Tool tool : tools) {
+            MCPTool mcpTool = new MCPTool(tool, client);
+            toolRegistry.register(mcpTool);
+            loadedTools.add(mcpTool);
+            log.info("Loaded MCP tool: {} from server: {}", tool.getName(), serverName);
+        }
+    }
+
+    /**
+     * 建立单个服务的连接：创建客户端、初始化、获取工具列表并刷新缓存
+     * 在启动线程池中执行
+     */
+    private ServerConnection connect(String serverName, MCPConfig.ServerConfig serverConfig) {
+        JsonRpcClient client = null;
+        try {
+            // 1. 创建客户端连接
+            client = createClient(serverName, serverConfig);
+            activeClients.add(client);
+            // 2. 初始化连接
+            client.initialize();
+            // 3. 获取工具列表
+            List<MCPSchema.Tool> tools = client.listTools().getTools();
+            if (tools == null) {
+                tools = List.of();
+            }
+            toolCache.save(toolCache.keyOf(serverConfig), tools);
+            return new ServerConnection(client, tools);
+        } catch (Exception e) {
+            if (client != null) {
+                activeClients.remove(client);
+                closeQuietly(client);
+            }
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * 已建立的服务连接及其工具列表
+     */
+    private record ServerConnection(JsonRpcClient client, List<MCPSchema.Tool> tools) {
+    }
+
     /**
      * 创建客户端实例
      * 根据配置类型（STDIO或HTTP）创建对应的客户端
@@ -157,13 +267,18 @@ public class MCPToolLoader {
     public void closeAll() {
         log.info("Closing {} MCP client(s)...", activeClients.size());
         for (JsonRpcClient client : activeClients) {
-            try { 
-                client.close(); 
-            } catch (Exception e) {
-                log.warn("Failed to close MCP client: {}", e.getMessage());
-            }
+            closeQuietly(client);
         }
         activeClients.clear();
+        startupExecutor.shutdownNow();
         log.info("All MCP clients closed");
     }
+
+    private void closeQuietly(JsonRpcClient client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("Failed to close MCP client: {}", e.getMessage());
+        }
+    }
 }
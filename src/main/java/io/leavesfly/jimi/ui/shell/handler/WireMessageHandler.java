@@ -88,6 +88,8 @@ public class WireMessageHandler {
                 handleCompactionEnd();
             } else if (message instanceof StatusUpdate statusUpdate) {
                 handleStatusUpdate(statusUpdate);
+            } else if (message instanceof IndexBuildProgress progress) {
+                handleIndexBuildProgress(progress);
             } else if (message instanceof ContentPartMessage contentMsg) {
                 handleContentPart(contentMsg);
             } else if (message instanceof ToolCallMessage toolCallMsg) {
@@ -159,6 +161,19 @@ public class WireMessageHandler {
         currentStatus.set(status);
     }
 
+    private void handleIndexBuildProgress(IndexBuildProgress progress) {
+        if (progress.isDone()) {
+            currentStatus.set("ready");
+            return;
+        }
+        currentStatus.set("indexing");
+        String total = progress.getTotalFiles() >= 0 ? "/" + progress.getTotalFiles() : "";
+        String eta = progress.getEtaSeconds() >= 0 ? ", 预计剩余 " + progress.getEtaSeconds() + "s" : "";
+        outputFormatter.printStatus(String.format("📦 索引中: %d%s 文件, %d 片段, %.1f 文件/s%s",
+                progress.getProcessedFiles(), total, progress.getIndexedChunks(),
+                progress.getFilesPerSecond(), eta));
+    }
+
     private void handleContentPart(ContentPartMessage contentMsg) {
         if (uiConfig.isShowSpinner()) {
             spinnerManager.stop();
@@ -0,0 +1,52 @@
+package io.leavesfly.jimi.wire.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 检索索引构建进度消息
+ * 构建期间约每秒发送一次，结束时发送 done=true 的最终进度
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexBuildProgress implements WireMessage {
+
+    /**
+     * 已处理文件数（含增量构建跳过的文件）
+     */
+    private long processedFiles;
+
+    /**
+     * 待处理文件总数（后台计数尚未完成时为 -1）
+     */
+    private long totalFiles;
+
+    /**
+     * 已入库片段数
+     */
+    private long indexedChunks;
+
+    /**
+     * 处理速度（文件/秒）
+     */
+    private double filesPerSecond;
+
+    /**
+     * 预计剩余时间（秒，无法估算时为 -1）
+     */
+    private long etaSeconds;
+
+    /**
+     * 是否构建结束
+     */
+    private boolean done;
+
+    @Override
+    public String getMessageType() {
+        return "IndexBuildProgress";
+    }
+}
@@ -0,0 +1,129 @@
+package io.leavesfly.jimi.core.engine.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.llm.message.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AsyncJSONLContextRepository 单元测试
+ */
+class AsyncJSONLContextRepositoryTest {
+
+    private static final int APPEND_COUNT = 10_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFormatCompatibleWithSyncRepository() {
+        Path file = tempDir.resolve("history.jsonl");
+        AsyncJSONLContextRepository repository = new AsyncJSONLContextRepository(file, objectMapper);
+
+        repository.appendMessages(List.of(Message.user("hello"))).block();
+        repository.updateTokenCount(42).block();
+        repository.saveCheckpoint(0).block();
+        repository.appendMessages(List.of(Message.assistant("hi"), Message.user("bye"))).block();
+        repository.close();
+
+        // 同步实现能读出异步实现写入的文件
+        ContextRepository.RestoredContext restored =
+                new JSONLContextRepository(file, objectMapper).restore().block();
+        assertNotNull(restored);
+        assertEquals(3, restored.getMessages().size());
+        assertEquals(42, restored.getTokenCount());
+        assertEquals(1, restored.getNextCheckpointId());
+    }
+
+    @Test
+    void testRevertFlushesPendingWrites() throws Exception {
+        Path file = tempDir.resolve("history.jsonl");
+        AsyncJSONLContextRepository repository = new AsyncJSONLContextRepository(file, objectMapper);
+
+        repository.saveCheckpoint(0).block();
+        repository.appendMessages(List.of(Message.user("first"))).block();
+        repository.saveCheckpoint(1).block();
+        repository.appendMessages(List.of(Message.user("second"))).block();
+
+        // 回退前的写入尚在队列中，回退必须先把它们写出
+        ContextRepository.RestoredContext reverted = repository.revertToCheckpoint(1).block();
+        assertNotNull(reverted);
+        assertEquals(1, reverted.getMessages().size());
+        assertEquals(1, reverted.getNextCheckpointId());
+        // 写线程维护的检查点索引截断到检查点 0
+        assertEquals(20, Files.size(CheckpointIndex.indexFileOf(file)));
+
+        // 回退后文件句柄重新打开，继续追加
+        repository.appendMessages(List.of(Message.user("third"))).block();
+        ContextRepository.RestoredContext restored = repository.restore().block();
+        repository.close();
+
+        assertNotNull(restored);
+        assertEquals(2, restored.getMessages().size());
+        assertTrue(Files.exists(tempDir.resolve("history.jsonl.1")));
+    }
+
+    @Test
+    void testAppendAfterCloseFails() {
+        Path file = tempDir.resolve("history.jsonl");
+        AsyncJSONLContextRepository repository = new AsyncJSONLContextRepository(file, objectMapper);
+        repository.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> repository.appendMessages(List.of(Message.user("late"))).block());
+    }
+
+    /**
+     * 基准对比：10k 次追加（每条消息一次调用），同步实现每次打开/关闭文件，异步实现 group commit
+     * <p>
+     * 耗时取决于文件系统（tmpfs 与实际磁盘差别很大），只打印结果；设置 -Djimi.bench=true 时运行。
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void benchmarkTenThousandAppends() throws Exception {
+        // 预热序列化路径，避免先运行的一方承担 JIT 开销
+        for (int i = 0; i < 1000; i++) {
+            objectMapper.writeValueAsBytes(Message.user("warmup " + i));
+        }
+
+        Path syncFile = tempDir.resolve("sync.jsonl");
+        JSONLContextRepository syncRepository = new JSONLContextRepository(syncFile, objectMapper);
+        long syncNanos = appendAll(syncRepository);
+
+        Path asyncFile = tempDir.resolve("async.jsonl");
+        AsyncJSONLContextRepository asyncRepository = new AsyncJSONLContextRepository(asyncFile, objectMapper,
+                AsyncJSONLContextRepository.FsyncPolicy.INTERVAL, Duration.ofSeconds(1));
+        long asyncNanos = appendAll(asyncRepository);
+        String stats = asyncRepository.getStats();
+        asyncRepository.close();
+
+        System.out.printf("JSONLContextRepository:      %d appends in %dms%n", APPEND_COUNT, syncNanos / 1_000_000);
+        System.out.printf("AsyncJSONLContextRepository: %d appends in %dms (%s)%n",
+                APPEND_COUNT, asyncNanos / 1_000_000, stats);
+
+        assertEquals(APPEND_COUNT, Files.readAllLines(syncFile).size());
+        assertEquals(APPEND_COUNT, Files.readAllLines(asyncFile).size());
+    }
+
+    /**
+     * 逐条追加并在最后等待落盘，返回耗时（纳秒）
+     */
+    private long appendAll(ContextRepository repository) {
+        long start = System.nanoTime();
+        for (int i = 0; i < APPEND_COUNT; i++) {
+            repository.appendMessages(List.of(Message.user("message " + i))).block();
+        }
+        repository.flush().block();
+        return System.nanoTime() - start;
+    }
+}
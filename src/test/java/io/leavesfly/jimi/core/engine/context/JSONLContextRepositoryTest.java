@@ -0,0 +1,114 @@
+package io.leavesfly.jimi.core.engine.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.llm.message.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JSONLContextRepository 检查点索引测试
+ */
+class JSONLContextRepositoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRevertUsesCheckpointIndex() throws Exception {
+        Path file = tempDir.resolve("history.jsonl");
+        JSONLContextRepository repository = new JSONLContextRepository(file, objectMapper);
+        writeSession(repository);
+
+        Path indexFile = CheckpointIndex.indexFileOf(file);
+        assertTrue(Files.exists(indexFile), "保存检查点时应写入 sidecar 索引");
+        assertEquals(3 * 20, Files.size(indexFile));
+
+        ContextRepository.RestoredContext reverted = repository.revertToCheckpoint(1).block();
+        assertNotNull(reverted);
+        assertEquals(2, reverted.getMessages().size());
+        assertEquals(100, reverted.getTokenCount());
+        assertEquals(1, reverted.getNextCheckpointId());
+
+        // 新文件只保留检查点 1 之前的前缀，索引同步截断
+        assertEquals(20, Files.size(indexFile));
+        assertTrue(Files.exists(tempDir.resolve("history.jsonl.1")));
+
+        // 回退后继续写入，再次回退仍然正确
+        repository.appendMessages(List.of(Message.user("after revert"))).block();
+        repository.saveCheckpoint(1).block();
+        repository.appendMessages(List.of(Message.user("dropped"))).block();
+        ContextRepository.RestoredContext again = repository.revertToCheckpoint(1).block();
+        assertNotNull(again);
+        assertEquals(3, again.getMessages().size());
+        assertEquals("after revert", again.getMessages().get(2).getTextContent());
+    }
+
+    @Test
+    void testRevertWithoutIndexFallsBackToScan() throws Exception {
+        Path file = tempDir.resolve("history.jsonl");
+        writeSession(new JSONLContextRepository(file, objectMapper));
+        Files.delete(CheckpointIndex.indexFileOf(file));
+
+        // 新实例、无 sidecar：全量扫描定位检查点，并重建索引
+        JSONLContextRepository repository = new JSONLContextRepository(file, objectMapper);
+        ContextRepository.RestoredContext reverted = repository.revertToCheckpoint(2).block();
+        assertNotNull(reverted);
+        assertEquals(3, reverted.getMessages().size());
+        assertEquals(200, reverted.getTokenCount());
+        assertEquals(2, reverted.getNextCheckpointId());
+        assertEquals(2 * 20, Files.size(CheckpointIndex.indexFileOf(file)));
+    }
+
+    @Test
+    void testStaleIndexIsIgnored() throws Exception {
+        Path file = tempDir.resolve("history.jsonl");
+        writeSession(new JSONLContextRepository(file, objectMapper));
+
+        // 外部改写历史文件，使索引偏移失效
+        List<String> lines = Files.readAllLines(file);
+        lines.add(0, objectMapper.writeValueAsString(Message.user("inserted")));
+        Files.write(file, lines);
+
+        JSONLContextRepository repository = new JSONLContextRepository(file, objectMapper);
+        ContextRepository.RestoredContext reverted = repository.revertToCheckpoint(1).block();
+        assertNotNull(reverted);
+        assertEquals(3, reverted.getMessages().size());
+        assertEquals("inserted", reverted.getMessages().get(0).getTextContent());
+    }
+
+    @Test
+    void testRestoreMatchesWrittenHistory() {
+        Path file = tempDir.resolve("history.jsonl");
+        writeSession(new JSONLContextRepository(file, objectMapper));
+
+        ContextRepository.RestoredContext restored =
+                new JSONLContextRepository(file, objectMapper).restore().block();
+        assertNotNull(restored);
+        assertEquals(4, restored.getMessages().size());
+        assertEquals(300, restored.getTokenCount());
+        assertEquals(3, restored.getNextCheckpointId());
+    }
+
+    /**
+     * 写入：检查点 0，2 条消息，token 100，检查点 1，1 条消息，token 200，检查点 2，1 条消息，token 300
+     */
+    private void writeSession(ContextRepository repository) {
+        repository.saveCheckpoint(0).block();
+        repository.appendMessages(List.of(Message.user("one"), Message.assistant("two"))).block();
+        repository.updateTokenCount(100).block();
+        repository.saveCheckpoint(1).block();
+        repository.appendMessages(List.of(Message.user("three"))).block();
+        repository.updateTokenCount(200).block();
+        repository.saveCheckpoint(2).block();
+        repository.appendMessages(List.of(Message.user("four"))).block();
+        repository.updateTokenCount(300).block();
+    }
+}
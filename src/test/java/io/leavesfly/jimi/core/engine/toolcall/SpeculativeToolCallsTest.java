@@ -0,0 +1,264 @@
+package io.leavesfly.jimi.core.engine.toolcall;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.core.engine.context.Context;
+import io.leavesfly.jimi.llm.message.FunctionCall;
+import io.leavesfly.jimi.llm.message.Message;
+import io.leavesfly.jimi.llm.message.ToolCall;
+import io.leavesfly.jimi.tool.Tool;
+import io.leavesfly.jimi.tool.ToolRegistry;
+import io.leavesfly.jimi.tool.ToolResult;
+import io.leavesfly.jimi.wire.Wire;
+import io.leavesfly.jimi.wire.message.ToolCallMessage;
+import io.leavesfly.jimi.wire.message.ToolResultMessage;
+import io.leavesfly.jimi.wire.message.WireMessage;
+import io.leavesfly.jimi.wire.message.WireRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 推测执行测试：结果顺序、推测结果复用、非并发安全调用处的屏障、流出错时的取消
+ */
+class SpeculativeToolCallsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private ToolRegistry toolRegistry;
+    private RecordingWire wire;
+    private ToolDispatcher dispatcher;
+    private Context context;
+
+    @BeforeEach
+    void setUp() {
+        toolRegistry = new ToolRegistry(objectMapper);
+        wire = new RecordingWire();
+        dispatcher = new ToolDispatcher(toolRegistry, tempDir, wire, new ToolErrorTracker(), null);
+        context = new Context(tempDir.resolve("history.jsonl"), objectMapper);
+    }
+
+    @Test
+    void testMixedCallsKeepOrderAndReuseSpeculatedResults() throws Exception {
+        FakeTool read = register(new FakeTool("read", true, n -> Mono.just(ToolResult.ok("read#" + n, ""))));
+        FakeTool write = register(new FakeTool("write", false, n -> Mono.just(ToolResult.ok("write#" + n, ""))));
+        List<ToolCall> calls = List.of(call("r1", "read"), call("r2", "read"), call("w1", "write"), call("r3", "read"));
+
+        SpeculativeToolCalls speculation = dispatcher.startSpeculation();
+        calls.forEach(speculation::submit);
+        assertEquals(2, speculation.getStartedCount());
+        assertTrue(read.awaitInvocations(2), "开头的两个读调用应在流式阶段开始执行");
+        // 流式阶段不对外发送任何消息
+        assertTrue(wire.messages().isEmpty());
+
+        dispatcher.executeToolCalls(calls, context, speculation).block(Duration.ofSeconds(10));
+
+        // 推测过的调用不再重复执行，屏障之后的读调用照常执行
+        assertEquals(3, read.invocations.get());
+        assertEquals(1, write.invocations.get());
+
+        List<Message> history = context.getHistory();
+        assertEquals(List.of("r1", "r2", "w1", "r3"),
+                history.stream().map(Message::getToolCallId).collect(Collectors.toList()));
+        assertEquals(List.of("read#1", "read#2"), List.of(history.get(0).getTextContent(),
+                history.get(1).getTextContent()).stream().sorted().collect(Collectors.toList()));
+        assertEquals("write#1", history.get(2).getTextContent());
+        assertEquals("read#3", history.get(3).getTextContent());
+
+        // 每个调用在 Wire 上恰好一条调用消息和一条结果消息，且调用在前
+        List<String> events = wire.events();
+        for (String id : List.of("r1", "r2", "w1", "r3")) {
+            assertEquals(1, Collections.frequency(events, "call:" + id));
+            assertEquals(1, Collections.frequency(events, "result:" + id));
+            assertTrue(events.indexOf("call:" + id) < events.indexOf("result:" + id));
+        }
+        assertTrue(events.indexOf("result:r1") < events.indexOf("call:w1"));
+        assertTrue(events.indexOf("result:r2") < events.indexOf("call:w1"));
+        assertTrue(events.indexOf("result:w1") < events.indexOf("call:r3"));
+    }
+
+    @Test
+    void testSpeculationStopsAtFirstUnsafeCall() {
+        FakeTool read = register(new FakeTool("read", true, n -> Mono.just(ToolResult.ok("read#" + n, ""))));
+        register(new FakeTool("write", false, n -> Mono.just(ToolResult.ok("write#" + n, ""))));
+
+        SpeculativeToolCalls speculation = dispatcher.startSpeculation();
+        speculation.submit(call("w1", "write"));
+        speculation.submit(call("r1", "read"));
+        speculation.submit(call("r2", "read"));
+
+        assertEquals(0, speculation.getStartedCount());
+        assertNull(speculation.take(call("r1", "read")));
+        assertEquals(0, read.invocations.get());
+    }
+
+    @Test
+    void testIncompleteArgumentsAreNotSpeculated() {
+        register(new FakeTool("read", true, n -> Mono.just(ToolResult.ok("read#" + n, ""))));
+
+        SpeculativeToolCalls speculation = dispatcher.startSpeculation();
+        speculation.submit(ToolCall.builder().id("r1")
+                .function(FunctionCall.builder().name("read").arguments("{\"path\": \"a").build()).build());
+
+        assertEquals(0, speculation.getStartedCount());
+    }
+
+    @Test
+    void testStreamErrorCancelsSpeculatedCallsWithoutAnnouncing() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        FakeTool slow = register(new FakeTool("slow", true,
+                n -> Mono.<ToolResult>never().doOnCancel(cancelled::countDown)));
+
+        SpeculativeToolCalls speculation = dispatcher.startSpeculation();
+        speculation.submit(call("s1", "slow"));
+        assertTrue(slow.awaitInvocations(1));
+
+        // ReactLoop 在流出错时调用 cancelAll()
+        speculation.cancelAll();
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS), "推测执行的工具应被取消");
+        assertTrue(wire.messages().isEmpty(), "被取消的推测调用不应留下调用消息");
+        // 取消后不再接受新的推测
+        speculation.submit(call("s2", "slow"));
+        assertEquals(1, speculation.getStartedCount());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private FakeTool register(FakeTool tool) {
+        toolRegistry.register(tool);
+        return tool;
+    }
+
+    private static ToolCall call(String id, String toolName) {
+        return ToolCall.builder()
+                .id(id)
+                .function(FunctionCall.builder().name(toolName).arguments("{\"path\": \"" + id + "\"}").build())
+                .build();
+    }
+
+    public static class Params {
+        public String path;
+    }
+
+    /**
+     * 记录执行次数的测试工具
+     */
+    private static class FakeTool implements Tool<Params> {
+
+        private final String name;
+        private final boolean concurrentSafe;
+        private final Function<Integer, Mono<ToolResult>> behavior;
+        private final AtomicInteger invocations = new AtomicInteger();
+
+        FakeTool(String name, boolean concurrentSafe, Function<Integer, Mono<ToolResult>> behavior) {
+            this.name = name;
+            this.concurrentSafe = concurrentSafe;
+            this.behavior = behavior;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+
+        @Override
+        public Class<Params> getParamsType() {
+            return Params.class;
+        }
+
+        @Override
+        public Mono<ToolResult> execute(Params params) {
+            return behavior.apply(invocations.incrementAndGet());
+        }
+
+        @Override
+        public boolean isConcurrentSafe() {
+            return concurrentSafe;
+        }
+
+        boolean awaitInvocations(int expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (invocations.get() < expected && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return invocations.get() >= expected;
+        }
+    }
+
+    /**
+     * 记录下行消息的 Wire
+     */
+    private static class RecordingWire implements Wire {
+
+        private final List<WireMessage> messages = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void send(WireMessage message) {
+            messages.add(message);
+        }
+
+        List<WireMessage> messages() {
+            synchronized (messages) {
+                return new ArrayList<>(messages);
+            }
+        }
+
+        List<String> events() {
+            return messages().stream().map(message -> {
+                if (message instanceof ToolCallMessage call) {
+                    return "call:" + call.getToolCall().getId();
+                }
+                if (message instanceof ToolResultMessage result) {
+                    return "result:" + result.getToolCallId();
+                }
+                return message.getMessageType();
+            }).collect(Collectors.toList());
+        }
+
+        @Override
+        public Flux<WireMessage> asFlux() {
+            return Flux.empty();
+        }
+
+        @Override
+        public <R> Mono<R> request(WireRequest<R> request) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Flux<WireRequest<?>> requests() {
+            return Flux.empty();
+        }
+
+        @Override
+        public void complete() {
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.leavesfly.jimi.knowledge.graph;
+
+import io.leavesfly.jimi.config.info.GraphConfig;
+import io.leavesfly.jimi.knowledge.graph.builder.FileManifest;
+import io.leavesfly.jimi.knowledge.graph.parser.CompilationUnitCache;
+import io.leavesfly.jimi.knowledge.graph.parser.JavaASTParser;
+import io.leavesfly.jimi.knowledge.graph.parser.LanguageParserRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 代码图管理测试：从工作目录以外的项目根目录构建后重新加载，按清单记录的根目录刷新
+ */
+class GraphManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReloadGraphBuiltFromOtherRoot() throws IOException {
+        Path workDir = Files.createDirectories(tempDir.resolve("work"));
+        Path projectRoot = Files.createDirectories(tempDir.resolve("project"));
+        writeClass(workDir, "Stray", "");
+        writeClass(projectRoot, "Alpha", "    void a() {\n    }\n");
+        writeClass(projectRoot, "Beta", "    void b() {\n    }\n");
+
+        GraphManager manager = newManager(workDir);
+        GraphManager.BuildResult built = manager.buildGraph(projectRoot).block();
+        assertNotNull(built);
+        assertTrue(built.isSuccess());
+        Path graphDir = workDir.resolve(".jimi/code_graph");
+        assertTrue(Files.exists(graphDir.resolve(FileManifest.FILE_NAME)));
+
+        // 修改项目中的一个文件后模拟重启：刷新针对构建时的根目录，而不是工作目录
+        writeClass(projectRoot, "Beta", "    void b() {\n    }\n\n    void c() {\n    }\n");
+        GraphManager reloaded = newManager(workDir);
+        assertTrue(reloaded.loadGraph().block());
+        GraphManager.GraphStats stats = reloaded.getGraphStats().block();
+        assertEquals(projectRoot.toAbsolutePath().normalize(), stats.getProjectRoot());
+        assertTrue(hasSymbol(reloaded, "c"), "修改的文件未被刷新");
+        assertTrue(hasSymbol(reloaded, "Alpha"));
+        assertFalse(hasSymbol(reloaded, "Stray"), "刷新误用了工作目录");
+
+        FileManifest manifest = new FileManifest();
+        assertTrue(manifest.load(graphDir));
+        assertEquals(projectRoot.toAbsolutePath().normalize(), manifest.getProjectRoot());
+        assertEquals(2, manifest.size());
+    }
+
+    @Test
+    void testMissingProjectRootSkipsRefresh() throws IOException {
+        Path workDir = Files.createDirectories(tempDir.resolve("work"));
+        Path projectRoot = Files.createDirectories(tempDir.resolve("project"));
+        writeClass(projectRoot, "Alpha", "    void a() {\n    }\n");
+
+        GraphManager manager = newManager(workDir);
+        assertTrue(manager.buildGraph(projectRoot).block().isSuccess());
+        int entities = manager.getGraphStats().block().getEntityCount();
+        Path graphDir = workDir.resolve(".jimi/code_graph");
+        long savedAt = Files.getLastModifiedTime(graphDir.resolve(FileManifest.FILE_NAME)).toMillis();
+
+        Files.delete(projectRoot.resolve("src/Alpha.java"));
+        Files.delete(projectRoot.resolve("src"));
+        Files.delete(projectRoot);
+
+        // 根目录不存在：保留加载的图，不清空、不覆盖快照
+        GraphManager reloaded = newManager(workDir);
+        assertTrue(reloaded.loadGraph().block());
+        assertEquals(entities, reloaded.getGraphStats().block().getEntityCount());
+        FileManifest manifest = new FileManifest();
+        assertTrue(manifest.load(graphDir));
+        assertEquals(1, manifest.size());
+        assertEquals(savedAt, Files.getLastModifiedTime(graphDir.resolve(FileManifest.FILE_NAME)).toMillis());
+    }
+
+    private static boolean hasSymbol(GraphManager manager, String name) {
+        return manager.getSearchEngine().findSymbols(name, null, 10).stream()
+                .anyMatch(scored -> name.equals(scored.getEntity().getName()));
+    }
+
+    private static GraphManager newManager(Path workDir) {
+        GraphConfig config = GraphConfig.builder().autoLoad(false).buildParallelism(1).build();
+        LanguageParserRegistry registry = new LanguageParserRegistry(
+                List.of(new JavaASTParser(new CompilationUnitCache())));
+        GraphManager manager = new GraphManager(config, registry);
+        manager.setWorkDir(workDir);
+        return manager;
+    }
+
+    private static void writeClass(Path root, String name, String body) throws IOException {
+        Path file = root.resolve("src/" + name + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "package com.example;\n\npublic class " + name + " {\n" + body + "}\n");
+    }
+}
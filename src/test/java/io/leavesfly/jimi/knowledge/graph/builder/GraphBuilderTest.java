@@ -0,0 +1,240 @@
+package io.leavesfly.jimi.knowledge.graph.builder;
+
+import io.leavesfly.jimi.config.info.GraphConfig;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.model.RelationType;
+import io.leavesfly.jimi.knowledge.graph.parser.CompilationUnitCache;
+import io.leavesfly.jimi.knowledge.graph.parser.JavaASTParser;
+import io.leavesfly.jimi.knowledge.graph.parser.LanguageParserRegistry;
+import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.CsrCodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.InMemoryCodeGraphStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 代码图并行构建测试：并行与单线程结果一致、跨文件关系解析、按清单增量刷新、吞吐基准
+ */
+class GraphBuilderTest {
+
+    private static final int PACKAGES = 50;
+
+    @TempDir
+    Path projectRoot;
+
+    @Test
+    void testParallelBuildMatchesSequential() throws IOException {
+        generateProject(300);
+
+        Built sequential = build(1);
+        Built parallel = build(4);
+
+        // Service + 每包一个 Helper + Base / Named / Task + 两个 Util
+        assertEquals(300 + PACKAGES + 5, sequential.stats.getSuccessFiles());
+        assertEquals(entityIds(sequential.store), entityIds(parallel.store));
+        assertEquals(relationTriples(sequential.store), relationTriples(parallel.store));
+        assertEquals(sequential.stats.getResolvedRelations(), parallel.stats.getResolvedRelations());
+
+        List<String> triples = relationTriples(parallel.store);
+        // 全项目唯一的 Base：简单名解析为全限定名
+        assertTrue(triples.contains("CLASS:com.example.p7.Service7 EXTENDS CLASS:com.example.p0.Base"));
+        // 每个包都有 Helper：取同包的 Helper
+        assertTrue(triples.contains(
+                "METHOD:com.example.p7.Service7.run(1) CALLS METHOD:com.example.p7.Helper.help(1)"));
+        // 接口 extends 接口：CLASS:Named 改写为实际的 INTERFACE 实体
+        assertTrue(triples.contains("INTERFACE:com.example.p0.Task EXTENDS INTERFACE:com.example.p0.Named"));
+        // Util 在两个包中重名且不在同包：有歧义，保持原样
+        assertTrue(triples.contains("METHOD:com.example.p7.Service7.run(1) CALLS METHOD:Util.log(1)"));
+    }
+
+    @Test
+    void testRefreshFromManifest() throws IOException {
+        generateProject(300);
+        Path graphDir = projectRoot.resolve(".jimi/code_graph");
+        Built built = build(2, new CsrCodeGraphStore());
+        built.store.setStoragePath(graphDir);
+        assertTrue(built.store.save().block());
+        built.builder.getManifest().save(graphDir);
+
+        // 修改一个文件、新增一个文件、删除一个文件、只改修改时间一个文件
+        Path packageDir = projectRoot.resolve("src/main/java/com/example/p5");
+        writeType("p5", "Service5", "public class Service5 extends Base {\n"
+                + "    void call() {\n        Helper.help(1);\n        Helper.help(2);\n    }\n}\n");
+        writeType("p3", "Extra", "public class Extra extends Base {\n    void run() {\n"
+                + "        Helper.help(3);\n    }\n}\n");
+        Files.delete(packageDir.resolve("Service55.java"));
+        Path touched = packageDir.resolve("Service105.java");
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(Files.getLastModifiedTime(touched).toMillis() + 5_000));
+
+        // 模拟重启：加载快照与清单后刷新
+        CsrCodeGraphStore loaded = new CsrCodeGraphStore();
+        assertTrue(loaded.load(graphDir).block());
+        GraphBuilder builder = newBuilder(loaded, 1);
+        assertTrue(builder.getManifest().load(graphDir));
+        GraphBuilder.RefreshStats stats = builder.refreshGraph(projectRoot).block();
+        System.out.println("GraphBuilder refresh: " + stats);
+
+        assertNotNull(stats);
+        assertEquals(1, stats.getAddedFiles());
+        assertEquals(1, stats.getModifiedFiles());
+        assertEquals(1, stats.getDeletedFiles());
+        assertEquals(2, stats.getHashedFiles());
+        assertEquals(300 + PACKAGES + 5 - 2, stats.getUnchangedFiles());
+        assertEquals(300 + PACKAGES + 5, builder.getManifest().size());
+
+        // 与对修改后的工作区全量构建的结果一致
+        Built rebuilt = build(1, new CsrCodeGraphStore());
+        assertEquals(entityIds(rebuilt.store), entityIds(loaded));
+        assertEquals(relationTriples(rebuilt.store), relationTriples(loaded));
+        assertTrue(relationTriples(loaded).contains("CLASS:com.example.p3.Extra EXTENDS CLASS:com.example.p0.Base"));
+
+        // 再次刷新：全部未变化，不读取任何文件内容
+        GraphBuilder.RefreshStats again = builder.refreshGraph(projectRoot).block();
+        assertFalse(again.hasChanges());
+        assertEquals(0, again.getHashedFiles());
+    }
+
+    @Test
+    void testSaveAfterBuildIsNotInterrupted() throws IOException {
+        generateProject(50);
+        CsrCodeGraphStore store = new CsrCodeGraphStore();
+        store.setStoragePath(projectRoot.resolve(".jimi/code_graph"));
+        GraphBuilder builder = newBuilder(store, 4);
+
+        // 与 GraphManager 自动保存相同：构建完成后在下游直接写快照
+        for (int round = 0; round < 3; round++) {
+            assertTrue(builder.buildGraph(projectRoot).flatMap(stats -> store.save()).block());
+        }
+    }
+
+    /**
+     * 5000 个文件在不同并行度下的构建吞吐，只打印结果；设置 -Djimi.bench=true 时运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testBuildThroughput() throws IOException {
+        generateProject(5_000);
+        int cores = Runtime.getRuntime().availableProcessors();
+        // 预热 JIT，避免第一轮测量偏低
+        build(cores);
+
+        List<String> expected = null;
+        for (int parallelism : new int[]{1, 4, cores}) {
+            Built built = build(parallelism);
+            System.out.printf("GraphBuilder: %d files, parallelism %d: %.0f files/s (%d ms, %d cores)%n",
+                    built.stats.getTotalFiles(), parallelism, built.stats.getFilesPerSecond(),
+                    built.stats.getDurationMs(), cores);
+            assertEquals(0, built.stats.getFailedFiles());
+
+            List<String> triples = relationTriples(built.store);
+            if (expected == null) {
+                expected = triples;
+            } else {
+                assertEquals(expected, triples);
+            }
+        }
+    }
+
+    private Built build(int parallelism) {
+        return build(parallelism, new InMemoryCodeGraphStore());
+    }
+
+    private Built build(int parallelism, CodeGraphStore store) {
+        GraphBuilder builder = newBuilder(store, parallelism);
+        GraphBuilder.BuildStats stats = builder.buildGraph(projectRoot).block();
+        assertNotNull(stats);
+        assertEquals(parallelism, stats.getParallelism());
+        return new Built(store, builder, stats);
+    }
+
+    private static GraphBuilder newBuilder(CodeGraphStore store, int parallelism) {
+        // 每次构建使用新的解析缓存，避免后一轮直接命中前一轮的解析结果
+        JavaASTParser parser = new JavaASTParser(new CompilationUnitCache());
+        GraphConfig config = GraphConfig.builder().buildParallelism(parallelism).buildBatchSize(64).build();
+        return new GraphBuilder(new LanguageParserRegistry(List.of(parser)), store, config);
+    }
+
+    private Set<String> entityIds(CodeGraphStore store) {
+        Set<String> ids = new TreeSet<>();
+        for (EntityType type : EntityType.values()) {
+            store.getEntitiesByTypeSync(type).forEach(entity -> ids.add(entity.getId()));
+        }
+        return ids;
+    }
+
+    private List<String> relationTriples(CodeGraphStore store) {
+        List<String> triples = new ArrayList<>();
+        for (RelationType type : RelationType.values()) {
+            for (CodeRelation relation : store.getRelationsByType(type).block()) {
+                triples.add(relation.getSourceId() + " " + type + " " + relation.getTargetId());
+            }
+        }
+        Collections.sort(triples);
+        return triples;
+    }
+
+    /**
+     * 生成测试项目：Service 继承唯一的 Base，调用同包 Helper 与跨包重名的 Util
+     */
+    private void generateProject(int services) throws IOException {
+        writeType("p0", "Base", "public abstract class Base {\n    protected void init() {\n    }\n}\n");
+        writeType("p0", "Named", "public interface Named {\n    String name();\n}\n");
+        writeType("p0", "Task", "public interface Task extends Named {\n    void run(int times);\n}\n");
+        for (int p = 0; p < PACKAGES; p++) {
+            writeType("p" + p, "Helper", "public class Helper {\n    static int help(int value) {\n"
+                    + "        return value + 1;\n    }\n}\n");
+        }
+        writeType("p1", "Util", "public class Util {\n    static void log(String message) {\n    }\n}\n");
+        writeType("p2", "Util", "public class Util {\n    static void log(String message) {\n    }\n}\n");
+
+        for (int i = 0; i < services; i++) {
+            String name = "Service" + i;
+            StringBuilder body = new StringBuilder();
+            body.append("import com.example.p0.Base;\nimport com.example.p0.Task;\n\n")
+                    .append("/**\n * ").append(name).append("\n */\n")
+                    .append("public class ").append(name).append(" extends Base implements Task {\n\n")
+                    .append("    private final List<String> names = new ArrayList<>();\n")
+                    .append("    private int counter;\n\n")
+                    .append("    public String name() {\n        return \"").append(name).append("\";\n    }\n\n")
+                    .append("    public void run(int times) {\n")
+                    .append("        for (int i = 0; i < times; i++) {\n")
+                    .append("            counter = Helper.help(counter);\n")
+                    .append("            names.add(name() + counter);\n")
+                    .append("        }\n")
+                    .append("        Util.log(name());\n")
+                    .append("        this.init();\n")
+                    .append("    }\n\n");
+            for (int m = 0; m < 6; m++) {
+                body.append("    int compute").append(m).append("(int a, int b) {\n")
+                        .append("        int result = a * ").append(m + 1).append(" + b;\n")
+                        .append("        if (result > 100) {\n            result = Helper.help(result);\n        }\n")
+                        .append("        return result;\n    }\n\n");
+            }
+            body.append("}\n");
+            writeType("p" + (i % PACKAGES), name, body.toString());
+        }
+    }
+
+    private void writeType(String pkg, String name, String body) throws IOException {
+        Path file = projectRoot.resolve("src/main/java/com/example/" + pkg + "/" + name + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "package com.example." + pkg + ";\n\nimport java.util.*;\n\n" + body);
+    }
+
+    private record Built(CodeGraphStore store, GraphBuilder builder, GraphBuilder.BuildStats stats) {
+    }
+}
@@ -0,0 +1,255 @@
+package io.leavesfly.jimi.knowledge.graph.navigator;
+
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.model.RelationType;
+import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.CsrCodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.InMemoryCodeGraphStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 路径查找测试：双向 BFS 最短路径、Yen 算法 K 条最短路径、访问预算与稠密调用图上的调用链
+ * <p>
+ * 测试图：A -> B -> C -> D，A -> E -> D，A -> D (REFERENCES)，C -> A
+ */
+class PathFinderTest {
+
+    private static final Set<RelationType> CALLS = Set.of(RelationType.CALLS);
+
+    @Test
+    void testShortestPath() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            buildSampleGraph(store);
+            PathFinder finder = new PathFinder(store);
+
+            PathFinder.PathResult result = finder.findShortestPath("METHOD:A", "METHOD:D", CALLS, 5).block();
+            assertTrue(result.getSuccess());
+            assertFalse(result.getTruncated());
+            assertEquals("A -> E -> D", result.getPath().getPathString());
+            assertEquals(2, (int) result.getPath().getLength());
+
+            // 不限关系类型时直接走 REFERENCES 关系
+            assertEquals(1, (int) finder.findShortestPath("METHOD:A", "METHOD:D", null, 5).block().getPath().getLength());
+            assertEquals("C -> A -> E", finder.findShortestPath("METHOD:C", "METHOD:E", CALLS, 5).block()
+                    .getPath().getPathString());
+
+            assertFalse(finder.findShortestPath("METHOD:A", "METHOD:D", CALLS, 1).block().getSuccess());
+            assertFalse(finder.findShortestPath("METHOD:D", "METHOD:A", CALLS, 5).block().getSuccess());
+            assertFalse(finder.findShortestPath("METHOD:A", "METHOD:missing", CALLS, 5).block().getSuccess());
+
+            PathFinder.PathResult self = finder.findShortestPath("METHOD:A", "METHOD:A", CALLS, 5).block();
+            assertTrue(self.getSuccess());
+            assertEquals(0, (int) self.getPath().getLength());
+            assertEquals(1, self.getPath().getEntities().size());
+        }
+    }
+
+    @Test
+    void testKShortestPaths() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            buildSampleGraph(store);
+            PathFinder finder = new PathFinder(store);
+
+            PathFinder.MultiPathResult result = finder.findKShortestPaths("METHOD:A", "METHOD:D", CALLS, 5, 5).block();
+            assertTrue(result.getSuccess());
+            assertEquals(PathFinder.SearchType.K_SHORTEST, result.getSearchType());
+            assertEquals(List.of("A -> E -> D", "A -> B -> C -> D"), pathStrings(result));
+
+            assertEquals(List.of("A -> D", "A -> E -> D"),
+                    pathStrings(finder.findKShortestPaths("METHOD:A", "METHOD:D", null, 5, 2).block()));
+            assertEquals(List.of("A -> E -> D"),
+                    pathStrings(finder.findAllPaths("METHOD:A", "METHOD:D", CALLS, 2, 10).block()));
+            assertFalse(finder.findAllPaths("METHOD:A", "METHOD:A", CALLS, 5, 10).block().getSuccess());
+        }
+    }
+
+    @Test
+    void testYenMatchesExhaustiveEnumeration() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            CodeGraphStore store = round % 2 == 0 ? new InMemoryCodeGraphStore() : new CsrCodeGraphStore();
+            int nodes = 9;
+            List<CodeEntity> entities = new ArrayList<>();
+            List<CodeRelation> relations = new ArrayList<>();
+            for (int i = 0; i < nodes; i++) {
+                entities.add(method("N" + i));
+                for (int j = 0; j < nodes; j++) {
+                    if (i != j && random.nextInt(100) < 30) {
+                        relations.add(calls("N" + i, "N" + j));
+                    }
+                }
+            }
+            store.addEntities(entities).block();
+            store.addRelations(relations).block();
+
+            List<List<String>> expected = new ArrayList<>();
+            enumerate(store, "METHOD:N0", "METHOD:N8", 6, new ArrayList<>(List.of("METHOD:N0")), expected);
+            List<Integer> expectedLengths = expected.stream().map(p -> p.size() - 1).sorted().collect(Collectors.toList());
+
+            PathFinder.MultiPathResult all = new PathFinder(store)
+                    .findAllPaths("METHOD:N0", "METHOD:N8", CALLS, 6, 10_000).block();
+            List<List<String>> found = all.getPaths().stream()
+                    .map(p -> p.getEntities().stream().map(CodeEntity::getId).collect(Collectors.toList()))
+                    .collect(Collectors.toList());
+            assertEquals(new HashSet<>(expected), new HashSet<>(found), "round " + round);
+            assertEquals(expected.size(), found.size());
+            assertEquals(expectedLengths, all.getPaths().stream().map(PathFinder.Path::getLength)
+                    .collect(Collectors.toList()), "路径未按长度升序");
+
+            int k = Math.min(5, expected.size());
+            List<Integer> kLengths = new PathFinder(store).findKShortestPaths("METHOD:N0", "METHOD:N8", CALLS, 6, k)
+                    .block().getPaths().stream().map(PathFinder.Path::getLength).collect(Collectors.toList());
+            assertEquals(expectedLengths.subList(0, k), kLengths);
+        }
+    }
+
+    @Test
+    void testVisitBudgetReturnsPartialResults() {
+        CodeGraphStore store = new CsrCodeGraphStore();
+        buildLayeredGraph(store, 12, 30);
+        String from = "METHOD:L0_0";
+        String to = "METHOD:L11_0";
+
+        PathFinder.PathResult shortest = new PathFinder(store, 10).findShortestPath(from, to, CALLS, 20).block();
+        assertFalse(shortest.getSuccess());
+        assertTrue(shortest.getTruncated());
+        assertEquals(10, (int) shortest.getVisitedNodes());
+
+        // 预算足够求出第一条路径，但不足以求出全部 K 条
+        PathFinder.MultiPathResult partial = new PathFinder(store, 2_000)
+                .findKShortestPaths(from, to, CALLS, 20, 1_000).block();
+        assertTrue(partial.getSuccess());
+        assertTrue(partial.getTruncated());
+        assertFalse(partial.getPaths().isEmpty());
+        assertTrue(partial.getPaths().size() < 1_000);
+        assertTrue(partial.getVisitedNodes() <= 2_000);
+        partial.getPaths().forEach(path -> assertEquals(11, (int) path.getLength()));
+    }
+
+    @Test
+    void testCallChainsOnDenseGraph() {
+        CodeGraphStore store = new CsrCodeGraphStore();
+        // 12 层、每层 30 个方法、相邻层全连接：两端之间约 30^10 条调用链，穷举 DFS 无法完成
+        buildLayeredGraph(store, 12, 30);
+        GraphNavigator navigator = new GraphNavigator(store);
+
+        long start = System.nanoTime();
+        List<GraphNavigator.CallChain> chains = navigator.findCallChains("METHOD:L0_0", "METHOD:L11_0", 15).block();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("PathFinder: %d call chains across 11 hops of a dense graph in %d ms%n",
+                chains.size(), millis);
+
+        assertEquals(GraphNavigator.MAX_CALL_CHAINS, chains.size());
+        Set<String> distinct = new HashSet<>();
+        for (GraphNavigator.CallChain chain : chains) {
+            assertEquals(11, (int) chain.getDepth());
+            assertEquals(12, chain.getPath().size());
+            assertEquals("METHOD:L11_0", chain.getPath().get(11).getId());
+            assertTrue(distinct.add(chain.getPathString()));
+        }
+        assertTrue(millis < 10_000, "调用链查询过慢: " + millis + " ms");
+
+        PathFinder.PathResult shortest = new PathFinder(store).findShortestPath("METHOD:L0_0", "METHOD:L11_0", CALLS, 15).block();
+        assertTrue(shortest.getSuccess());
+        assertEquals(11, (int) shortest.getPath().getLength());
+    }
+
+    @Test
+    void testCallChainToSelf() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            buildSampleGraph(store);
+            GraphNavigator navigator = new GraphNavigator(store);
+
+            // 起点即终点：只含该实体、深度为 0 的一条调用链，不沿 C -> A 绕回
+            List<GraphNavigator.CallChain> chains = navigator.findCallChains("METHOD:A", "METHOD:A", 5).block();
+            assertEquals(1, chains.size());
+            assertEquals(0, (int) chains.get(0).getDepth());
+            assertEquals("A", chains.get(0).getPathString());
+            assertTrue(chains.get(0).getRelations().isEmpty());
+
+            assertTrue(navigator.findCallChains("METHOD:missing", "METHOD:missing", 5).block().isEmpty());
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static void buildSampleGraph(CodeGraphStore store) {
+        store.addEntities(new ArrayList<>(List.of(method("A"), method("B"), method("C"), method("D"), method("E")))).block();
+        store.addRelations(new ArrayList<>(List.of(calls("A", "B"), calls("B", "C"), calls("C", "D"),
+                calls("A", "E"), calls("E", "D"), calls("C", "A"),
+                CodeRelation.builder().sourceId("METHOD:A").targetId("METHOD:D").type(RelationType.REFERENCES).build())))
+                .block();
+    }
+
+    private static void buildLayeredGraph(CodeGraphStore store, int layers, int width) {
+        List<CodeEntity> entities = new ArrayList<>();
+        List<CodeRelation> relations = new ArrayList<>();
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                entities.add(method("L" + layer + "_" + i));
+                if (layer + 1 < layers) {
+                    for (int j = 0; j < width; j++) {
+                        relations.add(calls("L" + layer + "_" + i, "L" + (layer + 1) + "_" + j));
+                    }
+                }
+            }
+        }
+        store.addEntities(entities).block();
+        store.addRelations(relations).block();
+    }
+
+    /**
+     * 穷举 maxHops 以内的所有无环路径（作为对照）
+     */
+    private static void enumerate(CodeGraphStore store, String current, String target, int maxHops,
+                                  List<String> path, List<List<String>> result) {
+        if (current.equals(target) && path.size() > 1) {
+            result.add(new ArrayList<>(path));
+            return;
+        }
+        if (path.size() > maxHops) {
+            return;
+        }
+        for (String next : store.getRelationsBySourceSync(current).stream()
+                .map(CodeRelation::getTargetId).distinct().collect(Collectors.toList())) {
+            if (!path.contains(next)) {
+                path.add(next);
+                enumerate(store, next, target, maxHops, path, result);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private static List<String> pathStrings(PathFinder.MultiPathResult result) {
+        return result.getPaths().stream().map(PathFinder.Path::getPathString).collect(Collectors.toList());
+    }
+
+    private static CodeEntity method(String name) {
+        return CodeEntity.builder()
+                .id("METHOD:" + name)
+                .type(EntityType.METHOD)
+                .name(name)
+                .qualifiedName("com.example." + name)
+                .filePath(name + ".java")
+                .build();
+    }
+
+    private static CodeRelation calls(String source, String target) {
+        return CodeRelation.builder()
+                .sourceId("METHOD:" + source)
+                .targetId("METHOD:" + target)
+                .type(RelationType.CALLS)
+                .build();
+    }
+}
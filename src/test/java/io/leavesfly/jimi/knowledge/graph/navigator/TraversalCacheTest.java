@@ -0,0 +1,236 @@
+package io.leavesfly.jimi.knowledge.graph.navigator;
+
+import io.leavesfly.jimi.config.info.GraphConfig;
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.model.RelationType;
+import io.leavesfly.jimi.knowledge.graph.store.CodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.CsrCodeGraphStore;
+import io.leavesfly.jimi.knowledge.graph.store.InMemoryCodeGraphStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 遍历结果缓存测试：图版本与变更文件、按文件失效、悬空关系、命中率与内存统计
+ * <p>
+ * 测试图（每个方法各在一个文件中）：C.c -> B.b -> A.a，D.d -> X.x
+ */
+class TraversalCacheTest {
+
+    @Test
+    void testGraphVersionAndChangedFiles() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            long initial = store.getGraphVersion();
+            assertTrue(initial >= 0);
+
+            store.addEntities(List.of(method("A", "a"), method("B", "b"))).block();
+            long afterEntities = store.getGraphVersion();
+            assertTrue(afterEntities > initial);
+            assertEquals(Set.of("A.java", "B.java"), store.getChangedFilesSince(initial));
+
+            store.addRelation(calls("B.b", "A.a")).block();
+            long afterRelation = store.getGraphVersion();
+            assertTrue(afterRelation > afterEntities);
+            assertEquals(Set.of("A.java", "B.java"), store.getChangedFilesSince(afterEntities));
+
+            // 悬空关系只涉及已存在一端的文件；补上另一端实体时，已存在一端的文件也算变更
+            store.addRelation(calls("E.e", "A.a")).block();
+            long afterDangling = store.getGraphVersion();
+            assertEquals(Set.of("A.java"), store.getChangedFilesSince(afterRelation));
+            store.addEntity(method("E", "e")).block();
+            assertEquals(Set.of("A.java", "E.java"), store.getChangedFilesSince(afterDangling));
+
+            long beforeDelete = store.getGraphVersion();
+            String relationId = store.getRelationsBySourceSync("METHOD:B.b").get(0).getId();
+            store.deleteRelation(relationId).block();
+            assertEquals(Set.of("A.java", "B.java"), store.getChangedFilesSince(beforeDelete));
+            assertTrue(store.getChangedFilesSince(store.getGraphVersion()).isEmpty());
+
+            long beforeClear = store.getGraphVersion();
+            store.clear().block();
+            assertTrue(store.getGraphVersion() > beforeClear);
+            assertNull(store.getChangedFilesSince(beforeClear));
+        }
+    }
+
+    @Test
+    void testFileUpdateInvalidatesOnlyTouchedEntries() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            buildSampleGraph(store);
+            ImpactAnalyzer analyzer = new ImpactAnalyzer(store);
+
+            assertEquals(List.of("B.b", "C.c"), downstream(analyzer, "METHOD:A.a"));
+            assertEquals(List.of("D.d"), downstream(analyzer, "METHOD:X.x"));
+            assertEquals(List.of("B.b", "C.c"), downstream(analyzer, "METHOD:A.a"));
+            assertEquals(List.of("D.d"), downstream(analyzer, "METHOD:X.x"));
+            TraversalCache.Stats stats = analyzer.getCacheStats();
+            assertEquals(2L, stats.getHits());
+            assertEquals(2L, stats.getMisses());
+            assertEquals(2L, stats.getEntries());
+
+            // 重新解析 D.java：删除旧实体与出边，写入新实体
+            for (CodeRelation relation : store.getRelationsBySourceSync("METHOD:D.d")) {
+                store.deleteRelation(relation.getId()).block();
+            }
+            store.deleteEntitiesByFile("D.java").block();
+            store.addEntity(method("D", "e")).block();
+            store.addRelation(calls("D.e", "X.x")).block();
+
+            assertEquals(List.of("B.b", "C.c"), downstream(analyzer, "METHOD:A.a"));
+            assertEquals(List.of("D.e"), downstream(analyzer, "METHOD:X.x"));
+            stats = analyzer.getCacheStats();
+            assertEquals(3L, stats.getHits());
+            assertEquals(3L, stats.getMisses());
+            assertEquals(1L, stats.getInvalidatedEntries());
+            assertEquals(0.5, stats.getHitRate());
+            assertTrue(stats.getEstimatedBytes() > 0);
+
+            // 清空后全部失效
+            store.clear().block();
+            buildSampleGraph(store);
+            assertEquals(List.of("B.b", "C.c"), downstream(analyzer, "METHOD:A.a"));
+            assertEquals(4L, analyzer.getCacheStats().getMisses());
+        }
+    }
+
+    @Test
+    void testDanglingCallerBecomesReachable() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            buildSampleGraph(store);
+            store.addRelation(calls("E.e", "A.a")).block();
+            ImpactAnalyzer analyzer = new ImpactAnalyzer(store);
+
+            ImpactAnalyzer.MethodCallImpact impact = analyzer.analyzeMethodCallImpact("METHOD:A.a", 3).block();
+            assertEquals(List.of("B.b"), names(impact.getDirectCallers()));
+            assertEquals(List.of("C.c"), names(impact.getIndirectCallers()));
+
+            store.addEntity(method("E", "e")).block();
+            impact = analyzer.analyzeMethodCallImpact("METHOD:A.a", 3).block();
+            assertEquals(List.of("B.b", "E.e"), names(impact.getDirectCallers()));
+            assertEquals(List.of("C.c"), names(impact.getIndirectCallers()));
+
+            ImpactAnalyzer.MethodCallImpact callees = analyzer.analyzeMethodCallImpact("METHOD:B.b", 1).block();
+            assertEquals(List.of("A.a"), names(callees.getDirectCallees()));
+            assertTrue(callees.getIndirectCallers().isEmpty());
+        }
+    }
+
+    @Test
+    void testDisabledCache() {
+        CodeGraphStore store = new CsrCodeGraphStore();
+        buildSampleGraph(store);
+        GraphConfig.CacheConfig config = new GraphConfig.CacheConfig();
+        config.setEnabled(false);
+        ImpactAnalyzer analyzer = new ImpactAnalyzer(store, config);
+
+        assertEquals(List.of("B.b", "C.c"), downstream(analyzer, "METHOD:A.a"));
+        assertEquals(List.of("B.b", "C.c"), downstream(analyzer, "METHOD:A.a"));
+        assertFalse(analyzer.getCacheStats().isEnabled());
+    }
+
+    @Test
+    void testRepeatedImpactAnalysisOnLargeGraph() {
+        int files = 2_000;
+        int methodsPerFile = 10;
+        int methods = files * methodsPerFile;
+        CodeGraphStore store = new CsrCodeGraphStore();
+        List<CodeEntity> entities = new ArrayList<>();
+        List<CodeRelation> relations = new ArrayList<>();
+        for (int i = 0; i < methods; i++) {
+            entities.add(method("F" + (i / methodsPerFile), "m" + i));
+            for (int k = 1; k <= 3; k++) {
+                int callee = (int) ((i * 31L + k * 7919L) % methods);
+                relations.add(calls("F" + (i / methodsPerFile) + ".m" + i,
+                        "F" + (callee / methodsPerFile) + ".m" + callee));
+            }
+        }
+        store.addEntities(entities).block();
+        store.addRelations(relations).block();
+        ImpactAnalyzer analyzer = new ImpactAnalyzer(store);
+
+        List<String> hot = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            hot.add(entities.get(i * 397 % methods).getId());
+        }
+        long coldStart = System.nanoTime();
+        for (String id : hot) {
+            analyzer.analyzeImpact(id, ImpactAnalyzer.AnalysisType.BOTH, 4).block();
+        }
+        long coldNanos = System.nanoTime() - coldStart;
+        TraversalCache.Stats cold = analyzer.getCacheStats();
+        long warmStart = System.nanoTime();
+        for (int round = 0; round < 10; round++) {
+            for (String id : hot) {
+                analyzer.analyzeImpact(id, ImpactAnalyzer.AnalysisType.BOTH, 4).block();
+            }
+        }
+        long warmNanos = (System.nanoTime() - warmStart) / 10;
+        TraversalCache.Stats warm = analyzer.getCacheStats();
+
+        // 重复分析全部命中缓存，不再遍历
+        assertTrue(cold.getMisses() > 0);
+        assertEquals(cold.getMisses(), warm.getMisses(), "重复分析不应再未命中");
+        assertTrue(warm.getHits() - cold.getHits() >= 10L * hot.size(), "重复分析应命中缓存");
+
+        // 更新一个文件只淘汰途经它的条目
+        store.deleteEntitiesByFile("F7.java").block();
+        store.addEntity(method("F7", "replacement")).block();
+        for (String id : hot) {
+            analyzer.analyzeImpact(id, ImpactAnalyzer.AnalysisType.BOTH, 4).block();
+        }
+        TraversalCache.Stats stats = analyzer.getCacheStats();
+        System.out.printf("TraversalCache: cold %d us, warm %d us per %d analyses; %s%n",
+                coldNanos / 1_000, warmNanos / 1_000, hot.size(), stats);
+
+        assertTrue(stats.getInvalidatedEntries() < hot.size(), "文件更新淘汰了过多条目");
+        assertTrue(stats.getHitRate() > 0.8);
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static void buildSampleGraph(CodeGraphStore store) {
+        store.addEntities(new ArrayList<>(List.of(method("A", "a"), method("B", "b"), method("C", "c"),
+                method("D", "d"), method("X", "x")))).block();
+        store.addRelations(new ArrayList<>(List.of(calls("B.b", "A.a"), calls("C.c", "B.b"),
+                calls("D.d", "X.x")))).block();
+    }
+
+    private static List<String> downstream(ImpactAnalyzer analyzer, String entityId) {
+        ImpactAnalyzer.ImpactAnalysisResult result = analyzer
+                .analyzeImpact(entityId, ImpactAnalyzer.AnalysisType.DOWNSTREAM, 3).block();
+        assertTrue(result.getSuccess());
+        return names(result.getDownstreamEntities());
+    }
+
+    private static List<String> names(List<CodeEntity> entities) {
+        return entities.stream()
+                .map(e -> e.getId().substring("METHOD:".length()))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static CodeEntity method(String owner, String name) {
+        return CodeEntity.builder()
+                .id("METHOD:" + owner + "." + name)
+                .type(EntityType.METHOD)
+                .name(name)
+                .qualifiedName("com.example." + owner + "." + name)
+                .filePath(owner + ".java")
+                .build();
+    }
+
+    private static CodeRelation calls(String source, String target) {
+        return CodeRelation.builder()
+                .sourceId("METHOD:" + source)
+                .targetId("METHOD:" + target)
+                .type(RelationType.CALLS)
+                .build();
+    }
+}
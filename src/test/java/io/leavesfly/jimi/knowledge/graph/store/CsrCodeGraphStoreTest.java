@@ -0,0 +1,393 @@
+package io.leavesfly.jimi.knowledge.graph.store;
+
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.CodeRelation;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import io.leavesfly.jimi.knowledge.graph.model.RelationType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSR 图存储测试：与 InMemoryCodeGraphStore 行为一致、增量与合并、二进制快照与 JSONL 持久化、规模基准
+ */
+class CsrCodeGraphStoreTest {
+
+    private static final RelationType[] TYPES = {RelationType.CALLS, RelationType.CONTAINS, RelationType.EXTENDS};
+
+    @TempDir
+    Path graphDir;
+
+    @Test
+    void testMatchesInMemoryStore() {
+        CodeGraphStore expected = new InMemoryCodeGraphStore();
+        CodeGraphStore actual = new CsrCodeGraphStore();
+        Random random = new Random(11);
+
+        // 6000 条边：超过合并阈值，之后的边留在增量表中
+        for (CodeGraphStore store : List.of(expected, actual)) {
+            store.addEntities(entities(500)).block();
+        }
+        for (int batch = 0; batch < 8; batch++) {
+            List<CodeRelation> relations = new ArrayList<>();
+            for (int i = 0; i < 750; i++) {
+                // 少量边指向不存在的实体（如未解析的调用目标）
+                String target = random.nextInt(50) == 0 ? "METHOD:Unknown.m(0)" : id(random.nextInt(500));
+                relations.add(relation(id(random.nextInt(500)), target, TYPES[random.nextInt(TYPES.length)]));
+            }
+            expected.addRelations(copy(relations)).block();
+            actual.addRelations(copy(relations)).block();
+        }
+        assertSameGraph(expected, actual);
+
+        for (CodeGraphStore store : List.of(expected, actual)) {
+            store.deleteEntitiesByFile("src/File3.java").block();
+            store.deleteEntity(id(9)).block();
+        }
+        assertEquals(expected.deleteRelationsByEntity(id(7)).block(), actual.deleteRelationsByEntity(id(7)).block());
+        assertEquals(expected.deleteRelationsByEntity(id(14)).block(), actual.deleteRelationsByEntity(id(14)).block());
+        assertSameGraph(expected, actual);
+    }
+
+    @Test
+    void testDeleteRelationById() {
+        CsrCodeGraphStore store = new CsrCodeGraphStore();
+        store.addEntities(entities(3)).block();
+        store.addRelations(List.of(
+                relation(id(0), id(1), RelationType.CALLS),
+                relation(id(1), id(2), RelationType.CALLS))).block();
+
+        String relationId = store.getRelationsBySourceSync(id(0)).get(0).getId();
+        store.deleteRelation(relationId).block();
+
+        assertTrue(store.getRelationsBySourceSync(id(0)).isEmpty());
+        assertTrue(store.getRelationsByTargetSync(id(1)).isEmpty());
+        assertEquals(1, (int) store.getStats().block().getTotalRelations());
+        assertEquals(List.of(id(1), id(2)), ids(store.findPath(id(1), id(2), 3).block()));
+        assertTrue(store.findPath(id(0), id(2), 3).block().isEmpty());
+    }
+
+    @Test
+    void testSaveAndLoad() {
+        CsrCodeGraphStore store = new CsrCodeGraphStore();
+        store.addEntities(entities(20)).block();
+        CodeRelation weighted = relation(id(0), id(1), RelationType.CALLS);
+        weighted.setWeight(0.5);
+        weighted.addProperty("line", 12);
+        store.addRelations(List.of(weighted, relation(id(1), id(2), RelationType.EXTENDS))).block();
+        store.setStoragePath(graphDir);
+        assertTrue(store.save().block());
+
+        CsrCodeGraphStore loaded = new CsrCodeGraphStore();
+        assertTrue(loaded.load(graphDir).block());
+        assertSameGraph(store, loaded);
+        CodeRelation restored = loaded.getRelationsBySourceSync(id(0)).get(0);
+        assertEquals(0.5, restored.getWeight());
+        assertEquals(12, restored.getProperty("line"));
+    }
+
+    @Test
+    void testBinarySnapshotRoundTrip() throws IOException {
+        CsrCodeGraphStore store = new CsrCodeGraphStore();
+        List<CodeEntity> entities = entities(40);
+        CodeEntity unusual = entities.get(3);
+        unusual.setStartLine(null);
+        unusual.setIsStatic(null);
+        unusual.setVisibility("private");
+        unusual.addAttribute("signature", "m3(int)");
+        unusual.addAttribute("count", 7);
+        unusual.addAttribute("tags", List.of("a", "b"));
+        unusual.addAttribute("missing", null);
+        store.addEntities(entities).block();
+        List<CodeRelation> relations = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            relations.add(relation(id(random.nextInt(40)), id(random.nextInt(40)), TYPES[random.nextInt(TYPES.length)]));
+        }
+        relations.add(relation(id(1), "METHOD:Unknown.m(0)", RelationType.CALLS));
+        relations.get(0).setWeight(0.25);
+        relations.get(1).addProperty("line", 42);
+        store.addRelations(relations).block();
+        store.deleteRelationsByEntity(id(5)).block();
+        store.deleteEntity(id(6)).block();
+        store.setStoragePath(graphDir);
+        assertTrue(store.save().block());
+        assertTrue(Files.exists(graphDir.resolve("graph.bin")));
+        assertFalse(Files.exists(graphDir.resolve("entities.jsonl")));
+
+        CsrCodeGraphStore loaded = new CsrCodeGraphStore();
+        assertTrue(loaded.load(graphDir).block());
+        assertSameGraph(store, loaded);
+        assertEquals(unusual, loaded.getEntitySync(id(3)));
+        assertEquals(entities.get(4), loaded.getEntitySync(id(4)));
+        assertNull(loaded.getEntitySync(id(6)));
+        assertEquals(0.25, loaded.getRelationsBySourceSync(relations.get(0).getSourceId()).stream()
+                .filter(relation -> relation.getWeight() != 1.0).findFirst().orElseThrow().getWeight());
+
+        // 加载后仍可继续增量写入（节点与边数组扩容、增量表）
+        List<CodeEntity> more = new ArrayList<>();
+        for (int i = 40; i < 60; i++) {
+            more.add(CodeEntity.builder().id(id(i)).type(EntityType.METHOD).name("m" + i)
+                    .filePath("src/File4.java").build());
+        }
+        List<CodeRelation> moreRelations = new ArrayList<>();
+        for (int i = 40; i < 60; i++) {
+            moreRelations.add(relation(id(i), id(i - 40), RelationType.CALLS));
+        }
+        for (CodeGraphStore target : List.of(store, loaded)) {
+            target.addEntities(more).block();
+            target.addRelations(copy(moreRelations)).block();
+            target.deleteEntitiesByFile("src/File2.java").block();
+        }
+        assertSameGraph(store, loaded);
+    }
+
+    @Test
+    void testJsonlSnapshotFormat() {
+        CsrCodeGraphStore binary = new CsrCodeGraphStore();
+        binary.addEntities(entities(10)).block();
+        binary.setStoragePath(graphDir);
+        assertTrue(binary.save().block());
+
+        // JSONL 保存会删除旧的 graph.bin，加载到的是 JSONL 内容
+        CsrCodeGraphStore jsonl = new CsrCodeGraphStore(false);
+        jsonl.addEntities(entities(20)).block();
+        jsonl.addRelations(List.of(relation(id(0), id(1), RelationType.CALLS))).block();
+        jsonl.setStoragePath(graphDir);
+        assertTrue(jsonl.save().block());
+        assertFalse(Files.exists(graphDir.resolve("graph.bin")));
+
+        CsrCodeGraphStore loaded = new CsrCodeGraphStore();
+        assertTrue(loaded.load(graphDir).block());
+        assertSameGraph(jsonl, loaded);
+    }
+
+    /**
+     * 50 万实体、100 万关系的快照加载耗时与峰值堆占用，二进制与 JSONL 对比，只打印结果；设置 -Djimi.bench=true 时运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testSnapshotLoadBenchmark() {
+        int nodes = 500_000;
+        int edges = 1_000_000;
+        Path jsonlDir = graphDir.resolve("jsonl");
+        Path binaryDir = graphDir.resolve("binary");
+        int[] expected;
+        {
+            CsrCodeGraphStore store = new CsrCodeGraphStore(false);
+            List<CodeEntity> entities = entities(nodes);
+            for (CodeEntity entity : entities) {
+                if (entity.getType() == EntityType.METHOD) {
+                    entity.addAttribute("signature", entity.getName() + "(int)");
+                    entity.addAttribute("returnType", "int");
+                }
+            }
+            store.addEntities(entities).block();
+            Random random = new Random(17);
+            for (int from = 0; from < edges; from += 100_000) {
+                List<CodeRelation> batch = new ArrayList<>(100_000);
+                for (int i = 0; i < 100_000; i++) {
+                    batch.add(relation(id(random.nextInt(nodes)), id(random.nextInt(nodes)), RelationType.CALLS));
+                }
+                store.addRelations(batch).block();
+            }
+            store.setStoragePath(jsonlDir);
+            assertTrue(store.save().block());
+            CsrCodeGraphStore binary = new CsrCodeGraphStore(true);
+            assertTrue(binary.load(jsonlDir).block());
+            binary.setStoragePath(binaryDir);
+            assertTrue(binary.save().block());
+            expected = new int[]{store.getStats().block().getTotalEntities(), store.getStats().block().getTotalRelations()};
+        }
+
+        // 各预热一次，避免首次加载的类加载与 JIT 计入测量
+        new CsrCodeGraphStore().load(binaryDir).block();
+        new CsrCodeGraphStore().load(jsonlDir).block();
+
+        long[] binary = measureLoad(binaryDir, expected);
+        long[] jsonl = measureLoad(jsonlDir, expected);
+        System.out.printf("Snapshot load (%d entities, %d relations): binary %d ms, peak heap %d MB; "
+                        + "JSONL %d ms, peak heap %d MB%n",
+                nodes, edges, binary[0], binary[1] >> 20, jsonl[0], jsonl[1] >> 20);
+    }
+
+    /**
+     * 加载耗时（ms）与加载期间的峰值堆增量（字节，各堆内存池峰值之和，略高于真实峰值）
+     */
+    private static long[] measureLoad(Path dir, int[] expected) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+        long before = usedHeap();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        CsrCodeGraphStore store = new CsrCodeGraphStore();
+        assertTrue(store.load(dir).block());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        assertEquals(expected[0], (int) store.getStats().block().getTotalEntities());
+        assertEquals(expected[1], (int) store.getStats().block().getTotalRelations());
+        return new long[]{millis, peak - before};
+    }
+
+    /**
+     * 百万条边上的 BFS 耗时，只打印结果；设置 -Djimi.bench=true 时运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testBfsOverMillionEdges() {
+        int nodes = 200_000;
+        int edges = 1_000_000;
+        CsrCodeGraphStore store = new CsrCodeGraphStore();
+        store.addEntities(entities(nodes)).block();
+        Random random = new Random(5);
+        List<CodeRelation> batch = new ArrayList<>();
+        for (int i = 0; i < edges; i++) {
+            batch.add(relation(id(random.nextInt(nodes)), id(random.nextInt(nodes)), RelationType.CALLS));
+            if (batch.size() == 100_000) {
+                store.addRelations(batch).block();
+                batch = new ArrayList<>();
+            }
+        }
+
+        store.bfs(id(0), entity -> true, 100).block();
+        long start = System.nanoTime();
+        List<CodeEntity> reached = store.bfs(id(0), entity -> true, 100).block();
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("CsrCodeGraphStore: BFS over %d edges reached %d nodes in %.1f ms%n",
+                edges, reached.size(), millis);
+        assertTrue(reached.size() > nodes * 0.9);
+    }
+
+    /**
+     * 每条边的堆占用对比，只打印测量值
+     * <p>
+     * 基于 GC 后的堆占用差，结果随 JVM 与 GC 时机波动，不适合做断言；设置 -Djimi.bench=true 时运行。
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testMemoryPerEdge() {
+        int nodes = 20_000;
+        int edges = 300_000;
+        List<CodeEntity> entities = entities(nodes);
+        Random random = new Random(9);
+        int[][] pairs = new int[edges][];
+        for (int i = 0; i < edges; i++) {
+            pairs[i] = new int[]{random.nextInt(nodes), random.nextInt(nodes)};
+        }
+
+        long inMemory = edgeBytes(new InMemoryCodeGraphStore(), entities, pairs);
+        long csr = edgeBytes(new CsrCodeGraphStore(), entities, pairs);
+        System.out.printf("Bytes per edge: InMemoryCodeGraphStore %d, CsrCodeGraphStore %d%n",
+                inMemory / edges, csr / edges);
+    }
+
+    /**
+     * 加入关系前后的堆占用差（关系对象在加入时创建，只有存储持有它们）
+     */
+    private long edgeBytes(CodeGraphStore store, List<CodeEntity> entities, int[][] pairs) {
+        store.addEntities(entities).block();
+        long before = usedHeap();
+        for (int from = 0; from < pairs.length; from += 50_000) {
+            List<CodeRelation> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(pairs.length, from + 50_000); i++) {
+                batch.add(relation(id(pairs[i][0]), id(pairs[i][1]), RelationType.CALLS));
+            }
+            store.addRelations(batch).block();
+        }
+        long after = usedHeap();
+        assertEquals(pairs.length, (int) store.getStats().block().getTotalRelations());
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void assertSameGraph(CodeGraphStore expected, CodeGraphStore actual) {
+        assertEquals(expected.getStats().block().getTotalEntities(), actual.getStats().block().getTotalEntities());
+        assertEquals(expected.getStats().block().getTotalRelations(), actual.getStats().block().getTotalRelations());
+        assertEquals(expected.getStats().block().getRelationsByType(), actual.getStats().block().getRelationsByType());
+        for (RelationType type : TYPES) {
+            assertEquals(sortedTriples(expected.getRelationsByType(type).block()),
+                    sortedTriples(actual.getRelationsByType(type).block()));
+        }
+        for (int i = 0; i < 20; i++) {
+            String id = id(i * 7);
+            assertEquals(triples(expected.getRelationsBySourceSync(id)), triples(actual.getRelationsBySourceSync(id)));
+            assertEquals(triples(expected.getRelationsByTargetSync(id)), triples(actual.getRelationsByTargetSync(id)));
+            assertEquals(ids(expected.getNeighbors(id, RelationType.CALLS, true).block()),
+                    ids(actual.getNeighbors(id, RelationType.CALLS, true).block()));
+            assertEquals(ids(expected.bfs(id, entity -> true, 2).block()), ids(actual.bfs(id, entity -> true, 2).block()));
+            assertEquals(ids(expected.dfs(id, entity -> true, 4).block()), ids(actual.dfs(id, entity -> true, 4).block()));
+            String target = id(i * 13 + 1);
+            assertEquals(ids(expected.findPath(id, target, 4).block()), ids(actual.findPath(id, target, 4).block()));
+            assertEquals(ids(expected.getEntitiesByFile("src/File" + i + ".java").block()),
+                    ids(actual.getEntitiesByFile("src/File" + i + ".java").block()));
+        }
+    }
+
+    private static List<CodeEntity> entities(int count) {
+        List<CodeEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(CodeEntity.builder()
+                    .id(id(i))
+                    .type(i % 10 == 0 ? EntityType.CLASS : EntityType.METHOD)
+                    .name("m" + i)
+                    .qualifiedName("com.example.C" + i / 10 + ".m" + i + "(0)")
+                    .filePath("src/File" + i / 10 + ".java")
+                    .build());
+        }
+        return entities;
+    }
+
+    private static String id(int index) {
+        return (index % 10 == 0 ? "CLASS:" : "METHOD:") + "com.example.N" + index;
+    }
+
+    private static CodeRelation relation(String source, String target, RelationType type) {
+        return CodeRelation.builder().sourceId(source).targetId(target).type(type).build();
+    }
+
+    private static List<CodeRelation> copy(List<CodeRelation> relations) {
+        return relations.stream()
+                .map(relation -> relation(relation.getSourceId(), relation.getTargetId(), relation.getType()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> triples(List<CodeRelation> relations) {
+        return relations.stream()
+                .map(relation -> relation.getSourceId() + " " + relation.getType() + " " + relation.getTargetId())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> sortedTriples(List<CodeRelation> relations) {
+        List<String> triples = triples(relations);
+        Collections.sort(triples);
+        return triples;
+    }
+
+    private static List<String> ids(List<CodeEntity> entities) {
+        return entities.stream().map(CodeEntity::getId).collect(Collectors.toList());
+    }
+}
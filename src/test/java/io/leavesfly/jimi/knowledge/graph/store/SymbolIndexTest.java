@@ -0,0 +1,219 @@
+package io.leavesfly.jimi.knowledge.graph.store;
+
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.model.EntityType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 符号索引测试：各匹配方式、类型过滤与 Top-K、随存储增删维护、百万实体查询延迟
+ */
+class SymbolIndexTest {
+
+    private static final String[] WORDS = {"Graph", "Search", "Engine", "Sub", "Agent", "Tool", "Code", "Manager",
+            "File", "Index", "Symbol", "Store", "Path", "Finder", "Impact", "Analyzer", "Builder", "Parser",
+            "Cache", "Config", "Session", "Context", "Message", "Provider", "Service", "Handler", "Command",
+            "Runtime", "Stream", "Event"};
+    private static final String[] VERBS = {"get", "set", "find", "build", "load", "save", "parse", "resolve",
+            "update", "remove", "create", "handle", "to", "is", "add"};
+
+    @TempDir
+    Path graphDir;
+
+    @Test
+    void testMatchModes() {
+        SymbolIndex index = new SymbolIndex();
+        index.addAll(sampleEntities());
+
+        List<SymbolIndex.Match> exact = index.search("SubAgentTool", null, 10);
+        assertEquals("CLASS:SubAgentTool", exact.get(0).getEntity().getId());
+        assertEquals(1.0, exact.get(0).getScore());
+        assertEquals("CLASS:SubAgentToolProvider", exact.get(1).getEntity().getId());
+        assertEquals("Name starts with query", exact.get(1).getReason());
+
+        assertEquals(List.of("SubAgentTool", "SearchAgentTask", "SubAgentToolProvider"), names(index.search("SAT", null, 10)));
+        assertEquals(List.of("SubAgentTool", "SearchAgentTask", "SubAgentToolProvider"), names(index.search("sat", null, 10)));
+        assertEquals("CamelCase match", index.search("SAT", null, 10).get(0).getReason());
+        assertEquals(List.of("SubAgentTool", "SubAgentToolProvider"), names(index.search("SubAT", null, 10)));
+        assertEquals(List.of("HTTPServer"), names(index.search("HS", null, 10)));
+
+        List<SymbolIndex.Match> contains = index.search("AgentTool", null, 10);
+        assertEquals(List.of("SubAgentTool", "SubAgentToolProvider"), names(contains));
+        assertEquals("Name contains query", contains.get(0).getReason());
+
+        List<SymbolIndex.Match> fuzzy = index.search("GrapSerchEngine", null, 10);
+        assertEquals(List.of("GraphSearchEngine"), names(fuzzy));
+        assertEquals("Fuzzy match", fuzzy.get(0).getReason());
+        assertTrue(fuzzy.get(0).getScore() < SymbolIndex.QUALIFIED_SCORE);
+
+        List<SymbolIndex.Match> qualified = index.search("GraphSearchEngine.searchBy", null, 10);
+        assertEquals(List.of("searchByFile", "searchBySymbol"), names(qualified));
+        assertEquals("Qualified name contains query", qualified.get(0).getReason());
+
+        assertTrue(index.search("zzz", null, 10).isEmpty());
+        assertTrue(index.search(" ", null, 10).isEmpty());
+    }
+
+    @Test
+    void testTypeFilterAndLimit() {
+        SymbolIndex index = new SymbolIndex();
+        index.addAll(sampleEntities());
+
+        List<SymbolIndex.Match> methods = index.search("search", Set.of(EntityType.METHOD), 10);
+        assertEquals(List.of("searchByFile", "searchBySymbol"), names(methods));
+        assertTrue(index.search("getName", Set.of(EntityType.CLASS), 10).isEmpty());
+
+        // 三个同名方法只取两个，同分同名时按 id 排序
+        List<SymbolIndex.Match> limited = index.search("getName", null, 2);
+        assertEquals(List.of("METHOD:A.getName", "METHOD:B.getName"),
+                limited.stream().map(m -> m.getEntity().getId()).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testIndexUpdates() {
+        SymbolIndex index = new SymbolIndex();
+        index.addAll(sampleEntities());
+
+        index.remove("CLASS:SubAgentTool");
+        assertEquals(List.of("SubAgentToolProvider"), names(index.search("SubAgentTool", null, 10)));
+
+        // 同 id 重新添加：旧名称不再命中
+        index.add(entity("CLASS:SearchAgentTask", EntityType.CLASS, "SearchAgentJob", "x.SearchAgentJob"));
+        assertEquals(List.of("SubAgentToolProvider"), names(index.search("SAT", null, 10)));
+        assertEquals(List.of("SearchAgentJob"), names(index.search("SAJ", null, 10)));
+
+        index.removeAll(List.of("METHOD:A.getName", "METHOD:B.getName"));
+        assertEquals(List.of("METHOD:C.getName"), index.search("getName", null, 10).stream()
+                .map(m -> m.getEntity().getId()).collect(Collectors.toList()));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.search("getName", null, 10).isEmpty());
+    }
+
+    @Test
+    void testMaintainedByStores() {
+        for (CodeGraphStore store : List.of(new InMemoryCodeGraphStore(), new CsrCodeGraphStore())) {
+            store.addEntities(sampleEntities()).block();
+            store.addEntity(entity("METHOD:D.getName", EntityType.METHOD, "getName", "x.D.getName", "src/D.java")).block();
+            assertEquals(4, store.getSymbolIndex().search("getName", null, 10).size());
+
+            store.deleteEntity("METHOD:A.getName").block();
+            store.deleteEntitiesByFile("src/D.java").block();
+            assertEquals(2, store.getSymbolIndex().search("getName", null, 10).size());
+
+            store.clear().block();
+            assertEquals(0, store.getSymbolIndex().size());
+        }
+
+        for (boolean binary : new boolean[]{true, false}) {
+            CsrCodeGraphStore store = new CsrCodeGraphStore(binary);
+            store.addEntities(sampleEntities()).block();
+            store.setStoragePath(graphDir);
+            assertTrue(store.save().block());
+
+            CsrCodeGraphStore loaded = new CsrCodeGraphStore();
+            assertTrue(loaded.load(graphDir).block());
+            assertEquals(store.getSymbolIndex().size(), loaded.getSymbolIndex().size());
+            assertEquals(List.of("SubAgentTool", "SearchAgentTask", "SubAgentToolProvider"),
+                    names(loaded.getSymbolIndex().search("SAT", null, 10)));
+        }
+    }
+
+    /**
+     * 百万实体上的建索引耗时与查询延迟，只打印结果；设置 -Djimi.bench=true 时运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testLookupLatencyOnMillionEntities() {
+        int count = 1_000_000;
+        SymbolIndex index = new SymbolIndex();
+        long buildStart = System.nanoTime();
+        List<CodeEntity> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(syntheticEntity(i));
+            if (batch.size() == 100_000) {
+                index.addAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        assertEquals(count, index.size());
+
+        String[] queries = {"GraphSearchEngine", "SAT", "loadPath", "Manager", "ImpactAnalyzerCache", "GrapSerchEngine",
+                "resolveSymbl", "GraphStore0.find", "sub"};
+        for (int round = 0; round < 20; round++) {
+            for (String query : queries) {
+                index.search(query, null, 20);
+            }
+        }
+        double[] micros = new double[queries.length];
+        int iterations = 200;
+        for (int q = 0; q < queries.length; q++) {
+            assertFalse(index.search(queries[q], null, 20).isEmpty(), queries[q]);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                index.search(queries[q], null, 20);
+            }
+            micros[q] = (System.nanoTime() - start) / 1e3 / iterations;
+        }
+        System.out.printf("SymbolIndex: %d entities indexed in %d ms; lookup us %s%n",
+                count, buildMillis, Arrays.toString(Arrays.stream(micros).map(Math::round).toArray()));
+    }
+
+    private static List<CodeEntity> sampleEntities() {
+        return new ArrayList<>(List.of(
+                entity("CLASS:SubAgentTool", EntityType.CLASS, "SubAgentTool", "x.SubAgentTool"),
+                entity("CLASS:SubAgentToolProvider", EntityType.CLASS, "SubAgentToolProvider", "x.SubAgentToolProvider"),
+                entity("CLASS:SearchAgentTask", EntityType.CLASS, "SearchAgentTask", "x.SearchAgentTask"),
+                entity("CLASS:GraphSearchEngine", EntityType.CLASS, "GraphSearchEngine", "x.GraphSearchEngine"),
+                entity("METHOD:GraphSearchEngine.searchBySymbol", EntityType.METHOD, "searchBySymbol",
+                        "x.GraphSearchEngine.searchBySymbol"),
+                entity("METHOD:GraphSearchEngine.searchByFile", EntityType.METHOD, "searchByFile",
+                        "x.GraphSearchEngine.searchByFile"),
+                entity("CLASS:HTTPServer", EntityType.CLASS, "HTTPServer", "x.HTTPServer"),
+                entity("METHOD:C.getName", EntityType.METHOD, "getName", "x.C.getName"),
+                entity("METHOD:B.getName", EntityType.METHOD, "getName", "x.B.getName"),
+                entity("METHOD:A.getName", EntityType.METHOD, "getName", "x.A.getName")));
+    }
+
+    /**
+     * 约 10% 为类（名称由三个词组成、大多唯一），其余为方法（动词 + 名词，大量重名）
+     */
+    private static CodeEntity syntheticEntity(int i) {
+        String className = WORDS[i % 30] + WORDS[(i / 30) % 30] + WORDS[(i / 900) % 30] + (i / 27_000);
+        if (i % 10 == 0) {
+            return entity("CLASS:" + i, EntityType.CLASS, className, "com.example." + className);
+        }
+        String name = VERBS[i % VERBS.length] + WORDS[(i / 15) % 30] + (i % 7 == 0 ? WORDS[(i / 450) % 30] : "");
+        return entity("METHOD:" + i, EntityType.METHOD, name, "com.example." + className + "." + name);
+    }
+
+    private static CodeEntity entity(String id, EntityType type, String name, String qualifiedName) {
+        return entity(id, type, name, qualifiedName, "src/" + name + ".java");
+    }
+
+    private static CodeEntity entity(String id, EntityType type, String name, String qualifiedName, String filePath) {
+        return CodeEntity.builder()
+                .id(id)
+                .type(type)
+                .name(name)
+                .qualifiedName(qualifiedName)
+                .filePath(filePath)
+                .build();
+    }
+
+    private static List<String> names(List<SymbolIndex.Match> matches) {
+        return matches.stream().map(m -> m.getEntity().getName()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,148 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BM25 词法索引测试：代码分词、精确标识符排序、增量删除、持久化与延迟
+ */
+class Bm25IndexTest {
+
+    private static final String[] WORDS = {"user", "order", "service", "repository", "cache", "config", "request",
+            "response", "handler", "manager", "session", "token", "index", "query", "result", "event"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void testCodeAwareTokenization() {
+        List<String> tokens = Bm25Index.tokenize("getUserName(user_id, HTTPServer) // MAX_RETRY_COUNT = 3");
+        assertTrue(tokens.containsAll(List.of("getusername", "get", "user", "name")));
+        assertTrue(tokens.containsAll(List.of("user_id", "id")));
+        assertTrue(tokens.containsAll(List.of("httpserver", "http", "server")));
+        assertTrue(tokens.containsAll(List.of("max_retry_count", "max", "retry", "count")));
+        // 单字符不入索引
+        assertFalse(tokens.contains("3"));
+    }
+
+    @Test
+    void testExactIdentifierRanksFirstAndIndexIsIncremental() {
+        InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+        store.addBatch(List.of(
+                chunk("a", "src/UserService.java", "UserService", "public User findUser(String userName) { return repo.find(userName); }"),
+                chunk("b", "src/UserNameResolver.java", "resolveUserName", "String resolveUserName(User user) { return user.getName(); }"),
+                chunk("c", "src/OrderService.java", "OrderService", "throw new IllegalStateException(\"Connection refused by upstream\");"),
+                chunk("d", "conf/app.yml", null, "vector_index:\n  storage_type: hnsw\n  hnsw_ef_search: 64\n")
+        )).block();
+
+        assertEquals("b", store.lexicalSearch("resolveUserName", 3, null).block().get(0).getChunk().getId());
+        assertEquals("c", store.lexicalSearch("Connection refused", 3, null).block().get(0).getChunk().getId());
+        assertEquals("d", store.lexicalSearch("hnsw_ef_search", 3, null).block().get(0).getChunk().getId());
+        // 子词命中：user name → 两个 User 相关片段
+        assertEquals(2, store.lexicalSearch("user name", 5, null).block().size());
+
+        VectorStore.SearchFilter filter = VectorStore.SearchFilter.builder().filePattern("src/Order.*").build();
+        List<VectorStore.SearchResult> filtered = store.lexicalSearch("service", 5, filter).block();
+        assertEquals(1, filtered.size());
+        assertEquals("c", filtered.get(0).getChunk().getId());
+
+        store.deleteByFilePath("src/UserNameResolver.java").block();
+        assertTrue(ids(store.lexicalSearch("resolveUserName", 3, null).block()).stream().noneMatch("b"::equals));
+        store.add(chunk("b2", "src/UserNameResolver.java", "resolveUserName", "String resolveUserName() { return null; }")).block();
+        assertEquals("b2", store.lexicalSearch("resolveUserName", 3, null).block().get(0).getChunk().getId());
+    }
+
+    @Test
+    void testPersistedIndexMatchesRebuild() throws Exception {
+        Random random = new Random(5);
+        InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+        store.load(indexDir).block();
+        store.addBatch(generateChunks(random, 2_000)).block();
+        store.delete("chunk-7").block();
+        assertTrue(store.save().block());
+        assertTrue(Files.exists(indexDir.resolve("lexical.bin")));
+
+        InMemoryVectorStore loaded = new InMemoryVectorStore(objectMapper);
+        assertTrue(loaded.load(indexDir).block());
+        for (String query : List.of("userCache", "order_handler", "SessionToken", "query result")) {
+            assertEquals(ids(store.lexicalSearch(query, 10, null).block()), ids(loaded.lexicalSearch(query, 10, null).block()));
+        }
+
+        // 词法索引文件缺失时从片段重建（序号不同，同分片段的顺序可能不同，只比较分数）
+        Files.delete(indexDir.resolve("lexical.bin"));
+        InMemoryVectorStore rebuilt = new InMemoryVectorStore(objectMapper);
+        assertTrue(rebuilt.load(indexDir).block());
+        assertEquals(scores(store.lexicalSearch("userCache", 10, null).block()),
+                scores(rebuilt.lexicalSearch("userCache", 10, null).block()));
+    }
+
+    /**
+     * 5 万片段上的关键词检索延迟，只打印结果；设置 -Djimi.bench=true 时运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testLexicalSearchLatency() {
+        Random random = new Random(11);
+        InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+        store.addBatch(generateChunks(random, 50_000)).block();
+
+        String[] queries = {"userCache", "OrderRepository", "session_token handler", "INDEX_QUERY", "eventManager"};
+        for (int i = 0; i < 50; i++) {
+            store.lexicalSearch(queries[i % queries.length], 10, null).block();
+        }
+        int rounds = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            assertFalse(store.lexicalSearch(queries[i % queries.length], 10, null).block().isEmpty());
+        }
+        double avgMs = (System.nanoTime() - start) / 1e6 / rounds;
+        System.out.printf("BM25 lexical search over 50,000 chunks: %.2fms/query%n", avgMs);
+    }
+
+    private List<CodeChunk> generateChunks(Random random, int count) {
+        List<CodeChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < 12; line++) {
+                String a = WORDS[random.nextInt(WORDS.length)];
+                String b = WORDS[random.nextInt(WORDS.length)];
+                content.append("    ").append(a).append(Character.toUpperCase(b.charAt(0))).append(b.substring(1))
+                        .append(" = ").append(a).append('_').append(b).append("(v").append(i).append(");\n");
+            }
+            chunks.add(chunk("chunk-" + i, "src/F" + (i / 10) + ".java", "method" + i, content.toString()));
+        }
+        return chunks;
+    }
+
+    private CodeChunk chunk(String id, String filePath, String symbol, String content) {
+        return CodeChunk.builder()
+                .id(id)
+                .filePath(filePath)
+                .symbol(symbol)
+                .content(content)
+                .language("java")
+                .startLine(1)
+                .endLine(10)
+                .build();
+    }
+
+    private List<String> ids(List<VectorStore.SearchResult> results) {
+        return results.stream().map(result -> result.getChunk().getId()).toList();
+    }
+
+    private List<Double> scores(List<VectorStore.SearchResult> results) {
+        return results.stream().map(VectorStore.SearchResult::getScore).toList();
+    }
+}
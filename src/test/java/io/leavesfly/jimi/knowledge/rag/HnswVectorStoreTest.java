@@ -0,0 +1,172 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HnswVectorStore 测试：召回率/延迟对比、增量删除与持久化
+ */
+class HnswVectorStoreTest {
+
+    private static final int DIMENSION = 64;
+    private static final int CHUNK_COUNT = 10_000;
+    private static final int QUERY_COUNT = 200;
+    private static final int TOP_K = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void testRecallVersusLatencyAgainstBruteForce() {
+        Random random = new Random(7);
+        List<CodeChunk> chunks = generateChunks(random, CHUNK_COUNT);
+        List<float[]> queries = new ArrayList<>();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries.add(perturb(chunks.get(random.nextInt(CHUNK_COUNT)).getEmbedding(), random, 0.6f));
+        }
+
+        InMemoryVectorStore exact = new InMemoryVectorStore(objectMapper);
+        exact.addBatch(chunks).block();
+
+        List<Set<String>> truth = new ArrayList<>();
+        long exactStart = System.nanoTime();
+        for (float[] query : queries) {
+            truth.add(ids(exact.search(query, TOP_K).block()));
+        }
+        double exactLatency = (System.nanoTime() - exactStart) / 1_000.0 / QUERY_COUNT;
+        System.out.printf("brute-force: recall@10=1.000, %.1fus/query%n", exactLatency);
+
+        double lastRecall = 0;
+        for (int ef : new int[]{16, 64, 128}) {
+            long buildStart = System.nanoTime();
+            HnswVectorStore store = new HnswVectorStore(objectMapper, 16, 100, ef);
+            store.addBatch(chunks).block();
+            long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+            // 预热一轮再计时
+            queries.forEach(query -> store.search(query, TOP_K).block());
+
+            long start = System.nanoTime();
+            int found = 0;
+            for (int q = 0; q < QUERY_COUNT; q++) {
+                Set<String> result = ids(store.search(queries.get(q), TOP_K).block());
+                result.retainAll(truth.get(q));
+                found += result.size();
+            }
+            double latency = (System.nanoTime() - start) / 1_000.0 / QUERY_COUNT;
+            lastRecall = (double) found / (QUERY_COUNT * TOP_K);
+            System.out.printf("hnsw efSearch=%d: recall@10=%.3f, %.1fus/query (build %dms)%n",
+                    ef, lastRecall, latency, buildMs);
+        }
+        assertTrue(lastRecall >= 0.9, "efSearch=128 时 recall@10 应不低于 0.9，实际 " + lastRecall);
+    }
+
+    @Test
+    void testDeleteAndReinsert() {
+        Random random = new Random(11);
+        List<CodeChunk> chunks = generateChunks(random, 2_000);
+        HnswVectorStore store = new HnswVectorStore(objectMapper, 16, 100, 64);
+        store.addBatch(chunks).block();
+
+        CodeChunk target = chunks.get(123);
+        assertEquals(target.getId(), store.search(target.getEmbedding(), 1).block().get(0).getChunk().getId());
+
+        // 删除整个文件后不再命中
+        int removed = store.deleteByFilePath(target.getFilePath()).block();
+        assertTrue(removed > 0);
+        for (VectorStore.SearchResult result : store.search(target.getEmbedding(), TOP_K).block()) {
+            assertNotEquals(target.getFilePath(), result.getChunk().getFilePath());
+        }
+
+        // 重新插入后再次命中
+        store.add(target).block();
+        assertEquals(target.getId(), store.search(target.getEmbedding(), 1).block().get(0).getChunk().getId());
+        assertEquals("hnsw", store.getStats().block().getStorageType());
+    }
+
+    @Test
+    void testSelectiveFilterFallsBackToExactSearch() {
+        Random random = new Random(13);
+        List<CodeChunk> chunks = generateChunks(random, 2_000);
+        chunks.get(5).setLanguage("python");
+        HnswVectorStore store = new HnswVectorStore(objectMapper, 16, 100, 64);
+        store.addBatch(chunks).block();
+
+        List<VectorStore.SearchResult> results = store.search(chunks.get(0).getEmbedding(), TOP_K,
+                VectorStore.SearchFilter.builder().language("python").build()).block();
+        assertEquals(1, results.size());
+        assertEquals(chunks.get(5).getId(), results.get(0).getChunk().getId());
+    }
+
+    @Test
+    void testSaveAndLoadGraph() throws Exception {
+        Random random = new Random(17);
+        List<CodeChunk> chunks = generateChunks(random, 2_000);
+        HnswVectorStore store = new HnswVectorStore(objectMapper, 16, 100, 64);
+        store.load(indexDir).block();
+        store.addBatch(chunks).block();
+        store.delete(chunks.get(0).getId()).block();
+        assertTrue(store.save().block());
+        assertTrue(Files.exists(indexDir.resolve(HnswVectorStore.GRAPH_FILE)));
+
+        float[] query = chunks.get(42).getEmbedding();
+        Set<String> before = ids(store.search(query, TOP_K).block());
+
+        HnswVectorStore reloaded = new HnswVectorStore(objectMapper, 16, 100, 64);
+        assertTrue(reloaded.load(indexDir).block());
+        assertEquals(before, ids(reloaded.search(query, TOP_K).block()));
+        assertEquals(chunks.size() - 1, reloaded.getStats().block().getTotalChunks());
+    }
+
+    /**
+     * 生成围绕若干簇中心分布的片段向量
+     */
+    private List<CodeChunk> generateChunks(Random random, int count) {
+        List<float[]> centroids = new ArrayList<>();
+        for (int c = 0; c < 100; c++) {
+            centroids.add(perturb(new float[DIMENSION], random, 1.0f));
+        }
+        List<CodeChunk> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] embedding = perturb(centroids.get(random.nextInt(centroids.size())), random, 0.5f);
+            chunks.add(CodeChunk.builder()
+                    .id("chunk-" + i)
+                    .content("content " + i)
+                    .filePath("src/File" + (i / 10) + ".java")
+                    .language("java")
+                    .startLine(1)
+                    .endLine(10)
+                    .embedding(embedding)
+                    .build());
+        }
+        return chunks;
+    }
+
+    private float[] perturb(float[] base, Random random, float scale) {
+        float[] vector = new float[base.length];
+        for (int i = 0; i < base.length; i++) {
+            vector[i] = base[i] + (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private Set<String> ids(List<VectorStore.SearchResult> results) {
+        Set<String> ids = new HashSet<>();
+        for (VectorStore.SearchResult result : results) {
+            ids.add(result.getChunk().getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,284 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InMemoryVectorStore 精确搜索测试：TopK 正确性与分配/延迟基准
+ * <p>
+ * 基准只打印结果，设置 -Djimi.bench=true 时运行 10k / 100k 片段，再设置 -Djimi.bench.large=true 追加 1M 片段。
+ */
+class InMemoryVectorStoreTest {
+
+    private static final int DIMENSION = 128;
+    private static final int TOP_K = 10;
+    private static final int QUERY_COUNT = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void testTopKMatchesFullSortAndFilter() {
+        Random random = new Random(21);
+        List<CodeChunk> chunks = TestChunks.randomChunks(random, 50_000, DIMENSION);
+        InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+        store.addBatch(chunks).block();
+
+        for (int q = 0; q < 5; q++) {
+            float[] query = TestChunks.randomVector(random, DIMENSION);
+            List<VectorStore.SearchResult> expected = fullSortSearch(chunks, query, TOP_K, null);
+            List<VectorStore.SearchResult> actual = store.search(query, TOP_K).block();
+            assertEquals(TOP_K, actual.size());
+            for (int i = 0; i < TOP_K; i++) {
+                assertEquals(expected.get(i).getChunk().getId(), actual.get(i).getChunk().getId());
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-4);
+            }
+        }
+
+        // 过滤条件只作用于能进入 TopK 的候选
+        float[] query = TestChunks.randomVector(random, DIMENSION);
+        VectorStore.SearchFilter filter = VectorStore.SearchFilter.builder().filePattern("src/File1\\d*\\.java").build();
+        List<VectorStore.SearchResult> expected = fullSortSearch(chunks, query, TOP_K, "src/File1\\d*\\.java");
+        List<VectorStore.SearchResult> actual = store.search(query, TOP_K, filter).block();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getChunk().getId(), actual.get(i).getChunk().getId());
+        }
+
+        // 修改后快照失效
+        CodeChunk added = TestChunks.chunk("added", "src/Added.java", query);
+        store.add(added).block();
+        assertEquals("added", store.search(query, 1).block().get(0).getChunk().getId());
+        store.delete("added").block();
+        assertNotEquals("added", store.search(query, 1).block().get(0).getChunk().getId());
+    }
+
+    @Test
+    void testFilterResolvedFromMetadataIndex() {
+        Random random = new Random(29);
+        List<CodeChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            CodeChunk chunk = TestChunks.chunk("chunk-" + i, "module" + (i % 20) + "/src/File" + (i / 20) + ".java",
+                    TestChunks.randomVector(random, DIMENSION));
+            chunk.setSymbol(i % 3 == 0 ? "UserService" + i : "OrderRepository" + i);
+            chunk.setLanguage(i % 2 == 0 ? "java" : "kotlin");
+            chunk.setUpdatedAt(i);
+            chunks.add(chunk);
+        }
+        InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+        store.addBatch(chunks).block();
+
+        VectorStore.SearchFilter filter = VectorStore.SearchFilter.builder()
+                .filePattern("module7/src/.*")
+                .symbolPattern("UserService\\d+")
+                .language("kotlin")
+                .minUpdatedAt(30_000L)
+                .build();
+        // 倒排索引求出的候选只剩 module7 下的 kotlin/UserService 片段
+        assertEquals(countMatches(chunks, filter), store.countFilterCandidates(filter));
+
+        float[] query = TestChunks.randomVector(random, DIMENSION);
+        List<VectorStore.SearchResult> actual = store.search(query, TOP_K, filter).block();
+        assertEquals(TOP_K, actual.size());
+        for (VectorStore.SearchResult result : actual) {
+            assertTrue(store.matchesFilter(result.getChunk(), filter));
+        }
+        List<VectorStore.SearchResult> all = store.search(query, chunks.size()).block();
+        List<VectorStore.SearchResult> expected = all.stream()
+                .filter(result -> store.matchesFilter(result.getChunk(), filter))
+                .limit(TOP_K)
+                .toList();
+        for (int i = 0; i < TOP_K; i++) {
+            assertEquals(expected.get(i).getChunk().getId(), actual.get(i).getChunk().getId());
+        }
+
+        // 单模块查询的耗时与模块规模相关，而非整个仓库
+        VectorStore.SearchFilter moduleFilter = VectorStore.SearchFilter.builder().filePattern("module3/.*").build();
+        for (int i = 0; i < 20; i++) {
+            store.search(query, TOP_K, moduleFilter).block();
+            store.search(query, TOP_K).block();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            store.search(query, TOP_K, moduleFilter).block();
+        }
+        double scoped = (System.nanoTime() - start) / 1e6 / 20;
+        start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            store.search(query, TOP_K).block();
+        }
+        double full = (System.nanoTime() - start) / 1e6 / 20;
+        System.out.printf("module-scoped search %.2fms vs full scan %.2fms (1/20 of chunks)%n", scoped, full);
+
+        // 删除后倒排索引同步
+        VectorStore.SearchFilter module7 = VectorStore.SearchFilter.builder().filePattern("module7/.*").build();
+        store.deleteByFilePath(chunks.get(7).getFilePath()).block();
+        assertEquals(countMatches(chunks, module7) - 1, store.countFilterCandidates(module7));
+    }
+
+    @Test
+    void testRegexLiteralExtraction() {
+        assertEquals("src/main/", ChunkFilterIndex.literalPrefix("src/main/.*"));
+        assertEquals("src/File1", ChunkFilterIndex.literalPrefix("^src/File1\\d*\\.java"));
+        assertEquals("src/Fil", ChunkFilterIndex.literalPrefix("src/File?x"));
+        assertEquals("", ChunkFilterIndex.literalPrefix(".*\\.java"));
+        assertEquals("", ChunkFilterIndex.literalPrefix("a/.*|b/.*"));
+        assertTrue(ChunkFilterIndex.requiredGrams(".*Service.*").containsAll(List.of("Ser", "ice")));
+        assertTrue(ChunkFilterIndex.requiredGrams("(?i)service").isEmpty());
+    }
+
+    private int countMatches(List<CodeChunk> chunks, VectorStore.SearchFilter filter) {
+        InMemoryVectorStore matcher = new InMemoryVectorStore(objectMapper);
+        return (int) chunks.stream().filter(chunk -> matcher.matchesFilter(chunk, filter)).count();
+    }
+
+    @Test
+    void testIndexFromOtherEmbeddingFormatIsNotLoaded() {
+        InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+        store.setEmbeddingFormat(new LocalEmbeddingProvider(DIMENSION).getFormatId());
+        store.load(indexDir).block();
+        store.addBatch(TestChunks.randomChunks(new Random(31), 100, DIMENSION)).block();
+        assertTrue(store.save().block());
+
+        // 同一格式可以加载
+        InMemoryVectorStore sameFormat = new InMemoryVectorStore(objectMapper);
+        sameFormat.setEmbeddingFormat("local-hash-v1:" + DIMENSION);
+        assertTrue(sameFormat.load(indexDir).block());
+        assertEquals(100, sameFormat.getStats().block().getTotalChunks());
+
+        // 其他提供者的向量不混用
+        InMemoryVectorStore otherFormat = new InMemoryVectorStore(objectMapper);
+        otherFormat.setEmbeddingFormat("qwen-text-embedding-v3:" + DIMENSION);
+        assertFalse(otherFormat.load(indexDir).block());
+        assertEquals(0, otherFormat.getStats().block().getTotalChunks());
+    }
+
+    @Test
+    void testIndexVersionAdvancesAfterSubclassInsert() {
+        Random random = new Random(41);
+        List<Long> versionsSeen = new ArrayList<>();
+        List<InMemoryVectorStore> stores = List.of(
+                new HnswVectorStore(objectMapper, 16, 100, 50) {
+                    @Override
+                    protected void afterInsert(List<CodeChunk> inserted) {
+                        versionsSeen.add(getIndexVersion());
+                        super.afterInsert(inserted);
+                    }
+                },
+                new MappedVectorStore(objectMapper) {
+                    @Override
+                    protected void afterInsert(List<CodeChunk> inserted) {
+                        versionsSeen.add(getIndexVersion());
+                        super.afterInsert(inserted);
+                    }
+                });
+
+        for (InMemoryVectorStore store : stores) {
+            versionsSeen.clear();
+            long before = store.getIndexVersion();
+            store.addBatch(TestChunks.randomChunks(random, 20, DIMENSION)).block();
+            float[] query = TestChunks.randomVector(random, DIMENSION);
+            store.add(TestChunks.chunk("single", "src/Single.java", query)).block();
+
+            // 子类写入向量索引时版本尚未递增，版本可见时检索已能命中新片段
+            assertEquals(List.of(before, before + 1), versionsSeen);
+            assertEquals(before + 2, store.getIndexVersion());
+            assertEquals("single", store.search(query, 1).block().get(0).getChunk().getId());
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testSearchBenchmark() {
+        List<Integer> sizes = new ArrayList<>(List.of(10_000, 100_000));
+        if (Boolean.getBoolean("jimi.bench.large")) {
+            sizes.add(1_000_000);
+        }
+        Random random = new Random(23);
+        for (int size : sizes) {
+            List<CodeChunk> chunks = TestChunks.randomChunks(random, size, DIMENSION);
+            InMemoryVectorStore store = new InMemoryVectorStore(objectMapper);
+            store.addBatch(chunks).block();
+            List<float[]> queries = new ArrayList<>();
+            for (int q = 0; q < QUERY_COUNT; q++) {
+                queries.add(TestChunks.randomVector(random, DIMENSION));
+            }
+
+            // 预热（同时构建扫描快照）
+            for (float[] query : queries) {
+                store.search(query, TOP_K).block();
+                fullSortSearch(chunks, query, TOP_K, null);
+            }
+
+            long allocBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (float[] query : queries) {
+                store.search(query, TOP_K).block();
+            }
+            double heapLatency = (System.nanoTime() - start) / 1e6 / QUERY_COUNT;
+            double heapAlloc = (allocatedBytes() - allocBefore) / 1024.0 / QUERY_COUNT;
+
+            allocBefore = allocatedBytes();
+            start = System.nanoTime();
+            for (float[] query : queries) {
+                fullSortSearch(chunks, query, TOP_K, null);
+            }
+            double sortLatency = (System.nanoTime() - start) / 1e6 / QUERY_COUNT;
+            double sortAlloc = (allocatedBytes() - allocBefore) / 1024.0 / QUERY_COUNT;
+
+            System.out.printf("N=%,d d=%d: full sort %.2fms/query %.0fKB/query -> top-k heap %.2fms/query %.1fKB/query%n",
+                    size, DIMENSION, sortLatency, sortAlloc, heapLatency, heapAlloc);
+        }
+    }
+
+    /**
+     * 原实现：每个候选一个 SearchResult，全量排序后截取 TopK
+     */
+    private List<VectorStore.SearchResult> fullSortSearch(List<CodeChunk> chunks, float[] query, int topK,
+                                                          String filePattern) {
+        List<VectorStore.SearchResult> results = new ArrayList<>();
+        for (CodeChunk chunk : chunks) {
+            if (filePattern != null && !chunk.getFilePath().matches(filePattern)) {
+                continue;
+            }
+            float[] vector = chunk.getEmbedding();
+            double dot = 0, normA = 0, normB = 0;
+            for (int i = 0; i < vector.length; i++) {
+                dot += query[i] * vector[i];
+                normA += query[i] * query[i];
+                normB += vector[i] * vector[i];
+            }
+            results.add(VectorStore.SearchResult.builder()
+                    .chunk(chunk)
+                    .score(dot / (Math.sqrt(normA) * Math.sqrt(normB)))
+                    .build());
+        }
+        results.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return results.size() > topK ? results.subList(0, topK) : results;
+    }
+
+    /**
+     * 全部线程累计分配的字节数（并行扫描的工作线程也计入）
+     */
+    private long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,160 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import io.leavesfly.jimi.knowledge.graph.model.CodeEntity;
+import io.leavesfly.jimi.knowledge.graph.parser.CompilationUnitCache;
+import io.leavesfly.jimi.knowledge.graph.parser.JavaASTParser;
+import io.leavesfly.jimi.knowledge.graph.parser.ParseResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 语法感知 Java 分块测试：成员边界、symbol 与代码图实体对齐、大方法拆分、回退与解析共享
+ */
+class JavaAstChunkerTest {
+
+    private static final String FILE_PATH = "src/main/java/com/example/UserService.java";
+
+    @TempDir
+    Path projectRoot;
+
+    @Test
+    void testChunksFollowMemberBoundaries() {
+        CompilationUnitCache cache = new CompilationUnitCache();
+        JavaAstChunker chunker = new JavaAstChunker(cache, new SimpleChunker());
+
+        List<CodeChunk> chunks = chunker.chunk(FILE_PATH, source(), 50, 5).collectList().block();
+        List<String> symbols = chunks.stream().map(CodeChunk::getSymbol).collect(Collectors.toList());
+
+        assertTrue(symbols.containsAll(List.of(
+                "com.example.UserService",
+                "com.example.UserService.repository",
+                "com.example.UserService.UserService(1)",
+                "com.example.UserService.find(1)",
+                "com.example.UserService.Cache",
+                "com.example.UserService.Cache.get(1)")), symbols.toString());
+
+        // 连续字段合并为一个片段
+        CodeChunk fields = bySymbol(chunks, "com.example.UserService.repository");
+        assertTrue(fields.getContent().contains("repository") && fields.getContent().contains("MAX_RESULTS"));
+        assertEquals("FIELD:com.example.UserService.repository,FIELD:com.example.UserService.MAX_RESULTS",
+                fields.getMetadata().get("entityId"));
+
+        // 方法片段从 Javadoc 开始，到方法结束
+        CodeChunk find = bySymbol(chunks, "com.example.UserService.find(1)");
+        assertTrue(find.getContent().startsWith("    /**"));
+        assertTrue(find.getContent().strip().endsWith("}"));
+        assertFalse(find.getContent().contains("export"));
+
+        // 大方法按行窗口拆分，共享同一 symbol
+        List<CodeChunk> export = chunks.stream()
+                .filter(chunk -> "com.example.UserService.export(0)".equals(chunk.getSymbol()))
+                .collect(Collectors.toList());
+        assertTrue(export.size() >= 3);
+        assertTrue(export.stream().allMatch(chunk -> chunk.getEndLine() - chunk.getStartLine() < 50));
+
+        // 成员片段之间没有重叠
+        List<CodeChunk> members = chunks.stream()
+                .filter(chunk -> !"com.example.UserService.export(0)".equals(chunk.getSymbol()))
+                .sorted(Comparator.comparingInt(CodeChunk::getStartLine))
+                .collect(Collectors.toList());
+        for (int i = 1; i < members.size(); i++) {
+            assertTrue(members.get(i).getStartLine() > members.get(i - 1).getEndLine(),
+                    members.get(i - 1).getSymbol() + " / " + members.get(i).getSymbol());
+        }
+    }
+
+    @Test
+    void testEntityIdsMatchGraphAndParseIsShared() throws Exception {
+        CompilationUnitCache cache = new CompilationUnitCache();
+        Path file = projectRoot.resolve(FILE_PATH);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source());
+
+        // 代码图解析一次，分块复用同一编译单元
+        ParseResult graph = new JavaASTParser(cache).parseFile(file, projectRoot);
+        assertTrue(graph.getSuccess());
+        List<CodeChunk> chunks = new JavaAstChunker(cache, new SimpleChunker())
+                .chunk(FILE_PATH, Files.readString(file), 50, 5).collectList().block();
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+
+        Set<String> graphIds = graph.getEntities().stream().map(CodeEntity::getId).collect(Collectors.toSet());
+        for (String entityId : List.of("CLASS:com.example.UserService", "METHOD:com.example.UserService.find(1)",
+                "CONSTRUCTOR:com.example.UserService.UserService(1)", "FIELD:com.example.UserService.repository")) {
+            assertTrue(graphIds.contains(entityId), entityId);
+            assertTrue(chunks.stream().anyMatch(chunk -> chunk.getMetadata().getOrDefault("entityId", "")
+                    .contains(entityId)), entityId);
+        }
+    }
+
+    @Test
+    void testFallsBackToLineWindows() {
+        JavaAstChunker chunker = new JavaAstChunker(new CompilationUnitCache(), new SimpleChunker());
+
+        List<CodeChunk> python = chunker.chunk("app/main.py", "def main():\n    pass\n", 50, 5).collectList().block();
+        assertEquals(1, python.size());
+        assertNull(python.get(0).getSymbol());
+
+        List<CodeChunk> broken = chunker.chunk("src/Broken.java", "public class Broken {\n    void m( {\n", 50, 5)
+                .collectList().block();
+        assertEquals(1, broken.size());
+        assertEquals("java", broken.get(0).getLanguage());
+    }
+
+    private CodeChunk bySymbol(List<CodeChunk> chunks, String symbol) {
+        return chunks.stream().filter(chunk -> symbol.equals(chunk.getSymbol())).findFirst().orElseThrow();
+    }
+
+    private String source() {
+        StringBuilder source = new StringBuilder("""
+                package com.example;
+
+                import java.util.List;
+
+                /**
+                 * 用户服务
+                 */
+                @Deprecated
+                public class UserService {
+
+                    private final UserRepository repository;
+                    private static final int MAX_RESULTS = 10;
+
+                    public UserService(UserRepository repository) {
+                        this.repository = repository;
+                    }
+
+                    /**
+                     * 按名称查找用户
+                     */
+                    public List<User> find(String name) {
+                        return repository.findByName(name);
+                    }
+
+                    public void export() {
+                """);
+        for (int i = 0; i < 150; i++) {
+            source.append("        repository.write(").append(i).append(");\n");
+        }
+        source.append("""
+                    }
+
+                    static class Cache {
+                        User get(String key) {
+                            return null;
+                        }
+                    }
+                }
+                """);
+        return source.toString();
+    }
+}
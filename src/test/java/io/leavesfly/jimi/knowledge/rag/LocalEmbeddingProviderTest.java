@@ -0,0 +1,81 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地嵌入测试：确定性、归一化、相似度排序与吞吐
+ */
+class LocalEmbeddingProviderTest {
+
+    private static final String[] WORDS = {"user", "order", "service", "repository", "cache", "config", "request",
+            "response", "handler", "manager", "session", "token", "index", "query", "result", "event"};
+
+    @Test
+    void testDeterministicAndNormalized() {
+        String text = "public User findUserByName(String name) { return userRepository.findByName(name); }";
+        float[] first = new LocalEmbeddingProvider(256).embed(text).block();
+        float[] second = new LocalEmbeddingProvider(256).embedBatch(List.of("other", text)).block().get(1);
+
+        assertArrayEquals(first, second);
+        assertEquals(1.0, dot(first, first), 1e-4);
+        assertEquals("local-hash-v1:256", new LocalEmbeddingProvider(256).getFormatId());
+    }
+
+    @Test
+    void testLexicallyRelatedTextIsCloser() {
+        LocalEmbeddingProvider provider = new LocalEmbeddingProvider(384);
+        float[] query = provider.embed("find user by name").block();
+        float[] related = provider.embed("public User findUserByName(String userName) { return repo.find(userName); }").block();
+        float[] unrelated = provider.embed("void flushOrderCache() { orderCache.invalidateAll(); }").block();
+        float[] plural = provider.embed("List<Users> loadUsers()").block();
+
+        assertTrue(dot(query, related) > dot(query, unrelated) + 0.2);
+        // 字符三元组让 user / users 仍有相似度
+        assertTrue(dot(provider.embed("user").block(), plural) > 0.2);
+    }
+
+    /**
+     * 2 万片段的嵌入吞吐，取决于硬件，只打印结果；设置 -Djimi.bench=true 时运行
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "jimi.bench", matches = "true")
+    void testThroughput() {
+        Random random = new Random(3);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < 30; line++) {
+                String a = WORDS[random.nextInt(WORDS.length)];
+                String b = WORDS[random.nextInt(WORDS.length)];
+                content.append("    ").append(a).append(Character.toUpperCase(b.charAt(0))).append(b.substring(1))
+                        .append(" = ").append(a).append('_').append(b).append("(v").append(i).append(");\n");
+            }
+            texts.add(content.toString());
+        }
+
+        LocalEmbeddingProvider provider = new LocalEmbeddingProvider(384);
+        provider.embedBatch(texts.subList(0, 2_000)).block();
+        long start = System.nanoTime();
+        for (int from = 0; from < texts.size(); from += 256) {
+            provider.embedBatch(texts.subList(from, Math.min(texts.size(), from + 256))).block();
+        }
+        double chunksPerSecond = texts.size() / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("LocalEmbeddingProvider: %.0f chunks/s (%d cores)%n",
+                chunksPerSecond, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,180 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MappedVectorStore 测试：与线性扫描结果一致、保存后 mmap 加载、旧格式转换、int8 量化
+ */
+class MappedVectorStoreTest {
+
+    private static final int DIMENSION = 32;
+    private static final int TOP_K = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void testSearchMatchesBruteForceAcrossSaveAndLoad() {
+        Random random = new Random(3);
+        List<CodeChunk> chunks = TestChunks.randomChunks(random, 3_000, DIMENSION);
+        InMemoryVectorStore exact = new InMemoryVectorStore(objectMapper);
+        exact.addBatch(chunks).block();
+
+        MappedVectorStore store = new MappedVectorStore(objectMapper);
+        store.load(indexDir).block();
+        store.addBatch(chunks).block();
+        float[] query = TestChunks.randomVector(random, DIMENSION);
+        assertSameResults(exact.search(query, TOP_K).block(), store.search(query, TOP_K).block());
+        // 调用方的片段不被修改
+        assertNotNull(chunks.get(0).getEmbedding());
+
+        assertTrue(store.save().block());
+        assertTrue(Files.exists(indexDir.resolve(MappedVectorStore.MAPPED_VECTORS_FILE)));
+        assertEquals(16 + 3_000L * DIMENSION * Float.BYTES, store.getStats().block().getIndexSizeBytes());
+
+        MappedVectorStore reloaded = new MappedVectorStore(objectMapper);
+        assertTrue(reloaded.load(indexDir).block());
+        assertEquals("mmap", reloaded.getStats().block().getStorageType());
+        assertSameResults(exact.search(query, TOP_K).block(), reloaded.search(query, TOP_K).block());
+
+        // 加载后的增量修改：删除一个文件、新增片段，保存后再加载仍一致
+        String removedFile = chunks.get(0).getFilePath();
+        exact.deleteByFilePath(removedFile).block();
+        reloaded.deleteByFilePath(removedFile).block();
+        CodeChunk added = TestChunks.chunk("added", "src/Added.java", query);
+        exact.add(added).block();
+        reloaded.add(added).block();
+        assertEquals("added", reloaded.search(query, 1).block().get(0).getChunk().getId());
+        assertTrue(reloaded.save().block());
+
+        MappedVectorStore again = new MappedVectorStore(objectMapper);
+        assertTrue(again.load(indexDir).block());
+        assertSameResults(exact.search(query, TOP_K).block(), again.search(query, TOP_K).block());
+        assertEquals(exact.getStats().block().getTotalChunks(), again.getStats().block().getTotalChunks());
+    }
+
+    @Test
+    void testLoadsLegacyVectorsFile() {
+        Random random = new Random(5);
+        List<CodeChunk> chunks = TestChunks.randomChunks(random, 200, DIMENSION);
+        InMemoryVectorStore legacy = new InMemoryVectorStore(objectMapper);
+        legacy.load(indexDir).block();
+        legacy.addBatch(chunks).block();
+        assertTrue(legacy.save().block());
+
+        MappedVectorStore store = new MappedVectorStore(objectMapper);
+        assertTrue(store.load(indexDir).block());
+        float[] query = TestChunks.randomVector(random, DIMENSION);
+        assertSameResults(legacy.search(query, TOP_K).block(), store.search(query, TOP_K).block());
+
+        // 保存后转换为映射格式
+        assertTrue(store.save().block());
+        assertTrue(Files.exists(indexDir.resolve(MappedVectorStore.MAPPED_VECTORS_FILE)));
+        assertFalse(Files.exists(indexDir.resolve("vectors.bin")));
+    }
+
+    @Test
+    void testInt8QuantizedSearchWithRerank() {
+        Random random = new Random(9);
+        List<CodeChunk> chunks = TestChunks.randomChunks(random, 5_000, DIMENSION);
+        InMemoryVectorStore exact = new InMemoryVectorStore(objectMapper);
+        exact.addBatch(chunks).block();
+
+        MappedVectorStore store = new MappedVectorStore(objectMapper, true);
+        store.load(indexDir).block();
+        store.addBatch(chunks).block();
+        assertTrue(store.save().block());
+        assertTrue(Files.exists(indexDir.resolve(MappedVectorStore.QUANTIZED_VECTORS_FILE)));
+
+        VectorStore.IndexStats stats = store.getStats().block();
+        assertEquals("mmap-int8", stats.getStorageType());
+        assertTrue(stats.getCompressionRatio() > 3.9, "int8 编码应约为 float 的 1/4");
+        assertNotNull(stats.getRecallLoss());
+        System.out.printf("int8: compression=%.2fx, estimated recall loss=%.3f%n",
+                stats.getCompressionRatio(), stats.getRecallLoss());
+
+        MappedVectorStore reloaded = new MappedVectorStore(objectMapper, true);
+        assertTrue(reloaded.load(indexDir).block());
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = TestChunks.randomVector(random, DIMENSION);
+            List<VectorStore.SearchResult> expected = exact.search(query, TOP_K).block();
+            List<VectorStore.SearchResult> actual = reloaded.search(query, TOP_K).block();
+            assertEquals(TOP_K, actual.size());
+            // 重排后的分数是精确分数
+            if (expected.get(0).getChunk().getId().equals(actual.get(0).getChunk().getId())) {
+                assertEquals(expected.get(0).getScore(), actual.get(0).getScore(), 1e-4);
+            }
+            for (VectorStore.SearchResult result : actual) {
+                if (expected.stream().anyMatch(e -> e.getChunk().getId().equals(result.getChunk().getId()))) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (queries * TOP_K);
+        System.out.printf("int8 + rerank: recall@10=%.3f%n", recall);
+        assertTrue(recall >= 0.95, "recall@10 实际 " + recall);
+    }
+
+    @Test
+    void testFilteredSearchScansCandidateRows() {
+        Random random = new Random(13);
+        List<CodeChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < 4_000; i++) {
+            CodeChunk chunk = TestChunks.chunk("chunk-" + i, "module" + (i % 20) + "/src/File" + (i / 20) + ".java",
+                    TestChunks.randomVector(random, DIMENSION));
+            chunk.setLanguage(i % 2 == 0 ? "java" : "kotlin");
+            chunks.add(chunk);
+        }
+        InMemoryVectorStore exact = new InMemoryVectorStore(objectMapper);
+        exact.addBatch(chunks).block();
+        VectorStore.SearchFilter moduleFilter = VectorStore.SearchFilter.builder().filePattern("module3/.*").build();
+        VectorStore.SearchFilter kotlinFilter = VectorStore.SearchFilter.builder()
+                .filePattern("module\\d*/src/File1\\d*\\.java").language("kotlin").build();
+
+        for (boolean quantized : new boolean[]{false, true}) {
+            Path dir = indexDir.resolve(quantized ? "int8" : "float");
+            MappedVectorStore store = new MappedVectorStore(objectMapper, quantized);
+            store.load(dir).block();
+            store.addBatch(chunks.subList(0, 3_000)).block();
+            assertTrue(store.save().block());
+            // 保存后新增的行留在堆上，与映射行一起参与过滤扫描
+            store.addBatch(chunks.subList(3_000, chunks.size())).block();
+            exact.delete("chunk-3").block();
+            store.delete("chunk-3").block();
+
+            for (VectorStore.SearchFilter filter : List.of(moduleFilter, kotlinFilter)) {
+                float[] query = TestChunks.randomVector(random, DIMENSION);
+                List<VectorStore.SearchResult> expected = exact.search(query, TOP_K, filter).block();
+                List<VectorStore.SearchResult> actual = store.search(query, TOP_K, filter).block();
+                assertEquals(TOP_K, actual.size());
+                actual.forEach(result -> assertTrue(store.matchesFilter(result.getChunk(), filter)));
+                if (!quantized) {
+                    assertSameResults(expected, actual);
+                }
+            }
+            assertEquals(200 - 1, store.countFilterCandidates(moduleFilter));
+        }
+    }
+
+    private void assertSameResults(List<VectorStore.SearchResult> expected, List<VectorStore.SearchResult> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getChunk().getId(), actual.get(i).getChunk().getId());
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-4);
+        }
+    }
+}
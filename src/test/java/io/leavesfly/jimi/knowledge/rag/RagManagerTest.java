@@ -0,0 +1,298 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.config.info.VectorIndexConfig;
+import io.leavesfly.jimi.knowledge.query.RetrievalQuery;
+import io.leavesfly.jimi.knowledge.result.RetrievalResult;
+import io.leavesfly.jimi.wire.message.IndexBuildProgress;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RagManager 索引构建（嵌入流水线）测试
+ */
+class RagManagerTest {
+
+    private static final int FILE_COUNT = 400;
+    private static final int LINES_PER_FILE = 300;
+
+    @TempDir
+    Path projectRoot;
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void testBuildIndexEmbedsAllChunks() throws Exception {
+        generateRepo();
+
+        CountingEmbeddingProvider provider = new CountingEmbeddingProvider(0);
+        InMemoryVectorStore store = new InMemoryVectorStore(new ObjectMapper());
+        RagManager ragManager = new RagManager(store, provider, new SimpleChunker(), config());
+
+        RetrievalResult result = ragManager.buildIndex(projectRoot).block();
+        assertNotNull(result);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+
+        RetrievalResult.IndexStats stats = result.getIndexStats();
+        System.out.printf("buildIndex: %d chunks in %dms, embedded=%d, deduped=%d, %.1f chunks/s, embedBatch calls=%d%n",
+                stats.getTotalChunks(), result.getElapsedMs(), stats.getEmbeddedChunks(),
+                stats.getDedupedChunks(), stats.getChunksPerSecond(), provider.calls.get());
+
+        assertTrue(stats.getTotalChunks() > FILE_COUNT);
+        assertEquals(0, stats.getFailedChunks());
+        // 一半文件内容相同，重复片段只嵌入一次
+        assertTrue(stats.getDedupedChunks() > 0);
+        assertEquals(stats.getTotalChunks(), stats.getEmbeddedChunks() + stats.getDedupedChunks());
+        assertEquals(stats.getEmbeddedChunks(), provider.texts.get());
+        assertTrue(provider.maxBatch.get() <= 25, "批大小不应超过配置值");
+        assertTrue(stats.getChunksPerSecond() > 0);
+
+        // 入库的片段都带向量，检索可以命中
+        RetrievalResult retrieval = ragManager.retrieve(RetrievalQuery.builder()
+                .query("method42")
+                .topK(5)
+                .build()).block();
+        assertNotNull(retrieval);
+        assertTrue(retrieval.isSuccess(), retrieval.getErrorMessage());
+        assertEquals(5, retrieval.getChunks().size());
+    }
+
+    @Test
+    void testFailedBatchesAreRetried() throws Exception {
+        generateRepo();
+
+        // 每个批次首次调用失败，重试后成功
+        CountingEmbeddingProvider provider = new CountingEmbeddingProvider(1);
+        InMemoryVectorStore store = new InMemoryVectorStore(new ObjectMapper());
+        RagManager ragManager = new RagManager(store, provider, new SimpleChunker(), config());
+
+        RetrievalResult result = ragManager.buildIndex(projectRoot).block();
+        assertNotNull(result);
+        assertTrue(result.isSuccess());
+        assertEquals(0, result.getIndexStats().getFailedChunks());
+        assertEquals(result.getIndexStats().getTotalChunks(),
+                result.getIndexStats().getEmbeddedChunks() + result.getIndexStats().getDedupedChunks());
+    }
+
+    @Test
+    void testIncrementalUpdateOnlyReindexesChangedFiles() throws Exception {
+        generateRepo();
+
+        CountingEmbeddingProvider provider = new CountingEmbeddingProvider(0);
+        InMemoryVectorStore store = new InMemoryVectorStore(new ObjectMapper());
+        RagManager ragManager = new RagManager(store, provider, new SimpleChunker(), config());
+        assertTrue(ragManager.buildIndex(projectRoot).block().isSuccess());
+        int chunksBefore = store.getStats().block().getTotalChunks();
+
+        // 修改一个文件、删除一个文件、新增一个文件
+        Path changed = projectRoot.resolve("src/pkg0/C0.java");
+        Files.writeString(changed, "public class C0 {\n    void changedMethod() {}\n}\n");
+        Files.delete(projectRoot.resolve("src/pkg2/C2.java"));
+        Files.writeString(projectRoot.resolve("src/pkg0/Added.java"), "public class Added {}\n");
+
+        int textsBefore = provider.texts.get();
+        RetrievalResult result = ragManager.buildIndex(projectRoot, true).block();
+        assertNotNull(result);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+
+        RetrievalResult.IndexStats stats = result.getIndexStats();
+        assertEquals(1, stats.getAddedFiles());
+        assertEquals(1, stats.getUpdatedFiles());
+        assertEquals(1, stats.getRemovedFiles());
+        assertEquals(FILE_COUNT - 2, stats.getSkippedFiles());
+        assertEquals(2, provider.texts.get() - textsBefore, "只应嵌入变化文件的片段");
+
+        // 旧片段被替换，已删除文件的片段被移除
+        int perFileChunks = (chunksBefore) / FILE_COUNT;
+        assertEquals(chunksBefore - 2 * perFileChunks + 2, store.getStats().block().getTotalChunks());
+        assertNull(store.getFileMD5("src/pkg2/C2.java"));
+
+        // 没有变化时不做任何嵌入
+        RetrievalResult noop = ragManager.buildIndex(projectRoot, true).block();
+        assertNotNull(noop);
+        assertEquals(FILE_COUNT, noop.getIndexStats().getSkippedFiles());
+        assertEquals(0, noop.getIndexStats().getTotalChunks());
+    }
+
+    @Test
+    void testLexicalRetrievalSkipsEmbedding() throws Exception {
+        generateRepo();
+
+        CountingEmbeddingProvider provider = new CountingEmbeddingProvider(0);
+        InMemoryVectorStore store = new InMemoryVectorStore(new ObjectMapper());
+        RagManager ragManager = new RagManager(store, provider, new SimpleChunker(), config());
+        assertTrue(ragManager.buildIndex(projectRoot).block().isSuccess());
+        int callsBefore = provider.calls.get();
+
+        RetrievalResult result = ragManager.retrieveLexical(RetrievalQuery.builder()
+                .query("C42")
+                .topK(5)
+                .build()).block();
+        assertNotNull(result);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertFalse(result.getChunks().isEmpty());
+        assertEquals("src/pkg2/C42.java", result.getChunks().get(0).getFilePath());
+        assertEquals(callsBefore, provider.calls.get(), "关键词检索不应调用嵌入");
+        assertEquals(0, provider.queries.get());
+    }
+
+    @Test
+    void testQueryEmbeddingAndResultCaches() throws Exception {
+        generateRepo();
+
+        CountingEmbeddingProvider provider = new CountingEmbeddingProvider(0);
+        InMemoryVectorStore store = new InMemoryVectorStore(new ObjectMapper());
+        RagManager ragManager = new RagManager(store, provider, new SimpleChunker(), config());
+        assertTrue(ragManager.buildIndex(projectRoot).block().isSuccess());
+
+        RetrievalQuery query = RetrievalQuery.builder().query("method42  counter").topK(5).build();
+        RetrievalResult first = ragManager.retrieve(query).block();
+        // 空白不同的同一查询只嵌入一次，结果直接来自缓存
+        RetrievalResult second = ragManager.retrieve(RetrievalQuery.builder()
+                .query("  method42 counter ").topK(5).build()).block();
+        assertEquals(1, provider.queries.get());
+        assertEquals(first.getChunks().stream().map(RetrievalResult.CodeChunkResult::getId).toList(),
+                second.getChunks().stream().map(RetrievalResult.CodeChunkResult::getId).toList());
+
+        RetrievalResult.IndexStats stats = ragManager.getStats().block();
+        assertEquals(1, stats.getQueryCacheHits());
+        assertEquals(1, stats.getQueryCacheMisses());
+        assertEquals(1, stats.getResultCacheHits());
+        assertEquals(1, stats.getResultCacheMisses());
+
+        // 不同 topK 不共享结果
+        ragManager.retrieve(RetrievalQuery.builder().query("method42 counter").topK(3).build()).block();
+        assertEquals(2, ragManager.getStats().block().getResultCacheMisses());
+
+        // 索引变化后结果缓存失效，查询向量仍然复用
+        store.deleteByFilePath("src/pkg0/C0.java").block();
+        ragManager.retrieve(query).block();
+        stats = ragManager.getStats().block();
+        assertEquals(3, stats.getResultCacheMisses());
+        assertEquals(1, provider.queries.get());
+    }
+
+    @Test
+    void testInterruptedBuildResumesFromCheckpoint() throws Exception {
+        generateRepo();
+
+        // 分块到第 150 个文件时失败，模拟构建中断
+        AtomicInteger chunkedFiles = new AtomicInteger();
+        SimpleChunker simpleChunker = new SimpleChunker();
+        Chunker interruptingChunker = new SimpleChunker() {
+            @Override
+            public Flux<CodeChunk> chunk(String filePath, String content, int chunkSize, int overlap) {
+                if (chunkedFiles.incrementAndGet() > 150) {
+                    return Flux.error(new IllegalStateException("simulated crash"));
+                }
+                return simpleChunker.chunk(filePath, content, chunkSize, overlap);
+            }
+        };
+        VectorIndexConfig config = config();
+        config.setBuildCheckpointFiles(50);
+
+        InMemoryVectorStore store = new InMemoryVectorStore(new ObjectMapper());
+        store.load(indexDir).block();
+        RetrievalResult failed = new RagManager(store, new CountingEmbeddingProvider(0), interruptingChunker, config)
+                .buildIndex(projectRoot).block();
+        assertNotNull(failed);
+        assertFalse(failed.isSuccess());
+
+        // 检查点已落盘：重新加载后从检查点继续增量构建
+        InMemoryVectorStore reloaded = new InMemoryVectorStore(new ObjectMapper());
+        assertTrue(reloaded.load(indexDir).block());
+        int checkpointed = reloaded.getTrackedFiles().size();
+        assertTrue(checkpointed >= 50 && checkpointed <= 150, "检查点文件数: " + checkpointed);
+
+        List<IndexBuildProgress> progress = new CopyOnWriteArrayList<>();
+        RetrievalResult resumed = new RagManager(reloaded, new CountingEmbeddingProvider(0), new SimpleChunker(), config)
+                .buildIndex(projectRoot, true, progress::add).block();
+        assertNotNull(resumed);
+        assertTrue(resumed.isSuccess(), resumed.getErrorMessage());
+        assertEquals(checkpointed, resumed.getIndexStats().getSkippedFiles());
+        assertEquals(FILE_COUNT - checkpointed, resumed.getIndexStats().getAddedFiles());
+        assertEquals(FILE_COUNT, reloaded.getTrackedFiles().size());
+
+        // 最后一条进度标记结束
+        IndexBuildProgress last = progress.get(progress.size() - 1);
+        assertTrue(last.isDone());
+        assertEquals(FILE_COUNT, last.getProcessedFiles());
+        assertEquals(FILE_COUNT, last.getTotalFiles());
+    }
+
+    private VectorIndexConfig config() {
+        return VectorIndexConfig.builder()
+                .enabled(true)
+                .embeddingBatchSize(25)
+                .embeddingConcurrency(4)
+                .embeddingMaxRetries(3)
+                .build();
+    }
+
+    /**
+     * 生成合成仓库：一半文件内容各不相同，另一半为重复内容
+     */
+    private void generateRepo() throws IOException {
+        for (int f = 0; f < FILE_COUNT; f++) {
+            Path dir = projectRoot.resolve("src/pkg" + (f % 20));
+            Files.createDirectories(dir);
+            int variant = f % 2 == 0 ? f : 1;
+            StringBuilder content = new StringBuilder("public class C" + variant + " {\n");
+            for (int line = 0; line < LINES_PER_FILE; line++) {
+                content.append("    void method").append(line).append("() { int v").append(variant)
+                        .append(" = ").append(line).append("; }\n");
+            }
+            content.append("}\n");
+            Files.writeString(dir.resolve("C" + f + ".java"), content.toString());
+        }
+    }
+
+    /**
+     * 统计调用的嵌入提供者，可配置每个批次先失败若干次
+     */
+    private static class CountingEmbeddingProvider extends MockEmbeddingProvider {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger texts = new AtomicInteger();
+        final AtomicInteger maxBatch = new AtomicInteger();
+        final AtomicInteger queries = new AtomicInteger();
+        private final int failuresPerBatch;
+        private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        CountingEmbeddingProvider(int failuresPerBatch) {
+            super(64, "counting");
+            this.failuresPerBatch = failuresPerBatch;
+        }
+
+        @Override
+        public Mono<float[]> embed(String text) {
+            queries.incrementAndGet();
+            return super.embed(text);
+        }
+
+        @Override
+        public Mono<List<float[]>> embedBatch(List<String> batch) {
+            calls.incrementAndGet();
+            maxBatch.accumulateAndGet(batch.size(), Math::max);
+            int attempt = attempts.computeIfAbsent(batch.get(0), k -> new AtomicInteger()).incrementAndGet();
+            if (attempt <= failuresPerBatch) {
+                return Mono.error(new RuntimeException("simulated failure"));
+            }
+            texts.addAndGet(batch.size());
+            return super.embedBatch(batch);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.leavesfly.jimi.knowledge.rag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 向量存储测试共用的片段数据：随机高斯向量，每 10 个片段属于同一文件
+ */
+final class TestChunks {
+
+    private TestChunks() {
+    }
+
+    static List<CodeChunk> randomChunks(Random random, int count, int dimension) {
+        List<CodeChunk> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunks.add(chunk("chunk-" + i, "src/File" + (i / 10) + ".java", randomVector(random, dimension)));
+        }
+        return chunks;
+    }
+
+    static CodeChunk chunk(String id, String filePath, float[] embedding) {
+        return CodeChunk.builder()
+                .id(id)
+                .content("content " + id)
+                .filePath(filePath)
+                .language("java")
+                .startLine(1)
+                .endLine(10)
+                .embedding(embedding)
+                .build();
+    }
+
+    static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -12,11 +12,10 @@ class RateLimiterTest {
 
     @Test
     void testRateLimitWithinWindow() {
-        // 配置：1000ms 窗口内最多 3 次请求，超限休眠 500ms
+        // 配置：1000ms 窗口内最多 3 次请求
         LLMProviderConfig.RateLimitConfig config = LLMProviderConfig.RateLimitConfig.builder()
                 .windowMs(1000)
                 .maxRequests(3)
-                .sleepMs(500)
                 .build();
 
         RateLimiter limiter = new RateLimiter(config);
@@ -35,11 +34,10 @@ class RateLimiterTest {
 
     @Test
     void testRateLimitExceeded() throws InterruptedException {
-        // 配置：1000ms 窗口内最多 2 次请求，超限休眠 300ms
+        // 配置：1000ms 窗口内最多 2 次请求，即每 500ms 补充一个许可
         LLMProviderConfig.RateLimitConfig config = LLMProviderConfig.RateLimitConfig.builder()
                 .windowMs(1000)
                 .maxRequests(2)
-                .sleepMs(300)
                 .build();
 
         RateLimiter limiter = new RateLimiter(config);
@@ -51,14 +49,64 @@ class RateLimiterTest {
         long elapsed1 = System.currentTimeMillis() - start;
         assertTrue(elapsed1 < 100, "前2次请求应该快速通过");
 
-        // 第3次请求应该触发限流
+        // 第3次请求应该触发限流，等待下一个许可补充（约500ms）
         start = System.currentTimeMillis();
-        limiter.acquirePermit();  // 第3次，应该休眠300ms
+        limiter.acquirePermit();  // 第3次
         long elapsed2 = System.currentTimeMillis() - start;
-        
-        // 应该休眠了大约300ms（允许误差±100ms）
-        assertTrue(elapsed2 >= 250, "第3次请求应该触发休眠，实际耗时: " + elapsed2 + "ms");
-        assertTrue(elapsed2 <= 400, "休眠时间不应超过400ms，实际耗时: " + elapsed2 + "ms");
+
+        assertTrue(elapsed2 >= 400, "第3次请求应该等待许可，实际耗时: " + elapsed2 + "ms");
+        assertTrue(elapsed2 <= 700, "等待时间不应超过700ms，实际耗时: " + elapsed2 + "ms");
+        assertEquals(1, limiter.getThrottledCount());
+        assertTrue(limiter.getThrottledMillis() >= 400);
+    }
+
+    @Test
+    void testAcquireDoesNotBlockCaller() {
+        LLMProviderConfig.RateLimitConfig config = LLMProviderConfig.RateLimitConfig.builder()
+                .windowMs(1000)
+                .maxRequests(1)
+                .build();
+
+        RateLimiter limiter = new RateLimiter(config);
+        limiter.acquire().block();
+
+        // 组装并订阅被限流的 Mono 不应阻塞当前线程
+        long start = System.currentTimeMillis();
+        var pending = limiter.acquire().toFuture();
+        assertTrue(System.currentTimeMillis() - start < 100, "acquire() 不应阻塞调用线程");
+        assertFalse(pending.isDone());
+
+        // 许可在约 1000ms 后可用
+        pending.join();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 900, "被限流的请求应被延迟，实际耗时: " + elapsed + "ms");
+        assertEquals(2, limiter.getAcquireCount());
+        assertEquals(1, limiter.getThrottledCount());
+    }
+
+    @Test
+    void testTokensPerMinuteBudget() {
+        // 每分钟 6000 token，即每 10ms 补充 1 个 token；不限制请求数
+        LLMProviderConfig.RateLimitConfig config = LLMProviderConfig.RateLimitConfig.builder()
+                .tokensPerMinute(6000)
+                .build();
+
+        RateLimiter limiter = new RateLimiter(config);
+
+        // 预算内：不等待
+        limiter.recordTokens(6000);
+        long start = System.currentTimeMillis();
+        limiter.acquire().block();
+        assertTrue(System.currentTimeMillis() - start < 100, "预算内的请求应立即通过");
+
+        // 透支 30 个 token（约 300ms）后，下一次请求需要等待预算恢复
+        limiter.recordTokens(30);
+        start = System.currentTimeMillis();
+        limiter.acquire().block();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 200, "透支 token 后应等待，实际耗时: " + elapsed + "ms");
+        assertTrue(elapsed <= 600, "等待时间应与透支量相当，实际耗时: " + elapsed + "ms");
+        assertEquals(6030, limiter.getRecordedTokens());
     }
 
     @Test
@@ -0,0 +1,91 @@
+package io.leavesfly.jimi.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 本地假 MCP 服务，供 STDIO 客户端测试以子进程方式启动
+ *
+ * 支持 initialize、tools/list 和 tools/call：
+ * - echo 工具：按参数 delayMs 延迟后原样返回 text，多个请求并发处理、乱序返回
+ * - 收到 notifications/cancelled 时不做响应
+ */
+public class FakeMcpServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = new PrintStream(System.out, false, "UTF-8");
+        ExecutorService workers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fake-mcp-worker");
+            t.setDaemon(true);
+            return t;
+        });
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode request = MAPPER.readTree(line);
+            if (!request.hasNonNull("id")) {
+                continue;
+            }
+            workers.submit(() -> handle(request, out));
+        }
+    }
+
+    private static void handle(JsonNode request, PrintStream out) {
+        try {
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("jsonrpc", "2.0");
+            response.set("id", request.get("id"));
+            ObjectNode result = response.putObject("result");
+
+            String method = request.path("method").asText();
+            switch (method) {
+                case "initialize" -> {
+                    result.put("protocolVersion", "2024-11-05");
+                    result.putObject("serverInfo").put("name", "fake").put("version", "1.0");
+                }
+                case "tools/list" -> {
+                    ObjectNode tool = result.putArray("tools").addObject();
+                    tool.put("name", "echo");
+                    tool.put("description", "Echo text back");
+                    tool.putObject("inputSchema").put("type", "object");
+                }
+                case "tools/call" -> {
+                    JsonNode arguments = request.path("params").path("arguments");
+                    long delayMs = arguments.path("delayMs").asLong(0);
+                    if (delayMs > 0) {
+                        Thread.sleep(delayMs);
+                    }
+                    ObjectNode content = result.putArray("content").addObject();
+                    content.put("type", "text");
+                    content.put("text", arguments.path("text").asText());
+                    result.put("isError", false);
+                }
+                default -> {
+                    response.remove("result");
+                    response.putObject("error").put("code", -32601).put("message", "Method not found: " + method);
+                }
+            }
+
+            String json = MAPPER.writeValueAsString(response);
+            synchronized (out) {
+                out.println(json);
+                out.flush();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.leavesfly.jimi.mcp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StdIoJsonRpcClient 测试
+ * 以子进程方式启动 FakeMcpServer，验证请求流水线、超时和取消
+ */
+class StdIoJsonRpcClientTest {
+
+    private static final int CONCURRENCY = 64;
+    private static final long TOOL_DELAY_MS = 50;
+
+    private StdIoJsonRpcClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = startFakeServer(Duration.ofSeconds(30));
+        client.initialize();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+    }
+
+    @Test
+    void testListTools() throws Exception {
+        MCPSchema.ListToolsResult result = client.listTools();
+        assertEquals(1, result.getTools().size());
+        assertEquals("echo", result.getTools().get(0).getName());
+    }
+
+    @Test
+    void testConcurrentCallsArePipelined() {
+        // 预热：JIT 与进程管道
+        client.callToolAsync("echo", Map.of("text", "warmup")).block(Duration.ofSeconds(10));
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+
+        List<String> texts = Flux.range(0, CONCURRENCY)
+                .flatMap(i -> {
+                    long callStart = System.nanoTime();
+                    return client.callToolAsync("echo", Map.of("text", "msg-" + i, "delayMs", TOOL_DELAY_MS))
+                            .map(result -> {
+                                latencies.add((System.nanoTime() - callStart) / 1_000_000);
+                                String text = ((MCPSchema.TextContent) result.getContent().get(0)).getText();
+                                assertEquals("msg-" + i, text, "Response must be correlated to its own request");
+                                return text;
+                            });
+                }, CONCURRENCY)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        long wallMs = (System.nanoTime() - start) / 1_000_000;
+        assertNotNull(texts);
+        assertEquals(CONCURRENCY, texts.size());
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p50 = sorted.get(sorted.size() / 2);
+        long p99 = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+        System.out.printf("MCP stdio round-trip under concurrency=%d: p50=%dms, p99=%dms, wall=%dms%n",
+                CONCURRENCY, p50, p99, wallMs);
+
+        // 串行执行至少需要 CONCURRENCY * TOOL_DELAY_MS 毫秒
+        assertTrue(wallMs < CONCURRENCY * TOOL_DELAY_MS / 2,
+                "Requests should overlap on one pipe, wall time: " + wallMs + "ms");
+        assertEquals(0, client.getPendingRequestCount());
+    }
+
+    @Test
+    void testSyncCallsFromManyThreads() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 16; i++) {
+            String text = "sync-" + i;
+            Thread t = new Thread(() -> {
+                try {
+                    MCPSchema.CallToolResult result = client.callTool("echo", Map.of("text", text, "delayMs", TOOL_DELAY_MS));
+                    assertEquals(text, ((MCPSchema.TextContent) result.getContent().get(0)).getText());
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(10_000);
+        }
+        assertTrue(errors.isEmpty(), "Unexpected errors: " + errors);
+    }
+
+    @Test
+    void testRequestTimeoutRemovesPendingRequest() throws Exception {
+        try (StdIoJsonRpcClient shortTimeoutClient = startFakeServer(Duration.ofSeconds(2))) {
+            // 首个请求包含子进程 JVM 的启动时间
+            shortTimeoutClient.initialize();
+
+            Mono<MCPSchema.CallToolResult> slowCall =
+                    shortTimeoutClient.callToolAsync("echo", Map.of("text", "slow", "delayMs", 5000));
+            Exception e = assertThrows(Exception.class, () -> slowCall.block(Duration.ofSeconds(10)));
+            assertTrue(e instanceof TimeoutException || e.getCause() instanceof TimeoutException,
+                    "Expected timeout, got: " + e);
+            assertEquals(0, shortTimeoutClient.getPendingRequestCount());
+
+            // 超时后连接仍然可用
+            MCPSchema.CallToolResult result = shortTimeoutClient.callTool("echo", Map.of("text", "fast"));
+            assertEquals("fast", ((MCPSchema.TextContent) result.getContent().get(0)).getText());
+        }
+    }
+
+    @Test
+    void testCancellationRemovesPendingRequest() throws Exception {
+        Mono<MCPSchema.CallToolResult> slowCall = client.callToolAsync("echo", Map.of("text", "slow", "delayMs", 2000));
+        var disposable = slowCall.subscribe();
+        Thread.sleep(100);
+        assertEquals(1, client.getPendingRequestCount());
+
+        disposable.dispose();
+        assertEquals(0, client.getPendingRequestCount());
+    }
+
+    @Test
+    void testCloseFailsPendingRequests() throws Exception {
+        Mono<MCPSchema.CallToolResult> slowCall = client.callToolAsync("echo", Map.of("text", "slow", "delayMs", 5000));
+        var future = slowCall.toFuture();
+        Thread.sleep(100);
+
+        client.close();
+        assertThrows(Exception.class, () -> future.get());
+        assertEquals(0, client.getPendingRequestCount());
+    }
+
+    private static StdIoJsonRpcClient startFakeServer(Duration requestTimeout) throws Exception {
+        String javaBin = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> args = List.of("-cp", System.getProperty("java.class.path"), FakeMcpServer.class.getName());
+        return new StdIoJsonRpcClient(javaBin, args, Map.of(), requestTimeout);
+    }
+}
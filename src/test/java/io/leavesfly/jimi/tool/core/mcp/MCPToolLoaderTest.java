@@ -0,0 +1,95 @@
+package io.leavesfly.jimi.tool.core.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.leavesfly.jimi.mcp.FakeMcpServer;
+import io.leavesfly.jimi.mcp.MCPConfig;
+import io.leavesfly.jimi.tool.ToolRegistry;
+import io.leavesfly.jimi.tool.ToolResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MCPToolLoader 测试：并发启动、启动失败隔离与工具列表缓存
+ */
+class MCPToolLoaderTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MCPToolLoader loader;
+
+    @AfterEach
+    void tearDown() {
+        if (loader != null) {
+            loader.closeAll();
+        }
+    }
+
+    @Test
+    void testServersStartConcurrentlyAndFailuresAreIsolated() throws Exception {
+        Map<String, MCPConfig.ServerConfig> servers = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            servers.put("fake-" + i, fakeServer("server-" + i));
+        }
+        servers.put("broken", MCPConfig.ServerConfig.builder().command("/nonexistent/mcp-server").build());
+
+        loader = newLoader();
+        List<MCPTool> tools = loader.loadFromConfig(new MCPConfig(servers), new ToolRegistry(objectMapper));
+
+        assertEquals(4, tools.size());
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            assertEquals(4, files.filter(f -> f.toString().endsWith(".json")).count());
+        }
+    }
+
+    @Test
+    void testCachedToolsAreRegisteredAndCallable() throws Exception {
+        Map<String, MCPConfig.ServerConfig> servers = Map.of("fake", fakeServer("cached"));
+
+        loader = newLoader();
+        loader.loadFromConfig(new MCPConfig(servers), new ToolRegistry(objectMapper));
+        loader.closeAll();
+
+        // 第二次启动命中缓存，工具经延迟客户端转发到后台建立的连接
+        loader = newLoader();
+        List<MCPTool> tools = loader.loadFromConfig(new MCPConfig(servers), new ToolRegistry(objectMapper));
+        assertEquals(1, tools.size());
+
+        ToolResult result = tools.get(0).execute(Map.of("text", "hello")).block(Duration.ofSeconds(30));
+        assertNotNull(result);
+        assertTrue(result.isOk(), "Cached tool should be callable once connected: " + result.getMessage());
+        assertTrue(result.getOutput().contains("hello"));
+    }
+
+    @Test
+    void testCacheKeyDependsOnConfig() {
+        MCPToolCache cache = new MCPToolCache(objectMapper, cacheDir);
+        assertEquals(cache.keyOf(fakeServer("a")), cache.keyOf(fakeServer("a")));
+        assertNotEquals(cache.keyOf(fakeServer("a")), cache.keyOf(fakeServer("b")));
+    }
+
+    private MCPToolLoader newLoader() {
+        return new MCPToolLoader(objectMapper, new MCPToolCache(objectMapper, cacheDir), Duration.ofSeconds(30));
+    }
+
+    private static MCPConfig.ServerConfig fakeServer(String id) {
+        String javaBin = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return MCPConfig.ServerConfig.builder()
+                .command(javaBin)
+                .args(List.of("-cp", System.getProperty("java.class.path"), FakeMcpServer.class.getName()))
+                .env(Map.of("FAKE_SERVER_ID", id))
+                .build();
+    }
+}